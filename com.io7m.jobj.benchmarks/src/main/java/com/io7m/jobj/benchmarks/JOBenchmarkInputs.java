@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministically generated benchmark inputs. Every input has exactly
+ * {@link #LINES} lines, so that benchmarks can report costs per line.
+ */
+
+public enum JOBenchmarkInputs
+{
+  /**
+   * Mostly {@code v} commands, with some {@code vt} and {@code vn} commands.
+   */
+
+  VERTEX_HEAVY {
+    @Override
+    public byte[] generate()
+    {
+      return lines(JOBenchmarkInputs::vertexHeavyLine);
+    }
+  },
+
+  /**
+   * Mostly {@code f} commands in {@code v/vt/vn} form, referring to a small
+   * number of vertices declared at the start.
+   */
+
+  FACE_HEAVY {
+    @Override
+    public byte[] generate()
+    {
+      return lines(JOBenchmarkInputs::faceHeavyLine);
+    }
+  },
+
+  /**
+   * Mostly comments, with occasional {@code v} commands.
+   */
+
+  COMMENT_HEAVY {
+    @Override
+    public byte[] generate()
+    {
+      return lines(JOBenchmarkInputs::commentHeavyLine);
+    }
+  },
+
+  /**
+   * A mixture of every kind of line, produced by a {@link JOCorpusGenerator}
+   * with the default configuration.
+   */
+
+  MIXED {
+    @Override
+    public byte[] generate()
+    {
+      final JOCorpusGenerator generator =
+        JOCorpusGenerator.create(JOCorpusConfiguration.builder().build());
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(LINES * 32);
+      try {
+        generator.generateLines(out, LINES);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return out.toByteArray();
+    }
+  };
+
+  /**
+   * The number of lines in every input.
+   */
+
+  public static final int LINES = 100_000;
+
+  private static final int FACE_VERTICES = 1000;
+
+  private static void appendReal(
+    final Random r,
+    final StringBuilder out)
+  {
+    out.append(
+      String.format(Locale.ROOT, "%.6f", r.nextDouble() * 200.0 - 100.0));
+  }
+
+  private static void vertexHeavyLine(
+    final Random r,
+    final int index,
+    final StringBuilder out)
+  {
+    switch (index % 8) {
+      case 6:
+        out.append("vt ");
+        appendReal(r, out);
+        out.append(' ');
+        appendReal(r, out);
+        break;
+      case 7:
+        out.append("vn ");
+        appendReal(r, out);
+        out.append(' ');
+        appendReal(r, out);
+        out.append(' ');
+        appendReal(r, out);
+        break;
+      default:
+        out.append("v ");
+        appendReal(r, out);
+        out.append(' ');
+        appendReal(r, out);
+        out.append(' ');
+        appendReal(r, out);
+        break;
+    }
+  }
+
+  private static void faceHeavyLine(
+    final Random r,
+    final int index,
+    final StringBuilder out)
+  {
+    if (index < 3 * FACE_VERTICES) {
+      final String[] commands = {"v ", "vt ", "vn "};
+      out.append(commands[index / FACE_VERTICES]);
+      appendReal(r, out);
+      out.append(' ');
+      appendReal(r, out);
+      out.append(' ');
+      appendReal(r, out);
+      return;
+    }
+
+    out.append('f');
+    final int arity = 3 + r.nextInt(2);
+    for (int corner = 0; corner < arity; ++corner) {
+      out.append(' ');
+      out.append(1 + r.nextInt(FACE_VERTICES));
+      out.append('/');
+      out.append(1 + r.nextInt(FACE_VERTICES));
+      out.append('/');
+      out.append(1 + r.nextInt(FACE_VERTICES));
+    }
+  }
+
+  private static void commentHeavyLine(
+    final Random r,
+    final int index,
+    final StringBuilder out)
+  {
+    if (index % 10 == 0) {
+      out.append("v 1.0 2.0 3.0");
+      return;
+    }
+    out.append("# Exported by a modelling tool, object part ");
+    out.append(index);
+    out.append(", all rights reserved");
+  }
+
+  /**
+   * Generate {@link #LINES} lines from the given line template.
+   */
+
+  private static byte[] lines(
+    final LineTemplateType template)
+  {
+    final Random r = new Random(0x4a4f424aL);
+    final StringBuilder out = new StringBuilder(LINES * 32);
+    for (int index = 0; index < LINES; ++index) {
+      template.line(r, index, out);
+      out.append('\n');
+    }
+    return out.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return The UTF-8 encoded input
+   */
+
+  public abstract byte[] generate();
+
+  private interface LineTemplateType
+  {
+    void line(
+      Random r,
+      int index,
+      StringBuilder out);
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.benchmarks;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserEventListenerType;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A listener that passes every value it receives to a {@link Blackhole}, so
+ * that the parser cannot be optimized away.
+ */
+
+public final class JOBenchmarkListener implements JOParserEventListenerType
+{
+  private final Blackhole blackhole;
+
+  /**
+   * Construct a listener.
+   *
+   * @param in_blackhole The blackhole
+   */
+
+  public JOBenchmarkListener(
+    final Blackhole in_blackhole)
+  {
+    this.blackhole = Objects.requireNonNull(in_blackhole, "Blackhole");
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    throw new IllegalStateException(message);
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    throw new IllegalStateException(
+      String.format("%d:%d: %s", p.line(), p.column(), message));
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    this.blackhole.consume(line);
+  }
+
+  @Override
+  public void onEOF(final LexicalPositionType<Path> p)
+  {
+    this.blackhole.consume(p);
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    this.blackhole.consume(text);
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.blackhole.consume(name);
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.blackhole.consume(name);
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.blackhole.consume(name);
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    this.blackhole.consume(group_number);
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    this.blackhole.consume(x);
+    this.blackhole.consume(y);
+    this.blackhole.consume(z);
+    this.blackhole.consume(w);
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.blackhole.consume(x);
+    this.blackhole.consume(y);
+    this.blackhole.consume(z);
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.blackhole.consume(x);
+    this.blackhole.consume(y);
+    this.blackhole.consume(z);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    this.blackhole.consume(v);
+    this.blackhole.consume(vt);
+    this.blackhole.consume(vn);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    this.blackhole.consume(v);
+    this.blackhole.consume(vt);
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    this.blackhole.consume(v);
+    this.blackhole.consume(vn);
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    this.blackhole.consume(v);
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.blackhole.consume(index);
+  }
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.blackhole.consume(index);
+  }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * The configuration of a {@link JOCorpusGenerator}. All weights are relative
+ * to the other weights in the same group, and all frequencies are the
+ * probability that a given line is of the stated kind.
+ */
+
+public final class JOCorpusConfiguration
+{
+  private final long seed;
+  private final int[] commandWeights;
+  private final int[] arityWeights;
+  private final int[] formatWeights;
+  private final double objectFrequency;
+  private final double materialFrequency;
+  private final double smoothingFrequency;
+  private final double commentFrequency;
+  private final double continuationFrequency;
+
+  private JOCorpusConfiguration(
+    final Builder b)
+  {
+    this.seed = b.seed;
+    this.commandWeights = b.commandWeights.clone();
+    this.arityWeights = b.arityWeights.clone();
+    this.formatWeights = b.formatWeights.clone();
+    this.objectFrequency = b.objectFrequency;
+    this.materialFrequency = b.materialFrequency;
+    this.smoothingFrequency = b.smoothingFrequency;
+    this.commentFrequency = b.commentFrequency;
+    this.continuationFrequency = b.continuationFrequency;
+  }
+
+  /**
+   * @return A new builder initialized with the default configuration
+   */
+
+  public static Builder builder()
+  {
+    return new Builder();
+  }
+
+  /**
+   * @return The seed of the random number generator
+   */
+
+  public long seed()
+  {
+    return this.seed;
+  }
+
+  /**
+   * @return The relative weights of {@code v}, {@code vt}, {@code vn} and
+   * {@code f} commands, in that order
+   */
+
+  public int[] commandWeights()
+  {
+    return this.commandWeights.clone();
+  }
+
+  /**
+   * @return The relative weights of face arities, starting at arity 3
+   */
+
+  public int[] arityWeights()
+  {
+    return this.arityWeights.clone();
+  }
+
+  /**
+   * @return The relative weights of the {@code v}, {@code v/vt},
+   * {@code v//vn} and {@code v/vt/vn} face vertex formats, in that order
+   */
+
+  public int[] formatWeights()
+  {
+    return this.formatWeights.clone();
+  }
+
+  /**
+   * @return The frequency of {@code o} commands
+   */
+
+  public double objectFrequency()
+  {
+    return this.objectFrequency;
+  }
+
+  /**
+   * @return The frequency of {@code usemtl} commands
+   */
+
+  public double materialFrequency()
+  {
+    return this.materialFrequency;
+  }
+
+  /**
+   * @return The frequency of {@code s} commands
+   */
+
+  public double smoothingFrequency()
+  {
+    return this.smoothingFrequency;
+  }
+
+  /**
+   * @return The frequency of comment lines
+   */
+
+  public double commentFrequency()
+  {
+    return this.commentFrequency;
+  }
+
+  /**
+   * @return The probability that a command is split over two physical
+   * lines with a {@code \} continuation
+   */
+
+  public double continuationFrequency()
+  {
+    return this.continuationFrequency;
+  }
+
+  @Override
+  public String toString()
+  {
+    final StringBuilder sb = new StringBuilder("[JOCorpusConfiguration ");
+    sb.append("seed=").append(this.seed);
+    sb.append(" commands=").append(Arrays.toString(this.commandWeights));
+    sb.append(" arities=").append(Arrays.toString(this.arityWeights));
+    sb.append(" formats=").append(Arrays.toString(this.formatWeights));
+    sb.append(" o=").append(this.objectFrequency);
+    sb.append(" usemtl=").append(this.materialFrequency);
+    sb.append(" s=").append(this.smoothingFrequency);
+    sb.append(" comments=").append(this.commentFrequency);
+    sb.append(" continuations=").append(this.continuationFrequency);
+    sb.append(']');
+    return sb.toString();
+  }
+
+  /**
+   * A mutable builder for configurations.
+   */
+
+  public static final class Builder
+  {
+    private long seed;
+    private int[] commandWeights;
+    private int[] arityWeights;
+    private int[] formatWeights;
+    private double objectFrequency;
+    private double materialFrequency;
+    private double smoothingFrequency;
+    private double commentFrequency;
+    private double continuationFrequency;
+
+    private Builder()
+    {
+      this.seed = 0x4a4f424aL;
+      this.commandWeights = new int[]{4, 2, 2, 4};
+      this.arityWeights = new int[]{6, 3, 1};
+      this.formatWeights = new int[]{1, 1, 1, 3};
+      this.objectFrequency = 0.0001;
+      this.materialFrequency = 0.001;
+      this.smoothingFrequency = 0.001;
+      this.commentFrequency = 0.01;
+      this.continuationFrequency = 0.001;
+    }
+
+    private static int[] checkWeights(
+      final int[] weights,
+      final int expected)
+    {
+      if (expected > 0 && weights.length != expected) {
+        throw new IllegalArgumentException(
+          String.format(
+            "Expected %d weights, received %d", expected, weights.length));
+      }
+      if (weights.length == 0) {
+        throw new IllegalArgumentException("At least one weight is required");
+      }
+
+      long sum = 0L;
+      for (final int w : weights) {
+        if (w < 0) {
+          throw new IllegalArgumentException(
+            "Weights must be non-negative: " + Arrays.toString(weights));
+        }
+        sum += w;
+      }
+      if (sum == 0L) {
+        throw new IllegalArgumentException(
+          "At least one weight must be positive: " + Arrays.toString(weights));
+      }
+      return weights.clone();
+    }
+
+    private static double checkFrequency(
+      final double f)
+    {
+      if (!(f >= 0.0 && f <= 1.0)) {
+        throw new IllegalArgumentException(
+          "Frequencies must be in the range [0, 1]: " + f);
+      }
+      return f;
+    }
+
+    /**
+     * Set the seed of the random number generator.
+     *
+     * @param in_seed The seed
+     *
+     * @return this
+     */
+
+    public Builder setSeed(
+      final long in_seed)
+    {
+      this.seed = in_seed;
+      return this;
+    }
+
+    /**
+     * Set the relative weights of vertex data and face commands.
+     *
+     * @param v  The weight of {@code v} commands
+     * @param vt The weight of {@code vt} commands
+     * @param vn The weight of {@code vn} commands
+     * @param f  The weight of {@code f} commands
+     *
+     * @return this
+     */
+
+    public Builder setCommandWeights(
+      final int v,
+      final int vt,
+      final int vn,
+      final int f)
+    {
+      this.commandWeights = checkWeights(new int[]{v, vt, vn, f}, 4);
+      return this;
+    }
+
+    /**
+     * Set the relative weights of face arities. The weight at index
+     * {@code i} is the weight of faces with {@code i + 3} vertices.
+     *
+     * @param weights The weights
+     *
+     * @return this
+     */
+
+    public Builder setArityWeights(
+      final int[] weights)
+    {
+      this.arityWeights = checkWeights(weights, 0);
+      return this;
+    }
+
+    /**
+     * Set the relative weights of face vertex formats.
+     *
+     * @param v       The weight of {@code v}
+     * @param v_vt    The weight of {@code v/vt}
+     * @param v_vn    The weight of {@code v//vn}
+     * @param v_vt_vn The weight of {@code v/vt/vn}
+     *
+     * @return this
+     */
+
+    public Builder setFormatWeights(
+      final int v,
+      final int v_vt,
+      final int v_vn,
+      final int v_vt_vn)
+    {
+      this.formatWeights = checkWeights(new int[]{v, v_vt, v_vn, v_vt_vn}, 4);
+      return this;
+    }
+
+    /**
+     * Set the frequency of {@code o} commands.
+     *
+     * @param f The frequency
+     *
+     * @return this
+     */
+
+    public Builder setObjectFrequency(
+      final double f)
+    {
+      this.objectFrequency = checkFrequency(f);
+      return this;
+    }
+
+    /**
+     * Set the frequency of {@code usemtl} commands.
+     *
+     * @param f The frequency
+     *
+     * @return this
+     */
+
+    public Builder setMaterialFrequency(
+      final double f)
+    {
+      this.materialFrequency = checkFrequency(f);
+      return this;
+    }
+
+    /**
+     * Set the frequency of {@code s} commands.
+     *
+     * @param f The frequency
+     *
+     * @return this
+     */
+
+    public Builder setSmoothingFrequency(
+      final double f)
+    {
+      this.smoothingFrequency = checkFrequency(f);
+      return this;
+    }
+
+    /**
+     * Set the frequency of comment lines.
+     *
+     * @param f The frequency
+     *
+     * @return this
+     */
+
+    public Builder setCommentFrequency(
+      final double f)
+    {
+      this.commentFrequency = checkFrequency(f);
+      return this;
+    }
+
+    /**
+     * Set the probability that a command is split over two physical lines.
+     * At most one continuation is inserted into each command.
+     *
+     * @param f The frequency
+     *
+     * @return this
+     */
+
+    public Builder setContinuationFrequency(
+      final double f)
+    {
+      this.continuationFrequency = checkFrequency(f);
+      return this;
+    }
+
+    /**
+     * @return A configuration based on the values given so far
+     */
+
+    public JOCorpusConfiguration build()
+    {
+      final double sum =
+        this.objectFrequency
+          + this.materialFrequency
+          + this.smoothingFrequency
+          + this.commentFrequency;
+      if (sum > 1.0) {
+        throw new IllegalArgumentException(
+          "The sum of the o, usemtl, s and comment frequencies exceeds 1: "
+            + sum);
+      }
+      return new JOCorpusConfiguration(this);
+    }
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * A deterministic generator of synthetic OBJ text. Two generators created
+ * with equal configurations produce byte-for-byte identical output, and
+ * output is streamed in bounded memory, so inputs of any size can be
+ * produced without storing them.
+ *
+ * <p>Output is always well-formed: faces only refer to elements that have
+ * already been declared, and a logical line is never cut short by a size
+ * limit. Successive calls continue the same stream.</p>
+ */
+
+public final class JOCorpusGenerator
+{
+  private static final int FLUSH_SIZE = 65536;
+  private static final int MATERIALS = 16;
+  private static final int GROUPS = 32;
+
+  private final JOCorpusConfiguration config;
+  private final SplittableRandom random;
+  private final int[] commandWeights;
+  private final int[] arityWeights;
+  private final int[] formatWeights;
+  private final StringBuilder line;
+  private final StringBuilder buffer;
+  private long vertices;
+  private long textures;
+  private long normals;
+  private long objects;
+  private long lines;
+  private boolean started;
+
+  private JOCorpusGenerator(
+    final JOCorpusConfiguration in_config)
+  {
+    this.config = Objects.requireNonNull(in_config, "Configuration");
+    this.random = new SplittableRandom(in_config.seed());
+    this.commandWeights = in_config.commandWeights();
+    this.arityWeights = in_config.arityWeights();
+    this.formatWeights = in_config.formatWeights();
+    this.line = new StringBuilder(256);
+    this.buffer = new StringBuilder(FLUSH_SIZE + 256);
+  }
+
+  /**
+   * Create a new generator.
+   *
+   * @param config The configuration
+   *
+   * @return A new generator
+   */
+
+  public static JOCorpusGenerator create(
+    final JOCorpusConfiguration config)
+  {
+    return new JOCorpusGenerator(config);
+  }
+
+  /**
+   * @return The generator configuration
+   */
+
+  public JOCorpusConfiguration configuration()
+  {
+    return this.config;
+  }
+
+  /**
+   * @return The number of logical lines generated so far
+   */
+
+  public long lines()
+  {
+    return this.lines;
+  }
+
+  /**
+   * Generate logical lines until at least {@code size} bytes have been
+   * written.
+   *
+   * @param out  The output stream
+   * @param size The minimum number of bytes to write
+   *
+   * @return The number of bytes written
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public long generateBytes(
+    final OutputStream out,
+    final long size)
+    throws IOException
+  {
+    Objects.requireNonNull(out, "Output");
+
+    long written = 0L;
+    while (written < size) {
+      this.next();
+      written += this.line.length();
+      this.buffer.append(this.line);
+      if (this.buffer.length() >= FLUSH_SIZE) {
+        this.flush(out);
+      }
+    }
+    this.flush(out);
+    return written;
+  }
+
+  /**
+   * Generate exactly {@code count} logical lines.
+   *
+   * @param out   The output stream
+   * @param count The number of logical lines
+   *
+   * @return The number of bytes written
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public long generateLines(
+    final OutputStream out,
+    final long count)
+    throws IOException
+  {
+    Objects.requireNonNull(out, "Output");
+
+    long written = 0L;
+    for (long index = 0L; index < count; ++index) {
+      this.next();
+      written += this.line.length();
+      this.buffer.append(this.line);
+      if (this.buffer.length() >= FLUSH_SIZE) {
+        this.flush(out);
+      }
+    }
+    this.flush(out);
+    return written;
+  }
+
+  private void flush(
+    final OutputStream out)
+    throws IOException
+  {
+    // The generated text is entirely ASCII.
+    out.write(this.buffer.toString().getBytes(StandardCharsets.US_ASCII));
+    this.buffer.setLength(0);
+  }
+
+  private int pick(
+    final int[] weights)
+  {
+    int sum = 0;
+    for (final int w : weights) {
+      sum += w;
+    }
+
+    int x = this.random.nextInt(sum);
+    for (int index = 0; index < weights.length; ++index) {
+      x -= weights[index];
+      if (x < 0) {
+        return index;
+      }
+    }
+    throw new IllegalStateException("Unreachable code");
+  }
+
+  /**
+   * Generate the next logical line into {@link #line}, including the
+   * terminating newline and any continuation.
+   */
+
+  private void next()
+  {
+    this.line.setLength(0);
+    ++this.lines;
+
+    if (!this.started) {
+      this.started = true;
+      this.line.append("mtllib corpus.mtl\n");
+      return;
+    }
+
+    double u = this.random.nextDouble();
+    u -= this.config.commentFrequency();
+    if (u < 0.0) {
+      this.comment();
+      return;
+    }
+    u -= this.config.objectFrequency();
+    if (u < 0.0) {
+      this.line.append("o object_");
+      this.line.append(this.objects);
+      ++this.objects;
+    } else {
+      u -= this.config.materialFrequency();
+      if (u < 0.0) {
+        this.line.append("usemtl material_");
+        this.line.append(this.random.nextInt(MATERIALS));
+      } else {
+        u -= this.config.smoothingFrequency();
+        if (u < 0.0) {
+          this.smoothing();
+        } else {
+          this.command();
+        }
+      }
+    }
+
+    this.continuation();
+    this.line.append('\n');
+  }
+
+  private void comment()
+  {
+    this.line.append("# generated line ");
+    this.line.append(this.lines);
+    this.line.append(", seed ");
+    this.line.append(this.config.seed());
+    this.line.append('\n');
+  }
+
+  private void smoothing()
+  {
+    final int group = this.random.nextInt(GROUPS + 1);
+    if (group == 0) {
+      this.line.append("s off");
+    } else {
+      this.line.append("s ");
+      this.line.append(group);
+    }
+  }
+
+  private void command()
+  {
+    switch (this.pick(this.commandWeights)) {
+      case 0: {
+        this.vertex();
+        break;
+      }
+      case 1: {
+        this.texture();
+        break;
+      }
+      case 2: {
+        this.normal();
+        break;
+      }
+      default: {
+        this.face();
+        break;
+      }
+    }
+  }
+
+  private void vertex()
+  {
+    this.line.append('v');
+    this.real();
+    this.real();
+    this.real();
+    if (this.random.nextInt(8) == 0) {
+      this.line.append(" 1.000000");
+    }
+    ++this.vertices;
+  }
+
+  private void texture()
+  {
+    this.line.append("vt");
+    this.real();
+    this.real();
+    ++this.textures;
+  }
+
+  private void normal()
+  {
+    this.line.append("vn");
+    this.real();
+    this.real();
+    this.real();
+    ++this.normals;
+  }
+
+  /**
+   * Generate a face. A face that would refer to elements that have not yet
+   * been declared is replaced by a declaration of the missing element.
+   */
+
+  private void face()
+  {
+    final int format = this.pick(this.formatWeights);
+    final boolean uses_vt = format == 1 || format == 3;
+    final boolean uses_vn = format == 2 || format == 3;
+
+    if (this.vertices == 0L) {
+      this.vertex();
+      return;
+    }
+    if (uses_vt && this.textures == 0L) {
+      this.texture();
+      return;
+    }
+    if (uses_vn && this.normals == 0L) {
+      this.normal();
+      return;
+    }
+
+    this.line.append('f');
+    final int arity = 3 + this.pick(this.arityWeights);
+    for (int index = 0; index < arity; ++index) {
+      this.line.append(' ');
+      this.line.append(1L + this.random.nextLong(this.vertices));
+      if (uses_vt) {
+        this.line.append('/');
+        this.line.append(1L + this.random.nextLong(this.textures));
+      }
+      if (uses_vn) {
+        this.line.append(uses_vt ? "/" : "//");
+        this.line.append(1L + this.random.nextLong(this.normals));
+      }
+    }
+  }
+
+  /**
+   * Append a space followed by a real number in the range {@code [-100,
+   * 100]} with six fractional digits.
+   */
+
+  private void real()
+  {
+    final int value = this.random.nextInt(-100_000_000, 100_000_001);
+    final int magnitude = Math.abs(value);
+    final int fraction = magnitude % 1_000_000;
+
+    this.line.append(' ');
+    if (value < 0) {
+      this.line.append('-');
+    }
+    this.line.append(magnitude / 1_000_000);
+    this.line.append('.');
+    for (int digits = 100_000; digits > fraction && digits > 1; digits /= 10) {
+      this.line.append('0');
+    }
+    this.line.append(fraction);
+  }
+
+  /**
+   * Possibly split the current line over two physical lines by inserting a
+   * {@code \} continuation after a space.
+   */
+
+  private void continuation()
+  {
+    if (this.random.nextDouble() < this.config.continuationFrequency()) {
+      final int from = this.random.nextInt(this.line.length());
+      final int space = this.line.indexOf(" ", from);
+      if (space != -1) {
+        this.line.insert(space + 1, "\\\n");
+      }
+    }
+  }
+}
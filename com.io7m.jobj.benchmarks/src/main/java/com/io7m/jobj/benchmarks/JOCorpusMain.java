@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * A command line frontend to the corpus generator. Usage:
+ * {@code output size [seed]}, where {@code size} is a number of bytes with
+ * an optional {@code K}, {@code M} or {@code G} suffix.
+ */
+
+public final class JOCorpusMain
+{
+  private JOCorpusMain()
+  {
+
+  }
+
+  private static long parseSize(
+    final String text)
+  {
+    final String upper = text.toUpperCase(Locale.ROOT);
+    final char last = upper.charAt(upper.length() - 1);
+    final String digits = upper.substring(0, upper.length() - 1);
+    switch (last) {
+      case 'K':
+        return Long.parseLong(digits) << 10;
+      case 'M':
+        return Long.parseLong(digits) << 20;
+      case 'G':
+        return Long.parseLong(digits) << 30;
+      default:
+        return Long.parseLong(upper);
+    }
+  }
+
+  /**
+   * Main entry point.
+   *
+   * @param args Command line arguments
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void main(final String[] args)
+    throws IOException
+  {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println("usage: output size [seed]");
+      System.exit(1);
+      return;
+    }
+
+    final Path path = Paths.get(args[0]);
+    final long size = parseSize(args[1]);
+    final JOCorpusConfiguration.Builder builder =
+      JOCorpusConfiguration.builder();
+    if (args.length == 3) {
+      builder.setSeed(Long.decode(args[2]).longValue());
+    }
+
+    final JOCorpusGenerator generator =
+      JOCorpusGenerator.create(builder.build());
+    try (OutputStream out =
+           new BufferedOutputStream(Files.newOutputStream(path))) {
+      final long written = generator.generateBytes(out, size);
+      System.out.printf(
+        "%s: %d bytes, %d lines%n", path, written, generator.lines());
+    }
+  }
+}
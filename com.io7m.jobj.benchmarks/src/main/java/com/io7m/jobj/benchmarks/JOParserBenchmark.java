@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.benchmarks;
+
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserStatistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end parser throughput. The primary score is in lines per second,
+ * and so the GC profiler's {@code gc.alloc.rate.norm} is the number of bytes
+ * allocated per line. The {@code bytes} secondary score is the input
+ * throughput in bytes per second.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JOParserBenchmark
+{
+  @Param({"VERTEX_HEAVY", "FACE_HEAVY", "COMMENT_HEAVY", "MIXED"})
+  private JOBenchmarkInputs input;
+
+  private byte[] data;
+  private Path file;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JOParserBenchmark()
+  {
+
+  }
+
+  /**
+   * Generate the input, and write a copy of it to a temporary file.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Setup(Level.Trial)
+  public void setup()
+    throws IOException
+  {
+    this.data = this.input.generate();
+    this.file = Files.createTempFile("jobj-benchmark", ".obj");
+    Files.write(this.file, this.data);
+  }
+
+  /**
+   * Delete the temporary file.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+    throws IOException
+  {
+    Files.deleteIfExists(this.file);
+  }
+
+  /**
+   * Parse the input from a stream.
+   *
+   * @param counters The throughput counters
+   * @param bh       A blackhole
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(JOBenchmarkInputs.LINES)
+  public void parseStream(
+    final Throughput counters,
+    final Blackhole bh)
+  {
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(this.data),
+      new JOBenchmarkListener(bh)).run();
+    counters.bytes += this.data.length;
+  }
+
+  /**
+   * Parse the input from a memory-mapped file.
+   *
+   * @param counters The throughput counters
+   * @param bh       A blackhole
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(JOBenchmarkInputs.LINES)
+  public void parsePath(
+    final Throughput counters,
+    final Blackhole bh)
+  {
+    JOParser.newParserFromPath(this.file, new JOBenchmarkListener(bh)).run();
+    counters.bytes += this.data.length;
+  }
+
+  /**
+   * Parse the input from a stream, collecting statistics with the default
+   * sampling interval.
+   *
+   * @param counters The throughput counters
+   * @param bh       A blackhole
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(JOBenchmarkInputs.LINES)
+  public void parseStreamStatistics(
+    final Throughput counters,
+    final Blackhole bh)
+  {
+    final JOParserStatistics statistics = JOParserStatistics.create();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(this.data),
+      new JOBenchmarkListener(bh),
+      statistics).run();
+    bh.consume(statistics);
+    counters.bytes += this.data.length;
+  }
+
+  /**
+   * Input throughput counters.
+   */
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Throughput
+  {
+    /**
+     * The number of bytes parsed.
+     */
+
+    public long bytes;
+
+    /**
+     * Construct counters.
+     */
+
+    public Throughput()
+    {
+
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the number parser (formerly {@code getDouble}), in numbers
+ * per second.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JODoubleParserBenchmark
+{
+  private static final String[] SAMPLES = {
+    "1.0",
+    "-0.125000",
+    "17.500000",
+    "-99.999999",
+    "0.577350",
+    "3.4028234663852886E38",
+    "1e-5",
+    "123456789",
+  };
+
+  /**
+   * {@code true} if numbers are parsed in single precision.
+   */
+
+  @Param({"false", "true"})
+  public boolean single;
+
+  private final byte[][] samples;
+  private JODoubleParser parser;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JODoubleParserBenchmark()
+  {
+    this.samples = new byte[SAMPLES.length][];
+    for (int index = 0; index < SAMPLES.length; ++index) {
+      this.samples[index] = SAMPLES[index].getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Create the parser for the current precision.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.parser = new JODoubleParser(this.single);
+  }
+
+  /**
+   * Run the benchmark over every sample.
+   *
+   * @param bh A blackhole
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(8)
+  public void parse(final Blackhole bh)
+  {
+    for (int index = 0; index < this.samples.length; ++index) {
+      final byte[] data = this.samples[index];
+      bh.consume(this.parser.parse(data, 0, data.length));
+      bh.consume(this.parser.value());
+    }
+  }
+}
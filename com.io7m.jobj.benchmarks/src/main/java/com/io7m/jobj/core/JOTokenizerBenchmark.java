@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the tokenizer (formerly {@code getTokens}), in lines per
+ * second.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JOTokenizerBenchmark
+{
+  private static final String[] SAMPLES = {
+    "v 1.0 2.0 3.0",
+    "v -0.125000 17.500000 -99.999999 1.0",
+    "vn 0.577350 0.577350 0.577350",
+    "vt 0.5 0.25",
+    "f 1/1/1 2/2/2 3/3/3 4/4/4",
+    "f 1//1 2//2 3//3",
+    "# a comment with a number of words in it",
+    "usemtl material_0",
+  };
+
+  private final byte[][] samples;
+  private final JOTokenizer tokenizer;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JOTokenizerBenchmark()
+  {
+    this.tokenizer = new JOTokenizer();
+    this.samples = new byte[SAMPLES.length][];
+    for (int index = 0; index < SAMPLES.length; ++index) {
+      this.samples[index] = SAMPLES[index].getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Run the benchmark over every sample.
+   *
+   * @param bh A blackhole
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(8)
+  public void tokenize(final Blackhole bh)
+  {
+    for (int index = 0; index < this.samples.length; ++index) {
+      final byte[] data = this.samples[index];
+      this.tokenizer.tokenize(data, 0, data.length);
+      bh.consume(this.tokenizer.count());
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.benchmarks;
+
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+public final class JOCorpusGeneratorTest
+{
+  private static byte[] generate(
+    final JOCorpusConfiguration config,
+    final long lines)
+    throws Exception
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JOCorpusGenerator.create(config).generateLines(out, lines);
+    return out.toByteArray();
+  }
+
+  private static int errors(
+    final byte[] data)
+  {
+    final JOMeshBuilder b = new JOMeshBuilder();
+    JOParser.newParserFromStream(
+      Optional.empty(), new ByteArrayInputStream(data), b).run();
+    return b.errorCount();
+  }
+
+  private static long newlines(
+    final byte[] data)
+  {
+    long count = 0L;
+    for (final byte b : data) {
+      if (b == '\n') {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testDeterministic()
+    throws Exception
+  {
+    final JOCorpusConfiguration a =
+      JOCorpusConfiguration.builder().setSeed(23L).build();
+    final JOCorpusConfiguration b =
+      JOCorpusConfiguration.builder().setSeed(23L).build();
+    final JOCorpusConfiguration c =
+      JOCorpusConfiguration.builder().setSeed(24L).build();
+
+    final byte[] data = generate(a, 20_000L);
+    Assert.assertArrayEquals(data, generate(b, 20_000L));
+    Assert.assertFalse(Arrays.equals(data, generate(c, 20_000L)));
+  }
+
+  @Test
+  public void testWellFormed()
+    throws Exception
+  {
+    final byte[] data =
+      generate(JOCorpusConfiguration.builder().build(), 50_000L);
+    Assert.assertEquals(0L, (long) errors(data));
+  }
+
+  /**
+   * Every kind of line, including a continuation in every command, still
+   * parses without errors, and a continuation frequency of 1 terminates.
+   */
+
+  @Test
+  public void testWellFormedExtremes()
+    throws Exception
+  {
+    final JOCorpusConfiguration config =
+      JOCorpusConfiguration.builder()
+        .setObjectFrequency(0.1)
+        .setMaterialFrequency(0.1)
+        .setSmoothingFrequency(0.1)
+        .setCommentFrequency(0.1)
+        .setContinuationFrequency(1.0)
+        .build();
+
+    final byte[] data = generate(config, 20_000L);
+    Assert.assertEquals(0L, (long) errors(data));
+    Assert.assertTrue(newlines(data) > 20_000L);
+    Assert.assertTrue(newlines(data) <= 40_000L);
+  }
+
+  /**
+   * Every benchmark input parses without errors. Inputs contain exactly
+   * {@link JOBenchmarkInputs#LINES} logical lines, some of which may be
+   * split over several physical lines.
+   */
+
+  @Test
+  public void testInputsWellFormed()
+  {
+    for (final JOBenchmarkInputs input : JOBenchmarkInputs.values()) {
+      final byte[] data = input.generate();
+      Assert.assertEquals(input.name(), 0L, (long) errors(data));
+      Assert.assertTrue(input.name(), newlines(data) >= JOBenchmarkInputs.LINES);
+    }
+  }
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.math.BigInteger;
+
+/**
+ * <p>A formatter that writes the shortest decimal representation of a
+ * double (or float) that parses back to exactly the same double (or float),
+ * directly as ASCII bytes, and does not allocate.</p>
+ *
+ * <p>Decimals are computed with Giulietti's Schubfach algorithm. Among the
+ * shortest decimals that round to the value, the one closest to the value
+ * is chosen, with ties broken towards the even digit. Numbers are written
+ * in plain notation ({@code 1}, {@code 0.25}, {@code -1200}) where the
+ * decimal point is within a few places of the digits, and in scientific
+ * notation ({@code 1.5e-7}) otherwise; both are accepted by the parser.</p>
+ */
+
+final class JODoubleFormatter
+{
+  /**
+   * The maximum number of bytes written for a single number.
+   */
+
+  static final int MAXIMUM_LENGTH = 32;
+
+  private static final int P = 53;
+  private static final int Q_MIN = -1074;
+  private static final int K_MIN = -324;
+  private static final int K_MAX = 292;
+  private static final long C_MIN = 1L << (P - 1);
+  private static final int BQ_MASK = 0x7ff;
+  private static final long T_MASK = C_MIN - 1L;
+  private static final long MASK_63 = 0x7fff_ffff_ffff_ffffL;
+  private static final long C_TINY = 3L;
+  private static final int F_P = 24;
+  private static final int F_Q_MIN = -149;
+  private static final int F_C_MIN = 1 << (F_P - 1);
+  private static final int F_BQ_MASK = 0xff;
+  private static final int F_T_MASK = F_C_MIN - 1;
+  private static final int F_C_TINY = 8;
+  private static final int PLAIN_MAXIMUM = 21;
+  private static final int PLAIN_MINIMUM = -6;
+  private static final long[] G;
+  private static final long[] POWERS_OF_TEN;
+
+  static {
+    G = new long[(K_MAX - K_MIN + 1) * 2];
+    for (int k = K_MIN; k <= K_MAX; ++k) {
+      final BigInteger g = powerOfTen(-k);
+      G[(k - K_MIN) * 2] = g.shiftRight(63).longValue();
+      G[(k - K_MIN) * 2 + 1] = g.longValue() & MASK_63;
+    }
+
+    POWERS_OF_TEN = new long[19];
+    long p = 1L;
+    for (int index = 0; index < POWERS_OF_TEN.length; ++index) {
+      POWERS_OF_TEN[index] = p;
+      p *= 10L;
+    }
+  }
+
+  private long digits;
+  private int exponent;
+
+  JODoubleFormatter()
+  {
+
+  }
+
+  /**
+   * Compute {@code floor(10^e * 2^(125 - floor(e * log2(10)))) + 1}, a 126
+   * bit approximation of {@code 10^e} from above.
+   */
+
+  private static BigInteger powerOfTen(
+    final int e)
+  {
+    final int shift = 125 - flog2pow10(e);
+    if (e >= 0) {
+      final BigInteger n = BigInteger.TEN.pow(e);
+      final BigInteger b = shift >= 0 ? n.shiftLeft(shift) : n.shiftRight(-shift);
+      return b.add(BigInteger.ONE);
+    }
+    return BigInteger.ONE.shiftLeft(shift)
+      .divide(BigInteger.TEN.pow(-e))
+      .add(BigInteger.ONE);
+  }
+
+  /**
+   * @return {@code floor(q * log10(2))}
+   */
+
+  private static int flog10pow2(
+    final int q)
+  {
+    return (int) ((long) q * 661_971_961_083L >> 41);
+  }
+
+  /**
+   * @return {@code floor(q * log10(2) + log10(3/4))}
+   */
+
+  private static int flog10threeQuartersPow2(
+    final int q)
+  {
+    return (int) ((long) q * 661_971_961_083L + -274_743_187_321L >> 41);
+  }
+
+  /**
+   * @return {@code floor(e * log2(10))}
+   */
+
+  private static int flog2pow10(
+    final int e)
+  {
+    return (int) ((long) e * 913_124_641_741L >> 38);
+  }
+
+  /**
+   * Compute an approximation of {@code g * cp / 2^127}, rounded to odd.
+   */
+
+  private static long rop(
+    final long g1,
+    final long g0,
+    final long cp)
+  {
+    final long x1 = Math.multiplyHigh(g0, cp);
+    final long y0 = g1 * cp;
+    final long y1 = Math.multiplyHigh(g1, cp);
+    final long z = (y0 >>> 1) + x1;
+    final long vbp = y1 + (z >>> 63);
+    return vbp | (z & MASK_63) + MASK_63 >>> 63;
+  }
+
+  private static int length(
+    final long value)
+  {
+    int count = 1;
+    while (count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+      ++count;
+    }
+    return count;
+  }
+
+  /**
+   * Write the given number.
+   *
+   * @param value  The number
+   * @param out    The output buffer, with at least {@link #MAXIMUM_LENGTH}
+   *               bytes available after {@code offset}
+   * @param offset The offset at which to write
+   *
+   * @return The offset one past the last byte written
+   */
+
+  int format(
+    final double value,
+    final byte[] out,
+    final int offset)
+  {
+    final long bits = Double.doubleToRawLongBits(value);
+    final long t = bits & T_MASK;
+    final int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+
+    if (bq == BQ_MASK) {
+      if (t != 0L) {
+        return ascii(out, offset, "NaN");
+      }
+      return ascii(out, offset, bits > 0L ? "Infinity" : "-Infinity");
+    }
+
+    int position = offset;
+    if (bits < 0L) {
+      out[position] = '-';
+      ++position;
+    }
+
+    if (bq != 0) {
+      final int mq = -Q_MIN + 1 - bq;
+      final long c = C_MIN | t;
+      if (0 < mq && mq < P) {
+        final long f = c >> mq;
+        if (f << mq == c) {
+          this.digits = f;
+          this.exponent = 0;
+          return this.write(out, position);
+        }
+      }
+      this.decimal(-mq, c, 0, C_MIN, Q_MIN);
+      return this.write(out, position);
+    }
+
+    if (t != 0L) {
+      if (t < C_TINY) {
+        this.decimal(Q_MIN, 10L * t, -1, C_MIN, Q_MIN);
+      } else {
+        this.decimal(Q_MIN, t, 0, C_MIN, Q_MIN);
+      }
+      return this.write(out, position);
+    }
+
+    out[position] = '0';
+    return position + 1;
+  }
+
+  /**
+   * Write the given number. The shortest decimal is computed with respect to
+   * the float rounding interval of the value, so {@code 0.1f} is written as
+   * {@code 0.1} rather than as the digits of its exact double value.
+   *
+   * @param value  The number
+   * @param out    The output buffer, with at least {@link #MAXIMUM_LENGTH}
+   *               bytes available after {@code offset}
+   * @param offset The offset at which to write
+   *
+   * @return The offset one past the last byte written
+   */
+
+  int format(
+    final float value,
+    final byte[] out,
+    final int offset)
+  {
+    final int bits = Float.floatToRawIntBits(value);
+    final int t = bits & F_T_MASK;
+    final int bq = (bits >>> (F_P - 1)) & F_BQ_MASK;
+
+    if (bq == F_BQ_MASK) {
+      if (t != 0) {
+        return ascii(out, offset, "NaN");
+      }
+      return ascii(out, offset, bits > 0 ? "Infinity" : "-Infinity");
+    }
+
+    int position = offset;
+    if (bits < 0) {
+      out[position] = '-';
+      ++position;
+    }
+
+    if (bq != 0) {
+      final int mq = -F_Q_MIN + 1 - bq;
+      final int c = F_C_MIN | t;
+      if (0 < mq && mq < F_P) {
+        final int f = c >> mq;
+        if (f << mq == c) {
+          this.digits = (long) f;
+          this.exponent = 0;
+          return this.write(out, position);
+        }
+      }
+      this.decimal(-mq, (long) c, 0, (long) F_C_MIN, F_Q_MIN);
+      return this.write(out, position);
+    }
+
+    if (t != 0) {
+      if (t < F_C_TINY) {
+        this.decimal(F_Q_MIN, 10L * (long) t, -1, (long) F_C_MIN, F_Q_MIN);
+      } else {
+        this.decimal(F_Q_MIN, (long) t, 0, (long) F_C_MIN, F_Q_MIN);
+      }
+      return this.write(out, position);
+    }
+
+    out[position] = '0';
+    return position + 1;
+  }
+
+  private static int ascii(
+    final byte[] out,
+    final int offset,
+    final String text)
+  {
+    final int size = text.length();
+    for (int index = 0; index < size; ++index) {
+      out[offset + index] = (byte) text.charAt(index);
+    }
+    return offset + size;
+  }
+
+  /**
+   * Compute the shortest decimal for {@code c * 2^q}, leaving the result in
+   * {@link #digits} and {@link #exponent}. The values {@code c_min} and
+   * {@code q_min} are the smallest normal significand and the smallest
+   * exponent of the format being written.
+   */
+
+  private void decimal(
+    final int q,
+    final long c,
+    final int dk,
+    final long c_min,
+    final int q_min)
+  {
+    final int out = (int) c & 0x1;
+    final long cb = c << 2;
+    final long cbr = cb + 2L;
+    final long cbl;
+    final int k;
+    if (c != c_min || q == q_min) {
+      cbl = cb - 2L;
+      k = flog10pow2(q);
+    } else {
+      cbl = cb - 1L;
+      k = flog10threeQuartersPow2(q);
+    }
+
+    final int h = q + flog2pow10(-k) + 2;
+    final long g1 = G[(k - K_MIN) * 2];
+    final long g0 = G[(k - K_MIN) * 2 + 1];
+    final long vb = rop(g1, g0, cb << h);
+    final long vbl = rop(g1, g0, cbl << h);
+    final long vbr = rop(g1, g0, cbr << h);
+
+    final long s = vb >> 2;
+    if (s >= 100L) {
+      final long sp10 = 10L * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+      final long tp10 = sp10 + 10L;
+      final boolean upin = vbl + out <= sp10 << 2;
+      final boolean wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        this.digits = upin ? sp10 : tp10;
+        this.exponent = k;
+        return;
+      }
+    }
+
+    final long t = s + 1L;
+    final boolean uin = vbl + out <= s << 2;
+    final boolean win = (t << 2) + out <= vbr;
+    this.exponent = k + dk;
+    if (uin != win) {
+      this.digits = uin ? s : t;
+      return;
+    }
+
+    final long cmp = vb - (s + t << 1);
+    this.digits = cmp < 0L || cmp == 0L && (s & 0x1L) == 0L ? s : t;
+  }
+
+  /**
+   * Write {@link #digits} times ten to the power {@link #exponent}.
+   */
+
+  private int write(
+    final byte[] out,
+    final int offset)
+  {
+    long f = this.digits;
+    int e = this.exponent;
+    while (f % 10L == 0L) {
+      f /= 10L;
+      ++e;
+    }
+
+    final int len = length(f);
+    final int point = len + e;
+    if (e >= 0 && point <= PLAIN_MAXIMUM) {
+      return writeInteger(out, offset, f, len, e);
+    }
+    if (e < 0 && point > 0) {
+      return writeFraction(out, offset, f, len, point);
+    }
+    if (e < 0 && point > PLAIN_MINIMUM) {
+      return writeSmall(out, offset, f, len, point);
+    }
+    return writeScientific(out, offset, f, len, point);
+  }
+
+  /**
+   * Write {@code f} followed by {@code e} zeros: {@code 1200}.
+   */
+
+  private static int writeInteger(
+    final byte[] out,
+    final int offset,
+    final long f,
+    final int len,
+    final int e)
+  {
+    int position = writeDigits(out, offset, f, len);
+    for (int index = 0; index < e; ++index) {
+      out[position] = '0';
+      ++position;
+    }
+    return position;
+  }
+
+  /**
+   * Write {@code f} with a decimal point after {@code point} digits:
+   * {@code 12.5}.
+   */
+
+  private static int writeFraction(
+    final byte[] out,
+    final int offset,
+    final long f,
+    final int len,
+    final int point)
+  {
+    writeDigits(out, offset, f, len);
+    System.arraycopy(
+      out, offset + point, out, offset + point + 1, len - point);
+    out[offset + point] = '.';
+    return offset + len + 1;
+  }
+
+  /**
+   * Write {@code f} preceded by a decimal point and {@code -point} zeros:
+   * {@code 0.0125}.
+   */
+
+  private static int writeSmall(
+    final byte[] out,
+    final int offset,
+    final long f,
+    final int len,
+    final int point)
+  {
+    out[offset] = '0';
+    out[offset + 1] = '.';
+    int position = offset + 2;
+    for (int index = point; index < 0; ++index) {
+      out[position] = '0';
+      ++position;
+    }
+    return writeDigits(out, position, f, len);
+  }
+
+  /**
+   * Write {@code f} in scientific notation: {@code 1.25e-7}.
+   */
+
+  private static int writeScientific(
+    final byte[] out,
+    final int offset,
+    final long f,
+    final int len,
+    final int point)
+  {
+    int position = offset;
+    writeDigits(out, position + 1, f, len);
+    out[position] = out[position + 1];
+    if (len > 1) {
+      out[position + 1] = '.';
+      position += len + 1;
+    } else {
+      position += 1;
+    }
+
+    out[position] = 'e';
+    ++position;
+    int scientific = point - 1;
+    if (scientific < 0) {
+      out[position] = '-';
+      ++position;
+      scientific = -scientific;
+    }
+    return writeDigits(out, position, scientific, length(scientific));
+  }
+
+  /**
+   * Write the {@code len} decimal digits of the non-negative value.
+   */
+
+  static int writeDigits(
+    final byte[] out,
+    final int offset,
+    final long value,
+    final int len)
+  {
+    long v = value;
+    for (int index = offset + len - 1; index >= offset; --index) {
+      out[index] = (byte) ('0' + (int) (v % 10L));
+      v /= 10L;
+    }
+    return offset + len;
+  }
+}
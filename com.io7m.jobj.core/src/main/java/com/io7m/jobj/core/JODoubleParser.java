@@ -0,0 +1,671 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.math.BigInteger;
+
+/**
+ * <p>A parser for decimal floating point numbers that reads directly from
+ * UTF-8 encoded bytes and does not allocate.</p>
+ *
+ * <p>The parser accepts exactly the syntax accepted by
+ * {@link Double#parseDouble(String)} (with the exception of surrounding
+ * whitespace, which is never present in tokens), and produces bit-identical
+ * results. Decimal numbers are converted using Clinger's fast path where
+ * possible, and the Eisel-Lemire algorithm otherwise. In the rare cases that
+ * Eisel-Lemire cannot decide the correctly rounded result (numbers with more
+ * than nineteen significant digits that are extremely close to a halfway
+ * point, subnormals, and hexadecimal notation), the parser falls back to
+ * {@link Double#parseDouble(String)}.</p>
+ *
+ * <p>In single precision mode, decimal numbers are instead converted
+ * directly to the nearest float with the same algorithms (falling back to
+ * {@link Float#parseFloat(String)}), and the result is bit-identical to
+ * {@link Float#parseFloat(String)}. Converting to the nearest double and
+ * then narrowing to a float would occasionally round twice, and produce
+ * the wrong float.</p>
+ *
+ * <p>Malformed numbers are reported by returning {@code false}; no
+ * exceptions are raised.</p>
+ */
+
+final class JODoubleParser
+{
+  private static final int SMALLEST_POWER = -342;
+  private static final int LARGEST_POWER = 308;
+  private static final int MAX_DIGITS = 19;
+  private static final int MAX_EXPONENT = 0x10000;
+  private static final int SMALLEST_POWER_FLOAT = -65;
+  private static final int LARGEST_POWER_FLOAT = 38;
+  private static final long DOUBLE_ROUND_MASK = 0x1FFL;
+  private static final long FLOAT_ROUND_MASK = (1L << 38) - 1L;
+  private static final long[] POWERS_HIGH;
+  private static final long[] POWERS_LOW;
+  private static final double[] POWERS_EXACT;
+  private static final float[] POWERS_EXACT_FLOAT;
+
+  static {
+    final int count = LARGEST_POWER - SMALLEST_POWER + 1;
+    POWERS_HIGH = new long[count];
+    POWERS_LOW = new long[count];
+
+    final BigInteger five = BigInteger.valueOf(5L);
+    for (int q = SMALLEST_POWER; q <= LARGEST_POWER; ++q) {
+      final BigInteger value = truncatedPowerOfFive(five, q);
+      POWERS_HIGH[q - SMALLEST_POWER] = value.shiftRight(64).longValue();
+      POWERS_LOW[q - SMALLEST_POWER] = value.longValue();
+    }
+
+    POWERS_EXACT = new double[23];
+    double p = 1.0;
+    for (int index = 0; index < POWERS_EXACT.length; ++index) {
+      POWERS_EXACT[index] = p;
+      p *= 10.0;
+    }
+
+    POWERS_EXACT_FLOAT = new float[11];
+    float pf = 1.0f;
+    for (int index = 0; index < POWERS_EXACT_FLOAT.length; ++index) {
+      POWERS_EXACT_FLOAT[index] = pf;
+      pf *= 10.0f;
+    }
+  }
+
+  private final boolean single;
+  private double value;
+  private boolean convert;
+  private long mantissa;
+  private int digits;
+  private long exponent;
+  private boolean truncated;
+  private boolean negative;
+  private int position;
+  private int unsignedStart;
+  private long upper;
+  private long lower;
+
+  JODoubleParser()
+  {
+    this(false);
+  }
+
+  /**
+   * @param in_single {@code true} iff numbers should be parsed in single
+   *                  precision
+   */
+
+  JODoubleParser(
+    final boolean in_single)
+  {
+    this.single = in_single;
+    this.value = 0.0;
+    this.convert = true;
+  }
+
+  /**
+   * Compute a 128-bit approximation of {@code 5^q}, normalized such that the
+   * most significant bit is set. For negative {@code q}, the reciprocal is
+   * rounded up.
+   */
+
+  private static BigInteger truncatedPowerOfFive(
+    final BigInteger five,
+    final int q)
+  {
+    if (q >= 0) {
+      final BigInteger p5 = five.pow(q);
+      final int bits = p5.bitLength();
+      if (bits <= 128) {
+        return p5.shiftLeft(128 - bits);
+      }
+      return p5.shiftRight(bits - 128);
+    }
+
+    final BigInteger p5 = five.pow(-q);
+    final int z = p5.bitLength();
+    if (q >= -27) {
+      return BigInteger.ONE.shiftLeft(z + 127)
+        .divide(p5)
+        .add(BigInteger.ONE);
+    }
+
+    final BigInteger c =
+      BigInteger.ONE.shiftLeft(2 * z + 128)
+        .divide(p5)
+        .add(BigInteger.ONE);
+    return c.shiftRight(c.bitLength() - 128);
+  }
+
+  private static boolean isDigit(final byte b)
+  {
+    return b >= '0' && b <= '9';
+  }
+
+  private static boolean isSuffix(final byte b)
+  {
+    return b == 'd' || b == 'D' || b == 'f' || b == 'F';
+  }
+
+  /**
+   * @return The most recently parsed value (exactly representable as a
+   * float, in single precision mode)
+   */
+
+  double value()
+  {
+    return this.value;
+  }
+
+  /**
+   * Parse the given range of bytes as a number.
+   *
+   * @param data  The data
+   * @param start The offset of the first byte
+   * @param end   The offset one past the last byte
+   *
+   * @return {@code true} iff the range contained a well-formed number
+   */
+
+  boolean parse(
+    final byte[] data,
+    final int start,
+    final int end)
+  {
+    this.position = start;
+    this.negative = false;
+    if (start < end && (data[start] == '-' || data[start] == '+')) {
+      this.negative = data[start] == '-';
+      ++this.position;
+    }
+    this.unsignedStart = this.position;
+
+    if (this.position + 1 < end && data[this.position] == '0') {
+      final byte x = data[this.position + 1];
+      if (x == 'x' || x == 'X') {
+        return this.parseHexadecimal(data, start, end);
+      }
+    }
+    if (this.parseSpecial(data, end)) {
+      return true;
+    }
+    return this.parseDecimal(data, end);
+  }
+
+  /**
+   * Check that the given range of bytes is a well-formed number, without
+   * computing its value.
+   *
+   * @param data  The data
+   * @param start The offset of the first byte
+   * @param end   The offset one past the last byte
+   *
+   * @return {@code true} iff the range contained a well-formed number
+   */
+
+  boolean check(
+    final byte[] data,
+    final int start,
+    final int end)
+  {
+    this.convert = false;
+    try {
+      return this.parse(data, start, end);
+    } finally {
+      this.convert = true;
+    }
+  }
+
+  private boolean parseDecimal(
+    final byte[] data,
+    final int end)
+  {
+    if (!this.parseSignificand(data, end)) {
+      return false;
+    }
+    if (!this.parseExponent(data, end)) {
+      return false;
+    }
+    if (this.position < end && isSuffix(data[this.position])) {
+      ++this.position;
+    }
+    if (this.position != end) {
+      return false;
+    }
+    return !this.convert || this.compute(data, end);
+  }
+
+  /**
+   * Hexadecimal notation is rare enough that it is simply delegated to the
+   * JDK.
+   *
+   * @return {@code true} iff a value was parsed
+   */
+
+  private boolean parseHexadecimal(
+    final byte[] data,
+    final int start,
+    final int end)
+  {
+    try {
+      final String text = JOTokenizer.decode(data, start, end - start);
+      this.value = this.single
+        ? (double) Float.parseFloat(text)
+        : Double.parseDouble(text);
+      return true;
+    } catch (final NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Handle the named values.
+   *
+   * @return {@code true} iff a value was parsed
+   */
+
+  private boolean parseSpecial(
+    final byte[] data,
+    final int end)
+  {
+    if (matches(data, this.position, end, "NaN")) {
+      this.value = Double.NaN;
+      return true;
+    }
+    if (matches(data, this.position, end, "Infinity")) {
+      this.value = this.negative
+        ? Double.NEGATIVE_INFINITY
+        : Double.POSITIVE_INFINITY;
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean matches(
+    final byte[] data,
+    final int start,
+    final int end,
+    final String text)
+  {
+    final int size = text.length();
+    if (end - start != size) {
+      return false;
+    }
+    for (int index = 0; index < size; ++index) {
+      if (data[start + index] != text.charAt(index)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parse the integer and fractional digits. At most nineteen significant
+   * digits are accumulated into the mantissa; any further nonzero digits
+   * mark the mantissa as truncated.
+   *
+   * @return {@code false} if no digits were present
+   */
+
+  private boolean parseSignificand(
+    final byte[] data,
+    final int end)
+  {
+    this.mantissa = 0L;
+    this.digits = 0;
+    this.exponent = 0L;
+    this.truncated = false;
+
+    final int before = this.position;
+    this.parseDigits(data, end, false);
+    int count = this.position - before;
+
+    if (this.position < end && data[this.position] == '.') {
+      ++this.position;
+      final int fraction = this.position;
+      this.parseDigits(data, end, true);
+      count += this.position - fraction;
+    }
+    return count > 0;
+  }
+
+  private void parseDigits(
+    final byte[] data,
+    final int end,
+    final boolean fraction)
+  {
+    int index = this.position;
+    while (index < end && isDigit(data[index])) {
+      final int c = data[index] - '0';
+      if (this.mantissa == 0L && c == 0) {
+        if (fraction) {
+          --this.exponent;
+        }
+      } else if (this.digits < MAX_DIGITS) {
+        this.mantissa = this.mantissa * 10L + c;
+        ++this.digits;
+        if (fraction) {
+          --this.exponent;
+        }
+      } else {
+        this.truncated |= c != 0;
+        if (!fraction) {
+          ++this.exponent;
+        }
+      }
+      ++index;
+    }
+    this.position = index;
+  }
+
+  /**
+   * Parse an optional exponent.
+   *
+   * @return {@code false} if the exponent was malformed
+   */
+
+  private boolean parseExponent(
+    final byte[] data,
+    final int end)
+  {
+    if (this.position == end) {
+      return true;
+    }
+
+    final byte e = data[this.position];
+    if (e != 'e' && e != 'E') {
+      return true;
+    }
+
+    int index = this.position + 1;
+    boolean exp_negative = false;
+    if (index < end && (data[index] == '-' || data[index] == '+')) {
+      exp_negative = data[index] == '-';
+      ++index;
+    }
+
+    final int first = index;
+    final long exp = this.parseExponentDigits(data, first, end);
+    if (this.position == first) {
+      return false;
+    }
+    this.exponent += exp_negative ? -exp : exp;
+    return true;
+  }
+
+  /**
+   * Parse exponent digits, saturating at a value that is large enough to
+   * guarantee an overflow or underflow.
+   */
+
+  private long parseExponentDigits(
+    final byte[] data,
+    final int start,
+    final int end)
+  {
+    int index = start;
+    long exp = 0L;
+    while (index < end && isDigit(data[index])) {
+      if (exp < MAX_EXPONENT) {
+        exp = exp * 10L + (data[index] - '0');
+      }
+      ++index;
+    }
+    this.position = index;
+    return exp;
+  }
+
+  private boolean compute(
+    final byte[] data,
+    final int end)
+  {
+    final double r = this.single
+      ? (double) this.computeMagnitudeFloat(data, end)
+      : this.computeMagnitude(data, end);
+    this.value = this.negative ? -r : r;
+    return true;
+  }
+
+  private boolean isExactlyRepresentable()
+  {
+    final long w = this.mantissa;
+    final long q = this.exponent;
+    final boolean small_w = w >= 0L && w <= (1L << 53);
+    final boolean small_q = q >= -22L && q <= 22L;
+    return !this.truncated && small_w && small_q;
+  }
+
+  private double computeMagnitude(
+    final byte[] data,
+    final int end)
+  {
+    final long w = this.mantissa;
+    final long q = this.exponent;
+
+    if (w == 0L || q < SMALLEST_POWER) {
+      return 0.0;
+    }
+    if (q > LARGEST_POWER) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    /*
+     * Clinger's fast path: both the significand and the power of ten are
+     * exactly representable, so a single correctly rounded operation gives
+     * the correctly rounded result.
+     */
+
+    if (this.isExactlyRepresentable()) {
+      final double d = (double) w;
+      return q < 0L
+        ? d / POWERS_EXACT[(int) -q]
+        : d * POWERS_EXACT[(int) q];
+    }
+
+    /*
+     * If the significand was truncated, the true value lies somewhere in
+     * [w, w + 1) * 10^q, and the result is only correct if both ends of
+     * the interval round to the same double.
+     */
+
+    final long bits = this.eiselLemire(w, (int) q);
+    if (bits != -1L) {
+      if (!this.truncated || this.eiselLemire(w + 1L, (int) q) == bits) {
+        return Double.longBitsToDouble(bits);
+      }
+    }
+
+    return Double.parseDouble(
+      JOTokenizer.decode(data, this.unsignedStart, end - this.unsignedStart));
+  }
+
+  private float computeMagnitudeFloat(
+    final byte[] data,
+    final int end)
+  {
+    final long w = this.mantissa;
+    final long q = this.exponent;
+
+    if (w == 0L || q < SMALLEST_POWER_FLOAT) {
+      return 0.0f;
+    }
+    if (q > LARGEST_POWER_FLOAT) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    final boolean small_w = w >= 0L && w <= (1L << 24);
+    final boolean small_q = q >= -10L && q <= 10L;
+    if (!this.truncated && small_w && small_q) {
+      final float f = (float) w;
+      return q < 0L
+        ? f / POWERS_EXACT_FLOAT[(int) -q]
+        : f * POWERS_EXACT_FLOAT[(int) q];
+    }
+
+    final int bits = this.eiselLemireFloat(w, (int) q);
+    if (bits != -1) {
+      if (!this.truncated || this.eiselLemireFloat(w + 1L, (int) q) == bits) {
+        return Float.intBitsToFloat(bits);
+      }
+    }
+
+    return Float.parseFloat(
+      JOTokenizer.decode(data, this.unsignedStart, end - this.unsignedStart));
+  }
+
+  private static long multiplyHighUnsigned(
+    final long x,
+    final long y)
+  {
+    return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+  }
+
+  /**
+   * Compute the 128-bit product of {@code i} and the truncated power of
+   * five, refining it with the low half of the power if the truncation
+   * could have affected the bits of the product below {@code mask}, which
+   * decide the rounding of the result.
+   *
+   * @return {@code false} if the product is not precise enough
+   */
+
+  private boolean multiply(
+    final long i,
+    final int table,
+    final long mask)
+  {
+    final long factor_high = POWERS_HIGH[table];
+    this.lower = i * factor_high;
+    this.upper = multiplyHighUnsigned(i, factor_high);
+
+    final long upper_bits = this.upper & mask;
+    if (upper_bits == mask && Long.compareUnsigned(this.lower + i, this.lower) < 0) {
+      final long factor_low = POWERS_LOW[table];
+      final long product_low = i * factor_low;
+      final long product_middle =
+        this.lower + multiplyHighUnsigned(i, factor_low);
+
+      long product_high = this.upper;
+      if (Long.compareUnsigned(product_middle, this.lower) < 0) {
+        ++product_high;
+      }
+
+      final long high_bits = product_high & mask;
+      final boolean inexact =
+        Long.compareUnsigned(product_low + i, product_low) < 0;
+      if (product_middle + 1L == 0L && high_bits == mask && inexact) {
+        return false;
+      }
+      this.upper = product_high;
+      this.lower = product_middle;
+    }
+    return true;
+  }
+
+  /**
+   * The Eisel-Lemire algorithm.
+   *
+   * @param w A nonzero decimal significand
+   * @param q The decimal exponent in {@code [-342, 308]}
+   *
+   * @return The bits of the positive double closest to {@code w * 10^q}, or
+   * {@code -1} if the result could not be determined
+   */
+
+  private long eiselLemire(
+    final long w,
+    final int q)
+  {
+    int lz = Long.numberOfLeadingZeros(w);
+    if (!this.multiply(w << lz, q - SMALLEST_POWER, DOUBLE_ROUND_MASK)) {
+      return -1L;
+    }
+
+    final long hi = this.upper;
+    final int upper_bit = (int) (hi >>> 63);
+    long m = hi >>> (upper_bit + 9);
+    lz += 1 ^ upper_bit;
+
+    final long hi_bits = hi & DOUBLE_ROUND_MASK;
+    final long m_bits = m & 3L;
+    if (this.lower == 0L && hi_bits == 0L && m_bits == 1L) {
+      return -1L;
+    }
+
+    m += m & 1L;
+    m >>>= 1;
+    if (m >= (1L << 53)) {
+      m = 1L << 52;
+      --lz;
+    }
+    m &= ~(1L << 52);
+
+    final long real_exponent =
+      ((((152170L + 65536L) * q) >> 16) + 1024L + 63L) - lz;
+    if (real_exponent < 1L || real_exponent > 2046L) {
+      return -1L;
+    }
+    return m | (real_exponent << 52);
+  }
+
+  /**
+   * The Eisel-Lemire algorithm for floats. This is exactly
+   * {@link #eiselLemire(long, int)}, keeping a 24-bit significand rather
+   * than a 53-bit significand.
+   *
+   * @param w A nonzero decimal significand
+   * @param q The decimal exponent in {@code [-65, 38]}
+   *
+   * @return The bits of the positive float closest to {@code w * 10^q}, or
+   * {@code -1} if the result could not be determined
+   */
+
+  private int eiselLemireFloat(
+    final long w,
+    final int q)
+  {
+    int lz = Long.numberOfLeadingZeros(w);
+    if (!this.multiply(w << lz, q - SMALLEST_POWER, FLOAT_ROUND_MASK)) {
+      return -1;
+    }
+
+    final long hi = this.upper;
+    final int upper_bit = (int) (hi >>> 63);
+    long m = hi >>> (upper_bit + 38);
+    lz += 1 ^ upper_bit;
+
+    final long hi_bits = hi & FLOAT_ROUND_MASK;
+    final long m_bits = m & 3L;
+    if (this.lower == 0L && hi_bits == 0L && m_bits == 1L) {
+      return -1;
+    }
+
+    m += m & 1L;
+    m >>>= 1;
+    if (m >= (1L << 24)) {
+      m = 1L << 23;
+      --lz;
+    }
+    m &= ~(1L << 23);
+
+    final long real_exponent =
+      ((((152170L + 65536L) * q) >> 16) + 128L + 63L) - lz;
+    if (real_exponent < 1L || real_exponent > 254L) {
+      return -1;
+    }
+    return (int) (m | (real_exponent << 23));
+  }
+}
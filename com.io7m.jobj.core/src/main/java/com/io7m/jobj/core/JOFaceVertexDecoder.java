@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+/**
+ * <p>A decoder for face vertices that reads directly from UTF-8 encoded
+ * bytes in a single pass and does not allocate.</p>
+ *
+ * <p>The accepted forms are {@code v}, {@code v//}, {@code v/vt},
+ * {@code v/vt/}, {@code v//vn}, and {@code v/vt/vn}, where each component
+ * is a non-empty sequence of ASCII digits that fits in an {@code int}. The
+ * forms {@code v} and {@code v//}, and the forms {@code v/vt} and
+ * {@code v/vt/}, are considered to be equivalent.</p>
+ *
+ * <p>Malformed vertices are reported by returning {@link Format#FACE_INVALID};
+ * no exceptions are raised.</p>
+ */
+
+final class JOFaceVertexDecoder
+{
+  private int position;
+  private int number;
+  private int v;
+  private int vt;
+  private int vn;
+  private int vLength;
+  private int vtLength;
+
+  JOFaceVertexDecoder()
+  {
+    this.position = 0;
+  }
+
+  /**
+   * Decode the given range of bytes as a face vertex.
+   *
+   * @param data  The data
+   * @param start The offset of the first byte
+   * @param end   The offset one past the last byte
+   *
+   * @return The format of the vertex
+   */
+
+  Format decode(
+    final byte[] data,
+    final int start,
+    final int end)
+  {
+    this.position = start;
+    this.v = 0;
+    this.vt = 0;
+    this.vn = 0;
+    this.vtLength = 0;
+
+    if (!this.parseNumber(data, end)) {
+      return Format.FACE_INVALID;
+    }
+    this.v = this.number;
+    this.vLength = this.position - start;
+
+    if (this.position == end) {
+      return Format.FACE_V;
+    }
+    if (!this.slash(data, end)) {
+      return Format.FACE_INVALID;
+    }
+    if (this.slash(data, end)) {
+      return this.decodeNormal(data, end, Format.FACE_V, Format.FACE_V_VN);
+    }
+
+    final int vt_start = this.position;
+    if (!this.parseNumber(data, end)) {
+      return Format.FACE_INVALID;
+    }
+    this.vt = this.number;
+    this.vtLength = this.position - vt_start;
+
+    if (this.position == end) {
+      return Format.FACE_V_VT;
+    }
+    if (!this.slash(data, end)) {
+      return Format.FACE_INVALID;
+    }
+    return this.decodeNormal(data, end, Format.FACE_V_VT, Format.FACE_V_VT_VN);
+  }
+
+  /**
+   * Decode the optional normal index that follows the last slash.
+   */
+
+  private Format decodeNormal(
+    final byte[] data,
+    final int end,
+    final Format without,
+    final Format with)
+  {
+    if (this.position == end) {
+      return without;
+    }
+    if (!this.parseNumber(data, end) || this.position != end) {
+      return Format.FACE_INVALID;
+    }
+    this.vn = this.number;
+    return with;
+  }
+
+  private boolean slash(
+    final byte[] data,
+    final int end)
+  {
+    if (this.position < end && data[this.position] == '/') {
+      ++this.position;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean parseNumber(
+    final byte[] data,
+    final int end)
+  {
+    final int start = this.position;
+    long result = 0L;
+    int index = start;
+    while (index < end) {
+      final int digit = data[index] - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      result = result * 10L + (long) digit;
+      if (result > (long) Integer.MAX_VALUE) {
+        return false;
+      }
+      ++index;
+    }
+
+    this.position = index;
+    this.number = (int) result;
+    return index > start;
+  }
+
+  /**
+   * @return The most recently decoded vertex index
+   */
+
+  int v()
+  {
+    return this.v;
+  }
+
+  /**
+   * @return The most recently decoded texture coordinate index, or {@code 0}
+   * if there was none
+   */
+
+  int vt()
+  {
+    return this.vt;
+  }
+
+  /**
+   * @return The most recently decoded normal index, or {@code 0} if there
+   * was none
+   */
+
+  int vn()
+  {
+    return this.vn;
+  }
+
+  /**
+   * @return The length in bytes of the most recently decoded vertex index
+   */
+
+  int vLength()
+  {
+    return this.vLength;
+  }
+
+  /**
+   * @return The length in bytes of the most recently decoded texture
+   * coordinate index
+   */
+
+  int vtLength()
+  {
+    return this.vtLength;
+  }
+
+  /**
+   * The format of a face vertex.
+   */
+
+  enum Format
+  {
+    FACE_V_VT_VN,
+    FACE_V_VT,
+    FACE_V_VN,
+    FACE_V,
+    FACE_INVALID
+  }
+}
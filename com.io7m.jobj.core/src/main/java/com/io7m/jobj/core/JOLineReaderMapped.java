@@ -0,0 +1,257 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A line reader that reads lines out of a memory-mapped file. Files of any
+ * size are supported: the file is mapped through a window that slides
+ * forward. The tokenizer and number parser work on plain arrays, and so the
+ * mapped bytes are not parsed in place: they are bulk-copied out of the
+ * window into a reusable block array, {@link #BLOCK_SIZE} bytes at a time,
+ * and every line is returned as a slice of that block. Each byte of the file
+ * is therefore copied exactly once, by a bulk copy, and lines are never
+ * copied individually. Lines that cross the end of a block are moved to the
+ * start of the block before it is refilled, and the block is enlarged for
+ * lines longer than the block. A reader may be restricted to a region of the
+ * file, in which case the region is expected to start at the beginning of a
+ * line.
+ */
+
+final class JOLineReaderMapped implements JOLineReaderType
+{
+  static final int WINDOW_SIZE_DEFAULT = 1 << 28;
+  static final int BLOCK_SIZE = 1 << 16;
+
+  private final Path path;
+  private final long regionStart;
+  private final long regionEnd;
+  private final int windowSize;
+  private FileChannel channel;
+  private boolean opened;
+  private MappedByteBuffer window;
+  private long fileSize;
+  private long origin;
+  private long windowBase;
+  private int windowLimit;
+  private byte[] block;
+  private long blockBase;
+  private int blockLimit;
+  private int position;
+  private int lineStart;
+  private int lineEnd;
+  private boolean skipLF;
+
+  JOLineReaderMapped(
+    final Path in_path,
+    final int in_window_size)
+  {
+    this(in_path, in_window_size, 0L, Long.MAX_VALUE);
+  }
+
+  /**
+   * Create a reader over an already open channel. The reader takes
+   * ownership of the channel, and closes it when the reader is closed.
+   */
+
+  JOLineReaderMapped(
+    final Path in_path,
+    final FileChannel in_channel,
+    final int in_window_size)
+  {
+    this(in_path, in_window_size, 0L, Long.MAX_VALUE);
+    this.channel = Objects.requireNonNull(in_channel, "Channel");
+  }
+
+  JOLineReaderMapped(
+    final Path in_path,
+    final int in_window_size,
+    final long in_region_start,
+    final long in_region_end)
+  {
+    this.path = Objects.requireNonNull(in_path, "Path");
+    if (in_window_size <= 0) {
+      throw new IllegalArgumentException("Window size must be positive");
+    }
+    if (in_region_start < 0L || in_region_end < in_region_start) {
+      throw new IllegalArgumentException("Invalid region");
+    }
+    this.regionStart = in_region_start;
+    this.regionEnd = in_region_end;
+    this.windowSize = in_window_size;
+    this.block = new byte[BLOCK_SIZE];
+  }
+
+  @Override
+  public byte[] data()
+  {
+    return this.block;
+  }
+
+  @Override
+  public int start()
+  {
+    return this.lineStart;
+  }
+
+  @Override
+  public int end()
+  {
+    return this.lineEnd;
+  }
+
+  private void open()
+    throws IOException
+  {
+    if (this.channel == null) {
+      this.channel = FileChannel.open(this.path, StandardOpenOption.READ);
+    }
+    this.opened = true;
+    this.fileSize = Math.min(this.channel.size(), this.regionEnd);
+    this.origin = Math.min(this.regionStart, this.fileSize);
+    this.windowBase = this.origin;
+    this.windowLimit = 0;
+    this.blockBase = this.origin;
+  }
+
+  private void map(final long base)
+    throws IOException
+  {
+    final long length =
+      Math.min(this.fileSize - base, (long) this.windowSize);
+    this.window =
+      this.channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+    this.windowBase = base;
+    this.windowLimit = (int) length;
+  }
+
+  /**
+   * Refill the block from the file. The unread bytes at the end of the
+   * block are first moved to the start of the block, and the block is
+   * enlarged if those bytes already fill it. The window is re-mapped if it
+   * has been exhausted.
+   *
+   * @return {@code false} iff there is no more data in the file
+   */
+
+  private boolean fill()
+    throws IOException
+  {
+    final long next = this.blockBase + (long) this.blockLimit;
+    if (next >= this.fileSize) {
+      return false;
+    }
+
+    final int keep = this.blockLimit - this.position;
+    if (this.position > 0) {
+      System.arraycopy(this.block, this.position, this.block, 0, keep);
+      this.blockBase += this.position;
+      this.blockLimit = keep;
+      this.position = 0;
+    }
+    if (this.blockLimit == this.block.length) {
+      if (this.block.length > Integer.MAX_VALUE / 2) {
+        throw new IOException("Line is too long");
+      }
+      this.block = Arrays.copyOf(this.block, this.block.length * 2);
+    }
+
+    if (next >= this.windowBase + (long) this.windowLimit) {
+      this.map(next);
+    }
+
+    final int offset = (int) (next - this.windowBase);
+    final int count =
+      Math.min(this.block.length - this.blockLimit, this.windowLimit - offset);
+    this.window.get(offset, this.block, this.blockLimit, count);
+    this.blockLimit += count;
+    return true;
+  }
+
+  @Override
+  public boolean next()
+    throws IOException
+  {
+    if (!this.opened) {
+      this.open();
+    }
+
+    if (this.skipLF) {
+      if (this.position == this.blockLimit && !this.fill()) {
+        return false;
+      }
+      if (this.block[this.position] == '\n') {
+        ++this.position;
+      }
+      this.skipLF = false;
+    }
+
+    int scan = this.position;
+    while (true) {
+      final byte[] data = this.block;
+      final int end = this.blockLimit;
+      for (int index = scan; index < end; ++index) {
+        final byte b = data[index];
+        if (b == '\n' || b == '\r') {
+          this.lineStart = this.position;
+          this.lineEnd = index;
+          this.position = index + 1;
+          this.skipLF = b == '\r';
+          return true;
+        }
+      }
+
+      final int scanned = end - this.position;
+      if (!this.fill()) {
+        if (this.position == this.blockLimit) {
+          return false;
+        }
+        this.lineStart = this.position;
+        this.lineEnd = this.blockLimit;
+        this.position = this.blockLimit;
+        return true;
+      }
+      scan = this.position + scanned;
+    }
+  }
+
+  @Override
+  public long consumed()
+  {
+    if (!this.opened) {
+      return 0L;
+    }
+    return this.blockBase + (long) this.position - this.origin;
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.window = null;
+    if (this.channel != null) {
+      this.channel.close();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A line reader that is fed fragments of input as they arrive. Bytes that do
+ * not yet form a complete line are retained until more input is appended, or
+ * until the input is finished. Lines are only returned once their terminator
+ * has been seen, or once the input is finished.
+ */
+
+final class JOLineReaderPush implements JOLineReaderType
+{
+  private byte[] buffer;
+  private int position;
+  private int limit;
+  private int scan;
+  private int lineStart;
+  private int lineEnd;
+  private boolean skipLF;
+  private boolean finished;
+  private long discarded;
+
+  JOLineReaderPush()
+  {
+    this.buffer = new byte[4096];
+  }
+
+  /**
+   * Append the remaining bytes of {@code data}. The position of
+   * {@code data} is advanced to its limit.
+   *
+   * @param data The input fragment
+   */
+
+  void append(final ByteBuffer data)
+  {
+    if (this.finished) {
+      throw new IllegalStateException("Input has already been finished");
+    }
+
+    final int size = data.remaining();
+    final int remaining = this.limit - this.position;
+    if (remaining > this.buffer.length - size) {
+      final long required = (long) remaining + (long) size;
+      if (required > (long) Integer.MAX_VALUE - 8L) {
+        throw new IllegalStateException("Line is too long");
+      }
+      this.buffer = Arrays.copyOfRange(
+        this.buffer,
+        this.position,
+        this.position + Math.max(this.buffer.length * 2, (int) required));
+    } else if (this.position > 0) {
+      System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+    }
+
+    this.discarded += (long) this.position;
+    this.scan -= this.position;
+    this.position = 0;
+    this.limit = remaining;
+    data.get(this.buffer, this.limit, size);
+    this.limit += size;
+  }
+
+  /**
+   * Indicate that no more input will be appended.
+   */
+
+  void finish()
+  {
+    if (this.finished) {
+      throw new IllegalStateException("Input has already been finished");
+    }
+    this.finished = true;
+  }
+
+  @Override
+  public byte[] data()
+  {
+    return this.buffer;
+  }
+
+  @Override
+  public int start()
+  {
+    return this.lineStart;
+  }
+
+  @Override
+  public int end()
+  {
+    return this.lineEnd;
+  }
+
+  @Override
+  public boolean next()
+  {
+    if (this.skipLF) {
+      if (this.position == this.limit) {
+        return false;
+      }
+      if (this.buffer[this.position] == '\n') {
+        ++this.position;
+      }
+      this.skipLF = false;
+    }
+
+    final byte[] data = this.buffer;
+    final int end = this.limit;
+    for (int index = Math.max(this.scan, this.position); index < end; ++index) {
+      final byte b = data[index];
+      if (b == '\n' || b == '\r') {
+        this.lineStart = this.position;
+        this.lineEnd = index;
+        this.position = index + 1;
+        this.scan = this.position;
+        this.skipLF = b == '\r';
+        return true;
+      }
+    }
+
+    this.scan = end;
+    if (this.finished && this.position < end) {
+      this.lineStart = this.position;
+      this.lineEnd = end;
+      this.position = end;
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public long consumed()
+  {
+    return this.discarded + (long) this.position;
+  }
+
+  @Override
+  public boolean exhausted()
+  {
+    return this.finished;
+  }
+
+  @Override
+  public void close()
+  {
+    // Nothing to release
+  }
+}
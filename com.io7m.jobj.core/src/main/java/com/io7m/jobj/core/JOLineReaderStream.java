@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * A line reader that splits a stream of raw bytes into lines without
+ * decoding them. The stream is not closed by this reader.
+ */
+
+final class JOLineReaderStream implements JOLineReaderType
+{
+  private static final int BUFFER_SIZE_DEFAULT = 65536;
+
+  private final InputStream stream;
+  private byte[] buffer;
+  private int position;
+  private int limit;
+  private int lineStart;
+  private int lineEnd;
+  private boolean eof;
+  private boolean skipLF;
+  private long discarded;
+
+  JOLineReaderStream(
+    final InputStream in_stream)
+  {
+    this.stream = Objects.requireNonNull(in_stream, "Stream");
+    this.buffer = new byte[BUFFER_SIZE_DEFAULT];
+  }
+
+  @Override
+  public byte[] data()
+  {
+    return this.buffer;
+  }
+
+  @Override
+  public int start()
+  {
+    return this.lineStart;
+  }
+
+  @Override
+  public int end()
+  {
+    return this.lineEnd;
+  }
+
+  @Override
+  public boolean next()
+    throws IOException
+  {
+    if (this.skipLF) {
+      if (this.position == this.limit && !this.fill()) {
+        return false;
+      }
+      if (this.buffer[this.position] == '\n') {
+        ++this.position;
+      }
+      this.skipLF = false;
+    }
+
+    int scan = this.position;
+    while (true) {
+      final byte[] data = this.buffer;
+      final int end = this.limit;
+      for (int index = scan; index < end; ++index) {
+        final byte b = data[index];
+        if (b == '\n' || b == '\r') {
+          this.lineStart = this.position;
+          this.lineEnd = index;
+          this.position = index + 1;
+          this.skipLF = b == '\r';
+          return true;
+        }
+      }
+
+      scan = this.limit - this.position;
+      if (!this.fill()) {
+        if (this.position == this.limit) {
+          return false;
+        }
+        this.lineStart = this.position;
+        this.lineEnd = this.limit;
+        this.position = this.limit;
+        return true;
+      }
+      scan += this.position;
+    }
+  }
+
+  @Override
+  public long consumed()
+  {
+    return this.discarded + (long) this.position;
+  }
+
+  @Override
+  public void close()
+  {
+    // The stream is owned by the caller
+  }
+
+  /**
+   * Move any unconsumed bytes to the start of the buffer (growing the buffer
+   * if it is full) and read more bytes from the stream.
+   *
+   * @return {@code false} iff the stream is exhausted
+   */
+
+  private boolean fill()
+    throws IOException
+  {
+    if (this.eof) {
+      return false;
+    }
+
+    final int remaining = this.limit - this.position;
+    this.discarded += (long) this.position;
+    if (remaining == this.buffer.length) {
+      final byte[] larger = new byte[this.buffer.length * 2];
+      System.arraycopy(this.buffer, this.position, larger, 0, remaining);
+      this.buffer = larger;
+    } else if (this.position > 0) {
+      System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+    }
+    this.position = 0;
+    this.limit = remaining;
+
+    final int r = this.stream.read(
+      this.buffer, this.limit, this.buffer.length - this.limit);
+    if (r == -1) {
+      this.eof = true;
+      return false;
+    }
+    this.limit += r;
+    return true;
+  }
+}
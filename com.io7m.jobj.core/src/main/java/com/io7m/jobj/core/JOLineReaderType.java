@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of raw, undecoded lines. Lines are terminated by {@code LF},
+ * {@code CR}, or {@code CR LF}, exactly as with
+ * {@link java.io.BufferedReader#readLine()}. The bytes of the most recently
+ * read line are valid until the next call to {@link #next()}.
+ */
+
+interface JOLineReaderType extends Closeable
+{
+  /**
+   * @return The buffer holding the current line
+   */
+
+  byte[] data();
+
+  /**
+   * @return The offset of the first byte of the current line
+   */
+
+  int start();
+
+  /**
+   * @return The offset one past the last byte of the current line
+   */
+
+  int end();
+
+  /**
+   * Read the next line.
+   *
+   * @return {@code false} iff there are no more lines
+   *
+   * @throws IOException On I/O errors
+   */
+
+  boolean next()
+    throws IOException;
+
+  /**
+   * @return The number of bytes consumed so far, including line terminators
+   */
+
+  long consumed();
+
+  /**
+   * @return {@code true} iff a {@code false} result from {@link #next()}
+   * means that no further lines will ever become available
+   */
+
+  default boolean exhausted()
+  {
+    return true;
+  }
+}
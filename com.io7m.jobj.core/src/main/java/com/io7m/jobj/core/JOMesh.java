@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>An indexed triangle mesh suitable for direct upload to a GPU.</p>
+ *
+ * <p>Every vertex of the mesh is a unique combination of position, texture
+ * coordinate, and normal, and so a single index buffer addresses all of the
+ * attributes. Attributes are available either in planar form (one buffer
+ * per attribute) or interleaved into a single buffer.</p>
+ *
+ * <p>All data is held in byte buffers in native byte order that were
+ * obtained from the {@link JOMeshAllocatorType} given to the builder. The
+ * {@code *Bytes} methods return views of those buffers, and so if the
+ * allocator returned direct buffers, the views can be handed to graphics
+ * APIs without any copying.</p>
+ *
+ * <p>Each buffer is limited to {@link Integer#MAX_VALUE} bytes (2GB), and so
+ * a mesh holds at most about 178 million vertices and as many
+ * triangles. The {@link #interleaved()} buffer is subject to the same
+ * limit.</p>
+ *
+ * @see JOMeshBuilder
+ */
+
+public final class JOMesh
+{
+  private final JOMeshAllocatorType allocator;
+  private final List<JOMeshGroup> groups;
+  private final int vertexCount;
+  private final ByteBuffer positions;
+  private final ByteBuffer uvs;
+  private final ByteBuffer normals;
+  private final ByteBuffer indices;
+  private final boolean hasUVs;
+  private final boolean hasNormals;
+
+  JOMesh(
+    final JOMeshAllocatorType in_allocator,
+    final List<JOMeshGroup> in_groups,
+    final int in_vertex_count,
+    final ByteBuffer in_positions,
+    final ByteBuffer in_uvs,
+    final boolean in_has_uvs,
+    final ByteBuffer in_normals,
+    final boolean in_has_normals,
+    final ByteBuffer in_indices)
+  {
+    this.allocator = Objects.requireNonNull(in_allocator, "Allocator");
+    this.groups = List.copyOf(in_groups);
+    this.vertexCount = in_vertex_count;
+    this.positions = Objects.requireNonNull(in_positions, "Positions");
+    this.uvs = Objects.requireNonNull(in_uvs, "UVs");
+    this.hasUVs = in_has_uvs;
+    this.normals = Objects.requireNonNull(in_normals, "Normals");
+    this.hasNormals = in_has_normals;
+    this.indices = Objects.requireNonNull(in_indices, "Indices");
+  }
+
+  private static ByteBuffer view(final ByteBuffer data)
+  {
+    return data.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * @return The number of unique vertices
+   */
+
+  public int vertexCount()
+  {
+    return this.vertexCount;
+  }
+
+  /**
+   * @return The groups of triangles in the mesh, in index buffer order
+   */
+
+  public List<JOMeshGroup> groups()
+  {
+    return this.groups;
+  }
+
+  /**
+   * @return The number of triangles
+   */
+
+  public int triangleCount()
+  {
+    return this.indices.remaining() / 12;
+  }
+
+  /**
+   * @return {@code true} iff any face specified texture coordinates
+   */
+
+  public boolean hasTextureCoordinates()
+  {
+    return this.hasUVs;
+  }
+
+  /**
+   * @return {@code true} iff any face specified normals
+   */
+
+  public boolean hasNormals()
+  {
+    return this.hasNormals;
+  }
+
+  /**
+   * @return The vertex positions, three {@code float} components
+   * {@code (x, y, z)} per vertex, in native byte order
+   */
+
+  public ByteBuffer positionsBytes()
+  {
+    return view(this.positions);
+  }
+
+  /**
+   * @return The vertex texture coordinates, two {@code float} components
+   * {@code (u, v)} per vertex, in native byte order; vertices without
+   * texture coordinates have zeroes
+   */
+
+  public ByteBuffer textureCoordinatesBytes()
+  {
+    return view(this.uvs);
+  }
+
+  /**
+   * @return The vertex normals, three {@code float} components
+   * {@code (x, y, z)} per vertex, in native byte order; vertices without
+   * normals have zeroes
+   */
+
+  public ByteBuffer normalsBytes()
+  {
+    return view(this.normals);
+  }
+
+  /**
+   * @return The triangle indices, three {@code int} values per triangle, in
+   * native byte order
+   */
+
+  public ByteBuffer indicesBytes()
+  {
+    return view(this.indices);
+  }
+
+  /**
+   * @return The vertex positions, three components {@code (x, y, z)} per
+   * vertex, relative to the origin of the group that uses the vertex
+   *
+   * @see JOMeshGroup#originX()
+   */
+
+  public FloatBuffer positions()
+  {
+    return this.positionsBytes().asFloatBuffer();
+  }
+
+  /**
+   * @return The vertex texture coordinates, two components {@code (u, v)}
+   * per vertex; vertices without texture coordinates have zeroes
+   */
+
+  public FloatBuffer textureCoordinates()
+  {
+    return this.textureCoordinatesBytes().asFloatBuffer();
+  }
+
+  /**
+   * @return The vertex normals, three components {@code (x, y, z)} per
+   * vertex; vertices without normals have zeroes
+   */
+
+  public FloatBuffer normals()
+  {
+    return this.normalsBytes().asFloatBuffer();
+  }
+
+  /**
+   * @return The triangle indices, three per triangle, with counter-clockwise
+   * winding as specified in the original faces
+   */
+
+  public IntBuffer indices()
+  {
+    return this.indicesBytes().asIntBuffer();
+  }
+
+  /**
+   * @return The number of floats per vertex in the {@link #interleaved()}
+   * buffer
+   */
+
+  public int interleavedStride()
+  {
+    int stride = 3;
+    if (this.hasUVs) {
+      stride += 2;
+    }
+    if (this.hasNormals) {
+      stride += 3;
+    }
+    return stride;
+  }
+
+  /**
+   * Produce a buffer containing all of the vertex attributes interleaved.
+   * Each vertex consists of the position, followed by the texture
+   * coordinates (if {@link #hasTextureCoordinates()}), followed by the
+   * normal (if {@link #hasNormals()}). The buffer is obtained from the
+   * allocator that was used to build the mesh.
+   *
+   * @return A new interleaved vertex buffer
+   *
+   * @throws IllegalStateException If the buffer would exceed
+   *                               {@link Integer#MAX_VALUE} bytes
+   *
+   * @see #interleavedStride()
+   */
+
+  public FloatBuffer interleaved()
+  {
+    final int stride = this.interleavedStride();
+    final long size_long = (long) this.vertexCount * (long) stride * 4L;
+    if (size_long > (long) Integer.MAX_VALUE) {
+      throw new IllegalStateException(
+        String.format(
+          "The interleaved mesh would require %d bytes, but a mesh buffer is "
+            + "limited to %d bytes",
+          Long.valueOf(size_long),
+          Integer.valueOf(Integer.MAX_VALUE)));
+    }
+
+    final int size = (int) size_long;
+    final ByteBuffer data = this.allocator.allocate(size);
+    data.order(ByteOrder.nativeOrder());
+    data.position(0);
+    data.limit(size);
+
+    final FloatBuffer out = data.asFloatBuffer();
+    final FloatBuffer in_positions = this.positions();
+    final FloatBuffer in_uvs = this.textureCoordinates();
+    final FloatBuffer in_normals = this.normals();
+    for (int index = 0; index < this.vertexCount; ++index) {
+      out.put(in_positions.get());
+      out.put(in_positions.get());
+      out.put(in_positions.get());
+      if (this.hasUVs) {
+        out.put(in_uvs.get(index * 2));
+        out.put(in_uvs.get(index * 2 + 1));
+      }
+      if (this.hasNormals) {
+        out.put(in_normals.get(index * 3));
+        out.put(in_normals.get(index * 3 + 1));
+        out.put(in_normals.get(index * 3 + 2));
+      }
+    }
+    return out.flip();
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The type of allocators for mesh data.</p>
+ *
+ * <p>An allocator decides where the final buffers of a {@link JOMesh} live.
+ * Passing {@code ByteBuffer::allocateDirect} places all mesh data
+ * off-heap, ready for upload to a GPU without further copying; allocators
+ * that manage native memory themselves (such as arena allocators in
+ * rendering libraries) may be supplied instead, in which case the
+ * allocator is responsible for the lifetime of the memory.</p>
+ *
+ * <p>A {@link JOMeshBuilder} writes into its buffers while parsing, and
+ * grows them by doubling. An allocator is therefore typically asked for a
+ * series of buffers of increasing size for each attribute. Only the most
+ * recent buffer of each series is retained, and the earlier buffers are no
+ * longer referenced once their contents have been copied into the next.
+ * A retained buffer may be up to twice as large as the data it holds. No
+ * request ever exceeds {@link Integer#MAX_VALUE} bytes (2GB): a mesh that
+ * would need a larger buffer is rejected with an
+ * {@link IllegalStateException} instead.</p>
+ */
+
+public interface JOMeshAllocatorType
+{
+  /**
+   * Allocate a buffer of at least {@code size} bytes. The contents of the
+   * buffer do not need to be initialized. The byte order, position, and
+   * limit of the returned buffer will be changed by the caller.
+   *
+   * @param size The required size in bytes
+   *
+   * @return A writable buffer
+   */
+
+  ByteBuffer allocate(int size);
+}
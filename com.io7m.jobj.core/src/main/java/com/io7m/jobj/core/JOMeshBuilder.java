@@ -0,0 +1,906 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>A parser event listener that builds an indexed triangle mesh.</p>
+ *
+ * <p>OBJ faces refer to positions, texture coordinates, and normals using
+ * separate indices. The builder assigns a single vertex to each unique
+ * {@code (v, vt, vn)} combination using an open-addressing hash table over
+ * primitive arrays, and so produces a mesh that can be drawn with a single
+ * index buffer. Polygons are triangulated as triangle fans around their
+ * first corner; this is only correct for convex polygons, and so meshes
+ * that may contain concave polygons should be built through a
+ * {@link JOTriangulator}. Consecutive triangles that share the same
+ * object name and material are recorded as {@link JOMeshGroup}s.</p>
+ *
+ * <p>The mesh data is written into buffers obtained from a
+ * {@link JOMeshAllocatorType} as it arrives: the attributes of each vertex
+ * are written when the vertex is first created, and the indices of each
+ * triangle are written when its face is finished. The buffers grow by
+ * doubling, and {@link #build()} hands views of them to the mesh without
+ * copying. By default, heap buffers are used; use
+ * {@code new JOMeshBuilder(ByteBuffer::allocateDirect)} to produce a mesh
+ * whose data lives entirely off-heap and can be uploaded without any
+ * further copying. The {@code v}, {@code vt}, and {@code vn} elements
+ * themselves are held on the heap, because a face may refer to any of
+ * them. Each mesh buffer is limited to {@link Integer#MAX_VALUE} bytes
+ * (2GB), and an {@link IllegalStateException} is raised as soon as a mesh
+ * would exceed that limit.</p>
+ *
+ * <p>To transform positions and normals (for example, from Z-up to Y-up
+ * coordinates) without a second pass over the finished mesh, place a
+ * {@link JOTransformer} between the parser and the builder.</p>
+ *
+ * <p>Positions are normally stored exactly as parsed, rounded to the nearest
+ * float. Models given in large coordinate systems (such as UTM, where
+ * coordinates are in the millions) lose most of their precision when
+ * rounded in this way, and so the builder can instead give each object a
+ * double precision origin and store positions as float offsets from it; see
+ * {@link JOMeshOriginKind}. Faces are assigned to the origin of the object
+ * in which they appear, and so a face that refers to a position declared in
+ * a different object still receives a distinct vertex, relative to the
+ * correct origin. The final origins are only known once parsing has
+ * completed, and so in this case positions are written by
+ * {@link #build()} rather than as vertices are created.</p>
+ *
+ * <p>Faces that contain errors are not delivered by the parser, and so do
+ * not appear in the mesh. Faces that refer to a {@code v}, {@code vt}, or
+ * {@code vn} element whose own line contained an error are also omitted,
+ * and counted as errors. Errors are counted, and can be inspected with
+ * {@link #errorCount()} once parsing has completed.</p>
+ */
+
+public final class JOMeshBuilder implements JOParserEventListenerType
+{
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+
+  private final JOMeshAllocatorType allocator;
+  private final List<JOMeshGroup> groups;
+  private final JOMeshOriginKind originKind;
+  private final boolean rebasing;
+  private Optional<String> object;
+  private Optional<String> material;
+  private int groupStart;
+  private float[] positions;
+  private float[] uvs;
+  private float[] normals;
+  private final BitSet definedPositions;
+  private final BitSet definedUVs;
+  private final BitSet definedNormals;
+  private int[] table;
+  private int[] keys;
+  private int vertexCount;
+  private ByteBuffer outPositions;
+  private ByteBuffer outUVs;
+  private ByteBuffer outNormals;
+  private ByteBuffer outIndices;
+  private int indexCount;
+  private int[] face;
+  private int faceCorners;
+  private int[] faceVertices;
+  private boolean hasUVs;
+  private boolean hasNormals;
+  private int errors;
+  private int region;
+  private int[] groupRegions;
+  private int[] positionRegions;
+  private int[] vertexRegions;
+  private boolean[] regionStarted;
+  private double[] regionOrigins;
+  private float[] regionBounds;
+
+  /**
+   * Construct a new, empty mesh builder that produces meshes on the heap.
+   */
+
+  public JOMeshBuilder()
+  {
+    this(ByteBuffer::allocate);
+  }
+
+  /**
+   * Construct a new, empty mesh builder that produces meshes using the
+   * given allocator.
+   *
+   * @param in_allocator The allocator for the final mesh data
+   */
+
+  public JOMeshBuilder(
+    final JOMeshAllocatorType in_allocator)
+  {
+    this(in_allocator, JOMeshOriginKind.ORIGIN_NONE);
+  }
+
+  /**
+   * Construct a new, empty mesh builder that produces meshes using the
+   * given allocator, and stores positions relative to per-object origins
+   * of the given kind.
+   *
+   * @param in_allocator   The allocator for the final mesh data
+   * @param in_origin_kind The kind of origin used for each object
+   */
+
+  public JOMeshBuilder(
+    final JOMeshAllocatorType in_allocator,
+    final JOMeshOriginKind in_origin_kind)
+  {
+    this.allocator = Objects.requireNonNull(in_allocator, "Allocator");
+    this.originKind = Objects.requireNonNull(in_origin_kind, "Origin kind");
+    this.rebasing = in_origin_kind != JOMeshOriginKind.ORIGIN_NONE;
+    this.groups = new ArrayList<>(8);
+    this.object = Optional.empty();
+    this.material = Optional.empty();
+    this.positions = new float[3 * 256];
+    this.uvs = new float[2 * 256];
+    this.normals = new float[3 * 256];
+    this.table = new int[1024];
+    this.keys = new int[3 * 256];
+    this.face = new int[3 * 16];
+    this.faceVertices = new int[16];
+    this.definedPositions = new BitSet(256);
+    this.definedUVs = new BitSet(256);
+    this.definedNormals = new BitSet(256);
+    this.groupRegions = new int[8];
+    this.positionRegions = new int[256];
+    this.vertexRegions = new int[256];
+    this.regionStarted = new boolean[1];
+    this.regionOrigins = new double[3];
+    this.regionBounds = new float[6];
+  }
+
+  private static int hash(
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    long h = (long) v * 0x9E3779B97F4A7C15L;
+    h += (long) vt * 0xC2B2AE3D27D4EB4FL;
+    h += (long) vn * 0x165667B19E3779F9L;
+    h ^= h >>> 29;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private static float[] store(
+    final float[] data,
+    final int offset,
+    final int size)
+  {
+    if (offset + size > data.length) {
+      return Arrays.copyOf(data, Math.max(offset + size, data.length * 2));
+    }
+    return data;
+  }
+
+  private static int[] storeInt(
+    final int[] data,
+    final int offset,
+    final int size)
+  {
+    if (offset + size > data.length) {
+      return Arrays.copyOf(data, Math.max(offset + size, data.length * 2));
+    }
+    return data;
+  }
+
+  /**
+   * @return The number of errors encountered so far
+   */
+
+  public int errorCount()
+  {
+    return this.errors;
+  }
+
+  private ByteBuffer allocate(final int size)
+  {
+    final ByteBuffer data = this.allocator.allocate(size);
+    if (data.capacity() < size) {
+      throw new IllegalStateException(
+        String.format(
+          "Allocator returned %d bytes, but %d were required",
+          Integer.valueOf(data.capacity()),
+          Integer.valueOf(size)));
+    }
+    data.order(ByteOrder.nativeOrder());
+    data.position(0);
+    data.limit(size);
+    return data;
+  }
+
+  private static void checkSize(
+    final long size,
+    final String name)
+  {
+    if (size > (long) Integer.MAX_VALUE) {
+      throw new IllegalStateException(
+        String.format(
+          "The mesh %s would require %d bytes, but a mesh buffer is limited "
+            + "to %d bytes",
+          name,
+          Long.valueOf(size),
+          Integer.valueOf(Integer.MAX_VALUE)));
+    }
+  }
+
+  /**
+   * Ensure that {@code data} can hold {@code required} bytes. If it cannot,
+   * a buffer of at least twice the size is obtained from the allocator, and
+   * the first {@code used} bytes of {@code data} are copied into it.
+   */
+
+  private ByteBuffer reserve(
+    final ByteBuffer data,
+    final int used,
+    final long required,
+    final String name)
+  {
+    if (data != null && required <= (long) data.limit()) {
+      return data;
+    }
+    checkSize(required, name);
+
+    final long grown;
+    if (data == null) {
+      grown = Math.max(required, (long) INITIAL_BUFFER_SIZE);
+    } else {
+      grown = Math.max(required, 2L * (long) data.limit());
+    }
+
+    final ByteBuffer next =
+      this.allocate((int) Math.min(grown, (long) Integer.MAX_VALUE));
+    if (data != null) {
+      next.put(0, data, 0, used);
+    }
+    return next;
+  }
+
+  private static ByteBuffer share(
+    final ByteBuffer data,
+    final int size)
+  {
+    return data.slice(0, size).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Build a mesh from the faces received so far. The mesh is given views of
+   * the buffers that the builder has been writing into, and so the mesh
+   * data is not copied. The builder may continue to receive events after a
+   * mesh has been built; the data of meshes that have already been built
+   * is not affected.
+   *
+   * @return A new mesh
+   */
+
+  public JOMesh build()
+  {
+    final int count = this.vertexCount;
+    final double[] origins = this.finalOrigins();
+
+    final ByteBuffer out_positions;
+    if (this.rebasing) {
+      final long size = (long) count * 12L;
+      checkSize(size, "positions");
+      out_positions = this.allocate((int) size);
+      final FloatBuffer p = out_positions.asFloatBuffer();
+      for (int index = 0; index < count; ++index) {
+        final int v = this.keys[index * 3] - 1;
+        this.putRebased(p, origins, v, this.vertexRegions[index]);
+      }
+    } else {
+      this.outPositions = this.reserve(
+        this.outPositions, count * 12, (long) count * 12L, "positions");
+      out_positions = share(this.outPositions, count * 12);
+    }
+
+    this.outUVs = this.reserve(
+      this.outUVs, count * 8, (long) count * 8L, "texture coordinates");
+    this.outNormals = this.reserve(
+      this.outNormals, count * 12, (long) count * 12L, "normals");
+    this.outIndices = this.reserve(
+      this.outIndices,
+      this.indexCount * 4,
+      (long) this.indexCount * 4L,
+      "indices");
+
+    return new JOMesh(
+      this.allocator,
+      this.finalGroups(origins),
+      count,
+      out_positions,
+      share(this.outUVs, count * 8),
+      this.hasUVs,
+      share(this.outNormals, count * 12),
+      this.hasNormals,
+      share(this.outIndices, this.indexCount * 4));
+  }
+
+  private List<JOMeshGroup> finalGroups(final double... origins)
+  {
+    final int group_count = this.groups.size();
+    final List<JOMeshGroup> out_groups = new ArrayList<>(group_count + 1);
+    for (int index = 0; index < group_count; ++index) {
+      out_groups.add(withOrigin(
+        this.groups.get(index), origins, this.groupRegions[index]));
+    }
+    if (this.indexCount > this.groupStart) {
+      out_groups.add(withOrigin(
+        JOMeshGroup.of(
+          this.object,
+          this.material,
+          this.groupStart,
+          this.indexCount - this.groupStart),
+        origins,
+        this.region));
+    }
+    return out_groups;
+  }
+
+  private static JOMeshGroup withOrigin(
+    final JOMeshGroup group,
+    final double[] origins,
+    final int group_region)
+  {
+    final int base = group_region * 3;
+    if (base >= origins.length) {
+      return group;
+    }
+    return JOMeshGroup.of(
+      group.object(),
+      group.material(),
+      group.firstIndex(),
+      group.indexCount(),
+      origins[base],
+      origins[base + 1],
+      origins[base + 2]);
+  }
+
+  /**
+   * Determine the final origin of each region. Regions that contain no
+   * positions inherit the origin of the preceding region, so that faces
+   * that only refer to earlier positions remain close to zero.
+   */
+
+  private double[] finalOrigins()
+  {
+    if (!this.rebasing) {
+      return new double[0];
+    }
+
+    final int region_count = this.region + 1;
+    final double[] origins = new double[region_count * 3];
+    final boolean center =
+      this.originKind == JOMeshOriginKind.ORIGIN_BOUNDS_CENTER;
+
+    for (int r = 0; r < region_count; ++r) {
+      final int base = r * 3;
+      if (r < this.regionStarted.length && this.regionStarted[r]) {
+        for (int axis = 0; axis < 3; ++axis) {
+          double origin = this.regionOrigins[base + axis];
+          if (center) {
+            final float lo = this.regionBounds[r * 6 + axis];
+            final float hi = this.regionBounds[r * 6 + 3 + axis];
+            origin += ((double) lo + (double) hi) * 0.5;
+          }
+          origins[base + axis] = origin;
+        }
+      } else if (r > 0) {
+        System.arraycopy(origins, base - 3, origins, base, 3);
+      }
+    }
+    return origins;
+  }
+
+  /**
+   * Write the position {@code v}, which was stored relative to the
+   * provisional origin of the region in which it was declared, relative to
+   * the final origin of the region {@code r} of the vertex that uses it.
+   */
+
+  private void putRebased(
+    final FloatBuffer p,
+    final double[] origins,
+    final int v,
+    final int r)
+  {
+    final int declared = v < this.positionRegions.length
+      ? this.positionRegions[v] : 0;
+    final int from = declared * 3;
+    final int to = r * 3;
+    for (int axis = 0; axis < 3; ++axis) {
+      final double provisional = from + axis < this.regionOrigins.length
+        ? this.regionOrigins[from + axis] : 0.0;
+      final double value =
+        (double) this.positions[v * 3 + axis] + provisional - origins[to + axis];
+      p.put((float) value);
+    }
+  }
+
+  /**
+   * Find the vertex for the given combination of indices, creating a new
+   * vertex if necessary.
+   */
+
+  private int vertex(
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    if ((this.vertexCount + 1) * 2 > this.table.length) {
+      this.rehash();
+    }
+
+    final int mask = this.table.length - 1;
+    int slot = hash(v, vt, vn) & mask;
+    while (true) {
+      final int entry = this.table[slot];
+      if (entry == 0) {
+        break;
+      }
+      final int base = (entry - 1) * 3;
+      final boolean same_v = this.keys[base] == v;
+      final boolean same_rest =
+        this.keys[base + 1] == vt && this.keys[base + 2] == vn;
+      final boolean same_region = this.vertexRegions[entry - 1] == this.region;
+      if (same_v && same_rest && same_region) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    final int id = this.vertexCount;
+    if ((id + 1) * 3 > this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+    }
+    this.keys[id * 3] = v;
+    this.keys[id * 3 + 1] = vt;
+    this.keys[id * 3 + 2] = vn;
+    this.vertexRegions = storeInt(this.vertexRegions, id, 1);
+    this.vertexRegions[id] = this.region;
+    this.table[slot] = id + 1;
+    this.writeVertex(id, v, vt, vn);
+    ++this.vertexCount;
+    return id;
+  }
+
+  /**
+   * Write the attributes of the new vertex {@code id}. Positions are only
+   * written here if they do not need to be rebased.
+   */
+
+  private void writeVertex(
+    final int id,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    final long next = (long) id + 1L;
+    if (!this.rebasing) {
+      this.outPositions = this.reserve(
+        this.outPositions, id * 12, next * 12L, "positions");
+      final int at = id * 12;
+      final int from = (v - 1) * 3;
+      this.outPositions.putFloat(at, this.positions[from]);
+      this.outPositions.putFloat(at + 4, this.positions[from + 1]);
+      this.outPositions.putFloat(at + 8, this.positions[from + 2]);
+    }
+
+    this.outUVs =
+      this.reserve(this.outUVs, id * 8, next * 8L, "texture coordinates");
+    final int at_uv = id * 8;
+    final int from_uv = (vt - 1) * 2;
+    this.outUVs.putFloat(at_uv, vt != 0 ? this.uvs[from_uv] : 0.0f);
+    this.outUVs.putFloat(at_uv + 4, vt != 0 ? this.uvs[from_uv + 1] : 0.0f);
+
+    this.outNormals =
+      this.reserve(this.outNormals, id * 12, next * 12L, "normals");
+    final int at_n = id * 12;
+    final int from_n = (vn - 1) * 3;
+    this.outNormals.putFloat(at_n, vn != 0 ? this.normals[from_n] : 0.0f);
+    this.outNormals.putFloat(
+      at_n + 4, vn != 0 ? this.normals[from_n + 1] : 0.0f);
+    this.outNormals.putFloat(
+      at_n + 8, vn != 0 ? this.normals[from_n + 2] : 0.0f);
+  }
+
+  private void rehash()
+  {
+    final int[] next = new int[this.table.length * 2];
+    final int mask = next.length - 1;
+    for (int id = 0; id < this.vertexCount; ++id) {
+      final int base = id * 3;
+      int slot =
+        hash(this.keys[base], this.keys[base + 1], this.keys[base + 2]) & mask;
+      while (next[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      next[slot] = id + 1;
+    }
+    this.table = next;
+  }
+
+  private void finishGroup()
+  {
+    if (this.indexCount > this.groupStart) {
+      final int group_index = this.groups.size();
+      this.groupRegions = storeInt(this.groupRegions, group_index, 1);
+      this.groupRegions[group_index] = this.region;
+      this.groups.add(JOMeshGroup.of(
+        this.object,
+        this.material,
+        this.groupStart,
+        this.indexCount - this.groupStart));
+      this.groupStart = this.indexCount;
+    }
+  }
+
+  private void addCorner(
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    final int offset = this.faceCorners * 3;
+    if (offset == this.face.length) {
+      this.face = Arrays.copyOf(this.face, this.face.length * 2);
+    }
+    this.face[offset] = v;
+    this.face[offset + 1] = vt;
+    this.face[offset + 2] = vn;
+    ++this.faceCorners;
+  }
+
+  private void addTriangle(
+    final int a,
+    final int b,
+    final int c)
+  {
+    final int at = this.indexCount * 4;
+    this.outIndices = this.reserve(
+      this.outIndices, at, ((long) this.indexCount + 3L) * 4L, "indices");
+    this.outIndices.putInt(at, a);
+    this.outIndices.putInt(at + 4, b);
+    this.outIndices.putInt(at + 8, c);
+    this.indexCount += 3;
+  }
+
+  /**
+   * @return {@code true} iff every element referred to by the current face
+   * was stored; an element is missing if its own line contained an error
+   */
+
+  private boolean faceDefined()
+  {
+    for (int corner = 0; corner < this.faceCorners; ++corner) {
+      final int base = corner * 3;
+      final int vt = this.face[base + 1];
+      final int vn = this.face[base + 2];
+      if (!this.definedPositions.get(this.face[base])) {
+        return false;
+      }
+      if (vt != 0 && !this.definedUVs.get(vt)) {
+        return false;
+      }
+      if (vn != 0 && !this.definedNormals.get(vn)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Set<JOParserEventKind> interests()
+  {
+    return EnumSet.of(
+      JOParserEventKind.EVENT_ERROR,
+      JOParserEventKind.EVENT_COMMAND_V,
+      JOParserEventKind.EVENT_COMMAND_VN,
+      JOParserEventKind.EVENT_COMMAND_VT,
+      JOParserEventKind.EVENT_COMMAND_F,
+      JOParserEventKind.EVENT_COMMAND_O,
+      JOParserEventKind.EVENT_COMMAND_USEMTL);
+  }
+
+  /**
+   * Meshes store coordinates as floats, so numbers are parsed directly to
+   * the nearest float, unless positions are stored relative to origins. In
+   * that case, positions must be parsed at full precision so that they can
+   * be rebased before they are rounded.
+   *
+   * @return {@code true} iff the builder does not use origins
+   */
+
+  @Override
+  public boolean singlePrecision()
+  {
+    return !this.rebasing;
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    ++this.errors;
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    ++this.errors;
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onEOF(
+    final LexicalPositionType<Path> p)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.finishGroup();
+    this.material = Optional.of(name);
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.finishGroup();
+    this.object = Optional.of(name);
+    if (this.rebasing) {
+      this.startRegion();
+    }
+  }
+
+  private void startRegion()
+  {
+    ++this.region;
+    final int count = this.region + 1;
+    if (count > this.regionStarted.length) {
+      final int size = Math.max(count, this.regionStarted.length * 2);
+      this.regionStarted = Arrays.copyOf(this.regionStarted, size);
+      this.regionOrigins = Arrays.copyOf(this.regionOrigins, size * 3);
+      this.regionBounds = Arrays.copyOf(this.regionBounds, size * 6);
+    }
+  }
+
+  private void storeRebased(
+    final int offset,
+    final double x,
+    final double y,
+    final double z)
+  {
+    final int r = this.region;
+    final int origin = r * 3;
+    if (!this.regionStarted[r]) {
+      this.regionStarted[r] = true;
+      this.regionOrigins[origin] = x;
+      this.regionOrigins[origin + 1] = y;
+      this.regionOrigins[origin + 2] = z;
+    }
+
+    final int index = offset / 3;
+    this.positionRegions = storeInt(this.positionRegions, index, 1);
+    this.positionRegions[index] = r;
+
+    final float ox = (float) (x - this.regionOrigins[origin]);
+    final float oy = (float) (y - this.regionOrigins[origin + 1]);
+    final float oz = (float) (z - this.regionOrigins[origin + 2]);
+    this.positions[offset] = ox;
+    this.positions[offset + 1] = oy;
+    this.positions[offset + 2] = oz;
+
+    final int bounds = r * 6;
+    this.regionBounds[bounds] = Math.min(this.regionBounds[bounds], ox);
+    this.regionBounds[bounds + 1] = Math.min(this.regionBounds[bounds + 1], oy);
+    this.regionBounds[bounds + 2] = Math.min(this.regionBounds[bounds + 2], oz);
+    this.regionBounds[bounds + 3] = Math.max(this.regionBounds[bounds + 3], ox);
+    this.regionBounds[bounds + 4] = Math.max(this.regionBounds[bounds + 4], oy);
+    this.regionBounds[bounds + 5] = Math.max(this.regionBounds[bounds + 5], oz);
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    final int offset = (index - 1) * 3;
+    this.positions = store(this.positions, offset, 3);
+    this.definedPositions.set(index);
+    if (this.rebasing) {
+      this.storeRebased(offset, x, y, z);
+      return;
+    }
+    this.positions[offset] = (float) x;
+    this.positions[offset + 1] = (float) y;
+    this.positions[offset + 2] = (float) z;
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    final int offset = (index - 1) * 3;
+    this.normals = store(this.normals, offset, 3);
+    this.definedNormals.set(index);
+    this.normals[offset] = (float) x;
+    this.normals[offset + 1] = (float) y;
+    this.normals[offset + 2] = (float) z;
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    final int offset = (index - 1) * 2;
+    this.uvs = store(this.uvs, offset, 2);
+    this.definedUVs.set(index);
+    this.uvs[offset] = (float) x;
+    this.uvs[offset + 1] = (float) y;
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    this.addCorner(v, vt, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    this.addCorner(v, vt, 0);
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    this.addCorner(v, 0, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    this.addCorner(v, 0, 0);
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.faceCorners = 0;
+  }
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    final int count = this.faceCorners;
+    if (!this.faceDefined()) {
+      ++this.errors;
+      this.faceCorners = 0;
+      return;
+    }
+
+    if (count > this.faceVertices.length) {
+      this.faceVertices = new int[Math.max(count, this.faceVertices.length * 2)];
+    }
+
+    for (int corner = 0; corner < count; ++corner) {
+      final int base = corner * 3;
+      final int vt = this.face[base + 1];
+      final int vn = this.face[base + 2];
+      this.hasUVs = this.hasUVs || vt != 0;
+      this.hasNormals = this.hasNormals || vn != 0;
+      this.faceVertices[corner] = this.vertex(this.face[base], vt, vn);
+    }
+
+    for (int corner = 1; corner + 1 < count; ++corner) {
+      this.addTriangle(
+        this.faceVertices[0],
+        this.faceVertices[corner],
+        this.faceVertices[corner + 1]);
+    }
+    this.faceCorners = 0;
+  }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>Functions to store meshes in a compact binary cache file, and to reload
+ * them by memory-mapping the file.</p>
+ *
+ * <p>A cache file consists of a 64 byte header followed by a sequence of
+ * sections, each of which starts at an offset that is a multiple of 16:</p>
+ *
+ * <ol>
+ * <li>The header: the magic number {@code JOBJMESH}, a 32-bit format
+ * version, 32-bit flags (byte order, presence of texture coordinates, and
+ * presence of normals), the 64-bit size, modification time, and content
+ * hash of the source file, and 32-bit counts of vertices, indices, groups,
+ * and bytes in the name table.</li>
+ * <li>The positions, texture coordinates, and normals, as {@code float}
+ * values.</li>
+ * <li>The indices, as {@code int} values.</li>
+ * <li>The groups, as four {@code int} values each: the object name, the
+ * material name (both as indices into the name table, or {@code -1}), the
+ * first index, and the index count, followed by the group's origin as three
+ * {@code double} values.</li>
+ * <li>The name table: a sequence of length-prefixed UTF-8 strings. The
+ * first string is always the path of the source file.</li>
+ * </ol>
+ *
+ * <p>All values are stored in the native byte order of the machine that
+ * wrote the cache, and the byte order is recorded in the flags. A cache is
+ * only loaded if its byte order matches the native byte order and its key
+ * matches the given key; the attribute and index sections of a loaded mesh
+ * are then read-only mappings of the file, and so loading costs only the
+ * page faults incurred when the data is actually used.</p>
+ *
+ * <p>If the given key was created with
+ * {@link JOMeshCacheKey#ofFileMetadata(Path)}, the path, size, and
+ * modification time are matched against the cache first, and the source
+ * file is only hashed if the modification time disagrees (in which case a
+ * matching hash still validates the cache) or if verification is requested
+ * with {@link #read(Path, JOMeshCacheKey, boolean)}. Repeated loads of an
+ * unchanged source file therefore never read the source file.</p>
+ */
+
+public final class JOMeshCache
+{
+  /**
+   * The current version of the cache format.
+   */
+
+  public static final int VERSION = 2;
+
+  private static final ByteOrder NATIVE = ByteOrder.nativeOrder();
+  private static final int GROUP_SIZE = 40;
+  private static final long MAGIC = 0x4A4F424A4D455348L;
+  private static final int HEADER_SIZE = 64;
+  private static final int FLAG_BIG_ENDIAN = 0x1;
+  private static final int FLAG_UVS = 0x2;
+  private static final int FLAG_NORMALS = 0x4;
+
+  private JOMeshCache()
+  {
+    throw new AssertionError("No instances");
+  }
+
+  private static long align(final long offset)
+  {
+    return (offset + 15L) & ~15L;
+  }
+
+  private static int nativeFlags()
+  {
+    if (NATIVE == ByteOrder.BIG_ENDIAN) {
+      return FLAG_BIG_ENDIAN;
+    }
+    return 0;
+  }
+
+  private static int nameIndex(
+    final List<String> names,
+    final Map<String, Integer> indices,
+    final Optional<String> name)
+  {
+    if (name.isEmpty()) {
+      return -1;
+    }
+    final String text = name.get();
+    final Integer existing = indices.get(text);
+    if (existing != null) {
+      return existing.intValue();
+    }
+    final int index = names.size();
+    names.add(text);
+    indices.put(text, Integer.valueOf(index));
+    return index;
+  }
+
+  private static void writeFully(
+    final FileChannel channel,
+    final long offset,
+    final ByteBuffer data)
+    throws IOException
+  {
+    long position = offset;
+    while (data.hasRemaining()) {
+      position += (long) channel.write(data, position);
+    }
+  }
+
+  /**
+   * Write the given mesh to a cache file. The file is written to a
+   * temporary file in the same directory, and then atomically moved into
+   * place, so readers never observe a partially written cache. If the key
+   * carries no content hash, the source file is hashed.
+   *
+   * @param file The cache file
+   * @param key  The key of the source file
+   * @param mesh The mesh
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void write(
+    final Path file,
+    final JOMeshCacheKey key,
+    final JOMesh mesh)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "File");
+    Objects.requireNonNull(key, "Key");
+    Objects.requireNonNull(mesh, "Mesh");
+
+    final List<String> names = new ArrayList<>(8);
+    final Map<String, Integer> name_indices = new HashMap<>(8);
+    names.add(key.path());
+
+    final List<JOMeshGroup> groups = mesh.groups();
+    final ByteBuffer group_data = encodeGroups(groups, names, name_indices);
+
+    final ByteBuffer name_data = encodeNames(names);
+
+    int flags = nativeFlags();
+    if (mesh.hasTextureCoordinates()) {
+      flags |= FLAG_UVS;
+    }
+    if (mesh.hasNormals()) {
+      flags |= FLAG_NORMALS;
+    }
+
+    final ByteBuffer header =
+      ByteBuffer.allocate(HEADER_SIZE).order(NATIVE);
+    header.putLong(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(flags);
+    header.putLong(key.size());
+    header.putLong(key.modified());
+    if (key.hashed()) {
+      header.putLong(key.hash());
+    } else {
+      header.putLong(JOMeshCacheKey.hashOf(key));
+    }
+    header.putInt(mesh.vertexCount());
+    header.putInt(mesh.indicesBytes().remaining() / 4);
+    header.putInt(groups.size());
+    header.putInt(name_data.remaining());
+    header.position(0);
+
+    final ByteBuffer[] sections = {
+      header,
+      mesh.positionsBytes(),
+      mesh.textureCoordinatesBytes(),
+      mesh.normalsBytes(),
+      mesh.indicesBytes(),
+      group_data,
+      name_data,
+    };
+
+    final Path absolute = file.toAbsolutePath();
+    final Path parent = absolute.getParent();
+    if (parent == null) {
+      throw new IOException("Cache file has no parent directory: " + absolute);
+    }
+    final Path temp = Files.createTempFile(
+      parent, String.valueOf(absolute.getFileName()), ".tmp");
+
+    try {
+      try (FileChannel channel =
+             FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        long offset = 0L;
+        for (final ByteBuffer section : sections) {
+          offset = align(offset);
+          final int size = section.remaining();
+          writeFully(channel, offset, section);
+          offset += (long) size;
+        }
+        channel.truncate(offset);
+        channel.force(true);
+      }
+      Files.move(
+        temp,
+        absolute,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException e) {
+      try {
+        Files.deleteIfExists(temp);
+      } catch (final IOException x) {
+        e.addSuppressed(x);
+      }
+      throw e;
+    }
+  }
+
+  private static ByteBuffer encodeNames(final List<String> names)
+  {
+    final List<byte[]> encoded = new ArrayList<>(names.size());
+    int size = 0;
+    for (final String name : names) {
+      final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      encoded.add(bytes);
+      size += 4 + bytes.length;
+    }
+
+    final ByteBuffer data =
+      ByteBuffer.allocate(size).order(NATIVE);
+    for (final byte[] bytes : encoded) {
+      data.putInt(bytes.length);
+      data.put(bytes);
+    }
+    return data.flip();
+  }
+
+  private static List<String> decodeNames(final ByteBuffer data)
+  {
+    final List<String> names = new ArrayList<>(8);
+    while (data.remaining() >= 4) {
+      final int length = data.getInt();
+      if (length < 0 || length > data.remaining()) {
+        return List.of();
+      }
+      names.add(JOTokenizer.decode(
+        data.array(), data.arrayOffset() + data.position(), length));
+      data.position(data.position() + length);
+    }
+    if (data.hasRemaining()) {
+      return List.of();
+    }
+    return names;
+  }
+
+  /**
+   * Load a mesh from a cache file, if the cache file exists and is valid
+   * for the given key. Equivalent to
+   * {@code read(file, key, false)}.
+   *
+   * @param file The cache file
+   * @param key  The key of the source file
+   *
+   * @return The cached mesh, or nothing if the cache does not exist, was
+   * written for a different source file, was written on a machine with a
+   * different byte order, or is malformed
+   *
+   * @throws IOException On I/O errors
+   * @see #read(Path, JOMeshCacheKey, boolean)
+   */
+
+  public static Optional<JOMesh> read(
+    final Path file,
+    final JOMeshCacheKey key)
+    throws IOException
+  {
+    return read(file, key, false);
+  }
+
+  /**
+   * Load a mesh from a cache file, if the cache file exists and is valid
+   * for the given key. If the key carries no content hash and
+   * {@code verify} is {@code true}, the source file is hashed and the hash
+   * is compared against the cache even if the modification time matches.
+   * The parameter has no effect for keys that carry a content hash.
+   *
+   * @param file   The cache file
+   * @param key    The key of the source file
+   * @param verify {@code true} if the source file should always be hashed
+   *
+   * @return The cached mesh, or nothing if the cache does not exist, was
+   * written for a different source file, was written on a machine with a
+   * different byte order, or is malformed
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static Optional<JOMesh> read(
+    final Path file,
+    final JOMeshCacheKey key,
+    final boolean verify)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "File");
+    Objects.requireNonNull(key, "Key");
+
+    if (!Files.isRegularFile(file)) {
+      return Optional.empty();
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long file_size = channel.size();
+      if (file_size < (long) HEADER_SIZE) {
+        return Optional.empty();
+      }
+
+      final ByteBuffer header =
+        ByteBuffer.allocate(HEADER_SIZE).order(NATIVE);
+      readFully(channel, 0L, header);
+      header.flip();
+      if (!checkHeader(header, key)) {
+        return Optional.empty();
+      }
+      final Optional<JOMesh> mesh =
+        readSections(channel, file_size, header, key);
+      if (mesh.isPresent() && !checkSource(header, key, verify)) {
+        return Optional.empty();
+      }
+      return mesh;
+    }
+  }
+
+  /**
+   * Check the content hash of the source file for keys that carry no hash.
+   * The source file is only read if the modification time disagrees with
+   * the cache, or if verification is requested.
+   */
+
+  private static boolean checkSource(
+    final ByteBuffer header,
+    final JOMeshCacheKey key,
+    final boolean verify)
+    throws IOException
+  {
+    if (key.hashed()) {
+      return true;
+    }
+    if (!verify && header.getLong(24) == key.modified()) {
+      return true;
+    }
+    return header.getLong(32) == JOMeshCacheKey.hashOf(key);
+  }
+
+  private static boolean checkHeader(
+    final ByteBuffer header,
+    final JOMeshCacheKey key)
+  {
+    final boolean magic = header.getLong(0) == MAGIC;
+    final boolean version = header.getInt(8) == VERSION;
+    final boolean order = (header.getInt(12) & FLAG_BIG_ENDIAN) == nativeFlags();
+    if (!(magic && version && order)) {
+      return false;
+    }
+
+    if (header.getLong(16) != key.size()) {
+      return false;
+    }
+    if (!key.hashed()) {
+      return true;
+    }
+    final boolean modified = header.getLong(24) == key.modified();
+    final boolean hash = header.getLong(32) == key.hash();
+    return modified && hash;
+  }
+
+  private static Optional<JOMesh> readSections(
+    final FileChannel channel,
+    final long file_size,
+    final ByteBuffer header,
+    final JOMeshCacheKey key)
+    throws IOException
+  {
+    final int flags = header.getInt(12);
+    final int vertex_count = header.getInt(40);
+    final int index_count = header.getInt(44);
+    final int group_count = header.getInt(48);
+    final int name_size = header.getInt(52);
+
+    final boolean counts_valid =
+      vertex_count >= 0 && index_count >= 0 && index_count % 3 == 0;
+    final boolean sizes_valid = group_count >= 0 && name_size >= 0;
+    if (!(counts_valid && sizes_valid)) {
+      return Optional.empty();
+    }
+
+    final long[] sizes = {
+      (long) vertex_count * 12L,
+      (long) vertex_count * 8L,
+      (long) vertex_count * 12L,
+      (long) index_count * 4L,
+      (long) group_count * (long) GROUP_SIZE,
+      (long) name_size,
+    };
+    final long[] offsets = new long[sizes.length];
+    long offset = (long) HEADER_SIZE;
+    for (int index = 0; index < sizes.length; ++index) {
+      offset = align(offset);
+      offsets[index] = offset;
+      offset += sizes[index];
+    }
+    if (offset != file_size || sizes[0] > (long) Integer.MAX_VALUE) {
+      return Optional.empty();
+    }
+
+    final ByteBuffer name_data = ByteBuffer.allocate(name_size);
+    readFully(channel, offsets[5], name_data);
+    name_data.flip();
+    final List<String> names = decodeNames(name_data.order(NATIVE));
+    if (names.isEmpty() || !Objects.equals(names.get(0), key.path())) {
+      return Optional.empty();
+    }
+
+    final ByteBuffer group_data =
+      ByteBuffer.allocate((int) sizes[4]).order(NATIVE);
+    readFully(channel, offsets[4], group_data);
+    group_data.flip();
+    final Optional<List<JOMeshGroup>> groups =
+      decodeGroups(group_data, names, index_count);
+    if (groups.isEmpty()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new JOMesh(
+      ByteBuffer::allocateDirect,
+      groups.get(),
+      vertex_count,
+      map(channel, offsets[0], sizes[0]),
+      map(channel, offsets[1], sizes[1]),
+      (flags & FLAG_UVS) == FLAG_UVS,
+      map(channel, offsets[2], sizes[2]),
+      (flags & FLAG_NORMALS) == FLAG_NORMALS,
+      map(channel, offsets[3], sizes[3])));
+  }
+
+  private static Optional<String> name(
+    final List<String> names,
+    final int index)
+  {
+    if (index >= 0 && index < names.size()) {
+      return Optional.of(names.get(index));
+    }
+    return Optional.empty();
+  }
+
+  private static ByteBuffer encodeGroups(
+    final List<JOMeshGroup> groups,
+    final List<String> names,
+    final Map<String, Integer> name_indices)
+  {
+    final ByteBuffer data =
+      ByteBuffer.allocate(groups.size() * GROUP_SIZE).order(NATIVE);
+    for (final JOMeshGroup group : groups) {
+      data.putInt(nameIndex(names, name_indices, group.object()));
+      data.putInt(nameIndex(names, name_indices, group.material()));
+      data.putInt(group.firstIndex());
+      data.putInt(group.indexCount());
+      data.putDouble(group.originX());
+      data.putDouble(group.originY());
+      data.putDouble(group.originZ());
+    }
+    data.flip();
+    return data;
+  }
+
+  private static Optional<List<JOMeshGroup>> decodeGroups(
+    final ByteBuffer data,
+    final List<String> names,
+    final int index_count)
+  {
+    final List<JOMeshGroup> groups = new ArrayList<>(data.remaining() / GROUP_SIZE);
+    final int name_count = names.size();
+    while (data.hasRemaining()) {
+      final int object = data.getInt();
+      final int material = data.getInt();
+      final int first = data.getInt();
+      final int count = data.getInt();
+      final double x = data.getDouble();
+      final double y = data.getDouble();
+      final double z = data.getDouble();
+
+      final boolean names_valid = object < name_count && material < name_count;
+      final boolean range_valid =
+        first >= 0 && count >= 0 && (long) first + (long) count <= index_count;
+      if (!(names_valid && range_valid)) {
+        return Optional.empty();
+      }
+      groups.add(JOMeshGroup.of(
+        name(names, object), name(names, material), first, count, x, y, z));
+    }
+    return Optional.of(groups);
+  }
+
+  private static ByteBuffer map(
+    final FileChannel channel,
+    final long offset,
+    final long size)
+    throws IOException
+  {
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, size)
+      .order(NATIVE);
+  }
+
+  private static void readFully(
+    final FileChannel channel,
+    final long offset,
+    final ByteBuffer data)
+    throws IOException
+  {
+    long position = offset;
+    while (data.hasRemaining()) {
+      final int r = channel.read(data, position);
+      if (r < 0) {
+        throw new IOException("Unexpected EOF");
+      }
+      position += (long) r;
+    }
+  }
+}
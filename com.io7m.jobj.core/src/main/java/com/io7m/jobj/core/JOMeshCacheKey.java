@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>The key that identifies the source of a cached mesh.</p>
+ *
+ * <p>A key created with {@link #of(String, long, long, long)} or
+ * {@link #ofFile(Path)} carries a content hash, and a cached mesh is only
+ * considered valid if the path, size, modification time, and content hash
+ * of the source file all match the values recorded in the cache.</p>
+ *
+ * <p>A key created with {@link #ofFileMetadata(Path)} carries only the
+ * path, size, and modification time, and so can be created without reading
+ * the source file. The cache then hashes the source file only if the
+ * modification time disagrees with the cache, or if the caller asks for the
+ * cache to be verified.</p>
+ *
+ * @see JOMeshCache
+ */
+
+public final class JOMeshCacheKey
+{
+  private static final long HASH_CHUNK = 1L << 28;
+
+  private final String path;
+  private final long size;
+  private final long modified;
+  private final long hash;
+  private final boolean hashed;
+
+  private JOMeshCacheKey(
+    final String in_path,
+    final long in_size,
+    final long in_modified,
+    final long in_hash,
+    final boolean in_hashed)
+  {
+    this.path = Objects.requireNonNull(in_path, "Path");
+    this.size = in_size;
+    this.modified = in_modified;
+    this.hash = in_hash;
+    this.hashed = in_hashed;
+  }
+
+  /**
+   * Create a key from explicit values.
+   *
+   * @param in_path     The source path
+   * @param in_size     The source size in bytes
+   * @param in_modified The source modification time in milliseconds since
+   *                    the epoch
+   * @param in_hash     The source content hash
+   *
+   * @return A new key
+   */
+
+  public static JOMeshCacheKey of(
+    final String in_path,
+    final long in_size,
+    final long in_modified,
+    final long in_hash)
+  {
+    return new JOMeshCacheKey(in_path, in_size, in_modified, in_hash, true);
+  }
+
+  /**
+   * Create a key for the given source file. The content hash is a CRC32C
+   * of the entire file, computed over a memory mapping of the file; this is
+   * far cheaper than parsing the file.
+   *
+   * @param file The source file
+   *
+   * @return A new key
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static JOMeshCacheKey ofFile(final Path file)
+    throws IOException
+  {
+    final JOMeshCacheKey meta = ofFileMetadata(file);
+    return new JOMeshCacheKey(
+      meta.path, meta.size, meta.modified, hashOf(meta), true);
+  }
+
+  /**
+   * Create a key for the given source file that carries only the path,
+   * size, and modification time of the file. The contents of the file are
+   * not read.
+   *
+   * @param file The source file
+   *
+   * @return A new key
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static JOMeshCacheKey ofFileMetadata(final Path file)
+    throws IOException
+  {
+    final Path absolute = file.toAbsolutePath().normalize();
+    final BasicFileAttributes attributes =
+      Files.readAttributes(absolute, BasicFileAttributes.class);
+    return new JOMeshCacheKey(
+      absolute.toString(),
+      attributes.size(),
+      attributes.lastModifiedTime().toMillis(),
+      0L,
+      false);
+  }
+
+  /**
+   * Compute the content hash of the source file named by the given key.
+   *
+   * @param key The key
+   *
+   * @return The CRC32C of the entire file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static long hashOf(final JOMeshCacheKey key)
+    throws IOException
+  {
+    try (FileChannel channel =
+           FileChannel.open(Paths.get(key.path), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final CRC32C crc = new CRC32C();
+      for (long offset = 0L; offset < size; offset += HASH_CHUNK) {
+        final long length = Math.min(HASH_CHUNK, size - offset);
+        final MappedByteBuffer map =
+          channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        crc.update(map);
+      }
+      return crc.getValue();
+    }
+  }
+
+  /**
+   * @return The source path
+   */
+
+  public String path()
+  {
+    return this.path;
+  }
+
+  /**
+   * @return The source size in bytes
+   */
+
+  public long size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @return The source modification time in milliseconds since the epoch
+   */
+
+  public long modified()
+  {
+    return this.modified;
+  }
+
+  /**
+   * @return The source content hash, or {@code 0} if the key carries no
+   * hash
+   *
+   * @see #hashed()
+   */
+
+  public long hash()
+  {
+    return this.hash;
+  }
+
+  /**
+   * @return {@code true} iff the key carries a content hash
+   */
+
+  public boolean hashed()
+  {
+    return this.hashed;
+  }
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
+      return false;
+    }
+    final JOMeshCacheKey other = (JOMeshCacheKey) o;
+    final boolean same_file =
+      this.size == other.size && this.modified == other.modified;
+    return same_file
+      && this.hash == other.hash
+      && this.hashed == other.hashed
+      && Objects.equals(this.path, other.path);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(
+      this.path,
+      Long.valueOf(this.size),
+      Long.valueOf(this.modified),
+      Long.valueOf(this.hash),
+      Boolean.valueOf(this.hashed));
+  }
+
+  @Override
+  public String toString()
+  {
+    if (!this.hashed) {
+      return String.format(
+        "[JOMeshCacheKey %s %d %d]",
+        this.path,
+        Long.valueOf(this.size),
+        Long.valueOf(this.modified));
+    }
+    return String.format(
+      "[JOMeshCacheKey %s %d %d %x]",
+      this.path,
+      Long.valueOf(this.size),
+      Long.valueOf(this.modified),
+      Long.valueOf(this.hash));
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A range of triangles in a {@link JOMesh} that share the same object name
+ * (as given by the {@code o} command) and material (as given by the
+ * {@code usemtl} command). The positions of the vertices referred to by the
+ * group are relative to the group's origin, which is zero unless the mesh
+ * was built with an origin.
+ *
+ * @see JOMeshOriginKind
+ */
+
+public final class JOMeshGroup
+{
+  private final Optional<String> object;
+  private final Optional<String> material;
+  private final int firstIndex;
+  private final int indexCount;
+  private final double originX;
+  private final double originY;
+  private final double originZ;
+
+  private JOMeshGroup(
+    final Optional<String> in_object,
+    final Optional<String> in_material,
+    final int in_first_index,
+    final int in_index_count,
+    final double in_origin_x,
+    final double in_origin_y,
+    final double in_origin_z)
+  {
+    this.object = Objects.requireNonNull(in_object, "Object");
+    this.material = Objects.requireNonNull(in_material, "Material");
+    this.firstIndex = in_first_index;
+    this.indexCount = in_index_count;
+    this.originX = in_origin_x;
+    this.originY = in_origin_y;
+    this.originZ = in_origin_z;
+  }
+
+  /**
+   * Create a group.
+   *
+   * @param in_object      The object name, if any
+   * @param in_material    The material name, if any
+   * @param in_first_index The offset of the first index of the group
+   * @param in_index_count The number of indices in the group
+   *
+   * @return A new group
+   */
+
+  public static JOMeshGroup of(
+    final Optional<String> in_object,
+    final Optional<String> in_material,
+    final int in_first_index,
+    final int in_index_count)
+  {
+    return new JOMeshGroup(
+      in_object, in_material, in_first_index, in_index_count, 0.0, 0.0, 0.0);
+  }
+
+  /**
+   * Create a group with an origin.
+   *
+   * @param in_object      The object name, if any
+   * @param in_material    The material name, if any
+   * @param in_first_index The offset of the first index of the group
+   * @param in_index_count The number of indices in the group
+   * @param in_origin_x    The x component of the origin
+   * @param in_origin_y    The y component of the origin
+   * @param in_origin_z    The z component of the origin
+   *
+   * @return A new group
+   */
+
+  public static JOMeshGroup of(
+    final Optional<String> in_object,
+    final Optional<String> in_material,
+    final int in_first_index,
+    final int in_index_count,
+    final double in_origin_x,
+    final double in_origin_y,
+    final double in_origin_z)
+  {
+    return new JOMeshGroup(
+      in_object,
+      in_material,
+      in_first_index,
+      in_index_count,
+      in_origin_x,
+      in_origin_y,
+      in_origin_z);
+  }
+
+  /**
+   * @return The object name, if any
+   */
+
+  public Optional<String> object()
+  {
+    return this.object;
+  }
+
+  /**
+   * @return The material name, if any
+   */
+
+  public Optional<String> material()
+  {
+    return this.material;
+  }
+
+  /**
+   * @return The offset within the index buffer of the first index of the
+   * group
+   */
+
+  public int firstIndex()
+  {
+    return this.firstIndex;
+  }
+
+  /**
+   * @return The number of indices in the group (three per triangle)
+   */
+
+  public int indexCount()
+  {
+    return this.indexCount;
+  }
+
+  /**
+   * @return The x component of the origin
+   */
+
+  public double originX()
+  {
+    return this.originX;
+  }
+
+  /**
+   * @return The y component of the origin
+   */
+
+  public double originY()
+  {
+    return this.originY;
+  }
+
+  /**
+   * @return The z component of the origin
+   */
+
+  public double originZ()
+  {
+    return this.originZ;
+  }
+
+  /**
+   * @return {@code true} iff any component of the origin is nonzero
+   */
+
+  public boolean hasOrigin()
+  {
+    return this.originX != 0.0 || this.originY != 0.0 || this.originZ != 0.0;
+  }
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
+      return false;
+    }
+    final JOMeshGroup other = (JOMeshGroup) o;
+    return this.firstIndex == other.firstIndex
+      && this.indexCount == other.indexCount
+      && Double.compare(this.originX, other.originX) == 0
+      && Double.compare(this.originY, other.originY) == 0
+      && Double.compare(this.originZ, other.originZ) == 0
+      && Objects.equals(this.object, other.object)
+      && Objects.equals(this.material, other.material);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(
+      this.object,
+      this.material,
+      Integer.valueOf(this.firstIndex),
+      Integer.valueOf(this.indexCount),
+      Double.valueOf(this.originX),
+      Double.valueOf(this.originY),
+      Double.valueOf(this.originZ));
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format(
+      "[JOMeshGroup %s %s %d %d (%s, %s, %s)]",
+      this.object,
+      this.material,
+      Integer.valueOf(this.firstIndex),
+      Integer.valueOf(this.indexCount),
+      Double.valueOf(this.originX),
+      Double.valueOf(this.originY),
+      Double.valueOf(this.originZ));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+/**
+ * <p>The ways in which a {@link JOMeshBuilder} may choose an origin for the
+ * positions of each object.</p>
+ *
+ * <p>Meshes store positions as {@code float} values, which have 24 bits of
+ * precision: a coordinate in the millions (such as a UTM easting or
+ * northing) can only be stored to the nearest half unit. When an origin is
+ * used, each object (each run of commands following an {@code o} command)
+ * is given a double precision origin, and its positions are stored as
+ * float offsets from the origin, so that precision depends only on the size
+ * of the object, and not on its distance from zero. The origin of each
+ * group is available from {@link JOMeshGroup#originX()},
+ * {@link JOMeshGroup#originY()}, and {@link JOMeshGroup#originZ()}.</p>
+ */
+
+public enum JOMeshOriginKind
+{
+  /**
+   * Positions are stored as they are, and all origins are zero.
+   */
+
+  ORIGIN_NONE,
+
+  /**
+   * The origin of each object is its first position.
+   */
+
+  ORIGIN_FIRST_VERTEX,
+
+  /**
+   * The origin of each object is the center of the bounding box of its
+   * positions. Positions are stored relative to the first position as they
+   * arrive, while the bounding box is accumulated, and are moved to be
+   * relative to the center of the box when the mesh is built, so that the
+   * largest offset is as small as possible.
+   */
+
+  ORIGIN_BOUNDS_CENTER
+}
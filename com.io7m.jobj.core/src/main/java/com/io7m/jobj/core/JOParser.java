@@ -18,23 +18,17 @@ package com.io7m.jobj.core;
 
 import com.io7m.jlexing.core.LexicalPosition;
 import com.io7m.jlexing.core.LexicalPositionMutable;
+import com.io7m.jlexing.core.LexicalPositionType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * Default implementation of the {@link JOParserType} interface.
@@ -43,37 +37,32 @@ import java.util.regex.Pattern;
 public final class JOParser implements JOParserType
 {
   private static final Logger LOG;
-  private static final Pattern SPACE;
-  private static final Pattern ALPHA;
-  private static final Pattern P_FACE_V_VT_VN;
-  private static final Pattern P_FACE_V_VT;
-  private static final Pattern P_FACE_V_VN;
-  private static final Pattern P_FACE_V;
 
   static {
     LOG = LoggerFactory.getLogger(JOParser.class);
-    SPACE =
-      Pattern.compile("\\s+", Pattern.UNICODE_CHARACTER_CLASS);
-    ALPHA =
-      Pattern.compile("\\p{Alpha}+", Pattern.UNICODE_CHARACTER_CLASS);
-    P_FACE_V_VT_VN =
-      Pattern.compile(
-        "(\\p{Digit}+)/(\\p{Digit}+)/(\\p{Digit}+)",
-        Pattern.UNICODE_CHARACTER_CLASS);
-    P_FACE_V_VT = Pattern.compile(
-      "(\\p{Digit}+)/(\\p{Digit}+)/",
-      Pattern.UNICODE_CHARACTER_CLASS);
-    P_FACE_V_VN = Pattern.compile(
-      "(\\p{Digit}+)//(\\p{Digit}+)",
-      Pattern.UNICODE_CHARACTER_CLASS);
-    P_FACE_V = Pattern.compile(
-      "(\\p{Digit}+)//",
-      Pattern.UNICODE_CHARACTER_CLASS);
-  }
-
-  private final BufferedReader reader;
+  }
+
+  private final JOLineReaderType reader;
   private final JOParserEventListenerType listener;
+  private final JOPullParserEvents events;
   private final LexicalPositionMutable<Path> lex;
+  private final JOTokenizer tokens;
+  private final JODoubleParser numbers;
+  private final JOFaceVertexDecoder faces;
+  private final double[] doubles;
+  private final int interests;
+  private final boolean errors;
+  private final JOParserTape tape;
+  private final JOParserStatistics statistics;
+  private long consumed;
+  private long errorCount;
+  private boolean fatal;
+  private byte[] joined;
+  private boolean joining;
+  private int joinedSize;
+  private byte[] lineData;
+  private int lineStart;
+  private int lineEnd;
   private int n_next;
   private int t_next;
   private int v_next;
@@ -81,13 +70,84 @@ public final class JOParser implements JOParserType
 
   private JOParser(
     final Optional<Path> in_path,
-    final BufferedReader in_reader,
+    final JOLineReaderType in_reader,
     final JOParserEventListenerType in_listener)
   {
+    this(in_path, in_reader, in_listener, null, null);
+  }
+
+  private JOParser(
+    final Optional<Path> in_path,
+    final JOLineReaderType in_reader,
+    final JOParserEventListenerType in_listener,
+    final JOParserTape in_tape,
+    final JOParserStatistics in_statistics)
+  {
+    this(
+      in_path,
+      in_reader,
+      Objects.requireNonNull(in_listener, "Listener"),
+      null,
+      in_tape,
+      in_statistics);
+  }
+
+  /**
+   * Create a parser. Exactly one of the listener and the pull parser events
+   * is present. A parser for a pull parser never creates statistics, so
+   * that its events are written directly into the pull parser events.
+   */
+
+  private JOParser(
+    final Optional<Path> in_path,
+    final JOLineReaderType in_reader,
+    final JOParserEventListenerType in_listener,
+    final JOPullParserEvents in_events,
+    final JOParserTape in_tape,
+    final JOParserStatistics in_statistics)
+  {
+    this.tape = in_tape;
+    this.events = in_events;
+    if (in_statistics == null
+      && in_tape == null
+      && in_events == null
+      && JOParserJFR.parseEnabled()) {
+      this.statistics = JOParserStatistics.create();
+    } else {
+      this.statistics = in_statistics;
+    }
     this.reader = Objects.requireNonNull(in_reader, "Reader");
     this.lex = LexicalPositionMutable.create(1, 0, in_path);
     this.lex.setFile(in_path);
-    this.listener = Objects.requireNonNull(in_listener, "Listener");
+    if (this.statistics != null) {
+      this.listener =
+        new JOParserStatisticsListener(in_listener, this.statistics);
+    } else {
+      this.listener = in_listener;
+    }
+    this.tokens = new JOTokenizer();
+    this.faces = new JOFaceVertexDecoder();
+    this.doubles = new double[4];
+
+    final Set<JOParserEventKind> kinds;
+    final int mask;
+    if (in_events != null) {
+      this.numbers = new JODoubleParser(false);
+      kinds = in_events.interests();
+      mask = ~(1 << JOParserEventKind.EVENT_LINE.ordinal());
+    } else {
+      this.numbers = new JODoubleParser(in_listener.singlePrecision());
+      kinds = in_listener.interests();
+      mask = ~0;
+    }
+
+    int wanted = 0;
+    for (final JOParserEventKind kind : kinds) {
+      wanted |= 1 << kind.ordinal();
+    }
+    this.interests = wanted & mask;
+    this.errors = this.wants(JOParserEventKind.EVENT_ERROR);
+    this.joined = new byte[256];
 
     this.v_next = 1;
     this.n_next = 1;
@@ -110,218 +170,869 @@ public final class JOParser implements JOParserType
     final InputStream stream,
     final JOParserEventListenerType ls)
   {
-    try {
-      return new JOParser(
-        in_path,
-        new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8.name())),
-        ls);
-    } catch (final UnsupportedEncodingException e) {
-      throw new UnsupportedOperationException(e);
-    }
+    return new JOParser(in_path, new JOLineReaderStream(stream), ls);
   }
 
-  private static List<Token> getTokens(final String text)
+  /**
+   * Create a parser that updates the given statistics as it runs.
+   *
+   * @param in_path    The input filename, if any
+   * @param stream     The input stream
+   * @param ls         A parser listener
+   * @param statistics The statistics to update
+   *
+   * @return A new parser
+   */
+
+  public static JOParserType newParserFromStream(
+    final Optional<Path> in_path,
+    final InputStream stream,
+    final JOParserEventListenerType ls,
+    final JOParserStatistics statistics)
   {
-    final List<Token> tokens = new ArrayList<>(8);
-    int index = 0;
-    for (final String t : SPACE.split(text)) {
-      tokens.add(new Token(index, t));
-      index += t.length() + 1;
-    }
-    return tokens;
+    return new JOParser(
+      in_path,
+      new JOLineReaderStream(stream),
+      ls,
+      null,
+      Objects.requireNonNull(statistics, "Statistics"));
   }
 
-  private static double getDouble(final Token token)
-    throws ParseException
+  /**
+   * Create a parser that reads from a memory-mapped file. The file
+   * is opened when the parser is run, and is closed when parsing completes.
+   * Errors opening or reading the file are delivered to the listener as
+   * fatal errors. Files of any size are supported.
+   *
+   * @param path The input file
+   * @param ls   A parser listener
+   *
+   * @return A new parser
+   */
+
+  public static JOParserType newParserFromPath(
+    final Path path,
+    final JOParserEventListenerType ls)
   {
-    try {
-      return Double.parseDouble(token.getText());
-    } catch (final NumberFormatException e) {
-      throw new ParseException(e.getMessage(), token.getPosition());
-    }
+    return new JOParser(
+      Optional.of(path),
+      new JOLineReaderMapped(path, JOLineReaderMapped.WINDOW_SIZE_DEFAULT),
+      ls);
+  }
+
+  /**
+   * Create a parser that reads from a memory-mapped file, and
+   * updates the given statistics as it runs.
+   *
+   * @param path       The input file
+   * @param ls         A parser listener
+   * @param statistics The statistics to update
+   *
+   * @return A new parser
+   *
+   * @see #newParserFromPath(Path, JOParserEventListenerType)
+   */
+
+  public static JOParserType newParserFromPath(
+    final Path path,
+    final JOParserEventListenerType ls,
+    final JOParserStatistics statistics)
+  {
+    return new JOParser(
+      Optional.of(path),
+      new JOLineReaderMapped(path, JOLineReaderMapped.WINDOW_SIZE_DEFAULT),
+      ls,
+      null,
+      Objects.requireNonNull(statistics, "Statistics"));
+  }
+
+  /**
+   * Create a parser that delivers geometry in blocks to the given batch
+   * listener.
+   *
+   * @param in_path The input filename, if any
+   * @param stream  The input stream
+   * @param ls      A batch listener
+   *
+   * @return A new parser
+   */
+
+  public static JOParserType newBatchParserFromStream(
+    final Optional<Path> in_path,
+    final InputStream stream,
+    final JOParserBatchListenerType ls)
+  {
+    return new JOParser(
+      in_path,
+      new JOLineReaderStream(stream),
+      new JOParserBatchAdapter(ls));
+  }
+
+  /**
+   * Create a parser that reads from a memory-mapped file, and
+   * delivers geometry in blocks to the given batch listener.
+   *
+   * @param path The input file
+   * @param ls   A batch listener
+   *
+   * @return A new parser
+   *
+   * @see #newParserFromPath(Path, JOParserEventListenerType)
+   */
+
+  public static JOParserType newBatchParserFromPath(
+    final Path path,
+    final JOParserBatchListenerType ls)
+  {
+    return new JOParser(
+      Optional.of(path),
+      new JOLineReaderMapped(path, JOLineReaderMapped.WINDOW_SIZE_DEFAULT),
+      new JOParserBatchAdapter(ls));
+  }
+
+  /**
+   * Create a parser that delivers geometry in blocks of floats to the given
+   * batch listener. Numbers are parsed directly to the nearest float.
+   *
+   * @param in_path The input filename, if any
+   * @param stream  The input stream
+   * @param ls      A batch listener
+   *
+   * @return A new parser
+   */
+
+  public static JOParserType newBatchParserFromStream(
+    final Optional<Path> in_path,
+    final InputStream stream,
+    final JOParserBatchFloatListenerType ls)
+  {
+    return new JOParser(
+      in_path,
+      new JOLineReaderStream(stream),
+      new JOParserBatchAdapter(ls));
+  }
+
+  /**
+   * Create a parser that reads from a memory-mapped file, and
+   * delivers geometry in blocks of floats to the given batch listener.
+   * Numbers are parsed directly to the nearest float.
+   *
+   * @param path The input file
+   * @param ls   A batch listener
+   *
+   * @return A new parser
+   *
+   * @see #newParserFromPath(Path, JOParserEventListenerType)
+   */
+
+  public static JOParserType newBatchParserFromPath(
+    final Path path,
+    final JOParserBatchFloatListenerType ls)
+  {
+    return new JOParser(
+      Optional.of(path),
+      new JOLineReaderMapped(path, JOLineReaderMapped.WINDOW_SIZE_DEFAULT),
+      new JOParserBatchAdapter(ls));
+  }
+
+  /**
+   * Create a parser that reads lines from the given reader.
+   */
+
+  static JOParser newParserFromReader(
+    final Optional<Path> in_path,
+    final JOLineReaderType in_reader,
+    final JOParserEventListenerType ls)
+  {
+    return new JOParser(in_path, in_reader, ls);
+  }
+
+  /**
+   * Create a parser for a pull parser that reads lines from the given
+   * reader. Each call to {@link #step()} writes the events of one logical
+   * line directly into the given events, rather than delivering them to a
+   * listener. Line events are never produced.
+   */
+
+  static JOParser newPullParserFromReader(
+    final Optional<Path> in_path,
+    final JOLineReaderType in_reader,
+    final JOPullParserEvents in_events)
+  {
+    return new JOParser(
+      in_path,
+      in_reader,
+      null,
+      Objects.requireNonNull(in_events, "Events"),
+      null,
+      null);
   }
 
-  private static FaceType getFaceType(final Token token)
-    throws ParseException
+  /**
+   * Create a parser for the region {@code [start, end)} of a file. Events
+   * are recorded into the given tape, and checks of face vertex indices are
+   * deferred to the tape.
+   */
+
+  static JOParser newChunkParser(
+    final Path path,
+    final long start,
+    final long end,
+    final JOParserTape in_tape)
   {
-    final String text = token.getText();
-    if (P_FACE_V_VT_VN.matcher(text).matches()) {
-      return FaceType.FACE_V_VT_VN;
+    final JOParser p = new JOParser(
+      Optional.of(path),
+      new JOLineReaderMapped(
+        path, JOLineReaderMapped.WINDOW_SIZE_DEFAULT, start, end),
+      in_tape,
+      in_tape,
+      null);
+    if (start > 0L) {
+      p.lex.setColumn(1);
     }
-    if (P_FACE_V_VT.matcher(text).matches()) {
-      return FaceType.FACE_V_VT;
+    return p;
+  }
+
+  /**
+   * Record the number of elements seen so far into the tape.
+   */
+
+  void finishChunk()
+  {
+    this.tape.finish(
+      this.v_next - 1, this.t_next - 1, this.n_next - 1, this.f_next - 1);
+  }
+
+  private boolean wants(final JOParserEventKind kind)
+  {
+    return (this.interests & (1 << kind.ordinal())) != 0;
+  }
+
+  private static int indexOf(
+    final byte[] data,
+    final int start,
+    final int end,
+    final byte b)
+  {
+    for (int index = start; index < end; ++index) {
+      if (data[index] == b) {
+        return index;
+      }
     }
-    if (P_FACE_V_VN.matcher(text).matches()) {
-      return FaceType.FACE_V_VN;
+    return -1;
+  }
+
+  private static Command getCommand(final JOTokenizer t)
+  {
+    switch (t.length(0)) {
+      case 1: {
+        switch (t.byteAt(0, 0)) {
+          case 'v':
+            return Command.COMMAND_V;
+          case 'f':
+            return Command.COMMAND_F;
+          case 'o':
+            return Command.COMMAND_O;
+          case 's':
+            return Command.COMMAND_S;
+          default:
+            return Command.COMMAND_UNRECOGNIZED;
+        }
+      }
+      case 2: {
+        if (t.is(0, "vn")) {
+          return Command.COMMAND_VN;
+        }
+        if (t.is(0, "vt")) {
+          return Command.COMMAND_VT;
+        }
+        return Command.COMMAND_UNRECOGNIZED;
+      }
+      case 6: {
+        if (t.is(0, "mtllib")) {
+          return Command.COMMAND_MTLLIB;
+        }
+        if (t.is(0, "usemtl")) {
+          return Command.COMMAND_USEMTL;
+        }
+        return Command.COMMAND_UNRECOGNIZED;
+      }
+      default:
+        return Command.COMMAND_UNRECOGNIZED;
     }
-    if (P_FACE_V.matcher(text).matches()) {
-      return FaceType.FACE_V;
+  }
+
+  /**
+   * Parse fields {@code [1, count]} as numbers, storing the results in
+   * {@link #doubles}. The first malformed number (if any) is reported to the
+   * listener.
+   *
+   * @return {@code false} iff a number was malformed
+   */
+
+  private boolean getDoubles(
+    final int count,
+    final boolean convert)
+  {
+    final byte[] data = this.tokens.data();
+    for (int index = 0; index < count; ++index) {
+      final int field = index + 1;
+      final int start = this.tokens.start(field);
+      final int end = this.tokens.end(field);
+      final boolean ok = convert
+        ? this.numbers.parse(data, start, end)
+        : this.numbers.check(data, start, end);
+      if (!ok) {
+        this.error(
+          LexicalPosition.of(
+            this.lex.line(),
+            start - this.lineStart,
+            this.lex.file()),
+          JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
+          "Malformed number: " + this.tokens.text(field));
+        return false;
+      }
+      this.doubles[index] = this.numbers.value();
     }
+    return true;
+  }
 
-    throw new ParseException("Invalid vertex format", token.getPosition());
+  private void append(
+    final int size,
+    final byte[] data,
+    final int start,
+    final int end)
+  {
+    final int length = end - start;
+    if (size + length > this.joined.length) {
+      this.joined =
+        Arrays.copyOf(this.joined, Math.max(this.joined.length * 2, size + length));
+    }
+    System.arraycopy(data, start, this.joined, size, length);
   }
 
-  private String getLine()
+  /**
+   * Read the next logical line, joining any lines that end with a backslash.
+   * If the reader has no more lines for now but is not exhausted, the state
+   * of any partially joined line is retained so that reading can resume when
+   * more lines become available.
+   *
+   * @return {@code false} iff EOF was reached, or no complete line is
+   * available yet
+   */
+
+  private boolean getLine()
     throws IOException
   {
-    boolean slash = false;
-    final StringBuilder buffer = new StringBuilder(256);
-
     while (true) {
-      final String c_line = this.reader.readLine();
-      if (c_line == null) {
+      if (!this.reader.next()) {
+        if (!this.reader.exhausted()) {
+          return false;
+        }
         LOG.trace("eof");
-        if (slash) {
-          this.listener.onFatalError(
-            this.lex, Optional.empty(), "Unexpected EOF");
+        if (this.joining) {
+          this.onFatalError(Optional.empty(), "Unexpected EOF");
+        }
+        if (this.events != null) {
+          this.events.endOfFile(this.lex);
+        } else {
+          this.listener.onEOF(this.lex);
         }
-        this.listener.onEOF(this.lex);
-        return null;
+        return false;
       }
 
-      if (c_line.endsWith("\\") && !c_line.contains("#")) {
-        slash = true;
-        buffer.append(c_line.substring(0, c_line.length() - 1));
+      if (this.statistics != null) {
+        this.statistics.addLine();
+      }
+
+      final byte[] data = this.reader.data();
+      final int start = this.reader.start();
+      final int end = this.reader.end();
+
+      if (end > start
+        && data[end - 1] == '\\'
+        && indexOf(data, start, end, (byte) '#') == -1) {
+        this.joining = true;
+        this.append(this.joinedSize, data, start, end - 1);
+        this.joinedSize += end - 1 - start;
         this.lex.setLine(this.lex.line() + 1);
         this.lex.setColumn(1);
         continue;
       }
 
-      buffer.append(c_line);
-      return buffer.toString();
+      if (this.joining) {
+        this.append(this.joinedSize, data, start, end);
+        this.lineData = this.joined;
+        this.lineStart = 0;
+        this.lineEnd = this.joinedSize + (end - start);
+        this.joining = false;
+        this.joinedSize = 0;
+      } else {
+        this.lineData = data;
+        this.lineStart = start;
+        this.lineEnd = end;
+      }
+      return true;
     }
   }
 
+  /**
+   * Remove leading and trailing whitespace (and control characters) from the
+   * current line, as {@link String#trim()} would.
+   */
+
+  private void trimLine()
+  {
+    final byte[] data = this.lineData;
+    int start = this.lineStart;
+    int end = this.lineEnd;
+    while (start < end && data[start] >= 0 && data[start] <= ' ') {
+      ++start;
+    }
+    while (end > start && data[end - 1] >= 0 && data[end - 1] <= ' ') {
+      --end;
+    }
+    this.lineStart = start;
+    this.lineEnd = end;
+  }
+
   @Override
   public void run()
   {
+    final JOParserJFRParseEvent event = new JOParserJFRParseEvent();
+    this.beginEvent(event);
     try {
-      while (true) {
-        final String c_line = this.getLine();
-        if (c_line == null) {
-          return;
-        }
+      this.runLines();
+    } finally {
+      this.commitEvent(event);
+    }
+  }
 
-        final String c_trim = c_line.trim();
-        LOG.trace(
-          "[{}]: {}",
-          Integer.valueOf(this.lex.line()), c_trim);
-        this.listener.onLine(this.lex, c_trim);
-
-        final String c_actual;
-        final String c_comment;
-        final int c_index = c_trim.indexOf('#');
-        if (c_index != -1) {
-          c_actual = c_trim.substring(0, c_index);
-          c_comment = c_trim.substring(c_index, c_trim.length());
-        } else {
-          c_actual = c_trim;
-          c_comment = null;
-        }
+  /**
+   * Start a flight recorder event covering this parser.
+   *
+   * @param event The event
+   */
+
+  void beginEvent(final JOParserJFRParseEvent event)
+  {
+    event.begin();
+    if (this.statistics != null) {
+      event.setListenerTime(-this.statistics.listenerNanos());
+    }
+  }
+
+  /**
+   * Commit a flight recorder event covering this parser, if the event is
+   * enabled.
+   *
+   * @param event The event
+   */
+
+  void commitEvent(final JOParserJFRParseEvent event)
+  {
+    if (event.shouldCommit()) {
+      event.setFile(JOParserJFR.fileName(this.lex));
+      event.setBytes(this.reader.consumed());
+      event.setLines((long) this.lex.line() - 1L);
+      event.setVertices((long) this.v_next - 1L);
+      event.setTextures((long) this.t_next - 1L);
+      event.setNormals((long) this.n_next - 1L);
+      event.setFaces((long) this.f_next - 1L);
+      event.setErrors(this.errorCount);
+      event.setFatal(this.fatal);
+      if (this.statistics != null) {
+        event.setListenerTime(
+          event.listenerTime() + this.statistics.listenerNanos());
+      } else {
+        event.setListenerTime(0L);
+      }
+      event.commit();
+    }
+  }
+
+  private void onFatalError(
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.fatal = true;
+    if (this.tape == null) {
+      JOParserJFR.fatal(this.lex, message);
+    }
+    if (this.events != null) {
+      this.events.fatalError(this.lex, e, message);
+    } else {
+      this.listener.onFatalError(this.lex, e, message);
+    }
+  }
+
+  /**
+   * Deliver an I/O error as a fatal error.
+   *
+   * @param e The error
+   */
+
+  void fail(final IOException e)
+  {
+    this.onFatalError(Optional.of(e), e.getMessage());
+  }
+
+  /**
+   * Process all available lines, without recording a parse event.
+   */
 
-        this.onCommand(c_actual);
+  void runLines()
+  {
+    if (this.statistics != null) {
+      this.runWithStatistics(this.statistics);
+      return;
+    }
+
+    try (this.reader) {
+      while (this.getLine()) {
+        this.processLine();
+      }
+    } catch (final IOException e) {
+      this.onFatalError(Optional.of(e), e.getMessage());
+    }
+  }
 
-        if (c_comment != null) {
-          this.listener.onComment(this.lex, c_comment);
+  private void runWithStatistics(final JOParserStatistics s)
+  {
+    try (this.reader) {
+      try {
+        while (this.stepTimed(s)) {
+          // Nothing to do
         }
-        this.lex.setLine(this.lex.line() + 1);
-        this.lex.setColumn(1);
+      } finally {
+        this.updateBytes(s);
       }
     } catch (final IOException e) {
-      this.listener.onFatalError(this.lex, Optional.of(e), e.getMessage());
+      this.onFatalError(Optional.of(e), e.getMessage());
     }
   }
 
-  private void onCommand(final String text)
+  /**
+   * Read and process a single logical line, timing it if it is sampled.
+   * The time spent parsing is the time spent processing the line, less the
+   * time spent tokenizing and inside the listener.
+   */
+
+  private boolean stepTimed(final JOParserStatistics s)
+    throws IOException
   {
-    if (!text.isEmpty()) {
-      final List<Token> tokens = getTokens(text);
-      final Token cmd = tokens.get(0);
-      final String cmd_text = cmd.getText();
+    if (!s.sample()) {
+      return this.step();
+    }
 
+    final long time_read = System.nanoTime();
+    final boolean more = this.getLine();
+    final long time_process = System.nanoTime();
+    s.addReadNanos(time_process - time_read);
+    if (!more) {
+      return false;
+    }
+
+    final long tokenize_then = s.sampledTokenizeNanos();
+    final long listener_then = s.sampledListenerNanos();
+    this.processLine();
+    final long elapsed = System.nanoTime() - time_process;
+    s.addParseNanos(
+      elapsed
+        - (s.sampledTokenizeNanos() - tokenize_then)
+        - (s.sampledListenerNanos() - listener_then));
+    this.updateBytes(s);
+    return true;
+  }
+
+  private void updateBytes(final JOParserStatistics s)
+  {
+    final long now = this.reader.consumed();
+    s.addBytes(now - this.consumed);
+    this.consumed = now;
+  }
+
+  /**
+   * Read and process a single logical line.
+   *
+   * @return {@code false} iff EOF was reached
+   *
+   * @throws IOException On I/O errors
+   */
+
+  boolean step()
+    throws IOException
+  {
+    if (this.getLine()) {
+      this.processLine();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return The current lexical position
+   */
+
+  LexicalPositionType<Path> position()
+  {
+    return this.lex;
+  }
+
+  /**
+   * Close the underlying reader.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void close()
+    throws IOException
+  {
+    this.reader.close();
+  }
+
+  private void processLine()
+  {
+    this.trimLine();
+
+    final byte[] data = this.lineData;
+    final int start = this.lineStart;
+    final int end = this.lineEnd;
+
+    if (this.wants(JOParserEventKind.EVENT_LINE)) {
+      final String c_trim =
+        JOTokenizer.decode(data, start, end - start);
       LOG.trace(
-        "[{}]: command: {}",
-        Integer.valueOf(this.lex.line()), cmd_text);
+        "[{}]: {}",
+        Integer.valueOf(this.lex.line()), c_trim);
+      this.listener.onLine(this.lex, c_trim);
+    }
 
-      switch (cmd_text) {
-        case "v":
-          this.onCommandV(tokens);
+    final int c_index = indexOf(data, start, end, (byte) '#');
+    if (c_index != -1) {
+      this.onCommand(c_index);
+      if (this.wants(JOParserEventKind.EVENT_COMMENT)) {
+        final String text = JOTokenizer.decode(data, c_index, end - c_index);
+        if (this.events != null) {
+          this.events.comment(this.lex, text);
+        } else {
+          this.listener.onComment(this.lex, text);
+        }
+      }
+    } else {
+      this.onCommand(end);
+    }
+
+    this.lex.setLine(this.lex.line() + 1);
+    this.lex.setColumn(1);
+  }
+
+  private void tokenize(final int end)
+  {
+    final JOParserStatistics s = this.statistics;
+    if (s != null && s.sampling()) {
+      final long time_then = System.nanoTime();
+      this.tokens.tokenize(this.lineData, this.lineStart, end);
+      s.addTokenizeNanos(System.nanoTime() - time_then);
+    } else {
+      this.tokens.tokenize(this.lineData, this.lineStart, end);
+    }
+  }
+
+  private void count(final Command command)
+  {
+    if (this.statistics != null && command != Command.COMMAND_UNRECOGNIZED) {
+      this.statistics.addCommand(kindOf(command));
+    }
+  }
+
+  private void onCommand(final int end)
+  {
+    this.tokenize(end);
+    if (this.tokens.count() > 0) {
+      if (LOG.isTraceEnabled()) {
+        LOG.trace(
+          "[{}]: command: {}",
+          Integer.valueOf(this.lex.line()), this.tokens.text(0));
+      }
+
+      final Command command = getCommand(this.tokens);
+      this.count(command);
+      if (!this.errors && !this.wants(kindOf(command))) {
+        this.skip(command);
+        return;
+      }
+
+      switch (command) {
+        case COMMAND_V:
+          this.onCommandV();
           return;
-        case "vn":
-          this.onCommandVN(tokens);
+        case COMMAND_VN:
+          this.onCommandVN();
           return;
-        case "vt":
-          this.onCommandVT(tokens);
+        case COMMAND_VT:
+          this.onCommandVT();
           return;
-        case "f":
-          this.onCommandF(tokens);
+        case COMMAND_F:
+          this.onCommandF();
           return;
-        case "o":
-          this.onCommandO(tokens);
+        case COMMAND_O:
+          this.onCommandO();
           return;
-        case "mtllib":
-          this.onCommandMtllib(tokens);
+        case COMMAND_MTLLIB:
+          this.onCommandMtllib();
           return;
-        case "usemtl":
-          this.onCommandUsemtl(tokens);
+        case COMMAND_USEMTL:
+          this.onCommandUsemtl();
           return;
-        case "s":
-          this.onCommandS(tokens);
+        case COMMAND_S:
+          this.onCommandS();
           return;
-        default: {
-          this.listener.onError(
+        case COMMAND_UNRECOGNIZED: {
+          this.error(
             this.lex,
             JOParserErrorCode.JOP_ERROR_UNRECOGNIZED_COMMAND,
-            cmd_text);
+            this.tokens.text(0));
         }
       }
     }
   }
 
-  private void onCommandO(final List<Token> tokens)
+  private static JOParserEventKind kindOf(final Command command)
   {
-    if (tokens.size() == 2) {
-      this.listener.onCommandO(this.lex, tokens.get(1).getText());
+    switch (command) {
+      case COMMAND_V:
+        return JOParserEventKind.EVENT_COMMAND_V;
+      case COMMAND_VN:
+        return JOParserEventKind.EVENT_COMMAND_VN;
+      case COMMAND_VT:
+        return JOParserEventKind.EVENT_COMMAND_VT;
+      case COMMAND_F:
+        return JOParserEventKind.EVENT_COMMAND_F;
+      case COMMAND_O:
+        return JOParserEventKind.EVENT_COMMAND_O;
+      case COMMAND_MTLLIB:
+        return JOParserEventKind.EVENT_COMMAND_MTLLIB;
+      case COMMAND_USEMTL:
+        return JOParserEventKind.EVENT_COMMAND_USEMTL;
+      case COMMAND_S:
+        return JOParserEventKind.EVENT_COMMAND_S;
+      default:
+        return JOParserEventKind.EVENT_ERROR;
+    }
+  }
+
+  /**
+   * Skip a command that nobody is interested in, keeping the element
+   * indices up to date.
+   */
+
+  private void skip(final Command command)
+  {
+    switch (command) {
+      case COMMAND_V:
+        ++this.v_next;
+        return;
+      case COMMAND_VN:
+        ++this.n_next;
+        return;
+      case COMMAND_VT:
+        ++this.t_next;
+        return;
+      case COMMAND_F:
+        ++this.f_next;
+        return;
+      default:
+        return;
+    }
+  }
+
+  private void error(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode code,
+    final String message)
+  {
+    ++this.errorCount;
+    if (this.statistics != null) {
+      this.statistics.addError(code);
+    }
+    if (this.errors) {
+      if (this.events != null) {
+        this.events.error(p, code, message);
+      } else {
+        this.listener.onError(p, code, message);
+      }
+    }
+  }
+
+  private void onCommandO()
+  {
+    if (this.tokens.count() == 2) {
+      if (this.wants(JOParserEventKind.EVENT_COMMAND_O)) {
+        final String name = this.tokens.text(1);
+        if (this.events != null) {
+          this.events.name(
+            JOPullParserEventKind.EVENT_COMMAND_O, this.lex, name);
+        } else {
+          this.listener.onCommandO(this.lex, name);
+        }
+      }
       return;
     }
 
-    this.listener.onError(
+    this.error(
       this.lex,
       JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
       "Syntax: 'o' <name>");
   }
 
-  private void onCommandUsemtl(final List<Token> tokens)
+  private void onCommandUsemtl()
   {
-    if (tokens.size() == 2) {
-      this.listener.onCommandUsemtl(this.lex, tokens.get(1).getText());
+    if (this.tokens.count() == 2) {
+      if (this.wants(JOParserEventKind.EVENT_COMMAND_USEMTL)) {
+        final String name = this.tokens.text(1);
+        if (this.events != null) {
+          this.events.name(
+            JOPullParserEventKind.EVENT_COMMAND_USEMTL, this.lex, name);
+        } else {
+          this.listener.onCommandUsemtl(this.lex, name);
+        }
+      }
       return;
     }
 
-    this.listener.onError(
+    this.error(
       this.lex,
       JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
       "Syntax: 'usemtl' <name>");
   }
 
-  private void onCommandMtllib(final List<Token> tokens)
+  private void onCommandMtllib()
   {
-    if (tokens.size() == 2) {
-      this.listener.onCommandMtllib(this.lex, tokens.get(1).getText());
+    if (this.tokens.count() == 2) {
+      if (this.wants(JOParserEventKind.EVENT_COMMAND_MTLLIB)) {
+        final String name = this.tokens.text(1);
+        if (this.events != null) {
+          this.events.name(
+            JOPullParserEventKind.EVENT_COMMAND_MTLLIB, this.lex, name);
+        } else {
+          this.listener.onCommandMtllib(this.lex, name);
+        }
+      }
       return;
     }
 
-    this.listener.onError(
+    this.error(
       this.lex,
       JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
       "Syntax: 'mtllib' <name>");
   }
 
-  private void onCommandS(final List<Token> tokens)
+  private void onCommandS()
   {
     try {
-      if (tokens.size() == 2) {
-        final String text = tokens.get(1).getText();
+      if (this.tokens.count() == 2) {
+        final String text = this.tokens.text(1);
 
         int gn = 0;
         if ("off".equals(text)) {
@@ -330,86 +1041,73 @@ public final class JOParser implements JOParserType
           gn = Integer.parseInt(text);
         }
 
-        this.listener.onCommandS(this.lex, gn);
+        if (this.wants(JOParserEventKind.EVENT_COMMAND_S)) {
+          if (this.events != null) {
+            this.events.smoothingGroup(this.lex, gn);
+          } else {
+            this.listener.onCommandS(this.lex, gn);
+          }
+        }
         return;
       }
     } catch (final NumberFormatException e) {
       // Ignore, fall through
     }
 
-    this.listener.onError(
+    this.error(
       this.lex,
       JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
       "Syntax: 's' ('off' | <integer>)");
   }
 
-  private void onCommandF(final List<Token> tokens)
+  private void onCommandF()
   {
     try {
-      if (tokens.size() >= 4) {
-        this.listener.onCommandFStarted(this.lex, this.f_next);
-
-        final FaceType ft;
-
-        try {
-          ft = getFaceType(tokens.get(1));
-        } catch (final ParseException e) {
-          final StringBuilder sb = new StringBuilder(128);
-          sb.append("Syntax:\n");
-          sb.append("  <integer>/<integer>/<integer>\n");
-          sb.append("| <integer>/<integer>/\n");
-          sb.append("| <integer>//<integer>\n");
-          sb.append("| <integer>//\n");
-          this.listener.onError(
-            this.lex,
-            JOParserErrorCode.JOP_ERROR_BAD_VERTEX_SYNTAX,
-            sb.toString());
+      final int count = this.tokens.count();
+      if (count >= 4) {
+        final boolean dispatch = this.wants(JOParserEventKind.EVENT_COMMAND_F);
+        if (dispatch) {
+          if (this.events != null) {
+            this.events.faceStarted(this.lex);
+          } else {
+            this.listener.onCommandFStarted(this.lex, this.f_next);
+          }
+        }
+
+        final byte[] data = this.tokens.data();
+        final JOFaceVertexDecoder.Format format =
+          this.faces.decode(data, this.tokens.start(1), this.tokens.end(1));
+        if (format == JOFaceVertexDecoder.Format.FACE_INVALID) {
+          this.onErrorVertexSyntax();
           return;
         }
 
         boolean ok = true;
-        for (int index = 1; index < tokens.size(); ++index) {
-          try {
-            final Token t = tokens.get(index);
-            this.lex.setColumn(t.position + 1);
-            switch (ft) {
-              case FACE_V_VT_VN:
-                ok = ok & this.onCommandF_V_VT_VN(t);
-                break;
-              case FACE_V_VT:
-                ok = ok & this.onCommandF_V_VT(t);
-                break;
-              case FACE_V_VN:
-                ok = ok & this.onCommandF_V_VN(t);
-                break;
-              case FACE_V:
-                ok = ok & this.onCommandF_V(t);
-                break;
-            }
-          } catch (final ParseException e) {
+        for (int index = 1; index < count; ++index) {
+          final int start = this.tokens.start(index);
+          this.lex.setColumn(start - this.lineStart + 1);
+
+          final boolean same = index == 1
+            || this.faces.decode(data, start, this.tokens.end(index)) == format;
+          if (same) {
+            ok = ok & this.onCommandFVertex(format, dispatch);
+          } else {
             ok = false;
-            final StringBuilder sb = new StringBuilder(128);
-            sb.append("Syntax:\n");
-            sb.append("  <integer>/<integer>/<integer>\n");
-            sb.append("| <integer>/<integer>/\n");
-            sb.append("| <integer>//<integer>\n");
-            sb.append("| <integer>//\n");
-            this.listener.onError(
-              this.lex,
-              JOParserErrorCode.JOP_ERROR_BAD_VERTEX_SYNTAX,
-              sb.toString());
+            this.onErrorVertexSyntax();
           }
         }
 
-        if (!ok) {
-          return;
+        if (ok && dispatch) {
+          if (this.events != null) {
+            this.events.faceFinished(this.lex, this.f_next);
+          } else {
+            this.listener.onCommandFFinished(this.lex, this.f_next);
+          }
         }
-
-        this.listener.onCommandFFinished(this.lex, this.f_next);
         return;
       }
 
-      this.listener.onError(
+      this.error(
         this.lex,
         JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
         "Syntax: 'f' <vertex> <vertex> <vertex> [<vertex> ...]");
@@ -419,162 +1117,176 @@ public final class JOParser implements JOParserType
     }
   }
 
-  private boolean onCommandF_V(final Token t)
-    throws ParseException
+  private void onErrorVertexSyntax()
   {
-    final Matcher m = P_FACE_V.matcher(t.getText());
-    if (m.matches()) {
-      final String i0 = m.group(1);
-      final int i0_val = Integer.parseInt(i0);
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Syntax:\n");
+    sb.append("  <integer>/<integer>/<integer>\n");
+    sb.append("| <integer>/<integer>[/]\n");
+    sb.append("| <integer>//<integer>\n");
+    sb.append("| <integer>[//]\n");
+    this.error(
+      this.lex,
+      JOParserErrorCode.JOP_ERROR_BAD_VERTEX_SYNTAX,
+      sb.toString());
+  }
 
-      boolean ok = true;
-      if (!this.checkV(i0_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
-          Integer.toString(i0_val));
-      }
+  private boolean onCommandFVertex(
+    final JOFaceVertexDecoder.Format format,
+    final boolean dispatch)
+  {
+    switch (format) {
+      case FACE_V_VT_VN:
+        return this.onCommandF_V_VT_VN(dispatch);
+      case FACE_V_VT:
+        return this.onCommandF_V_VT(dispatch);
+      case FACE_V_VN:
+        return this.onCommandF_V_VN(dispatch);
+      default:
+        return this.onCommandF_V(dispatch);
+    }
+  }
+
+  private boolean onCommandF_V(final boolean dispatch)
+  {
+    final int i0_val = this.faces.v();
 
-      if (ok) {
+    boolean ok = true;
+    if (!this.checkV(i0_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
+        Integer.toString(i0_val));
+    }
+
+    if (ok && dispatch) {
+      if (this.events != null) {
+        this.events.faceVertex(i0_val, 0, 0);
+      } else {
         this.listener.onCommandFVertexV(
           this.lex,
           this.f_next,
           i0_val);
       }
-
-      return ok;
-    } else {
-      throw new ParseException("Invalid vertex syntax", t.getPosition());
     }
+
+    return ok;
   }
 
-  private boolean onCommandF_V_VN(final Token t)
-    throws ParseException
+  private boolean onCommandF_V_VN(final boolean dispatch)
   {
-    final Matcher m = P_FACE_V_VN.matcher(t.getText());
-    if (m.matches()) {
-      final String i0 = m.group(1);
-      final String i1 = m.group(2);
-      final int i0_val = Integer.parseInt(i0);
-      final int i1_val = Integer.parseInt(i1);
+    final int i0_val = this.faces.v();
+    final int i1_val = this.faces.vn();
 
-      boolean ok = true;
-      if (!this.checkV(i0_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
-          Integer.toString(i0_val));
-      }
+    boolean ok = true;
+    if (!this.checkV(i0_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
+        Integer.toString(i0_val));
+    }
 
-      this.lex.setColumn(this.lex.column() + i0.length() + 1);
-      if (!this.checkVN(i1_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_VN,
-          Integer.toString(i1_val));
-      }
+    this.lex.setColumn(this.lex.column() + this.faces.vLength() + 1);
+    if (!this.checkVN(i1_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_VN,
+        Integer.toString(i1_val));
+    }
 
-      if (ok) {
+    if (ok && dispatch) {
+      if (this.events != null) {
+        this.events.faceVertex(i0_val, 0, i1_val);
+      } else {
         this.listener.onCommandFVertexV_VN(
           this.lex,
           this.f_next,
           i0_val,
           i1_val);
       }
-
-      return ok;
-    } else {
-      throw new ParseException("Invalid vertex syntax", t.getPosition());
     }
+
+    return ok;
   }
 
-  private boolean onCommandF_V_VT(final Token t)
-    throws ParseException
+  private boolean onCommandF_V_VT(final boolean dispatch)
   {
-    final Matcher m = P_FACE_V_VT.matcher(t.getText());
-    if (m.matches()) {
-      final String i0 = m.group(1);
-      final String i1 = m.group(2);
-
-      final int i0_val = Integer.parseInt(i0);
-      final int i1_val = Integer.parseInt(i1);
+    final int i0_val = this.faces.v();
+    final int i1_val = this.faces.vt();
 
-      boolean ok = true;
-      if (!this.checkV(i0_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
-          Integer.toString(i0_val));
-      }
+    boolean ok = true;
+    if (!this.checkV(i0_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
+        Integer.toString(i0_val));
+    }
 
-      this.lex.setColumn(this.lex.column() + i0.length() + 1);
-      if (!this.checkVT(i1_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_VT,
-          Integer.toString(i1_val));
-      }
+    this.lex.setColumn(this.lex.column() + this.faces.vLength() + 1);
+    if (!this.checkVT(i1_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_VT,
+        Integer.toString(i1_val));
+    }
 
-      if (ok) {
+    if (ok && dispatch) {
+      if (this.events != null) {
+        this.events.faceVertex(i0_val, i1_val, 0);
+      } else {
         this.listener.onCommandFVertexV_VT(
           this.lex,
           this.f_next,
           i0_val,
           i1_val);
       }
-
-      return ok;
-    } else {
-      throw new ParseException("Invalid vertex syntax", t.getPosition());
     }
+
+    return ok;
   }
 
-  private boolean onCommandF_V_VT_VN(final Token t)
-    throws ParseException
+  private boolean onCommandF_V_VT_VN(final boolean dispatch)
   {
-    final Matcher m = P_FACE_V_VT_VN.matcher(t.getText());
-    if (m.matches()) {
-      final String i0 = m.group(1);
-      final String i1 = m.group(2);
-      final String i2 = m.group(3);
-
-      final int i0_val = Integer.parseInt(i0);
-      final int i1_val = Integer.parseInt(i1);
-      final int i2_val = Integer.parseInt(i2);
-
-      boolean ok = true;
-      if (!this.checkV(i0_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
-          Integer.toString(i0_val));
-      }
+    final int i0_val = this.faces.v();
+    final int i1_val = this.faces.vt();
+    final int i2_val = this.faces.vn();
+
+    boolean ok = true;
+    if (!this.checkV(i0_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
+        Integer.toString(i0_val));
+    }
 
-      this.lex.setColumn(this.lex.column() + i0.length() + 1);
-      if (!this.checkVT(i1_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_VT,
-          Integer.toString(i1_val));
-      }
+    this.lex.setColumn(this.lex.column() + this.faces.vLength() + 1);
+    if (!this.checkVT(i1_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_VT,
+        Integer.toString(i1_val));
+    }
 
-      this.lex.setColumn(this.lex.column() + i1.length() + 1);
-      if (!this.checkVN(i2_val)) {
-        ok = false;
-        this.listener.onError(
-          this.lex,
-          JOParserErrorCode.JOP_ERROR_NONEXISTENT_VN,
-          Integer.toString(i2_val));
-      }
+    this.lex.setColumn(this.lex.column() + this.faces.vtLength() + 1);
+    if (!this.checkVN(i2_val)) {
+      ok = false;
+      this.error(
+        this.lex,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_VN,
+        Integer.toString(i2_val));
+    }
 
-      if (ok) {
+    if (ok && dispatch) {
+      if (this.events != null) {
+        this.events.faceVertex(i0_val, i1_val, i2_val);
+      } else {
         this.listener.onCommandFVertexV_VT_VN(
           this.lex,
           this.f_next,
@@ -582,175 +1294,160 @@ public final class JOParser implements JOParserType
           i1_val,
           i2_val);
       }
-      return ok;
-    } else {
-      throw new ParseException("Invalid vertex syntax", t.getPosition());
     }
+    return ok;
   }
 
   private boolean checkVN(final int vn)
   {
+    if (this.tape != null) {
+      this.tape.defer(JOParserTape.OP_CHECK_VN, this.lex, vn, this.n_next);
+      return true;
+    }
     return vn > 0 && vn < this.n_next;
   }
 
   private boolean checkVT(final int vt)
   {
+    if (this.tape != null) {
+      this.tape.defer(JOParserTape.OP_CHECK_VT, this.lex, vt, this.t_next);
+      return true;
+    }
     return vt > 0 && vt < this.t_next;
   }
 
   private boolean checkV(final int v)
   {
+    if (this.tape != null) {
+      this.tape.defer(JOParserTape.OP_CHECK_V, this.lex, v, this.v_next);
+      return true;
+    }
     return v > 0 && v < this.v_next;
   }
 
-  private void onCommandVT(final List<Token> tokens)
+  private void onCommandVT()
   {
     try {
-      switch (tokens.size()) {
-        case 2: {
-          final double x = getDouble(tokens.get(1));
-          final double y = 0.0;
-          final double z = 0.0;
-          this.listener.onCommandVT(this.lex, this.t_next, x, y, z);
-          return;
-        }
-        case 3: {
-          final double x = getDouble(tokens.get(1));
-          final double y = getDouble(tokens.get(2));
-          final double z = 0.0;
-          this.listener.onCommandVT(this.lex, this.t_next, x, y, z);
-          return;
-        }
-        case 4: {
-          final double x = getDouble(tokens.get(1));
-          final double y = getDouble(tokens.get(2));
-          final double z = getDouble(tokens.get(3));
-          this.listener.onCommandVT(this.lex, this.t_next, x, y, z);
-          return;
-        }
-        default: {
-          this.listener.onError(
-            this.lex,
-            JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
-            "Syntax: 'vt' <float> [<float>] [<float>]");
+      final int count = this.tokens.count() - 1;
+      if (count >= 1 && count <= 3) {
+        final boolean dispatch = this.wants(JOParserEventKind.EVENT_COMMAND_VT);
+        final boolean ok = this.getDoubles(count, dispatch);
+        if (ok && dispatch) {
+          final double y = count > 1 ? this.doubles[1] : 0.0;
+          final double z = count > 2 ? this.doubles[2] : 0.0;
+          if (this.events != null) {
+            this.events.vector(
+              JOPullParserEventKind.EVENT_COMMAND_VT,
+              this.lex,
+              this.t_next,
+              this.doubles[0],
+              y,
+              z,
+              0.0);
+          } else {
+            this.listener.onCommandVT(
+              this.lex, this.t_next, this.doubles[0], y, z);
+          }
         }
+        return;
       }
 
-    } catch (final ParseException e) {
-      this.listener.onError(
-        LexicalPosition.of(
-          this.lex.line(),
-          e.getErrorOffset(),
-          this.lex.file()),
+      this.error(
+        this.lex,
         JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
-        e.getMessage());
+        "Syntax: 'vt' <float> [<float>] [<float>]");
     } finally {
       ++this.t_next;
     }
   }
 
-  private void onCommandV(final List<Token> tokens)
+  private void onCommandV()
   {
     try {
-      switch (tokens.size()) {
-        case 4: {
-          final double x = getDouble(tokens.get(1));
-          final double y = getDouble(tokens.get(2));
-          final double z = getDouble(tokens.get(3));
-          final double w = 1.0;
-          this.listener.onCommandV(this.lex, this.v_next, x, y, z, w);
-          return;
-        }
-        case 5: {
-          final double x = getDouble(tokens.get(1));
-          final double y = getDouble(tokens.get(2));
-          final double z = getDouble(tokens.get(3));
-          final double w = getDouble(tokens.get(4));
-          this.listener.onCommandV(this.lex, this.v_next, x, y, z, w);
-          return;
-        }
-        default: {
-          this.listener.onError(
-            this.lex,
-            JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
-            "Syntax: 'v' <float> <float> <float> [<float>]");
+      final int count = this.tokens.count() - 1;
+      if (count == 3 || count == 4) {
+        final boolean dispatch = this.wants(JOParserEventKind.EVENT_COMMAND_V);
+        final boolean ok = this.getDoubles(count, dispatch);
+        if (ok && dispatch) {
+          final double w = count > 3 ? this.doubles[3] : 1.0;
+          if (this.events != null) {
+            this.events.vector(
+              JOPullParserEventKind.EVENT_COMMAND_V,
+              this.lex,
+              this.v_next,
+              this.doubles[0],
+              this.doubles[1],
+              this.doubles[2],
+              w);
+          } else {
+            this.listener.onCommandV(
+              this.lex,
+              this.v_next,
+              this.doubles[0],
+              this.doubles[1],
+              this.doubles[2],
+              w);
+          }
         }
+        return;
       }
 
-    } catch (final ParseException e) {
-      this.listener.onError(
-        LexicalPosition.of(
-          this.lex.line(),
-          e.getErrorOffset(),
-          this.lex.file()),
+      this.error(
+        this.lex,
         JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
-        e.getMessage());
+        "Syntax: 'v' <float> <float> <float> [<float>]");
     } finally {
       ++this.v_next;
     }
   }
 
-  private void onCommandVN(final List<Token> tokens)
+  private void onCommandVN()
   {
     try {
-      switch (tokens.size()) {
-        case 4: {
-          final double x = getDouble(tokens.get(1));
-          final double y = getDouble(tokens.get(2));
-          final double z = getDouble(tokens.get(3));
-          this.listener.onCommandVN(this.lex, this.n_next, x, y, z);
-          return;
-        }
-        default: {
-          this.listener.onError(
-            this.lex,
-            JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
-            "Syntax: 'vn' <float> <float> <float>");
+      if (this.tokens.count() == 4) {
+        final boolean dispatch = this.wants(JOParserEventKind.EVENT_COMMAND_VN);
+        final boolean ok = this.getDoubles(3, dispatch);
+        if (ok && dispatch) {
+          if (this.events != null) {
+            this.events.vector(
+              JOPullParserEventKind.EVENT_COMMAND_VN,
+              this.lex,
+              this.n_next,
+              this.doubles[0],
+              this.doubles[1],
+              this.doubles[2],
+              0.0);
+          } else {
+            this.listener.onCommandVN(
+              this.lex,
+              this.n_next,
+              this.doubles[0],
+              this.doubles[1],
+              this.doubles[2]);
+          }
         }
+        return;
       }
 
-    } catch (final ParseException e) {
-      this.listener.onError(
-        LexicalPosition.of(
-          this.lex.line(),
-          e.getErrorOffset(),
-          this.lex.file()),
+      this.error(
+        this.lex,
         JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
-        e.getMessage());
+        "Syntax: 'vn' <float> <float> <float>");
     } finally {
       ++this.n_next;
     }
   }
 
-  private enum FaceType
-  {
-    FACE_V_VT_VN,
-    FACE_V_VT,
-    FACE_V_VN,
-    FACE_V
-  }
-
-  private static final class Token
+  private enum Command
   {
-    private final String text;
-    private final int position;
-
-    Token(
-      final int in_position,
-      final String in_text)
-    {
-      this.position = in_position;
-      this.text = in_text;
-    }
-
-    public int getPosition()
-    {
-      return this.position;
-    }
-
-    public String getText()
-    {
-      return this.text;
-    }
+    COMMAND_V,
+    COMMAND_VN,
+    COMMAND_VT,
+    COMMAND_F,
+    COMMAND_O,
+    COMMAND_MTLLIB,
+    COMMAND_USEMTL,
+    COMMAND_S,
+    COMMAND_UNRECOGNIZED
   }
 }
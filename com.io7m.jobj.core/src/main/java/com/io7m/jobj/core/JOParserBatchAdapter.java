@@ -0,0 +1,434 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An event listener that accumulates geometry into blocks and delivers the
+ * blocks to a {@link JOParserBatchListenerType}, or to a
+ * {@link JOParserBatchFloatListenerType}. Only the arrays of the precision
+ * that the target receives are allocated.
+ */
+
+final class JOParserBatchAdapter implements JOParserEventListenerType
+{
+  private final JOParserBatchListenerBaseType target;
+  private final JOParserBatchListenerType targetDouble;
+  private final JOParserBatchFloatListenerType targetFloat;
+  private final boolean single;
+  private final int size;
+  private final double[] positions;
+  private final double[] normals;
+  private final double[] uvs;
+  private final float[] positionsFloat;
+  private final float[] normalsFloat;
+  private final float[] uvsFloat;
+  private final int[] arities;
+  private int[] corners;
+  private int positionFirst;
+  private int positionCount;
+  private int normalFirst;
+  private int normalCount;
+  private int uvFirst;
+  private int uvCount;
+  private int faceCount;
+  private int cornerCount;
+  private int cornerPending;
+
+  JOParserBatchAdapter(
+    final JOParserBatchListenerType in_target)
+  {
+    this(in_target, in_target, null);
+  }
+
+  JOParserBatchAdapter(
+    final JOParserBatchFloatListenerType in_target)
+  {
+    this(in_target, null, in_target);
+  }
+
+  private JOParserBatchAdapter(
+    final JOParserBatchListenerBaseType in_target,
+    final JOParserBatchListenerType in_target_double,
+    final JOParserBatchFloatListenerType in_target_float)
+  {
+    this.target = Objects.requireNonNull(in_target, "Target");
+    this.targetDouble = in_target_double;
+    this.targetFloat = in_target_float;
+    this.single = in_target_float != null;
+    this.size = in_target.blockSize();
+    if (this.size <= 0) {
+      throw new IllegalArgumentException("Block size must be positive");
+    }
+
+    final int size_double = this.single ? 0 : this.size;
+    final int size_float = this.single ? this.size : 0;
+    this.positions = new double[size_double * 4];
+    this.normals = new double[size_double * 3];
+    this.uvs = new double[size_double * 3];
+    this.positionsFloat = new float[size_float * 4];
+    this.normalsFloat = new float[size_float * 3];
+    this.uvsFloat = new float[size_float * 3];
+    this.arities = new int[this.size];
+    this.corners = new int[this.size * 3];
+    this.positionFirst = 1;
+    this.normalFirst = 1;
+    this.uvFirst = 1;
+  }
+
+  private void flushPositions()
+  {
+    if (this.positionCount > 0) {
+      if (this.single) {
+        this.targetFloat.onPositions(
+          this.positionFirst, this.positionsFloat, this.positionCount);
+      } else {
+        this.targetDouble.onPositions(
+          this.positionFirst, this.positions, this.positionCount);
+      }
+      this.positionFirst += this.positionCount;
+      this.positionCount = 0;
+    }
+  }
+
+  private void flushNormals()
+  {
+    if (this.normalCount > 0) {
+      if (this.single) {
+        this.targetFloat.onNormals(
+          this.normalFirst, this.normalsFloat, this.normalCount);
+      } else {
+        this.targetDouble.onNormals(
+          this.normalFirst, this.normals, this.normalCount);
+      }
+      this.normalFirst += this.normalCount;
+      this.normalCount = 0;
+    }
+  }
+
+  private void flushTextureCoordinates()
+  {
+    if (this.uvCount > 0) {
+      if (this.single) {
+        this.targetFloat.onTextureCoordinates(
+          this.uvFirst, this.uvsFloat, this.uvCount);
+      } else {
+        this.targetDouble.onTextureCoordinates(
+          this.uvFirst, this.uvs, this.uvCount);
+      }
+      this.uvFirst += this.uvCount;
+      this.uvCount = 0;
+    }
+  }
+
+  /**
+   * Deliver all completed faces. Any corners of a face that is still being
+   * parsed are moved to the start of the corner array.
+   */
+
+  private void flushFaces()
+  {
+    this.flushPositions();
+    this.flushNormals();
+    this.flushTextureCoordinates();
+
+    if (this.faceCount > 0) {
+      this.target.onFaces(
+        this.arities, this.faceCount, this.corners, this.cornerCount);
+
+      final int pending = this.cornerPending - this.cornerCount;
+      System.arraycopy(
+        this.corners, this.cornerCount * 3, this.corners, 0, pending * 3);
+      this.faceCount = 0;
+      this.cornerCount = 0;
+      this.cornerPending = pending;
+    }
+  }
+
+  private void addCorner(
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    if (this.cornerPending >= this.size && this.faceCount > 0) {
+      this.flushFaces();
+    }
+
+    /*
+     * Only a face with more corners than the block size can reach this
+     * point with a full corner array. Faces are never split, and all
+     * preceding faces have been flushed, so the face is delivered alone.
+     */
+
+    final int offset = this.cornerPending * 3;
+    if (offset == this.corners.length) {
+      this.corners = Arrays.copyOf(this.corners, this.corners.length * 2);
+    }
+
+    this.corners[offset] = v;
+    this.corners[offset + 1] = vt;
+    this.corners[offset + 2] = vn;
+    ++this.cornerPending;
+  }
+
+  @Override
+  public Set<JOParserEventKind> interests()
+  {
+    return EnumSet.of(
+      JOParserEventKind.EVENT_ERROR,
+      JOParserEventKind.EVENT_COMMAND_V,
+      JOParserEventKind.EVENT_COMMAND_VN,
+      JOParserEventKind.EVENT_COMMAND_VT,
+      JOParserEventKind.EVENT_COMMAND_F);
+  }
+
+  @Override
+  public boolean singlePrecision()
+  {
+    return this.single;
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.target.onFatalError(p, e, message);
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    this.target.onError(p, e, message);
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onEOF(
+    final LexicalPositionType<Path> p)
+  {
+    this.flushFaces();
+    this.flushPositions();
+    this.flushNormals();
+    this.flushTextureCoordinates();
+    this.target.onEOF(p);
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group)
+  {
+    // Nothing to do
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    if (this.positionCount == this.size
+      || index != this.positionFirst + this.positionCount) {
+      this.flushPositions();
+      this.positionFirst = index;
+    }
+
+    final int offset = this.positionCount * 4;
+    if (this.single) {
+      this.positionsFloat[offset] = (float) x;
+      this.positionsFloat[offset + 1] = (float) y;
+      this.positionsFloat[offset + 2] = (float) z;
+      this.positionsFloat[offset + 3] = (float) w;
+    } else {
+      this.positions[offset] = x;
+      this.positions[offset + 1] = y;
+      this.positions[offset + 2] = z;
+      this.positions[offset + 3] = w;
+    }
+    ++this.positionCount;
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    if (this.normalCount == this.size
+      || index != this.normalFirst + this.normalCount) {
+      this.flushNormals();
+      this.normalFirst = index;
+    }
+
+    final int offset = this.normalCount * 3;
+    if (this.single) {
+      this.normalsFloat[offset] = (float) x;
+      this.normalsFloat[offset + 1] = (float) y;
+      this.normalsFloat[offset + 2] = (float) z;
+    } else {
+      this.normals[offset] = x;
+      this.normals[offset + 1] = y;
+      this.normals[offset + 2] = z;
+    }
+    ++this.normalCount;
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    if (this.uvCount == this.size
+      || index != this.uvFirst + this.uvCount) {
+      this.flushTextureCoordinates();
+      this.uvFirst = index;
+    }
+
+    final int offset = this.uvCount * 3;
+    if (this.single) {
+      this.uvsFloat[offset] = (float) x;
+      this.uvsFloat[offset + 1] = (float) y;
+      this.uvsFloat[offset + 2] = (float) z;
+    } else {
+      this.uvs[offset] = x;
+      this.uvs[offset + 1] = y;
+      this.uvs[offset + 2] = z;
+    }
+    ++this.uvCount;
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    this.addCorner(v, vt, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    this.addCorner(v, vt, 0);
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    this.addCorner(v, 0, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    this.addCorner(v, 0, 0);
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.cornerPending = this.cornerCount;
+    if (this.faceCount == this.size) {
+      this.flushFaces();
+    }
+  }
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.arities[this.faceCount] = this.cornerPending - this.cornerCount;
+    ++this.faceCount;
+    this.cornerCount = this.cornerPending;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+/**
+ * The type of batch listeners that receive coordinates in single precision.
+ * Numbers are parsed directly to the nearest float, and are stored into
+ * float arrays without ever being held as doubles.
+ *
+ * @see JOParserBatchListenerBaseType
+ * @see JOParserEventListenerType#singlePrecision()
+ */
+
+public interface JOParserBatchFloatListenerType
+  extends JOParserBatchListenerBaseType
+{
+  /**
+   * A block of positions was parsed. Position {@code i} of the block has the
+   * components {@code (x, y, z, w)} stored at offsets {@code [4i, 4i + 3]}
+   * of {@code data}.
+   *
+   * @param first The index of the first position in the block
+   * @param data  The position components
+   * @param count The number of positions in the block
+   */
+
+  void onPositions(
+    int first,
+    float[] data,
+    int count);
+
+  /**
+   * A block of normals was parsed. Normal {@code i} of the block has the
+   * components {@code (x, y, z)} stored at offsets {@code [3i, 3i + 2]} of
+   * {@code data}.
+   *
+   * @param first The index of the first normal in the block
+   * @param data  The normal components
+   * @param count The number of normals in the block
+   */
+
+  void onNormals(
+    int first,
+    float[] data,
+    int count);
+
+  /**
+   * A block of texture coordinates was parsed. Texture coordinate {@code i}
+   * of the block has the components {@code (u, v, w)} stored at offsets
+   * {@code [3i, 3i + 2]} of {@code data}. Missing components are zero.
+   *
+   * @param first The index of the first texture coordinate in the block
+   * @param data  The texture coordinate components
+   * @param count The number of texture coordinates in the block
+   */
+
+  void onTextureCoordinates(
+    int first,
+    float[] data,
+    int count);
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * <p>The methods common to batch listeners. A batch listener receives
+ * geometry in fixed-size blocks of primitive arrays, rather than receiving
+ * one event per element.</p>
+ *
+ * <p>The arrays passed to the methods of batch listeners are owned by the
+ * parser and are reused for subsequent blocks; listeners must copy any data
+ * that they wish to retain before returning. Before a block of faces is
+ * delivered, all of the blocks of positions, normals, and texture
+ * coordinates that have been parsed so far are delivered, and so every
+ * element referred to by a valid face has always been delivered before the
+ * face. Faces that contain errors are not delivered. The elements within
+ * a block always have consecutive indices; an element that contains errors
+ * ends the current block.</p>
+ *
+ * <p>Commands other than {@code v}, {@code vn}, {@code vt}, and {@code f}
+ * are ignored.</p>
+ *
+ * @see JOParserBatchListenerType
+ * @see JOParserBatchFloatListenerType
+ */
+
+public interface JOParserBatchListenerBaseType
+{
+  /**
+   * The default block size.
+   */
+
+  int BLOCK_SIZE_DEFAULT = 1024;
+
+  /**
+   * @return The maximum number of elements (positions, normals, texture
+   * coordinates, or face corners) in each block; the only exception is a
+   * single face with more corners than the block size, which is delivered
+   * alone in a block that holds all of its corners
+   */
+
+  default int blockSize()
+  {
+    return BLOCK_SIZE_DEFAULT;
+  }
+
+  /**
+   * A fatal error has occurred. Parsing will cease when this method returns (if
+   * it returns).
+   *
+   * @param p       The lexical position
+   * @param e       The exception, if any
+   * @param message The error message
+   */
+
+  void onFatalError(
+    LexicalPositionType<Path> p,
+    Optional<Throwable> e,
+    String message);
+
+  /**
+   * A non-fatal error has occurred.
+   *
+   * @param p       The lexical position
+   * @param e       The error code
+   * @param message The error message
+   */
+
+  void onError(
+    LexicalPositionType<Path> p,
+    JOParserErrorCode e,
+    String message);
+
+  /**
+   * A block of faces was parsed. Face {@code i} of the block has
+   * {@code arities[i]} corners, and the corners of all faces are stored
+   * consecutively in {@code corners}. Corner {@code j} has the position,
+   * texture coordinate, and normal indices stored at offsets
+   * {@code [3j, 3j + 2]} of {@code corners}. Indices that were not specified
+   * are zero. A single face is never split across blocks, and so a face
+   * with more than {@link #blockSize()} corners is delivered on its own in
+   * a block of {@code corner_count > blockSize()} corners. Listeners that
+   * preallocate storage based on the block size must allow for this.
+   *
+   * @param arities      The number of corners of each face
+   * @param face_count   The number of faces in the block
+   * @param corners      The corner indices
+   * @param corner_count The number of corners in the block
+   */
+
+  void onFaces(
+    int[] arities,
+    int face_count,
+    int[] corners,
+    int corner_count);
+
+  /**
+   * EOF has been reached. All blocks have been delivered.
+   *
+   * @param p The lexical position
+   */
+
+  void onEOF(LexicalPositionType<Path> p);
+}
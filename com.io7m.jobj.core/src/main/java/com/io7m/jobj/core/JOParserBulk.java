@@ -0,0 +1,248 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Functions to parse many files concurrently.</p>
+ *
+ * <p>At most {@code concurrency} files are parsed at any one time: that many
+ * workers are started, and each repeatedly takes the next unparsed file
+ * until none remain. Each file is parsed with its own listener, obtained
+ * from a caller-supplied factory, and is read through a memory mapping as
+ * by {@link JOParser#newParserFromPath(Path, JOParserEventListenerType)}.
+ * A file that cannot be opened or read, or whose listener throws an
+ * exception, is reported in its {@link JOParserBulkResult} and does not
+ * affect the other files. A listener is only created for a file once the
+ * file has been opened.</p>
+ *
+ * <p>The {@code parseEach} functions return a separate future for each
+ * file, so that callers can act on the result of each file as soon as it
+ * is available (for example, to report results in order while later files
+ * are still being parsed) instead of waiting for every file.</p>
+ */
+
+public final class JOParserBulk
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(JOParserBulk.class);
+  }
+
+  private JOParserBulk()
+  {
+    throw new AssertionError("Unreachable code");
+  }
+
+  /**
+   * Create an executor suitable for bulk parsing. If the running JVM supports
+   * virtual threads, the executor creates a new virtual thread for each task.
+   * Otherwise, the executor is a cached pool of platform threads.
+   *
+   * @return A new executor
+   */
+
+  public static ExecutorService newExecutor()
+  {
+    try {
+      final Method method =
+        Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (final ReflectiveOperationException e) {
+      LOG.debug("virtual threads are unavailable: ", e);
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  /**
+   * Parse the given files concurrently on an executor created by
+   * {@link #newExecutor()}. The executor is shut down when all files have
+   * been parsed.
+   *
+   * @param paths       The files
+   * @param listeners   A function that returns a new listener for each file
+   * @param concurrency The maximum number of files parsed at once
+   *
+   * @return The results, in the same order as {@code paths}
+   */
+
+  public static CompletableFuture<List<JOParserBulkResult>> parse(
+    final Collection<Path> paths,
+    final Function<Path, ? extends JOParserEventListenerType> listeners,
+    final int concurrency)
+  {
+    return all(parseEach(paths, listeners, concurrency));
+  }
+
+  /**
+   * Parse the given files concurrently on the given executor.
+   *
+   * @param paths       The files
+   * @param listeners   A function that returns a new listener for each file
+   * @param concurrency The maximum number of files parsed at once
+   * @param executor    The executor on which files are parsed
+   *
+   * @return The results, in the same order as {@code paths}
+   */
+
+  public static CompletableFuture<List<JOParserBulkResult>> parse(
+    final Collection<Path> paths,
+    final Function<Path, ? extends JOParserEventListenerType> listeners,
+    final int concurrency,
+    final Executor executor)
+  {
+    return all(parseEach(paths, listeners, concurrency, executor));
+  }
+
+  /**
+   * Parse the given files concurrently on an executor created by
+   * {@link #newExecutor()}, returning a future for each file. The executor
+   * is shut down when all files have been parsed.
+   *
+   * @param paths       The files
+   * @param listeners   A function that returns a new listener for each file
+   * @param concurrency The maximum number of files parsed at once
+   *
+   * @return A future for the result of each file, in the same order as
+   * {@code paths}
+   */
+
+  public static List<CompletableFuture<JOParserBulkResult>> parseEach(
+    final Collection<Path> paths,
+    final Function<Path, ? extends JOParserEventListenerType> listeners,
+    final int concurrency)
+  {
+    final ExecutorService executor = newExecutor();
+    final List<CompletableFuture<JOParserBulkResult>> futures =
+      parseEach(paths, listeners, concurrency, executor);
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+      .whenComplete((r, e) -> executor.shutdown());
+    return futures;
+  }
+
+  /**
+   * Parse the given files concurrently on the given executor, returning a
+   * future for each file. Files are started in the order given, and so the
+   * futures tend to complete in that order.
+   *
+   * @param paths       The files
+   * @param listeners   A function that returns a new listener for each file
+   * @param concurrency The maximum number of files parsed at once
+   * @param executor    The executor on which files are parsed
+   *
+   * @return A future for the result of each file, in the same order as
+   * {@code paths}
+   */
+
+  public static List<CompletableFuture<JOParserBulkResult>> parseEach(
+    final Collection<Path> paths,
+    final Function<Path, ? extends JOParserEventListenerType> listeners,
+    final int concurrency,
+    final Executor executor)
+  {
+    Objects.requireNonNull(listeners, "Listeners");
+    Objects.requireNonNull(executor, "Executor");
+    if (concurrency <= 0) {
+      throw new IllegalArgumentException("Concurrency must be positive");
+    }
+
+    final Path[] files = paths.toArray(new Path[0]);
+    final List<CompletableFuture<JOParserBulkResult>> results =
+      new ArrayList<>(files.length);
+    for (int index = 0; index < files.length; ++index) {
+      results.add(new CompletableFuture<>());
+    }
+
+    final AtomicInteger next = new AtomicInteger(0);
+    final int workers = Math.min(concurrency, files.length);
+    for (int index = 0; index < workers; ++index) {
+      CompletableFuture.runAsync(
+        () -> work(files, results, next, listeners), executor)
+        .whenComplete((r, e) -> {
+          if (e != null) {
+            results.forEach(f -> f.completeExceptionally(e));
+          }
+        });
+    }
+    return List.copyOf(results);
+  }
+
+  private static CompletableFuture<List<JOParserBulkResult>> all(
+    final List<CompletableFuture<JOParserBulkResult>> futures)
+  {
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+      .thenApply(x -> futures.stream()
+        .map(CompletableFuture::join)
+        .collect(Collectors.toUnmodifiableList()));
+  }
+
+  private static void work(
+    final Path[] files,
+    final List<CompletableFuture<JOParserBulkResult>> results,
+    final AtomicInteger next,
+    final Function<Path, ? extends JOParserEventListenerType> listeners)
+  {
+    while (true) {
+      final int index = next.getAndIncrement();
+      if (index >= files.length) {
+        return;
+      }
+      results.get(index).complete(parseOne(files[index], listeners));
+    }
+  }
+  private static JOParserBulkResult parseOne(
+    final Path path,
+    final Function<Path, ? extends JOParserEventListenerType> listeners)
+  {
+    JOParserBulkListener counter = null;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      counter = new JOParserBulkListener(listeners.apply(path));
+      final JOLineReaderMapped reader = new JOLineReaderMapped(
+        path, channel, JOLineReaderMapped.WINDOW_SIZE_DEFAULT);
+      JOParser.newParserFromReader(Optional.of(path), reader, counter).run();
+      return counter.result(path);
+    } catch (final IOException | RuntimeException e) {
+      LOG.debug("{}: ", path, e);
+      if (counter != null) {
+        return counter.failed(path, e);
+      }
+      return JOParserBulkResult.of(
+        path, 0, Optional.empty(), Optional.of(e));
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A listener that forwards all events to another listener, counting errors
+ * and recording any fatal error along the way.
+ */
+
+final class JOParserBulkListener implements JOParserEventListenerType
+{
+  private final JOParserEventListenerType delegate;
+  private int errors;
+  private Optional<String> fatal;
+  private Optional<Throwable> exception;
+
+  JOParserBulkListener(
+    final JOParserEventListenerType in_delegate)
+  {
+    this.delegate = Objects.requireNonNull(in_delegate, "Delegate");
+    this.fatal = Optional.empty();
+    this.exception = Optional.empty();
+  }
+
+  /**
+   * @param path The file that was parsed
+   *
+   * @return The result of parsing
+   */
+
+  JOParserBulkResult result(final Path path)
+  {
+    return JOParserBulkResult.of(path, this.errors, this.fatal, this.exception);
+  }
+
+  /**
+   * @param path The file that was parsed
+   * @param e    The exception that stopped parsing
+   *
+   * @return The result of parsing
+   */
+
+  JOParserBulkResult failed(
+    final Path path,
+    final Throwable e)
+  {
+    return JOParserBulkResult.of(path, this.errors, this.fatal, Optional.of(e));
+  }
+
+  @Override
+  public Set<JOParserEventKind> interests()
+  {
+    return this.delegate.interests();
+  }
+
+  @Override
+  public boolean singlePrecision()
+  {
+    return this.delegate.singlePrecision();
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.fatal = Optional.of(message);
+    this.exception = e;
+    this.delegate.onFatalError(p, e, message);
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    ++this.errors;
+    this.delegate.onError(p, e, message);
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    this.delegate.onLine(p, line);
+  }
+
+  @Override
+  public void onEOF(final LexicalPositionType<Path> p)
+  {
+    this.delegate.onEOF(p);
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    this.delegate.onComment(p, text);
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandUsemtl(p, name);
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandMtllib(p, name);
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandO(p, name);
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    this.delegate.onCommandS(p, group_number);
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    this.delegate.onCommandV(p, index, x, y, z, w);
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.delegate.onCommandVN(p, index, x, y, z);
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.delegate.onCommandVT(p, index, x, y, z);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    this.delegate.onCommandFVertexV_VT_VN(p, index, v, vt, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    this.delegate.onCommandFVertexV_VT(p, index, v, vt);
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    this.delegate.onCommandFVertexV_VN(p, index, v, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    this.delegate.onCommandFVertexV(p, index, v);
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.delegate.onCommandFStarted(p, index);
+  }
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.delegate.onCommandFFinished(p, index);
+  }
+}
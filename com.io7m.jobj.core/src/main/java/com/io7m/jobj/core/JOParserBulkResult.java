@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The result of parsing one file of a bulk parse.
+ *
+ * @see JOParserBulk
+ */
+
+public final class JOParserBulkResult
+{
+  private final Path path;
+  private final int errorCount;
+  private final Optional<String> fatalError;
+  private final Optional<Throwable> exception;
+
+  private JOParserBulkResult(
+    final Path in_path,
+    final int in_error_count,
+    final Optional<String> in_fatal_error,
+    final Optional<Throwable> in_exception)
+  {
+    this.path = Objects.requireNonNull(in_path, "Path");
+    this.errorCount = in_error_count;
+    this.fatalError = Objects.requireNonNull(in_fatal_error, "Fatal error");
+    this.exception = Objects.requireNonNull(in_exception, "Exception");
+  }
+
+  /**
+   * Create a result.
+   *
+   * @param in_path        The file
+   * @param in_error_count The number of non-fatal errors
+   * @param in_fatal_error The message of the fatal error, if any
+   * @param in_exception   The exception that caused the file to fail, if any
+   *
+   * @return A new result
+   */
+
+  public static JOParserBulkResult of(
+    final Path in_path,
+    final int in_error_count,
+    final Optional<String> in_fatal_error,
+    final Optional<Throwable> in_exception)
+  {
+    return new JOParserBulkResult(
+      in_path, in_error_count, in_fatal_error, in_exception);
+  }
+
+  /**
+   * @return The file
+   */
+
+  public Path path()
+  {
+    return this.path;
+  }
+
+  /**
+   * @return The number of non-fatal errors delivered to the listener
+   */
+
+  public int errorCount()
+  {
+    return this.errorCount;
+  }
+
+  /**
+   * @return The message of the fatal error delivered to the listener, if any
+   */
+
+  public Optional<String> fatalError()
+  {
+    return this.fatalError;
+  }
+
+  /**
+   * @return The exception that caused the file to fail, if any. This is
+   * either the exception associated with a fatal error, or an exception
+   * raised by the listener or the listener factory.
+   */
+
+  public Optional<Throwable> exception()
+  {
+    return this.exception;
+  }
+
+  /**
+   * @return {@code true} iff the file was parsed to completion without
+   * fatal errors or exceptions (non-fatal errors are permitted)
+   */
+
+  public boolean succeeded()
+  {
+    return this.fatalError.isEmpty() && this.exception.isEmpty();
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format(
+      "[JOParserBulkResult %s %d %s %s]",
+      this.path,
+      Integer.valueOf(this.errorCount),
+      this.fatalError,
+      this.exception);
+  }
+}
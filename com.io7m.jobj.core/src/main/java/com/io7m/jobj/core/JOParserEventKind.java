@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+/**
+ * The kinds of events that a parser can deliver to a listener.
+ *
+ * @see JOParserEventListenerType#interests()
+ */
+
+public enum JOParserEventKind
+{
+  /**
+   * {@link JOParserEventListenerType#onLine(com.io7m.jlexing.core.LexicalPositionType, String)}
+   */
+
+  EVENT_LINE,
+
+  /**
+   * {@link JOParserEventListenerType#onComment(com.io7m.jlexing.core.LexicalPositionType, String)}
+   */
+
+  EVENT_COMMENT,
+
+  /**
+   * {@link JOParserEventListenerType#onError(com.io7m.jlexing.core.LexicalPositionType, JOParserErrorCode, String)}
+   */
+
+  EVENT_ERROR,
+
+  /**
+   * {@code v} commands.
+   */
+
+  EVENT_COMMAND_V,
+
+  /**
+   * {@code vn} commands.
+   */
+
+  EVENT_COMMAND_VN,
+
+  /**
+   * {@code vt} commands.
+   */
+
+  EVENT_COMMAND_VT,
+
+  /**
+   * {@code f} commands, including all of the face vertex events.
+   */
+
+  EVENT_COMMAND_F,
+
+  /**
+   * {@code o} commands.
+   */
+
+  EVENT_COMMAND_O,
+
+  /**
+   * {@code mtllib} commands.
+   */
+
+  EVENT_COMMAND_MTLLIB,
+
+  /**
+   * {@code usemtl} commands.
+   */
+
+  EVENT_COMMAND_USEMTL,
+
+  /**
+   * {@code s} commands.
+   */
+
+  EVENT_COMMAND_S
+}
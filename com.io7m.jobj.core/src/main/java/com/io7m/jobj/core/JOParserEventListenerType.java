@@ -19,7 +19,9 @@ package com.io7m.jobj.core;
 import com.io7m.jlexing.core.LexicalPositionType;
 
 import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * The type of parser event listeners.
@@ -27,6 +29,48 @@ import java.util.Optional;
 
 public interface JOParserEventListenerType
 {
+  /**
+   * <p>Declare the events that this listener wants to receive. The set is
+   * read once, when a parser is created.</p>
+   *
+   * <p>The parser skips the decoding, allocation, and dispatch of events that
+   * are not included. If {@link JOParserEventKind#EVENT_ERROR} is included,
+   * commands whose events are not included are still checked for errors,
+   * but are not otherwise processed; if it is not included, such commands
+   * are skipped entirely. Element indices are always counted correctly,
+   * whether or not the corresponding commands are processed.
+   * {@link #onFatalError(LexicalPositionType, Optional, String)} and
+   * {@link #onEOF(LexicalPositionType)} are always delivered.</p>
+   *
+   * @return The events of interest (all events, by default)
+   */
+
+  default Set<JOParserEventKind> interests()
+  {
+    return EnumSet.allOf(JOParserEventKind.class);
+  }
+
+  /**
+   * <p>Declare whether this listener stores coordinates in single precision.
+   * The value is read once, when a parser is created.</p>
+   *
+   * <p>If {@code true}, the parser converts each number directly to the
+   * nearest float (exactly as {@link Float#parseFloat(String)} would), and
+   * every coordinate passed to this listener is exactly representable as a
+   * float, so that narrowing it with a cast is exact. Converting to the
+   * nearest double and then narrowing would occasionally round twice, and
+   * produce a float that is not the nearest float to the number in the
+   * file.</p>
+   *
+   * @return {@code true} if numbers should be parsed in single precision
+   * ({@code false}, by default)
+   */
+
+  default boolean singlePrecision()
+  {
+    return false;
+  }
+
   /**
    * A fatal error has occurred. Parsing will cease when this method returns (if
    * it returns).
@@ -199,7 +243,8 @@ public interface JOParserEventListenerType
     int vn);
 
   /**
-   * A {@code v/vt/} vertex was specified for an {@code f} command.
+   * A {@code v/vt} or {@code v/vt/} vertex was specified for an {@code f}
+   * command.
    *
    * @param p     The lexical position
    * @param index The index
@@ -229,7 +274,7 @@ public interface JOParserEventListenerType
     int vn);
 
   /**
-   * A {@code v//} vertex was specified for an {@code f} command.
+   * A {@code v} or {@code v//} vertex was specified for an {@code f} command.
    *
    * @param p     The lexical position
    * @param index The index
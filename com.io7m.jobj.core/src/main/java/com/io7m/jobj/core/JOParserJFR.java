@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+
+/**
+ * Functions to emit flight recorder events. When the events are disabled,
+ * the cost of each function is a single check.
+ */
+
+final class JOParserJFR
+{
+  private JOParserJFR()
+  {
+    throw new AssertionError("Unreachable code");
+  }
+
+  /**
+   * @return {@code true} iff parse events are currently being recorded
+   */
+
+  static boolean parseEnabled()
+  {
+    return new JOParserJFRParseEvent().isEnabled();
+  }
+
+  /**
+   * Record a fatal error.
+   *
+   * @param p       The position of the error
+   * @param message The error message
+   */
+
+  static void fatal(
+    final LexicalPositionType<Path> p,
+    final String message)
+  {
+    final JOParserJFRFatalErrorEvent event = new JOParserJFRFatalErrorEvent();
+    if (event.shouldCommit()) {
+      event.setFile(fileName(p));
+      event.setLine((long) p.line());
+      event.setColumn((long) p.column());
+      event.setMessage(message);
+      event.commit();
+    }
+  }
+
+  /**
+   * @param p A lexical position
+   *
+   * @return The name of the file of the position, or the empty string
+   */
+
+  static String fileName(
+    final LexicalPositionType<Path> p)
+  {
+    return p.file().map(Path::toString).orElse("");
+  }
+}
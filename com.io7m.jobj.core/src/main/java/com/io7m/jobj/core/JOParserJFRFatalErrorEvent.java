@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event recording a fatal parse error.
+ */
+
+@Name(JOParserJFRFatalErrorEvent.NAME)
+@Label("OBJ Fatal Error")
+@Category({"jobj", "Parser"})
+@Description("A fatal error that stopped the parsing of an OBJ file")
+@StackTrace(false)
+final class JOParserJFRFatalErrorEvent extends jdk.jfr.Event
+{
+  static final String NAME = "com.io7m.jobj.FatalError";
+
+  @Label("File")
+  private String file;
+
+  @Label("Line")
+  private long line;
+
+  @Label("Column")
+  private long column;
+
+  @Label("Message")
+  private String message;
+
+  JOParserJFRFatalErrorEvent()
+  {
+
+  }
+
+  void setFile(final String in_file)
+  {
+    this.file = in_file;
+  }
+
+  void setLine(final long in_line)
+  {
+    this.line = in_line;
+  }
+
+  void setColumn(final long in_column)
+  {
+    this.column = in_column;
+  }
+
+  void setMessage(final String in_message)
+  {
+    this.message = in_message;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event covering the parsing of one file, from the start
+ * of parsing to the end. By default, only parses that take at least 20
+ * milliseconds are recorded, so that slow files stand out in a continuous
+ * recording of a workload that parses many small files. To record every
+ * parse, set the {@code threshold} of {@code com.io7m.jobj.Parse} to
+ * {@code 0 ms} in a {@code .jfc} file, or with
+ * {@code Recording.enable(...).withThreshold(Duration.ZERO)}.
+ */
+
+@Name(JOParserJFRParseEvent.NAME)
+@Label("OBJ Parse")
+@Category({"jobj", "Parser"})
+@Description("The parsing of one OBJ file")
+@StackTrace(false)
+@Threshold("20 ms")
+final class JOParserJFRParseEvent extends jdk.jfr.Event
+{
+  static final String NAME = "com.io7m.jobj.Parse";
+
+  @Label("File")
+  @Description("The file being parsed, if known")
+  private String file;
+
+  @Label("Parallel")
+  @Description("Whether the file was parsed by the parallel parser")
+  private boolean parallel;
+
+  @Label("Bytes")
+  @DataAmount
+  private long bytes;
+
+  @Label("Lines")
+  private long lines;
+
+  @Label("Vertices")
+  private long vertices;
+
+  @Label("Texture Coordinates")
+  private long textures;
+
+  @Label("Normals")
+  private long normals;
+
+  @Label("Faces")
+  private long faces;
+
+  @Label("Errors")
+  private long errors;
+
+  @Label("Fatal")
+  private boolean fatal;
+
+  @Label("Listener Time")
+  @Description("The estimated time spent inside listener callbacks")
+  @Timespan
+  private long listenerTime;
+
+  JOParserJFRParseEvent()
+  {
+
+  }
+
+  void setFile(final String in_file)
+  {
+    this.file = in_file;
+  }
+
+  void setParallel(final boolean in_parallel)
+  {
+    this.parallel = in_parallel;
+  }
+
+  void setBytes(final long in_bytes)
+  {
+    this.bytes = in_bytes;
+  }
+
+  void setLines(final long in_lines)
+  {
+    this.lines = in_lines;
+  }
+
+  void setVertices(final long in_vertices)
+  {
+    this.vertices = in_vertices;
+  }
+
+  void setTextures(final long in_textures)
+  {
+    this.textures = in_textures;
+  }
+
+  void setNormals(final long in_normals)
+  {
+    this.normals = in_normals;
+  }
+
+  void setFaces(final long in_faces)
+  {
+    this.faces = in_faces;
+  }
+
+  void setErrors(final long in_errors)
+  {
+    this.errors = in_errors;
+  }
+
+  void setFatal(final boolean in_fatal)
+  {
+    this.fatal = in_fatal;
+  }
+
+  long listenerTime()
+  {
+    return this.listenerTime;
+  }
+
+  void setListenerTime(final long in_listener_time)
+  {
+    this.listenerTime = in_listener_time;
+  }
+}
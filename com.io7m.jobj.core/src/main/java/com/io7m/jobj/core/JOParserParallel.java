@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionMutable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A parser that splits a memory-mapped file into chunks at line boundaries,
+ * and tokenizes and parses the chunks in parallel on a caller-supplied pool.
+ * Events are delivered to the listener on the thread that runs the parser, in
+ * file order, with the same element indices, lexical positions and errors as
+ * the sequential parser. A chunk boundary is never placed after a line that
+ * ends with a backslash.
+ *
+ * <p>Internally, each chunk is parsed by an ordinary {@link JOParser}
+ * restricted to the chunk's region of the file, and the resulting events are
+ * recorded into a {@link JOParserTape}. The tapes are replayed to the
+ * listener in file order on the calling thread by a {@link JOParserReplay},
+ * which rebases element indices and line numbers using the counts of the
+ * preceding chunks. At most a bounded number of chunks are in flight at any
+ * one time, so memory use does not grow with the size of the file.</p>
+ *
+ * @see JOParser#newParserFromPath(Path, JOParserEventListenerType)
+ */
+
+public final class JOParserParallel implements JOParserType
+{
+  /**
+   * The default chunk size.
+   */
+
+  public static final long CHUNK_SIZE_DEFAULT = 8L * 1024L * 1024L;
+
+  private static final int SCAN_SIZE = 64 * 1024;
+
+  private final Path path;
+  private final JOParserEventListenerType listener;
+  private final ForkJoinPool pool;
+  private final long chunkSize;
+
+  private JOParserParallel(
+    final Path in_path,
+    final JOParserEventListenerType in_listener,
+    final ForkJoinPool in_pool,
+    final long in_chunk_size)
+  {
+    this.path = Objects.requireNonNull(in_path, "Path");
+    this.listener = Objects.requireNonNull(in_listener, "Listener");
+    this.pool = Objects.requireNonNull(in_pool, "Pool");
+    if (in_chunk_size <= 0L) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+    this.chunkSize = in_chunk_size;
+  }
+
+  /**
+   * Create a parser that parses chunks of the given file in parallel.
+   *
+   * @param path       The input file
+   * @param ls         A parser listener
+   * @param pool       The pool on which chunks are parsed
+   * @param chunk_size The approximate size in bytes of each chunk
+   *
+   * @return A new parser
+   */
+
+  public static JOParserType newParserFromPath(
+    final Path path,
+    final JOParserEventListenerType ls,
+    final ForkJoinPool pool,
+    final long chunk_size)
+  {
+    return new JOParserParallel(path, ls, pool, chunk_size);
+  }
+
+  /**
+   * Create a parser that parses chunks of the given file in parallel, using
+   * chunks of {@link #CHUNK_SIZE_DEFAULT} bytes.
+   *
+   * @param path The input file
+   * @param ls   A parser listener
+   * @param pool The pool on which chunks are parsed
+   *
+   * @return A new parser
+   */
+
+  public static JOParserType newParserFromPath(
+    final Path path,
+    final JOParserEventListenerType ls,
+    final ForkJoinPool pool)
+  {
+    return new JOParserParallel(path, ls, pool, CHUNK_SIZE_DEFAULT);
+  }
+
+  private static JOParserTape parseChunk(
+    final Path path,
+    final long start,
+    final long end,
+    final Set<JOParserEventKind> interests,
+    final boolean single)
+  {
+    final JOParserTape tape = new JOParserTape(interests, single);
+    final JOParser parser = JOParser.newChunkParser(path, start, end, tape);
+    parser.runLines();
+    parser.finishChunk();
+    return tape;
+  }
+
+  /**
+   * Find the first chunk boundary at or after {@code from}. A boundary is the
+   * offset just past a line feed, where the line that the line feed ends
+   * does not end with a backslash.
+   *
+   * @return The boundary, or {@code size} if there are no more boundaries
+   */
+
+  private static long findBoundary(
+    final FileChannel channel,
+    final long from,
+    final long size,
+    final ByteBuffer buffer)
+    throws IOException
+  {
+    byte prev0 = 0;
+    byte prev1 = 0;
+    long position = Math.max(0L, from - 2L);
+    while (position < size) {
+      buffer.clear();
+      final int count = channel.read(buffer, position);
+      if (count <= 0) {
+        break;
+      }
+      for (int index = 0; index < count; ++index) {
+        final byte b = buffer.get(index);
+        final long offset = position + (long) index;
+        if (b == '\n' && offset >= from && !continues(prev0, prev1)) {
+          return offset + 1L;
+        }
+        prev1 = prev0;
+        prev0 = b;
+      }
+      position += count;
+    }
+    return size;
+  }
+
+  private static boolean continues(
+    final byte prev0,
+    final byte prev1)
+  {
+    return prev0 == '\\' || (prev0 == '\r' && prev1 == '\\');
+  }
+
+  private long[] boundaries()
+    throws IOException
+  {
+    try (FileChannel channel =
+           FileChannel.open(this.path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+
+      long[] bounds = new long[16];
+      int count = 1;
+      long position = 0L;
+      while (true) {
+        final long next = findBoundary(
+          channel, position + this.chunkSize, size, buffer);
+        if (count == bounds.length) {
+          bounds = Arrays.copyOf(bounds, count * 2);
+        }
+        bounds[count] = next;
+        ++count;
+        if (next >= size) {
+          return Arrays.copyOf(bounds, count);
+        }
+        position = next;
+      }
+    }
+  }
+
+  private void commitEvent(
+    final JOParserJFRParseEvent event,
+    final JOParserStatistics statistics,
+    final JOParserReplay replay,
+    final long bytes)
+  {
+    if (event.shouldCommit()) {
+      event.setFile(this.path.toString());
+      event.setParallel(true);
+      event.setBytes(bytes);
+      if (statistics != null) {
+        event.setListenerTime(statistics.listenerNanos());
+      }
+      if (replay != null) {
+        replay.record(event);
+      }
+      event.commit();
+    }
+  }
+
+  @Override
+  public void run()
+  {
+    final JOParserJFRParseEvent event = new JOParserJFRParseEvent();
+    event.begin();
+
+    // Listener callbacks all happen on this thread, so when parse events
+    // are being recorded, every callback is timed.
+    final JOParserStatistics statistics;
+    final JOParserEventListenerType ls;
+    if (event.isEnabled()) {
+      statistics = JOParserStatistics.create(1);
+      statistics.sample();
+      ls = new JOParserStatisticsListener(this.listener, statistics);
+    } else {
+      statistics = null;
+      ls = this.listener;
+    }
+
+    final LexicalPositionMutable<Path> lex =
+      LexicalPositionMutable.create(1, 0, Optional.of(this.path));
+
+    final long[] bounds;
+    try {
+      bounds = this.boundaries();
+    } catch (final IOException e) {
+      JOParserJFR.fatal(lex, e.getMessage());
+      ls.onFatalError(lex, Optional.of(e), e.getMessage());
+      event.setFatal(true);
+      this.commitEvent(event, null, null, 0L);
+      return;
+    }
+
+    final Set<JOParserEventKind> interests =
+      EnumSet.noneOf(JOParserEventKind.class);
+    interests.addAll(ls.interests());
+
+    final boolean single = ls.singlePrecision();
+    final JOParserReplay replay = new JOParserReplay(
+      ls, lex, interests.contains(JOParserEventKind.EVENT_ERROR));
+
+    final int chunks = bounds.length - 1;
+    final int window = Math.max(2, this.pool.getParallelism() * 2);
+    final ArrayDeque<ForkJoinTask<JOParserTape>> pending =
+      new ArrayDeque<>(window);
+
+    long bytes = 0L;
+    try {
+      int submitted = 0;
+      for (int chunk = 0; chunk < chunks; ++chunk) {
+        while (submitted < chunks && pending.size() < window) {
+          final long start = bounds[submitted];
+          final long end = bounds[submitted + 1];
+          pending.add(this.pool.submit(
+            () -> parseChunk(this.path, start, end, interests, single)));
+          ++submitted;
+        }
+
+        final JOParserTape tape = pending.remove().join();
+        if (!replay.replay(tape, chunk == chunks - 1)) {
+          return;
+        }
+        bytes = bounds[chunk + 1];
+      }
+    } finally {
+      for (final ForkJoinTask<JOParserTape> task : pending) {
+        task.cancel(true);
+      }
+      this.commitEvent(event, statistics, replay, bytes);
+    }
+  }
+}
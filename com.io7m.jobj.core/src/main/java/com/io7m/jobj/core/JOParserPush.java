@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A push parser. Partial lines, including partially joined continuation
+ * lines, are retained between calls to {@link #feed(ByteBuffer)}, so the
+ * parser can be driven directly from non-blocking I/O callbacks. The
+ * events delivered are exactly those that the sequential parser would
+ * deliver for the concatenated input.
+ */
+
+public final class JOParserPush implements JOParserPushType
+{
+  private final JOLineReaderPush reader;
+  private final JOParser parser;
+  private final JOParserJFRParseEvent event;
+
+  private JOParserPush(
+    final Optional<Path> in_path,
+    final JOParserEventListenerType in_listener)
+  {
+    Objects.requireNonNull(in_path, "Path");
+    Objects.requireNonNull(in_listener, "Listener");
+    this.reader = new JOLineReaderPush();
+    this.parser = JOParser.newParserFromReader(
+      in_path, this.reader, in_listener);
+    this.event = new JOParserJFRParseEvent();
+    this.parser.beginEvent(this.event);
+  }
+
+  /**
+   * Create a push parser.
+   *
+   * @param in_path The input filename, if any
+   * @param ls      A parser listener
+   *
+   * @return A new parser
+   */
+
+  public static JOParserPushType newParser(
+    final Optional<Path> in_path,
+    final JOParserEventListenerType ls)
+  {
+    return new JOParserPush(in_path, ls);
+  }
+
+  @Override
+  public void feed(final ByteBuffer data)
+  {
+    Objects.requireNonNull(data, "Data");
+    this.reader.append(data);
+
+    // The reader is never exhausted before finish() is called, so running
+    // the parser only consumes the lines that are currently available.
+    this.parser.runLines();
+  }
+
+  @Override
+  public void finish()
+  {
+    this.reader.finish();
+    try {
+      this.parser.runLines();
+    } finally {
+      this.parser.commitEvent(this.event);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The type of push parsers. Input is supplied in arbitrary fragments as it
+ * becomes available, and events are delivered to the listener on the calling
+ * thread for every line that the input completes. No thread is blocked
+ * waiting for input.
+ */
+
+public interface JOParserPushType
+{
+  /**
+   * Supply the next fragment of input. All of the remaining bytes of
+   * {@code data} are consumed, and the position of {@code data} is advanced
+   * to its limit. A fragment may end anywhere, including in the middle of a
+   * line or a multibyte character.
+   *
+   * @param data The input fragment
+   *
+   * @throws IllegalStateException If {@link #finish()} has already been called
+   */
+
+  void feed(ByteBuffer data)
+    throws IllegalStateException;
+
+  /**
+   * Indicate that there is no more input. Any final unterminated line is
+   * parsed, and EOF is delivered to the listener.
+   *
+   * @throws IllegalStateException If {@link #finish()} has already been called
+   */
+
+  void finish()
+    throws IllegalStateException;
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionMutable;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Replays recorded chunks to a listener in file order. Element indices and
+ * line numbers are rebased using the running totals of all earlier chunks,
+ * and deferred checks are evaluated against those totals, so that the
+ * listener observes exactly the events that the sequential parser would have
+ * delivered.
+ */
+
+final class JOParserReplay
+{
+  private final JOParserEventListenerType listener;
+  private final LexicalPositionMutable<Path> lex;
+  private final boolean errors;
+  private int lineBase;
+  private int vBase;
+  private int vtBase;
+  private int vnBase;
+  private int fBase;
+  private boolean last;
+  private boolean fatal;
+  private boolean faceOk;
+  private boolean vertexOk;
+  private long errorCount;
+
+  JOParserReplay(
+    final JOParserEventListenerType in_listener,
+    final LexicalPositionMutable<Path> in_lex,
+    final boolean in_errors)
+  {
+    this.listener = Objects.requireNonNull(in_listener, "Listener");
+    this.lex = Objects.requireNonNull(in_lex, "Lex");
+    this.errors = in_errors;
+  }
+
+  /**
+   * Replay the given chunk.
+   *
+   * @param tape    The recorded chunk
+   * @param in_last {@code true} iff this is the last chunk in the file
+   *
+   * @return {@code false} iff the chunk ended with a fatal error
+   */
+
+  boolean replay(
+    final JOParserTape tape,
+    final boolean in_last)
+  {
+    this.last = in_last;
+    while (tape.hasNext()) {
+      final int op = tape.nextInt();
+      final int line = tape.nextInt();
+      final int column = tape.nextInt();
+      this.lex.setLine(this.lineBase + line);
+      this.lex.setColumn(column);
+
+      if (op < JOParserTape.OP_V) {
+        this.replayText(op, tape);
+      } else if (op < JOParserTape.OP_F_STARTED) {
+        this.replayElement(op, tape);
+      } else if (op < JOParserTape.OP_CHECK_V) {
+        this.replayFace(op, tape);
+      } else {
+        this.replayCheck(op, tape);
+      }
+    }
+
+    this.lineBase += tape.lines();
+    this.vBase += tape.countV();
+    this.vtBase += tape.countVT();
+    this.vnBase += tape.countVN();
+    this.fBase += tape.countF();
+    return !this.fatal;
+  }
+
+  /**
+   * Record the totals of the chunks replayed so far into the given event.
+   *
+   * @param event The event
+   */
+
+  void record(final JOParserJFRParseEvent event)
+  {
+    event.setLines((long) this.lineBase);
+    event.setVertices((long) this.vBase);
+    event.setTextures((long) this.vtBase);
+    event.setNormals((long) this.vnBase);
+    event.setFaces((long) this.fBase);
+    event.setErrors(this.errorCount);
+    event.setFatal(this.fatal);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void replayText(
+    final int op,
+    final JOParserTape tape)
+  {
+    switch (op) {
+      case JOParserTape.OP_LINE:
+        this.listener.onLine(this.lex, (String) tape.nextObject());
+        return;
+      case JOParserTape.OP_COMMENT:
+        this.listener.onComment(this.lex, (String) tape.nextObject());
+        return;
+      case JOParserTape.OP_ERROR: {
+        ++this.errorCount;
+        final JOParserErrorCode code = (JOParserErrorCode) tape.nextObject();
+        this.listener.onError(this.lex, code, (String) tape.nextObject());
+        return;
+      }
+      case JOParserTape.OP_FATAL: {
+        this.fatal = true;
+        final Optional<Throwable> e = (Optional<Throwable>) tape.nextObject();
+        final String message = (String) tape.nextObject();
+        JOParserJFR.fatal(this.lex, message);
+        this.listener.onFatalError(this.lex, e, message);
+        return;
+      }
+      case JOParserTape.OP_EOF:
+        if (this.last) {
+          this.listener.onEOF(this.lex);
+        }
+        return;
+      case JOParserTape.OP_O:
+        this.listener.onCommandO(this.lex, (String) tape.nextObject());
+        return;
+      case JOParserTape.OP_USEMTL:
+        this.listener.onCommandUsemtl(this.lex, (String) tape.nextObject());
+        return;
+      case JOParserTape.OP_MTLLIB:
+        this.listener.onCommandMtllib(this.lex, (String) tape.nextObject());
+        return;
+      default:
+        this.listener.onCommandS(this.lex, tape.nextInt());
+    }
+  }
+
+  private void replayElement(
+    final int op,
+    final JOParserTape tape)
+  {
+    switch (op) {
+      case JOParserTape.OP_V: {
+        final int index = this.vBase + tape.nextInt();
+        final double x = tape.nextReal();
+        final double y = tape.nextReal();
+        final double z = tape.nextReal();
+        final double w = tape.nextReal();
+        this.listener.onCommandV(this.lex, index, x, y, z, w);
+        return;
+      }
+      case JOParserTape.OP_VN: {
+        final int index = this.vnBase + tape.nextInt();
+        final double x = tape.nextReal();
+        final double y = tape.nextReal();
+        final double z = tape.nextReal();
+        this.listener.onCommandVN(this.lex, index, x, y, z);
+        return;
+      }
+      default: {
+        final int index = this.vtBase + tape.nextInt();
+        final double x = tape.nextReal();
+        final double y = tape.nextReal();
+        final double z = tape.nextReal();
+        this.listener.onCommandVT(this.lex, index, x, y, z);
+      }
+    }
+  }
+
+  private void replayFace(
+    final int op,
+    final JOParserTape tape)
+  {
+    final int index = this.fBase + tape.nextInt();
+    switch (op) {
+      case JOParserTape.OP_F_STARTED:
+        this.faceOk = true;
+        this.listener.onCommandFStarted(this.lex, index);
+        return;
+      case JOParserTape.OP_F_FINISHED:
+        if (this.faceOk) {
+          this.listener.onCommandFFinished(this.lex, index);
+        }
+        return;
+      case JOParserTape.OP_F_V: {
+        final int v = tape.nextInt();
+        if (this.vertexOk) {
+          this.listener.onCommandFVertexV(this.lex, index, v);
+        }
+        return;
+      }
+      case JOParserTape.OP_F_V_VT: {
+        final int v = tape.nextInt();
+        final int vt = tape.nextInt();
+        if (this.vertexOk) {
+          this.listener.onCommandFVertexV_VT(this.lex, index, v, vt);
+        }
+        return;
+      }
+      case JOParserTape.OP_F_V_VN: {
+        final int v = tape.nextInt();
+        final int vn = tape.nextInt();
+        if (this.vertexOk) {
+          this.listener.onCommandFVertexV_VN(this.lex, index, v, vn);
+        }
+        return;
+      }
+      default: {
+        final int v = tape.nextInt();
+        final int vt = tape.nextInt();
+        final int vn = tape.nextInt();
+        if (this.vertexOk) {
+          this.listener.onCommandFVertexV_VT_VN(this.lex, index, v, vt, vn);
+        }
+      }
+    }
+  }
+
+  private void replayCheck(
+    final int op,
+    final JOParserTape tape)
+  {
+    final int value = tape.nextInt();
+    final int next = tape.nextInt();
+    switch (op) {
+      case JOParserTape.OP_CHECK_V:
+        this.vertexOk = true;
+        this.check(
+          value, this.vBase + next, JOParserErrorCode.JOP_ERROR_NONEXISTENT_V);
+        return;
+      case JOParserTape.OP_CHECK_VT:
+        this.check(
+          value, this.vtBase + next, JOParserErrorCode.JOP_ERROR_NONEXISTENT_VT);
+        return;
+      default:
+        this.check(
+          value, this.vnBase + next, JOParserErrorCode.JOP_ERROR_NONEXISTENT_VN);
+    }
+  }
+
+  private void check(
+    final int value,
+    final int next,
+    final JOParserErrorCode code)
+  {
+    if (value <= 0 || value >= next) {
+      this.faceOk = false;
+      this.vertexOk = false;
+      ++this.errorCount;
+      if (this.errors) {
+        this.listener.onError(this.lex, code, Integer.toString(value));
+      }
+    }
+  }
+}
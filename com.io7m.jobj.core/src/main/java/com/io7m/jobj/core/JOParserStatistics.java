@@ -0,0 +1,337 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Statistics collected by a parser as it runs. Counts of bytes, lines,
+ * commands and errors are exact. Times are estimated by timing one line in
+ * every {@link #samplingInterval()} lines and scaling the result, which
+ * keeps the cost of collection low enough to leave enabled; an interval of
+ * {@code 1} times every line exactly.
+ *
+ * <p>Statistics are updated by the thread running the parser without
+ * synchronization. A statistics object may be reused for several parsers
+ * that run one after another, in which case the values accumulate, but it
+ * must not be shared between parsers that run concurrently.</p>
+ *
+ * @see JOParser#newParserFromStream(java.util.Optional,
+ * java.io.InputStream, JOParserEventListenerType, JOParserStatistics)
+ * @see JOParser#newParserFromPath(java.nio.file.Path,
+ * JOParserEventListenerType, JOParserStatistics)
+ */
+
+public final class JOParserStatistics
+{
+  /**
+   * The default sampling interval.
+   */
+
+  public static final int SAMPLING_INTERVAL_DEFAULT = 64;
+
+  private final int interval;
+  private final long[] commands;
+  private final long[] errors;
+  private long bytes;
+  private long lines;
+  private long fatalErrors;
+  private long readNanos;
+  private long tokenizeNanos;
+  private long parseNanos;
+  private long listenerNanos;
+  private int countdown;
+  private boolean sampling;
+
+  private JOParserStatistics(
+    final int in_interval)
+  {
+    if (in_interval <= 0) {
+      throw new IllegalArgumentException(
+        "Sampling interval must be positive: " + in_interval);
+    }
+    this.interval = in_interval;
+    this.commands = new long[JOParserEventKind.values().length];
+    this.errors = new long[JOParserErrorCode.values().length];
+  }
+
+  /**
+   * @return New statistics using {@link #SAMPLING_INTERVAL_DEFAULT}
+   */
+
+  public static JOParserStatistics create()
+  {
+    return new JOParserStatistics(SAMPLING_INTERVAL_DEFAULT);
+  }
+
+  /**
+   * @param interval The number of lines per timed line
+   *
+   * @return New statistics using the given sampling interval
+   */
+
+  public static JOParserStatistics create(
+    final int interval)
+  {
+    return new JOParserStatistics(interval);
+  }
+
+  /**
+   * @return The number of lines per timed line
+   */
+
+  public int samplingInterval()
+  {
+    return this.interval;
+  }
+
+  /**
+   * @return The number of bytes read, including line terminators
+   */
+
+  public long bytes()
+  {
+    return this.bytes;
+  }
+
+  /**
+   * @return The number of physical lines read
+   */
+
+  public long lines()
+  {
+    return this.lines;
+  }
+
+  /**
+   * @param kind A command kind, such as
+   *             {@link JOParserEventKind#EVENT_COMMAND_V}
+   *
+   * @return The number of commands of the given kind, whether or not they
+   * were well-formed or of interest to the listener
+   */
+
+  public long commandCount(
+    final JOParserEventKind kind)
+  {
+    return this.commands[Objects.requireNonNull(kind, "Kind").ordinal()];
+  }
+
+  /**
+   * Commands that are of no interest to the listener are only checked for
+   * errors if the listener is interested in
+   * {@link JOParserEventKind#EVENT_ERROR}.
+   *
+   * @param code An error code
+   *
+   * @return The number of errors with the given code
+   */
+
+  public long errorCount(
+    final JOParserErrorCode code)
+  {
+    return this.errors[Objects.requireNonNull(code, "Code").ordinal()];
+  }
+
+  /**
+   * @return The number of fatal errors
+   */
+
+  public long fatalErrorCount()
+  {
+    return this.fatalErrors;
+  }
+
+  /**
+   * @return The estimated time spent reading and joining lines
+   */
+
+  public long readNanos()
+  {
+    return this.readNanos * (long) this.interval;
+  }
+
+  /**
+   * @return The estimated time spent splitting lines into tokens
+   */
+
+  public long tokenizeNanos()
+  {
+    return this.tokenizeNanos * (long) this.interval;
+  }
+
+  /**
+   * @return The estimated time spent parsing and checking commands,
+   * excluding tokenizing and listener callbacks
+   */
+
+  public long parseNanos()
+  {
+    return this.parseNanos * (long) this.interval;
+  }
+
+  /**
+   * @return The estimated time spent inside listener callbacks
+   */
+
+  public long listenerNanos()
+  {
+    return this.listenerNanos * (long) this.interval;
+  }
+
+  /**
+   * Reset all statistics to zero.
+   */
+
+  public void reset()
+  {
+    Arrays.fill(this.commands, 0L);
+    Arrays.fill(this.errors, 0L);
+    this.bytes = 0L;
+    this.lines = 0L;
+    this.fatalErrors = 0L;
+    this.readNanos = 0L;
+    this.tokenizeNanos = 0L;
+    this.parseNanos = 0L;
+    this.listenerNanos = 0L;
+    this.countdown = 0;
+    this.sampling = false;
+  }
+
+  /**
+   * Decide whether the next line is to be timed.
+   *
+   * @return {@code true} iff the next line is to be timed
+   */
+
+  boolean sample()
+  {
+    if (this.countdown == 0) {
+      this.countdown = this.interval - 1;
+      this.sampling = true;
+    } else {
+      --this.countdown;
+      this.sampling = false;
+    }
+    return this.sampling;
+  }
+
+  /**
+   * @return {@code true} iff the current line is being timed
+   */
+
+  boolean sampling()
+  {
+    return this.sampling;
+  }
+
+  void addBytes(final long count)
+  {
+    this.bytes += count;
+  }
+
+  void addLine()
+  {
+    ++this.lines;
+  }
+
+  void addCommand(final JOParserEventKind kind)
+  {
+    ++this.commands[kind.ordinal()];
+  }
+
+  void addError(final JOParserErrorCode code)
+  {
+    ++this.errors[code.ordinal()];
+  }
+
+  void addFatalError()
+  {
+    ++this.fatalErrors;
+  }
+
+  long sampledTokenizeNanos()
+  {
+    return this.tokenizeNanos;
+  }
+
+  long sampledListenerNanos()
+  {
+    return this.listenerNanos;
+  }
+
+  void addReadNanos(final long nanos)
+  {
+    this.readNanos += nanos;
+  }
+
+  void addTokenizeNanos(final long nanos)
+  {
+    this.tokenizeNanos += nanos;
+  }
+
+  void addParseNanos(final long nanos)
+  {
+    this.parseNanos += nanos;
+  }
+
+  void addListenerNanos(final long nanos)
+  {
+    this.listenerNanos += nanos;
+  }
+
+  @Override
+  public String toString()
+  {
+    final StringBuilder sb = new StringBuilder(256);
+    sb.append("[JOParserStatistics bytes=");
+    sb.append(this.bytes);
+    sb.append(" lines=");
+    sb.append(this.lines);
+    for (final JOParserEventKind kind : JOParserEventKind.values()) {
+      final long count = this.commands[kind.ordinal()];
+      if (count > 0L) {
+        sb.append(' ');
+        sb.append(kind);
+        sb.append('=');
+        sb.append(count);
+      }
+    }
+    for (final JOParserErrorCode code : JOParserErrorCode.values()) {
+      final long count = this.errors[code.ordinal()];
+      if (count > 0L) {
+        sb.append(' ');
+        sb.append(code);
+        sb.append('=');
+        sb.append(count);
+      }
+    }
+    sb.append(" fatal=");
+    sb.append(this.fatalErrors);
+    sb.append(" read_ns=");
+    sb.append(this.readNanos());
+    sb.append(" tokenize_ns=");
+    sb.append(this.tokenizeNanos());
+    sb.append(" parse_ns=");
+    sb.append(this.parseNanos());
+    sb.append(" listener_ns=");
+    sb.append(this.listenerNanos());
+    sb.append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A listener that forwards all events to another listener, timing the
+ * callbacks on lines that are being sampled.
+ */
+
+final class JOParserStatisticsListener implements JOParserEventListenerType
+{
+  private final JOParserEventListenerType delegate;
+  private final JOParserStatistics statistics;
+
+  JOParserStatisticsListener(
+    final JOParserEventListenerType in_delegate,
+    final JOParserStatistics in_statistics)
+  {
+    this.delegate = Objects.requireNonNull(in_delegate, "Delegate");
+    this.statistics = Objects.requireNonNull(in_statistics, "Statistics");
+  }
+
+  @Override
+  public Set<JOParserEventKind> interests()
+  {
+    return this.delegate.interests();
+  }
+
+  @Override
+  public boolean singlePrecision()
+  {
+    return this.delegate.singlePrecision();
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.statistics.addFatalError();
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onFatalError(p, e, message);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onFatalError(p, e, message);
+    }
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onError(p, e, message);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onError(p, e, message);
+    }
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onLine(p, line);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onLine(p, line);
+    }
+  }
+
+  @Override
+  public void onEOF(final LexicalPositionType<Path> p)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onEOF(p);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onEOF(p);
+    }
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onComment(p, text);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onComment(p, text);
+    }
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandUsemtl(p, name);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandUsemtl(p, name);
+    }
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandMtllib(p, name);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandMtllib(p, name);
+    }
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandO(p, name);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandO(p, name);
+    }
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandS(p, group_number);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandS(p, group_number);
+    }
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandV(p, index, x, y, z, w);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandV(p, index, x, y, z, w);
+    }
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandVN(p, index, x, y, z);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandVN(p, index, x, y, z);
+    }
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandVT(p, index, x, y, z);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandVT(p, index, x, y, z);
+    }
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandFVertexV_VT_VN(p, index, v, vt, vn);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandFVertexV_VT_VN(p, index, v, vt, vn);
+    }
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandFVertexV_VT(p, index, v, vt);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandFVertexV_VT(p, index, v, vt);
+    }
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandFVertexV_VN(p, index, v, vn);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandFVertexV_VN(p, index, v, vn);
+    }
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandFVertexV(p, index, v);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandFVertexV(p, index, v);
+    }
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandFStarted(p, index);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandFStarted(p, index);
+    }
+  }
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    if (this.statistics.sampling()) {
+      final long time_then = System.nanoTime();
+      this.delegate.onCommandFFinished(p, index);
+      this.statistics.addListenerNanos(System.nanoTime() - time_then);
+    } else {
+      this.delegate.onCommandFFinished(p, index);
+    }
+  }
+}
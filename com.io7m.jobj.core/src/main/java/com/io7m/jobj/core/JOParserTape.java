@@ -0,0 +1,437 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A listener that records the events produced by parsing one chunk of a file
+ * into flat arrays, so that the events can later be replayed in order on
+ * another thread. Each record consists of an opcode, a line number and a
+ * column number, followed by an opcode-specific payload. Line numbers and
+ * element indices are relative to the start of the chunk. Checks against
+ * element counts that cannot be evaluated until the counts of all earlier
+ * chunks are known are recorded as deferred checks.
+ *
+ * @see JOParserReplay
+ */
+
+final class JOParserTape implements JOParserEventListenerType
+{
+  static final int OP_LINE = 0;
+  static final int OP_COMMENT = 1;
+  static final int OP_ERROR = 2;
+  static final int OP_FATAL = 3;
+  static final int OP_EOF = 4;
+  static final int OP_O = 5;
+  static final int OP_USEMTL = 6;
+  static final int OP_MTLLIB = 7;
+  static final int OP_S = 8;
+  static final int OP_V = 9;
+  static final int OP_VN = 10;
+  static final int OP_VT = 11;
+  static final int OP_F_STARTED = 12;
+  static final int OP_F_FINISHED = 13;
+  static final int OP_F_V = 14;
+  static final int OP_F_V_VT = 15;
+  static final int OP_F_V_VN = 16;
+  static final int OP_F_V_VT_VN = 17;
+  static final int OP_CHECK_V = 18;
+  static final int OP_CHECK_VT = 19;
+  static final int OP_CHECK_VN = 20;
+
+  private static final int RECORD_INTS_MAX = 7;
+
+  private final Set<JOParserEventKind> interests;
+  private final boolean single;
+  private int[] ints;
+  private int intCount;
+  private int intRead;
+  private double[] reals;
+  private int realCount;
+  private int realRead;
+  private Object[] objects;
+  private int objectCount;
+  private int objectRead;
+  private int lines;
+  private int countV;
+  private int countVT;
+  private int countVN;
+  private int countF;
+
+  JOParserTape(
+    final Set<JOParserEventKind> in_interests,
+    final boolean in_single)
+  {
+    this.interests = Objects.requireNonNull(in_interests, "Interests");
+    this.single = in_single;
+    this.ints = new int[1024];
+    this.reals = new double[1024];
+    this.objects = new Object[64];
+  }
+
+  /**
+   * Record the number of elements that were declared in the chunk.
+   *
+   * @param v  The number of {@code v} commands
+   * @param vt The number of {@code vt} commands
+   * @param vn The number of {@code vn} commands
+   * @param f  The number of {@code f} commands
+   */
+
+  void finish(
+    final int v,
+    final int vt,
+    final int vn,
+    final int f)
+  {
+    this.countV = v;
+    this.countVT = vt;
+    this.countVN = vn;
+    this.countF = f;
+  }
+
+  int lines()
+  {
+    return this.lines;
+  }
+
+  int countV()
+  {
+    return this.countV;
+  }
+
+  int countVT()
+  {
+    return this.countVT;
+  }
+
+  int countVN()
+  {
+    return this.countVN;
+  }
+
+  int countF()
+  {
+    return this.countF;
+  }
+
+  boolean hasNext()
+  {
+    return this.intRead < this.intCount;
+  }
+
+  int nextInt()
+  {
+    final int x = this.ints[this.intRead];
+    ++this.intRead;
+    return x;
+  }
+
+  double nextReal()
+  {
+    final double x = this.reals[this.realRead];
+    ++this.realRead;
+    return x;
+  }
+
+  Object nextObject()
+  {
+    final Object x = this.objects[this.objectRead];
+    this.objects[this.objectRead] = null;
+    ++this.objectRead;
+    return x;
+  }
+
+  private void begin(
+    final int op,
+    final LexicalPositionType<Path> p)
+  {
+    if (this.intCount + RECORD_INTS_MAX > this.ints.length) {
+      this.ints = Arrays.copyOf(this.ints, this.ints.length * 2);
+    }
+    this.ints[this.intCount] = op;
+    this.ints[this.intCount + 1] = p.line();
+    this.ints[this.intCount + 2] = p.column();
+    this.intCount += 3;
+  }
+
+  private void putInt(final int x)
+  {
+    this.ints[this.intCount] = x;
+    ++this.intCount;
+  }
+
+  private void putReal(final double x)
+  {
+    if (this.realCount == this.reals.length) {
+      this.reals = Arrays.copyOf(this.reals, this.reals.length * 2);
+    }
+    this.reals[this.realCount] = x;
+    ++this.realCount;
+  }
+
+  private void putObject(final Object x)
+  {
+    if (this.objectCount == this.objects.length) {
+      this.objects = Arrays.copyOf(this.objects, this.objects.length * 2);
+    }
+    this.objects[this.objectCount] = x;
+    ++this.objectCount;
+  }
+
+  private void record(
+    final int op,
+    final LexicalPositionType<Path> p,
+    final Object x)
+  {
+    this.begin(op, p);
+    this.putObject(x);
+  }
+
+  /**
+   * Record a check that {@code value} refers to an existing element.
+   *
+   * @param op    One of {@link #OP_CHECK_V}, {@link #OP_CHECK_VT} or
+   *              {@link #OP_CHECK_VN}
+   * @param p     The position
+   * @param value The element index
+   * @param next  The chunk-relative index of the next element
+   */
+
+  void defer(
+    final int op,
+    final LexicalPositionType<Path> p,
+    final int value,
+    final int next)
+  {
+    this.begin(op, p);
+    this.putInt(value);
+    this.putInt(next);
+  }
+
+  @Override
+  public Set<JOParserEventKind> interests()
+  {
+    return this.interests;
+  }
+
+  @Override
+  public boolean singlePrecision()
+  {
+    return this.single;
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.record(OP_FATAL, p, e);
+    this.putObject(message);
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    this.record(OP_ERROR, p, e);
+    this.putObject(message);
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    this.record(OP_LINE, p, line);
+  }
+
+  @Override
+  public void onEOF(final LexicalPositionType<Path> p)
+  {
+    this.lines = p.line() - 1;
+    this.begin(OP_EOF, p);
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    this.record(OP_COMMENT, p, text);
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.record(OP_USEMTL, p, name);
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.record(OP_MTLLIB, p, name);
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.record(OP_O, p, name);
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    this.begin(OP_S, p);
+    this.putInt(group_number);
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    this.begin(OP_V, p);
+    this.putInt(index);
+    this.putReal(x);
+    this.putReal(y);
+    this.putReal(z);
+    this.putReal(w);
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.begin(OP_VN, p);
+    this.putInt(index);
+    this.putReal(x);
+    this.putReal(y);
+    this.putReal(z);
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.begin(OP_VT, p);
+    this.putInt(index);
+    this.putReal(x);
+    this.putReal(y);
+    this.putReal(z);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    this.begin(OP_F_V_VT_VN, p);
+    this.putInt(index);
+    this.putInt(v);
+    this.putInt(vt);
+    this.putInt(vn);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    this.begin(OP_F_V_VT, p);
+    this.putInt(index);
+    this.putInt(v);
+    this.putInt(vt);
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    this.begin(OP_F_V_VN, p);
+    this.putInt(index);
+    this.putInt(v);
+    this.putInt(vn);
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    this.begin(OP_F_V, p);
+    this.putInt(index);
+    this.putInt(v);
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.begin(OP_F_STARTED, p);
+    this.putInt(index);
+  }
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.begin(OP_F_FINISHED, p);
+    this.putInt(index);
+  }
+}
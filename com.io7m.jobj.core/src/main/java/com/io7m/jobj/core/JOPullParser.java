@@ -0,0 +1,344 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>A pull parser. Rather than delivering events to a listener, the parser
+ * is driven by the caller: each call to {@link #next()} returns the kind of
+ * the next event, and the details of that event are then available through
+ * accessors that return primitive values. The caller may stop at any point
+ * (after the first object, for example) and {@link #close()} the parser
+ * without the rest of the input being parsed.</p>
+ *
+ * <p>The parser consumes input one logical line at a time. Face vertex
+ * references are validated exactly as with {@link JOParser}; faces that
+ * contain errors are reported only as {@link JOPullParserEventKind#EVENT_ERROR}
+ * events. {@link JOPullParserEventKind#EVENT_EOF} is always the last event,
+ * even after a fatal error.</p>
+ *
+ * <p>The values returned by accessors that do not apply to the current event
+ * are unspecified.</p>
+ *
+ * <p>Internally the pull parser steps a {@link JOParser} one logical line at
+ * a time, and the parser writes the events of each line directly into
+ * storage owned by the pull parser, rather than delivering them to a
+ * {@link JOParserEventListenerType}. No event passes through an interface
+ * call, and the accessors read the stored primitive values directly.</p>
+ */
+
+public final class JOPullParser implements Closeable
+{
+  private final JOParser parser;
+  private final JOPullParserEvents events;
+  private final Optional<Path> file;
+  private final JOParserJFRParseEvent event;
+  private boolean done;
+  private boolean recorded;
+  private boolean finished;
+
+  private JOPullParser(
+    final Optional<Path> in_path,
+    final JOLineReaderType in_reader,
+    final Set<JOParserEventKind> in_interests)
+  {
+    this.file = Objects.requireNonNull(in_path, "Path");
+    final Set<JOParserEventKind> interests =
+      EnumSet.noneOf(JOParserEventKind.class);
+    interests.addAll(in_interests);
+    this.events = new JOPullParserEvents(interests);
+    this.parser =
+      JOParser.newPullParserFromReader(in_path, in_reader, this.events);
+    this.event = new JOParserJFRParseEvent();
+    this.parser.beginEvent(this.event);
+  }
+
+  /**
+   * Create a pull parser that reads from the given stream. The stream is not
+   * closed by the parser.
+   *
+   * @param in_path   The input filename, if any
+   * @param stream    The input stream
+   * @param interests The events of interest
+   *
+   * @return A new parser
+   *
+   * @see JOParserEventListenerType#interests()
+   */
+
+  public static JOPullParser newPullParserFromStream(
+    final Optional<Path> in_path,
+    final InputStream stream,
+    final Set<JOParserEventKind> interests)
+  {
+    return new JOPullParser(
+      in_path, new JOLineReaderStream(stream), interests);
+  }
+
+  /**
+   * Create a pull parser that reads from a memory-mapped file. The
+   * file is opened when the first event is requested, and is closed by
+   * {@link #close()}.
+   *
+   * @param path      The input file
+   * @param interests The events of interest
+   *
+   * @return A new parser
+   *
+   * @see JOParserEventListenerType#interests()
+   */
+
+  public static JOPullParser newPullParserFromPath(
+    final Path path,
+    final Set<JOParserEventKind> interests)
+  {
+    return new JOPullParser(
+      Optional.of(path),
+      new JOLineReaderMapped(path, JOLineReaderMapped.WINDOW_SIZE_DEFAULT),
+      interests);
+  }
+
+  /**
+   * Advance to the next event.
+   *
+   * @return The kind of the next event
+   *
+   * @throws NoSuchElementException If {@link JOPullParserEventKind#EVENT_EOF}
+   *                                has already been returned
+   */
+
+  public JOPullParserEventKind next()
+    throws NoSuchElementException
+  {
+    if (this.finished) {
+      throw new NoSuchElementException("No events remain");
+    }
+    if (!this.events.advance()) {
+      this.fill();
+    }
+    final JOPullParserEventKind kind = this.events.kind();
+    if (kind == JOPullParserEventKind.EVENT_EOF) {
+      this.finished = true;
+    }
+    return kind;
+  }
+
+  private void fill()
+  {
+    this.events.clear();
+    boolean ready = false;
+    while (!this.done && !ready) {
+      try {
+        this.done = !this.parser.step();
+      } catch (final IOException e) {
+        this.done = true;
+        this.parser.fail(e);
+        this.events.endOfFile(this.parser.position());
+      }
+      ready = this.events.advance();
+    }
+    if (this.done) {
+      this.record();
+    }
+  }
+
+  private void record()
+  {
+    if (!this.recorded) {
+      this.recorded = true;
+      this.parser.commitEvent(this.event);
+    }
+  }
+
+  /**
+   * @return The file, if any
+   */
+
+  public Optional<Path> file()
+  {
+    return this.file;
+  }
+
+  /**
+   * @return The line number of the current event
+   */
+
+  public int line()
+  {
+    return this.events.line();
+  }
+
+  /**
+   * @return The column number of the current event
+   */
+
+  public int column()
+  {
+    return this.events.column();
+  }
+
+  /**
+   * @return The one-based index of the current {@code v}, {@code vn},
+   * {@code vt} or {@code f} command
+   */
+
+  public int index()
+  {
+    return this.events.integer();
+  }
+
+  /**
+   * @return The {@code x} value of the current {@code v}, {@code vn} or
+   * {@code vt} command
+   */
+
+  public double x()
+  {
+    return this.events.x();
+  }
+
+  /**
+   * @return The {@code y} value of the current {@code v}, {@code vn} or
+   * {@code vt} command
+   */
+
+  public double y()
+  {
+    return this.events.y();
+  }
+
+  /**
+   * @return The {@code z} value of the current {@code v}, {@code vn} or
+   * {@code vt} command
+   */
+
+  public double z()
+  {
+    return this.events.z();
+  }
+
+  /**
+   * @return The {@code w} value of the current {@code v} command
+   */
+
+  public double w()
+  {
+    return this.events.w();
+  }
+
+  /**
+   * @return The smoothing group of the current {@code s} command
+   */
+
+  public int smoothingGroup()
+  {
+    return this.events.integer();
+  }
+
+  /**
+   * @return The number of vertices in the current face
+   */
+
+  public int faceVertexCount()
+  {
+    return this.events.faceCount();
+  }
+
+  /**
+   * @param vertex The face vertex, in {@code [0, faceVertexCount())}
+   *
+   * @return The position index of the given vertex of the current face
+   */
+
+  public int vertexIndex(final int vertex)
+  {
+    return this.events.faceV(vertex);
+  }
+
+  /**
+   * @param vertex The face vertex, in {@code [0, faceVertexCount())}
+   *
+   * @return The texture coordinate index of the given vertex of the current
+   * face, or {@code 0} if the face has no texture coordinates
+   */
+
+  public int textureIndex(final int vertex)
+  {
+    return this.events.faceVT(vertex);
+  }
+
+  /**
+   * @param vertex The face vertex, in {@code [0, faceVertexCount())}
+   *
+   * @return The normal index of the given vertex of the current face, or
+   * {@code 0} if the face has no normals
+   */
+
+  public int normalIndex(final int vertex)
+  {
+    return this.events.faceVN(vertex);
+  }
+
+  /**
+   * @return The text of the current comment, or the name given by the current
+   * {@code o}, {@code mtllib} or {@code usemtl} command, or the message of the
+   * current error
+   */
+
+  public String text()
+  {
+    return this.events.text();
+  }
+
+  /**
+   * @return The code of the current error
+   */
+
+  public JOParserErrorCode errorCode()
+  {
+    return this.events.code();
+  }
+
+  /**
+   * @return The exception that caused the current fatal error, if any
+   */
+
+  public Optional<Throwable> exception()
+  {
+    return this.events.exception();
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.done = true;
+    this.finished = true;
+    this.events.clear();
+    this.record();
+    this.parser.close();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+/**
+ * The kinds of events returned by {@link JOPullParser#next()}.
+ */
+
+public enum JOPullParserEventKind
+{
+  /**
+   * A comment. See {@link JOPullParser#text()}.
+   */
+
+  EVENT_COMMENT,
+
+  /**
+   * A non-fatal error. See {@link JOPullParser#errorCode()} and
+   * {@link JOPullParser#text()}.
+   */
+
+  EVENT_ERROR,
+
+  /**
+   * A fatal error. See {@link JOPullParser#exception()} and
+   * {@link JOPullParser#text()}. Only {@link #EVENT_EOF} can follow.
+   */
+
+  EVENT_FATAL_ERROR,
+
+  /**
+   * A {@code v} command. See {@link JOPullParser#index()},
+   * {@link JOPullParser#x()}, {@link JOPullParser#y()},
+   * {@link JOPullParser#z()} and {@link JOPullParser#w()}.
+   */
+
+  EVENT_COMMAND_V,
+
+  /**
+   * A {@code vn} command. See {@link JOPullParser#index()},
+   * {@link JOPullParser#x()}, {@link JOPullParser#y()} and
+   * {@link JOPullParser#z()}.
+   */
+
+  EVENT_COMMAND_VN,
+
+  /**
+   * A {@code vt} command. See {@link JOPullParser#index()},
+   * {@link JOPullParser#x()}, {@link JOPullParser#y()} and
+   * {@link JOPullParser#z()}.
+   */
+
+  EVENT_COMMAND_VT,
+
+  /**
+   * A complete, valid {@code f} command. See {@link JOPullParser#index()},
+   * {@link JOPullParser#faceVertexCount()} and
+   * {@link JOPullParser#vertexIndex(int)}.
+   */
+
+  EVENT_COMMAND_F,
+
+  /**
+   * An {@code o} command. See {@link JOPullParser#text()}.
+   */
+
+  EVENT_COMMAND_O,
+
+  /**
+   * A {@code mtllib} command. See {@link JOPullParser#text()}.
+   */
+
+  EVENT_COMMAND_MTLLIB,
+
+  /**
+   * A {@code usemtl} command. See {@link JOPullParser#text()}.
+   */
+
+  EVENT_COMMAND_USEMTL,
+
+  /**
+   * An {@code s} command. See {@link JOPullParser#smoothingGroup()}.
+   */
+
+  EVENT_COMMAND_S,
+
+  /**
+   * The end of the input. This is always the last event.
+   */
+
+  EVENT_EOF
+}
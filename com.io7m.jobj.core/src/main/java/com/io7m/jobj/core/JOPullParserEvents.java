@@ -0,0 +1,405 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>The events produced by a single logical line, for consumption by a
+ * {@link JOPullParser}. A {@link JOParser} created for a pull parser writes
+ * each event directly into this object instead of delivering it to a
+ * listener, and so no event passes through an interface call.</p>
+ *
+ * <p>A line produces at most one command, preceded by any errors in that
+ * command and followed by any comment, and the end of the input produces an
+ * optional fatal error followed by the end of the file. Each of these has a
+ * fixed slot, and the slots are visited in that order by
+ * {@link #advance()}. Only the errors need more than one slot, and the
+ * arrays that hold them are reused, so storing an event never
+ * allocates.</p>
+ */
+
+final class JOPullParserEvents
+{
+  private final Set<JOParserEventKind> interests;
+
+  private JOPullParserEventKind kind;
+  private int line;
+  private int column;
+  private String text;
+  private JOParserErrorCode code;
+  private Throwable exception;
+
+  private int[] errorLines;
+  private int[] errorColumns;
+  private JOParserErrorCode[] errorCodes;
+  private String[] errorMessages;
+  private int errorCount;
+  private int errorHead;
+
+  private JOPullParserEventKind command;
+  private int commandLine;
+  private int commandColumn;
+  private String commandText;
+  private int integer;
+  private double x;
+  private double y;
+  private double z;
+  private double w;
+  private int[] faceV;
+  private int[] faceVT;
+  private int[] faceVN;
+  private int faceCount;
+
+  private String comment;
+  private int commentLine;
+  private int commentColumn;
+
+  private boolean fatal;
+  private int fatalLine;
+  private int fatalColumn;
+  private String fatalMessage;
+  private Throwable fatalException;
+
+  private boolean eof;
+  private int eofLine;
+  private int eofColumn;
+
+  JOPullParserEvents(
+    final Set<JOParserEventKind> in_interests)
+  {
+    this.interests = Objects.requireNonNull(in_interests, "Interests");
+    this.errorLines = new int[4];
+    this.errorColumns = new int[4];
+    this.errorCodes = new JOParserErrorCode[4];
+    this.errorMessages = new String[4];
+    this.faceV = new int[16];
+    this.faceVT = new int[16];
+    this.faceVN = new int[16];
+  }
+
+  /**
+   * @return The events of interest
+   */
+
+  Set<JOParserEventKind> interests()
+  {
+    return this.interests;
+  }
+
+  /**
+   * Discard the errors of the current line. The other slots are emptied as
+   * they are visited.
+   */
+
+  void clear()
+  {
+    Arrays.fill(this.errorMessages, 0, this.errorCount, null);
+    this.errorCount = 0;
+    this.errorHead = 0;
+  }
+
+  /**
+   * Make the next stored event current.
+   *
+   * @return {@code false} iff no stored events remain
+   */
+
+  boolean advance()
+  {
+    if (this.errorHead < this.errorCount) {
+      final int slot = this.errorHead;
+      ++this.errorHead;
+      this.current(
+        JOPullParserEventKind.EVENT_ERROR,
+        this.errorLines[slot],
+        this.errorColumns[slot],
+        this.errorMessages[slot]);
+      this.code = this.errorCodes[slot];
+      return true;
+    }
+    if (this.command != null) {
+      this.current(
+        this.command, this.commandLine, this.commandColumn, this.commandText);
+      this.command = null;
+      return true;
+    }
+    if (this.comment != null) {
+      this.current(
+        JOPullParserEventKind.EVENT_COMMENT,
+        this.commentLine,
+        this.commentColumn,
+        this.comment);
+      this.comment = null;
+      return true;
+    }
+    return this.advanceEnd();
+  }
+
+  private boolean advanceEnd()
+  {
+    if (this.fatal) {
+      this.current(
+        JOPullParserEventKind.EVENT_FATAL_ERROR,
+        this.fatalLine,
+        this.fatalColumn,
+        this.fatalMessage);
+      this.exception = this.fatalException;
+      this.fatal = false;
+      return true;
+    }
+    if (this.eof) {
+      this.current(
+        JOPullParserEventKind.EVENT_EOF, this.eofLine, this.eofColumn, null);
+      this.eof = false;
+      return true;
+    }
+    return false;
+  }
+
+  private void current(
+    final JOPullParserEventKind in_kind,
+    final int in_line,
+    final int in_column,
+    final String in_text)
+  {
+    this.kind = in_kind;
+    this.line = in_line;
+    this.column = in_column;
+    this.text = in_text;
+    this.code = null;
+    this.exception = null;
+  }
+
+  JOPullParserEventKind kind()
+  {
+    return this.kind;
+  }
+
+  int line()
+  {
+    return this.line;
+  }
+
+  int column()
+  {
+    return this.column;
+  }
+
+  String text()
+  {
+    return this.text;
+  }
+
+  JOParserErrorCode code()
+  {
+    return this.code;
+  }
+
+  Optional<Throwable> exception()
+  {
+    return Optional.ofNullable(this.exception);
+  }
+
+  int integer()
+  {
+    return this.integer;
+  }
+
+  double x()
+  {
+    return this.x;
+  }
+
+  double y()
+  {
+    return this.y;
+  }
+
+  double z()
+  {
+    return this.z;
+  }
+
+  double w()
+  {
+    return this.w;
+  }
+
+  int faceCount()
+  {
+    return this.faceCount;
+  }
+
+  int faceV(final int index)
+  {
+    return this.faceV[index];
+  }
+
+  int faceVT(final int index)
+  {
+    return this.faceVT[index];
+  }
+
+  int faceVN(final int index)
+  {
+    return this.faceVN[index];
+  }
+
+  private void setCommand(
+    final JOPullParserEventKind in_kind,
+    final LexicalPositionType<Path> p)
+  {
+    this.command = in_kind;
+    this.commandLine = p.line();
+    this.commandColumn = p.column();
+  }
+
+  void fatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.fatal = true;
+    this.fatalLine = p.line();
+    this.fatalColumn = p.column();
+    this.fatalMessage = message;
+    this.fatalException = e.orElse(null);
+  }
+
+  void error(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    if (this.errorCount == this.errorLines.length) {
+      final int size = this.errorCount * 2;
+      this.errorLines = Arrays.copyOf(this.errorLines, size);
+      this.errorColumns = Arrays.copyOf(this.errorColumns, size);
+      this.errorCodes = Arrays.copyOf(this.errorCodes, size);
+      this.errorMessages = Arrays.copyOf(this.errorMessages, size);
+    }
+
+    final int slot = this.errorCount;
+    this.errorLines[slot] = p.line();
+    this.errorColumns[slot] = p.column();
+    this.errorCodes[slot] = e;
+    this.errorMessages[slot] = message;
+    ++this.errorCount;
+  }
+
+  void endOfFile(final LexicalPositionType<Path> p)
+  {
+    this.eof = true;
+    this.eofLine = p.line();
+    this.eofColumn = p.column();
+  }
+
+  void comment(
+    final LexicalPositionType<Path> p,
+    final String in_text)
+  {
+    this.comment = in_text;
+    this.commentLine = p.line();
+    this.commentColumn = p.column();
+  }
+
+  /**
+   * Store an {@code o}, {@code mtllib} or {@code usemtl} command.
+   */
+
+  void name(
+    final JOPullParserEventKind in_kind,
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.setCommand(in_kind, p);
+    this.commandText = name;
+  }
+
+  void smoothingGroup(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    this.setCommand(JOPullParserEventKind.EVENT_COMMAND_S, p);
+    this.integer = group_number;
+  }
+
+  /**
+   * Store a {@code v}, {@code vn} or {@code vt} command.
+   */
+
+  void vector(
+    final JOPullParserEventKind in_kind,
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double in_x,
+    final double in_y,
+    final double in_z,
+    final double in_w)
+  {
+    this.setCommand(in_kind, p);
+    this.integer = index;
+    this.x = in_x;
+    this.y = in_y;
+    this.z = in_z;
+    this.w = in_w;
+  }
+
+  void faceStarted(final LexicalPositionType<Path> p)
+  {
+    this.faceCount = 0;
+    this.commandColumn = p.column();
+  }
+
+  void faceVertex(
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    if (this.faceCount == this.faceV.length) {
+      final int size = this.faceCount * 2;
+      this.faceV = Arrays.copyOf(this.faceV, size);
+      this.faceVT = Arrays.copyOf(this.faceVT, size);
+      this.faceVN = Arrays.copyOf(this.faceVN, size);
+    }
+    this.faceV[this.faceCount] = v;
+    this.faceVT[this.faceCount] = vt;
+    this.faceVN[this.faceCount] = vn;
+    ++this.faceCount;
+  }
+
+  /**
+   * Store a complete, valid {@code f} command. The column is that of the
+   * start of the command, as recorded by {@link #faceStarted}.
+   */
+
+  void faceFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.command = JOPullParserEventKind.EVENT_COMMAND_F;
+    this.commandLine = p.line();
+    this.integer = index;
+  }
+}
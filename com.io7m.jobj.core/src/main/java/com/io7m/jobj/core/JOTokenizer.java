@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A tokenizer that splits a range of UTF-8 encoded bytes into
+ * whitespace-separated fields in a single pass. Fields are recorded as
+ * offsets into the original array; no strings are created unless
+ * {@link #text(int)} is called. This is safe for UTF-8 input because every
+ * byte of a multibyte sequence has the high bit set, and so can never be
+ * mistaken for one of the ASCII separator characters.
+ */
+
+final class JOTokenizer
+{
+  private byte[] data;
+  private int[] starts;
+  private int[] ends;
+  private int count;
+
+  JOTokenizer()
+  {
+    this.data = new byte[0];
+    this.starts = new int[16];
+    this.ends = new int[16];
+  }
+
+  /**
+   * @param b A byte
+   *
+   * @return {@code true} iff {@code b} is an ASCII whitespace character
+   */
+
+  static boolean isSpace(final byte b)
+  {
+    return b == ' ' || (b >= '\t' && b <= '\r');
+  }
+
+  /**
+   * Decode a range of UTF-8 bytes.
+   *
+   * @param data   The data
+   * @param start  The offset of the first byte
+   * @param length The number of bytes
+   *
+   * @return A decoded string
+   */
+
+  static String decode(
+    final byte[] data,
+    final int start,
+    final int length)
+  {
+    // CHECKSTYLE:OFF
+    return new String(data, start, length, StandardCharsets.UTF_8);
+    // CHECKSTYLE:ON
+  }
+
+  /**
+   * Split the given range of bytes into fields.
+   *
+   * @param in_data The data
+   * @param start   The offset of the first byte
+   * @param end     The offset one past the last byte
+   */
+
+  void tokenize(
+    final byte[] in_data,
+    final int start,
+    final int end)
+  {
+    this.data = in_data;
+    this.count = 0;
+
+    int index = start;
+    while (index < end) {
+      while (index < end && isSpace(in_data[index])) {
+        ++index;
+      }
+      if (index == end) {
+        break;
+      }
+
+      final int field_start = index;
+      while (index < end && !isSpace(in_data[index])) {
+        ++index;
+      }
+      this.add(field_start, index);
+    }
+  }
+
+  private void add(
+    final int start,
+    final int end)
+  {
+    if (this.count == this.starts.length) {
+      final int size = this.count * 2;
+      this.starts = Arrays.copyOf(this.starts, size);
+      this.ends = Arrays.copyOf(this.ends, size);
+    }
+    this.starts[this.count] = start;
+    this.ends[this.count] = end;
+    ++this.count;
+  }
+
+  /**
+   * @return The data that was most recently tokenized
+   */
+
+  byte[] data()
+  {
+    return this.data;
+  }
+
+  /**
+   * @return The number of fields
+   */
+
+  int count()
+  {
+    return this.count;
+  }
+
+  /**
+   * @param index The field index
+   *
+   * @return The offset of the first byte of the field
+   */
+
+  int start(final int index)
+  {
+    return this.starts[index];
+  }
+
+  /**
+   * @param index The field index
+   *
+   * @return The offset one past the last byte of the field
+   */
+
+  int end(final int index)
+  {
+    return this.ends[index];
+  }
+
+  /**
+   * @param index The field index
+   *
+   * @return The length in bytes of the field
+   */
+
+  int length(final int index)
+  {
+    return this.ends[index] - this.starts[index];
+  }
+
+  /**
+   * @param index The field index
+   * @param c     The offset within the field
+   *
+   * @return The byte at offset {@code c} of the given field
+   */
+
+  byte byteAt(
+    final int index,
+    final int c)
+  {
+    return this.data[this.starts[index] + c];
+  }
+
+  /**
+   * @param index The field index
+   * @param text  An ASCII string
+   *
+   * @return {@code true} iff the given field is exactly {@code text}
+   */
+
+  boolean is(
+    final int index,
+    final String text)
+  {
+    final int size = text.length();
+    if (this.length(index) != size) {
+      return false;
+    }
+    final int base = this.starts[index];
+    for (int c = 0; c < size; ++c) {
+      if (this.data[base + c] != text.charAt(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decode the given field as a string. This allocates, and should be used
+   * only for fields that are actually delivered as strings.
+   *
+   * @param index The field index
+   *
+   * @return The text of the field
+   */
+
+  String text(final int index)
+  {
+    return decode(this.data, this.starts[index], this.length(index));
+  }
+}
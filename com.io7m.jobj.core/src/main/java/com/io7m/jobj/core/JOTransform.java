@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>An immutable 4x4 transform applied to positions and normals as they
+ * are parsed.</p>
+ *
+ * <p>Positions {@code (x, y, z)} are transformed as the column vector
+ * {@code (x, y, z, 1)}, and divided by the resulting {@code w} component if
+ * it is not {@code 1}. Normals are transformed by the inverse transpose of
+ * the upper-left 3x3 part of the matrix and then renormalized, so that they
+ * remain perpendicular to surfaces under non-uniform scaling.</p>
+ *
+ * @see JOTransformer
+ */
+
+public final class JOTransform
+{
+  private static final JOTransform IDENTITY = new JOTransform(new double[]{
+    1.0, 0.0, 0.0, 0.0,
+    0.0, 1.0, 0.0, 0.0,
+    0.0, 0.0, 1.0, 0.0,
+    0.0, 0.0, 0.0, 1.0,
+  });
+
+  private static final JOTransform Z_UP_TO_Y_UP = new JOTransform(new double[]{
+    1.0, 0.0, 0.0, 0.0,
+    0.0, 0.0, 1.0, 0.0,
+    0.0, -1.0, 0.0, 0.0,
+    0.0, 0.0, 0.0, 1.0,
+  });
+
+  private final double[] m;
+
+  private JOTransform(
+    final double... in_m)
+  {
+    this.m = in_m;
+  }
+
+  /**
+   * @return The identity transform
+   */
+
+  public static JOTransform identity()
+  {
+    return IDENTITY;
+  }
+
+  /**
+   * A rotation of -90 degrees around the X axis, which converts coordinates
+   * in a right-handed Z-up system (such as those produced by most CAD and
+   * GIS packages) to a right-handed Y-up system: {@code (x, y, z)} becomes
+   * {@code (x, z, -y)}.
+   *
+   * @return A transform from Z-up to Y-up coordinates
+   */
+
+  public static JOTransform zUpToYUp()
+  {
+    return Z_UP_TO_Y_UP;
+  }
+
+  /**
+   * @param s The scale factor for all axes
+   *
+   * @return A uniform scaling transform
+   */
+
+  public static JOTransform scale(
+    final double s)
+  {
+    return scale(s, s, s);
+  }
+
+  /**
+   * @param sx The scale factor for the X axis
+   * @param sy The scale factor for the Y axis
+   * @param sz The scale factor for the Z axis
+   *
+   * @return A scaling transform
+   */
+
+  public static JOTransform scale(
+    final double sx,
+    final double sy,
+    final double sz)
+  {
+    return ofMatrix(
+      sx, 0.0, 0.0, 0.0,
+      0.0, sy, 0.0, 0.0,
+      0.0, 0.0, sz, 0.0,
+      0.0, 0.0, 0.0, 1.0);
+  }
+
+  /**
+   * @param tx The translation along the X axis
+   * @param ty The translation along the Y axis
+   * @param tz The translation along the Z axis
+   *
+   * @return A translation
+   */
+
+  public static JOTransform translation(
+    final double tx,
+    final double ty,
+    final double tz)
+  {
+    return ofMatrix(
+      1.0, 0.0, 0.0, tx,
+      0.0, 1.0, 0.0, ty,
+      0.0, 0.0, 1.0, tz,
+      0.0, 0.0, 0.0, 1.0);
+  }
+
+  /**
+   * Create a transform from a matrix given in row-major order, such that
+   * the translation is given by elements {@code 3}, {@code 7}, and
+   * {@code 11}.
+   *
+   * @param elements The 16 matrix elements
+   *
+   * @return A transform
+   *
+   * @throws IllegalArgumentException If there are not exactly 16 elements,
+   *                                  or if any element is not finite
+   */
+
+  public static JOTransform ofMatrix(
+    final double... elements)
+    throws IllegalArgumentException
+  {
+    Objects.requireNonNull(elements, "Elements");
+    if (elements.length != 16) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Matrix must have 16 elements, but %d were given",
+          Integer.valueOf(elements.length)));
+    }
+    for (final double e : elements) {
+      if (!Double.isFinite(e)) {
+        throw new IllegalArgumentException(
+          "Matrix elements must be finite");
+      }
+    }
+    return new JOTransform(elements.clone());
+  }
+
+  /**
+   * @param row    The row in {@code [0, 3]}
+   * @param column The column in {@code [0, 3]}
+   *
+   * @return The matrix element at the given row and column
+   */
+
+  public double element(
+    final int row,
+    final int column)
+  {
+    Objects.checkIndex(row, 4);
+    Objects.checkIndex(column, 4);
+    return this.m[row * 4 + column];
+  }
+
+  /**
+   * Compose transforms.
+   *
+   * @param next The transform applied after this one
+   *
+   * @return A transform that applies this transform and then {@code next}
+   */
+
+  public JOTransform andThen(
+    final JOTransform next)
+  {
+    Objects.requireNonNull(next, "Next");
+    final double[] a = next.m;
+    final double[] b = this.m;
+    final double[] r = new double[16];
+    for (int row = 0; row < 4; ++row) {
+      for (int column = 0; column < 4; ++column) {
+        double sum = 0.0;
+        for (int k = 0; k < 4; ++k) {
+          sum += a[row * 4 + k] * b[k * 4 + column];
+        }
+        r[row * 4 + column] = sum;
+      }
+    }
+    return new JOTransform(r);
+  }
+
+  /**
+   * @return The determinant of the upper-left 3x3 part of the matrix; a
+   * negative determinant indicates that the transform mirrors geometry
+   */
+
+  public double determinant()
+  {
+    final double[] c = this.cofactors();
+    return this.m[0] * c[0] + this.m[1] * c[1] + this.m[2] * c[2];
+  }
+
+  /**
+   * @return The cofactors of the upper-left 3x3 part of the matrix, in
+   * row-major order; this is the inverse transpose scaled by the determinant
+   */
+
+  double[] cofactors()
+  {
+    final double a = this.m[0];
+    final double b = this.m[1];
+    final double c = this.m[2];
+    final double d = this.m[4];
+    final double e = this.m[5];
+    final double f = this.m[6];
+    final double g = this.m[8];
+    final double h = this.m[9];
+    final double i = this.m[10];
+    return new double[]{
+      e * i - f * h, f * g - d * i, d * h - e * g,
+      c * h - b * i, a * i - c * g, b * g - a * h,
+      b * f - c * e, c * d - a * f, a * e - b * d,
+    };
+  }
+
+  double[] elements()
+  {
+    return this.m.clone();
+  }
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
+      return false;
+    }
+    final JOTransform other = (JOTransform) o;
+    return Arrays.equals(this.m, other.m);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Arrays.hashCode(this.m);
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("[JOTransform %s]", Arrays.toString(this.m));
+  }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>A parser event listener that transforms positions and normals before
+ * passing them to another listener.</p>
+ *
+ * <p>Placing a transformer between a parser and a listener such as a
+ * {@link JOMeshBuilder} applies the transform to each value as it is parsed,
+ * while it is still in cache, rather than in a second pass over the
+ * finished vertex arrays. Positions are transformed as described by
+ * {@link JOTransform}; the {@code w} component of a position is passed
+ * through unchanged. Normals are transformed by the inverse transpose of
+ * the transform and renormalized. Texture coordinates, and all other
+ * events, are passed through unchanged. Numbers are always parsed at full
+ * precision and only rounded by the delegate after they are transformed,
+ * so that, for example, translating coordinates with large magnitudes
+ * towards zero does not lose precision.</p>
+ *
+ * <p>If the transform mirrors geometry (its determinant is negative), the
+ * corners of each face are delivered in reverse order so that the winding
+ * of faces relative to their normals is preserved. In this case, face
+ * corners are buffered until the face is complete, and so faces that
+ * contain errors are not delivered to the delegate; only the errors
+ * are.</p>
+ */
+
+public final class JOTransformer implements JOParserEventListenerType
+{
+  private static final int FORMAT_V = 0;
+  private static final int FORMAT_V_VT = 1;
+  private static final int FORMAT_V_VN = 2;
+  private static final int FORMAT_V_VT_VN = 3;
+
+  private final JOParserEventListenerType delegate;
+  private final double[] m;
+  private final double[] n;
+  private final boolean projective;
+  private final boolean mirror;
+  private int[] corners;
+  private int cornerCount;
+  private int format;
+
+  /**
+   * Construct a transformer.
+   *
+   * @param in_transform The transform
+   * @param in_delegate  The listener that will receive transformed values
+   *
+   * @throws IllegalArgumentException If the transform is not invertible,
+   *                                  and so cannot be applied to normals
+   */
+
+  public JOTransformer(
+    final JOTransform in_transform,
+    final JOParserEventListenerType in_delegate)
+    throws IllegalArgumentException
+  {
+    Objects.requireNonNull(in_transform, "Transform");
+    this.delegate = Objects.requireNonNull(in_delegate, "Delegate");
+
+    final double det = in_transform.determinant();
+    if (det == 0.0 || !Double.isFinite(det)) {
+      throw new IllegalArgumentException(
+        String.format("Transform is not invertible: %s", in_transform));
+    }
+
+    this.m = in_transform.elements();
+    this.projective = this.m[12] != 0.0
+      || this.m[13] != 0.0
+      || this.m[14] != 0.0
+      || this.m[15] != 1.0;
+
+    /*
+     * The cofactor matrix is the inverse transpose scaled by the
+     * determinant. Normals are renormalized after transformation, so only
+     * the sign of the determinant matters.
+     */
+
+    this.mirror = det < 0.0;
+    this.n = in_transform.cofactors();
+    if (this.mirror) {
+      for (int index = 0; index < this.n.length; ++index) {
+        this.n[index] = -this.n[index];
+      }
+    }
+    this.corners = new int[3 * 16];
+  }
+
+  private void addCorner(
+    final int in_format,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    final int offset = this.cornerCount * 3;
+    if (offset == this.corners.length) {
+      this.corners = Arrays.copyOf(this.corners, this.corners.length * 2);
+    }
+    this.corners[offset] = v;
+    this.corners[offset + 1] = vt;
+    this.corners[offset + 2] = vn;
+    this.format = in_format;
+    ++this.cornerCount;
+  }
+
+  private void emitCorner(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int corner)
+  {
+    final int base = corner * 3;
+    final int v = this.corners[base];
+    final int vt = this.corners[base + 1];
+    final int vn = this.corners[base + 2];
+    switch (this.format) {
+      case FORMAT_V_VT_VN:
+        this.delegate.onCommandFVertexV_VT_VN(p, index, v, vt, vn);
+        break;
+      case FORMAT_V_VT:
+        this.delegate.onCommandFVertexV_VT(p, index, v, vt);
+        break;
+      case FORMAT_V_VN:
+        this.delegate.onCommandFVertexV_VN(p, index, v, vn);
+        break;
+      default:
+        this.delegate.onCommandFVertexV(p, index, v);
+        break;
+    }
+  }
+
+  @Override
+  public Set<JOParserEventKind> interests()
+  {
+    return this.delegate.interests();
+  }
+
+  /**
+   * Values must be transformed before they are rounded, and so the
+   * transformer always receives full precision values, regardless of the
+   * precision requested by the delegate.
+   *
+   * @return {@code false}
+   */
+
+  @Override
+  public boolean singlePrecision()
+  {
+    return false;
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.delegate.onFatalError(p, e, message);
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    this.delegate.onError(p, e, message);
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    this.delegate.onLine(p, line);
+  }
+
+  @Override
+  public void onEOF(
+    final LexicalPositionType<Path> p)
+  {
+    this.delegate.onEOF(p);
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    this.delegate.onComment(p, text);
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandUsemtl(p, name);
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandMtllib(p, name);
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandO(p, name);
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    this.delegate.onCommandS(p, group_number);
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    final double[] t = this.m;
+    double rx = t[0] * x + t[1] * y + t[2] * z + t[3];
+    double ry = t[4] * x + t[5] * y + t[6] * z + t[7];
+    double rz = t[8] * x + t[9] * y + t[10] * z + t[11];
+    if (this.projective) {
+      final double rw = t[12] * x + t[13] * y + t[14] * z + t[15];
+      rx /= rw;
+      ry /= rw;
+      rz /= rw;
+    }
+    this.delegate.onCommandV(p, index, rx, ry, rz, w);
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    final double[] t = this.n;
+    double rx = t[0] * x + t[1] * y + t[2] * z;
+    double ry = t[3] * x + t[4] * y + t[5] * z;
+    double rz = t[6] * x + t[7] * y + t[8] * z;
+    final double length = Math.sqrt(rx * rx + ry * ry + rz * rz);
+    if (length > 0.0) {
+      rx /= length;
+      ry /= length;
+      rz /= length;
+    }
+    this.delegate.onCommandVN(p, index, rx, ry, rz);
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.delegate.onCommandVT(p, index, x, y, z);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    if (this.mirror) {
+      this.addCorner(FORMAT_V_VT_VN, v, vt, vn);
+    } else {
+      this.delegate.onCommandFVertexV_VT_VN(p, index, v, vt, vn);
+    }
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    if (this.mirror) {
+      this.addCorner(FORMAT_V_VT, v, vt, 0);
+    } else {
+      this.delegate.onCommandFVertexV_VT(p, index, v, vt);
+    }
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    if (this.mirror) {
+      this.addCorner(FORMAT_V_VN, v, 0, vn);
+    } else {
+      this.delegate.onCommandFVertexV_VN(p, index, v, vn);
+    }
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    if (this.mirror) {
+      this.addCorner(FORMAT_V, v, 0, 0);
+    } else {
+      this.delegate.onCommandFVertexV(p, index, v);
+    }
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.cornerCount = 0;
+    if (!this.mirror) {
+      this.delegate.onCommandFStarted(p, index);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>If the transform mirrors geometry, the buffered corners are delivered
+   * starting with the first corner and then in reverse order, so that a
+   * convex face remains a valid triangle fan around its first corner.</p>
+   */
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    if (this.mirror) {
+      this.delegate.onCommandFStarted(p, index);
+      this.emitCorner(p, index, 0);
+      for (int corner = this.cornerCount - 1; corner > 0; --corner) {
+        this.emitCorner(p, index, corner);
+      }
+      this.cornerCount = 0;
+    }
+    this.delegate.onCommandFFinished(p, index);
+  }
+}
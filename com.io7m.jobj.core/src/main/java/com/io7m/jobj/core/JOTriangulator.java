@@ -0,0 +1,548 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>A parser event listener that triangulates faces before passing them
+ * to another listener.</p>
+ *
+ * <p>Every face received is delivered to the delegate listener as one or
+ * more triangles, each bracketed by {@code onCommandFStarted} and
+ * {@code onCommandFFinished} calls that carry the index of the original
+ * face. Convex faces are triangulated as fans around their first corner,
+ * and concave faces are triangulated by ear clipping in the plane that best
+ * fits the face. The winding of the original face is preserved. All other
+ * events are passed through unchanged.</p>
+ *
+ * <p>Because a face cannot be triangulated until all of its corners are
+ * known, faces that contain errors are not delivered to the delegate at
+ * all; only the errors are. A face that refers to a {@code v} element whose
+ * own line contained an error cannot be triangulated either, and is
+ * reported to the delegate as a {@link JOParserErrorCode#JOP_ERROR_NONEXISTENT_V}
+ * error instead of being delivered.</p>
+ */
+
+public final class JOTriangulator implements JOParserEventListenerType
+{
+  private static final int FORMAT_V = 0;
+  private static final int FORMAT_V_VT = 1;
+  private static final int FORMAT_V_VN = 2;
+  private static final int FORMAT_V_VT_VN = 3;
+
+  private final JOParserEventListenerType delegate;
+  private final Set<JOParserEventKind> delegateInterests;
+  private final boolean forwardV;
+  private double[] positions;
+  private final BitSet defined;
+  private int[] corners;
+  private int cornerCount;
+  private int format;
+  private int[] next;
+  private int[] prev;
+  private double[] xs;
+  private double[] ys;
+
+  /**
+   * Construct a triangulator.
+   *
+   * @param in_delegate The listener that will receive triangles
+   */
+
+  public JOTriangulator(
+    final JOParserEventListenerType in_delegate)
+  {
+    this.delegate = Objects.requireNonNull(in_delegate, "Delegate");
+    this.delegateInterests = EnumSet.copyOf(in_delegate.interests());
+    this.forwardV =
+      this.delegateInterests.contains(JOParserEventKind.EVENT_COMMAND_V);
+    this.positions = new double[3 * 256];
+    this.defined = new BitSet(256);
+    this.corners = new int[3 * 16];
+    this.next = new int[16];
+    this.prev = new int[16];
+    this.xs = new double[16];
+    this.ys = new double[16];
+  }
+
+  private static double cross(
+    final double ax,
+    final double ay,
+    final double bx,
+    final double by,
+    final double cx,
+    final double cy)
+  {
+    return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+  }
+
+  private void addCorner(
+    final int in_format,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    final int offset = this.cornerCount * 3;
+    if (offset == this.corners.length) {
+      this.corners = Arrays.copyOf(this.corners, this.corners.length * 2);
+    }
+    this.corners[offset] = v;
+    this.corners[offset + 1] = vt;
+    this.corners[offset + 2] = vn;
+    this.format = in_format;
+    ++this.cornerCount;
+  }
+
+  private void emitCorner(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int corner)
+  {
+    final int base = corner * 3;
+    final int v = this.corners[base];
+    final int vt = this.corners[base + 1];
+    final int vn = this.corners[base + 2];
+    switch (this.format) {
+      case FORMAT_V_VT_VN:
+        this.delegate.onCommandFVertexV_VT_VN(p, index, v, vt, vn);
+        break;
+      case FORMAT_V_VT:
+        this.delegate.onCommandFVertexV_VT(p, index, v, vt);
+        break;
+      case FORMAT_V_VN:
+        this.delegate.onCommandFVertexV_VN(p, index, v, vn);
+        break;
+      default:
+        this.delegate.onCommandFVertexV(p, index, v);
+        break;
+    }
+  }
+
+  private void emitTriangle(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int a,
+    final int b,
+    final int c)
+  {
+    this.delegate.onCommandFStarted(p, index);
+    this.emitCorner(p, index, a);
+    this.emitCorner(p, index, b);
+    this.emitCorner(p, index, c);
+    this.delegate.onCommandFFinished(p, index);
+  }
+
+  /**
+   * Project the corners of the current face onto the plane perpendicular to
+   * the dominant axis of the face's Newell normal. The projection is
+   * mirrored if necessary so that the face always has counter-clockwise
+   * winding in the plane.
+   */
+
+  private void project()
+  {
+    final int count = this.cornerCount;
+    if (count > this.xs.length) {
+      final int size = Math.max(count, this.xs.length * 2);
+      this.xs = new double[size];
+      this.ys = new double[size];
+      this.next = new int[size];
+      this.prev = new int[size];
+    }
+
+    double nx = 0.0;
+    double ny = 0.0;
+    double nz = 0.0;
+    for (int index = 0; index < count; ++index) {
+      final int c = (this.corners[index * 3] - 1) * 3;
+      final int d = (this.corners[((index + 1) % count) * 3] - 1) * 3;
+      final double[] pos = this.positions;
+      nx += (pos[c + 1] - pos[d + 1]) * (pos[c + 2] + pos[d + 2]);
+      ny += (pos[c + 2] - pos[d + 2]) * (pos[c] + pos[d]);
+      nz += (pos[c] - pos[d]) * (pos[c + 1] + pos[d + 1]);
+    }
+
+    final double ax = Math.abs(nx);
+    final double ay = Math.abs(ny);
+    final double az = Math.abs(nz);
+
+    final int u_axis;
+    final int v_axis;
+    final double sign;
+    if (ax >= ay && ax >= az) {
+      u_axis = 1;
+      v_axis = 2;
+      sign = Math.signum(nx);
+    } else if (ay >= az) {
+      u_axis = 2;
+      v_axis = 0;
+      sign = Math.signum(ny);
+    } else {
+      u_axis = 0;
+      v_axis = 1;
+      sign = Math.signum(nz);
+    }
+
+    final double mirror = sign < 0.0 ? -1.0 : 1.0;
+    for (int index = 0; index < count; ++index) {
+      final int c = (this.corners[index * 3] - 1) * 3;
+      this.xs[index] = this.positions[c + u_axis] * mirror;
+      this.ys[index] = this.positions[c + v_axis];
+    }
+  }
+
+  private boolean isReflex(
+    final int a,
+    final int b,
+    final int c)
+  {
+    return cross(
+      this.xs[a], this.ys[a],
+      this.xs[b], this.ys[b],
+      this.xs[c], this.ys[c]) < 0.0;
+  }
+
+  private boolean isConvex()
+  {
+    final int count = this.cornerCount;
+    for (int index = 0; index < count; ++index) {
+      final int b = (index + 1) % count;
+      final int c = (index + 2) % count;
+      if (this.isReflex(index, b, c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean contains(
+    final int a,
+    final int b,
+    final int c,
+    final int p)
+  {
+    final double px = this.xs[p];
+    final double py = this.ys[p];
+    final boolean ab =
+      cross(this.xs[a], this.ys[a], this.xs[b], this.ys[b], px, py) >= 0.0;
+    final boolean bc =
+      cross(this.xs[b], this.ys[b], this.xs[c], this.ys[c], px, py) >= 0.0;
+    final boolean ca =
+      cross(this.xs[c], this.ys[c], this.xs[a], this.ys[a], px, py) >= 0.0;
+    return ab && bc && ca;
+  }
+
+  private boolean isEar(final int b)
+  {
+    final int a = this.prev[b];
+    final int c = this.next[b];
+    if (this.isReflex(a, b, c)) {
+      return false;
+    }
+
+    for (int p = this.next[c]; p != a; p = this.next[p]) {
+      if (this.isReflex(this.prev[p], p, this.next[p])
+        && this.contains(a, b, c, p)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void clipEars(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    final int count = this.cornerCount;
+    for (int corner = 0; corner < count; ++corner) {
+      this.next[corner] = (corner + 1) % count;
+      this.prev[corner] = (corner + count - 1) % count;
+    }
+
+    int remaining = count;
+    int current = 0;
+    int attempts = 0;
+    while (remaining > 3) {
+      if (this.isEar(current) || attempts == remaining) {
+        final int a = this.prev[current];
+        final int c = this.next[current];
+        this.emitTriangle(p, index, a, current, c);
+        this.next[a] = c;
+        this.prev[c] = a;
+        --remaining;
+        attempts = 0;
+        current = c;
+      } else {
+        ++attempts;
+        current = this.next[current];
+      }
+    }
+
+    this.emitTriangle(p, index, this.prev[current], current, this.next[current]);
+  }
+
+  /**
+   * @return The first position referred to by the current face that was
+   * not stored, or {@code 0} if all positions are present
+   */
+
+  private int missingPosition()
+  {
+    for (int corner = 0; corner < this.cornerCount; ++corner) {
+      final int v = this.corners[corner * 3];
+      if (!this.defined.get(v)) {
+        return v;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The triangulator is interested in the same events as its delegate,
+   * and additionally in {@code v} commands if the delegate is interested in
+   * faces, because positions are needed to triangulate faces.</p>
+   */
+
+  @Override
+  public Set<JOParserEventKind> interests()
+  {
+    final EnumSet<JOParserEventKind> kinds = EnumSet.noneOf(JOParserEventKind.class);
+    kinds.addAll(this.delegateInterests);
+    if (kinds.contains(JOParserEventKind.EVENT_COMMAND_F)) {
+      kinds.add(JOParserEventKind.EVENT_COMMAND_V);
+    }
+    return kinds;
+  }
+
+  @Override
+  public boolean singlePrecision()
+  {
+    return this.delegate.singlePrecision();
+  }
+
+  @Override
+  public void onFatalError(
+    final LexicalPositionType<Path> p,
+    final Optional<Throwable> e,
+    final String message)
+  {
+    this.delegate.onFatalError(p, e, message);
+  }
+
+  @Override
+  public void onError(
+    final LexicalPositionType<Path> p,
+    final JOParserErrorCode e,
+    final String message)
+  {
+    this.delegate.onError(p, e, message);
+  }
+
+  @Override
+  public void onLine(
+    final LexicalPositionType<Path> p,
+    final String line)
+  {
+    this.delegate.onLine(p, line);
+  }
+
+  @Override
+  public void onEOF(
+    final LexicalPositionType<Path> p)
+  {
+    this.delegate.onEOF(p);
+  }
+
+  @Override
+  public void onComment(
+    final LexicalPositionType<Path> p,
+    final String text)
+  {
+    this.delegate.onComment(p, text);
+  }
+
+  @Override
+  public void onCommandUsemtl(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandUsemtl(p, name);
+  }
+
+  @Override
+  public void onCommandMtllib(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandMtllib(p, name);
+  }
+
+  @Override
+  public void onCommandO(
+    final LexicalPositionType<Path> p,
+    final String name)
+  {
+    this.delegate.onCommandO(p, name);
+  }
+
+  @Override
+  public void onCommandS(
+    final LexicalPositionType<Path> p,
+    final int group_number)
+  {
+    this.delegate.onCommandS(p, group_number);
+  }
+
+  @Override
+  public void onCommandV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    final int offset = (index - 1) * 3;
+    if (offset + 3 > this.positions.length) {
+      this.positions = Arrays.copyOf(
+        this.positions, Math.max(offset + 3, this.positions.length * 2));
+    }
+    this.positions[offset] = x;
+    this.positions[offset + 1] = y;
+    this.positions[offset + 2] = z;
+    this.defined.set(index);
+    if (this.forwardV) {
+      this.delegate.onCommandV(p, index, x, y, z, w);
+    }
+  }
+
+  @Override
+  public void onCommandVN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.delegate.onCommandVN(p, index, x, y, z);
+  }
+
+  @Override
+  public void onCommandVT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.delegate.onCommandVT(p, index, x, y, z);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt,
+    final int vn)
+  {
+    this.addCorner(FORMAT_V_VT_VN, v, vt, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV_VT(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vt)
+  {
+    this.addCorner(FORMAT_V_VT, v, vt, 0);
+  }
+
+  @Override
+  public void onCommandFVertexV_VN(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v,
+    final int vn)
+  {
+    this.addCorner(FORMAT_V_VN, v, 0, vn);
+  }
+
+  @Override
+  public void onCommandFVertexV(
+    final LexicalPositionType<Path> p,
+    final int index,
+    final int v)
+  {
+    this.addCorner(FORMAT_V, v, 0, 0);
+  }
+
+  @Override
+  public void onCommandFStarted(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    this.cornerCount = 0;
+  }
+
+  @Override
+  public void onCommandFFinished(
+    final LexicalPositionType<Path> p,
+    final int index)
+  {
+    final int count = this.cornerCount;
+    final int missing = this.missingPosition();
+    if (missing != 0) {
+      if (this.delegateInterests.contains(JOParserEventKind.EVENT_ERROR)) {
+        this.delegate.onError(
+          p,
+          JOParserErrorCode.JOP_ERROR_NONEXISTENT_V,
+          String.format(
+            "Face refers to position %d, which was not successfully parsed",
+            Integer.valueOf(missing)));
+      }
+      this.cornerCount = 0;
+      return;
+    }
+
+    if (count == 3) {
+      this.emitTriangle(p, index, 0, 1, 2);
+    } else {
+      this.project();
+      if (this.isConvex()) {
+        for (int corner = 1; corner + 1 < count; ++corner) {
+          this.emitTriangle(p, index, 0, corner, corner + 1);
+        }
+      } else {
+        this.clipEars(p, index);
+      }
+    }
+    this.cornerCount = 0;
+  }
+}
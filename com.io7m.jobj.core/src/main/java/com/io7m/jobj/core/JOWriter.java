@@ -0,0 +1,496 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * <p>A writer that formats commands directly into a reusable byte buffer,
+ * and writes the buffer to a channel when it fills. Numbers are written in
+ * the shortest form that parses back to exactly the same value, without
+ * allocating.</p>
+ *
+ * <p>The channel is owned by the caller; closing the writer flushes any
+ * buffered output but does not close the channel.</p>
+ */
+
+public final class JOWriter implements JOWriterType
+{
+  /**
+   * The default size of the output buffer.
+   */
+
+  public static final int BUFFER_SIZE_DEFAULT = 65536;
+
+  private static final int FORMAT_NONE = -1;
+  private static final int FORMAT_V = 0;
+  private static final int FORMAT_V_VT = 1;
+  private static final int FORMAT_V_VN = 2;
+  private static final int FORMAT_V_VT_VN = 3;
+  private static final int INTEGER_LENGTH = 11;
+  private static final int LINE_LENGTH =
+    4 * (JODoubleFormatter.MAXIMUM_LENGTH + 1) + 4;
+
+  private final WritableByteChannel channel;
+  private final JODoubleFormatter formatter;
+  private final byte[] buffer;
+  private final ByteBuffer wrapper;
+  private int position;
+  private boolean face;
+  private int faceFormat;
+  private int faceCount;
+
+  private JOWriter(
+    final WritableByteChannel in_channel,
+    final int size)
+  {
+    this.channel = Objects.requireNonNull(in_channel, "Channel");
+    if (size < LINE_LENGTH) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Buffer size %d must be at least %d",
+          Integer.valueOf(size),
+          Integer.valueOf(LINE_LENGTH)));
+    }
+    this.formatter = new JODoubleFormatter();
+    this.buffer = new byte[size];
+    this.wrapper = ByteBuffer.wrap(this.buffer);
+    this.faceFormat = FORMAT_NONE;
+  }
+
+  /**
+   * Create a writer.
+   *
+   * @param channel The output channel
+   *
+   * @return A new writer
+   */
+
+  public static JOWriterType newWriter(
+    final WritableByteChannel channel)
+  {
+    return new JOWriter(channel, BUFFER_SIZE_DEFAULT);
+  }
+
+  /**
+   * Create a writer with the given buffer size.
+   *
+   * @param channel The output channel
+   * @param size    The size of the output buffer
+   *
+   * @return A new writer
+   */
+
+  public static JOWriterType newWriter(
+    final WritableByteChannel channel,
+    final int size)
+  {
+    return new JOWriter(channel, size);
+  }
+
+  /**
+   * Write the decimal digits of the given integer.
+   *
+   * @param out    The output buffer
+   * @param offset The offset at which to write
+   * @param value  The integer
+   *
+   * @return The offset one past the last byte written
+   */
+
+  static int formatInteger(
+    final byte[] out,
+    final int offset,
+    final int value)
+  {
+    int position = offset;
+    long v = value;
+    if (v < 0L) {
+      out[position] = '-';
+      ++position;
+      v = -v;
+    }
+
+    int len = 1;
+    for (long p = 10L; p <= v; p *= 10L) {
+      ++len;
+    }
+    return JODoubleFormatter.writeDigits(out, position, v, len);
+  }
+
+  private static void checkName(
+    final String name)
+  {
+    Objects.requireNonNull(name, "Name");
+    if (name.isEmpty()) {
+      throw new IllegalArgumentException("Names must be non-empty");
+    }
+    final int size = name.length();
+    for (int index = 0; index < size; ++index) {
+      final char c = name.charAt(index);
+      if (c <= ' ' || c == '#' || c == '\\') {
+        throw new IllegalArgumentException(
+          String.format(
+            "Names must not contain whitespace, '#', or '\\': \"%s\"",
+            name));
+      }
+    }
+  }
+
+  private void checkNotInFace()
+  {
+    if (this.face) {
+      throw new IllegalStateException("A face is currently being written");
+    }
+  }
+
+  private void ensure(
+    final int size)
+    throws IOException
+  {
+    if (this.position + size > this.buffer.length) {
+      this.flush();
+    }
+  }
+
+  private void put(
+    final byte b)
+  {
+    this.buffer[this.position] = b;
+    ++this.position;
+  }
+
+  private void putBytes(
+    final byte[] data)
+    throws IOException
+  {
+    int offset = 0;
+    while (offset < data.length) {
+      if (this.position == this.buffer.length) {
+        this.flush();
+      }
+      final int size =
+        Math.min(data.length - offset, this.buffer.length - this.position);
+      System.arraycopy(data, offset, this.buffer, this.position, size);
+      this.position += size;
+      offset += size;
+    }
+  }
+
+  private void putReal(
+    final double x)
+  {
+    this.put((byte) ' ');
+    this.position = this.formatter.format(x, this.buffer, this.position);
+  }
+
+  private void putInteger(
+    final int x)
+  {
+    this.position = formatInteger(this.buffer, this.position, x);
+  }
+
+  private void writeNamed(
+    final String command,
+    final String name)
+    throws IOException
+  {
+    this.checkNotInFace();
+    checkName(name);
+    this.putBytes(command.getBytes(StandardCharsets.US_ASCII));
+    this.putBytes(name.getBytes(StandardCharsets.UTF_8));
+    this.ensure(1);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeComment(
+    final String text)
+    throws IOException
+  {
+    Objects.requireNonNull(text, "Text");
+    this.checkNotInFace();
+    if (text.indexOf('\n') != -1 || text.indexOf('\r') != -1) {
+      throw new IllegalArgumentException(
+        "Comments must not contain line terminators");
+    }
+    this.ensure(2);
+    this.put((byte) '#');
+    this.put((byte) ' ');
+    this.putBytes(text.getBytes(StandardCharsets.UTF_8));
+    this.ensure(1);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeMtllib(
+    final String name)
+    throws IOException
+  {
+    this.writeNamed("mtllib ", name);
+  }
+
+  @Override
+  public void writeUsemtl(
+    final String name)
+    throws IOException
+  {
+    this.writeNamed("usemtl ", name);
+  }
+
+  @Override
+  public void writeO(
+    final String name)
+    throws IOException
+  {
+    this.writeNamed("o ", name);
+  }
+
+  @Override
+  public void writeS(
+    final int group_number)
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.ensure(INTEGER_LENGTH + 3);
+    this.put((byte) 's');
+    this.put((byte) ' ');
+    if (group_number == 0) {
+      this.put((byte) 'o');
+      this.put((byte) 'f');
+      this.put((byte) 'f');
+    } else {
+      this.putInteger(group_number);
+    }
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeV(
+    final double x,
+    final double y,
+    final double z)
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.ensure(LINE_LENGTH);
+    this.put((byte) 'v');
+    this.putReal(x);
+    this.putReal(y);
+    this.putReal(z);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeV(
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.ensure(LINE_LENGTH);
+    this.put((byte) 'v');
+    this.putReal(x);
+    this.putReal(y);
+    this.putReal(z);
+    this.putReal(w);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeVT(
+    final double u)
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.ensure(LINE_LENGTH);
+    this.put((byte) 'v');
+    this.put((byte) 't');
+    this.putReal(u);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeVT(
+    final double u,
+    final double v)
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.ensure(LINE_LENGTH);
+    this.put((byte) 'v');
+    this.put((byte) 't');
+    this.putReal(u);
+    this.putReal(v);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeVT(
+    final double u,
+    final double v,
+    final double w)
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.ensure(LINE_LENGTH);
+    this.put((byte) 'v');
+    this.put((byte) 't');
+    this.putReal(u);
+    this.putReal(v);
+    this.putReal(w);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeVN(
+    final double x,
+    final double y,
+    final double z)
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.ensure(LINE_LENGTH);
+    this.put((byte) 'v');
+    this.put((byte) 'n');
+    this.putReal(x);
+    this.putReal(y);
+    this.putReal(z);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void writeFStart()
+    throws IOException
+  {
+    this.checkNotInFace();
+    this.face = true;
+    this.faceFormat = FORMAT_NONE;
+    this.faceCount = 0;
+    this.ensure(1);
+    this.put((byte) 'f');
+  }
+
+  private void faceVertex(
+    final int format)
+    throws IOException
+  {
+    if (!this.face) {
+      throw new IllegalStateException("No face is currently being written");
+    }
+    if (this.faceFormat != FORMAT_NONE && this.faceFormat != format) {
+      throw new IllegalStateException(
+        "All vertices of a face must have the same format");
+    }
+    this.faceFormat = format;
+    ++this.faceCount;
+    this.ensure(3 * INTEGER_LENGTH + 4);
+    this.put((byte) ' ');
+  }
+
+  @Override
+  public void writeFVertexV(
+    final int v)
+    throws IOException
+  {
+    this.faceVertex(FORMAT_V);
+    this.putInteger(v);
+  }
+
+  @Override
+  public void writeFVertexV_VT(
+    final int v,
+    final int vt)
+    throws IOException
+  {
+    this.faceVertex(FORMAT_V_VT);
+    this.putInteger(v);
+    this.put((byte) '/');
+    this.putInteger(vt);
+  }
+
+  @Override
+  public void writeFVertexV_VN(
+    final int v,
+    final int vn)
+    throws IOException
+  {
+    this.faceVertex(FORMAT_V_VN);
+    this.putInteger(v);
+    this.put((byte) '/');
+    this.put((byte) '/');
+    this.putInteger(vn);
+  }
+
+  @Override
+  public void writeFVertexV_VT_VN(
+    final int v,
+    final int vt,
+    final int vn)
+    throws IOException
+  {
+    this.faceVertex(FORMAT_V_VT_VN);
+    this.putInteger(v);
+    this.put((byte) '/');
+    this.putInteger(vt);
+    this.put((byte) '/');
+    this.putInteger(vn);
+  }
+
+  @Override
+  public void writeFFinish()
+    throws IOException
+  {
+    if (!this.face) {
+      throw new IllegalStateException("No face is currently being written");
+    }
+    if (this.faceCount < 3) {
+      throw new IllegalStateException(
+        String.format(
+          "Faces must have at least three vertices (received %d)",
+          Integer.valueOf(this.faceCount)));
+    }
+    this.face = false;
+    this.ensure(1);
+    this.put((byte) '\n');
+  }
+
+  @Override
+  public void flush()
+    throws IOException
+  {
+    this.wrapper.clear();
+    this.wrapper.limit(this.position);
+    while (this.wrapper.hasRemaining()) {
+      this.channel.write(this.wrapper);
+    }
+    this.position = 0;
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.flush();
+  }
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * <p>A writer that formats large arrays of vertex attributes and triangle
+ * indices in parallel on a caller-supplied pool. The elements are divided
+ * into fixed-size slices, each slice is formatted into its own byte buffer,
+ * and the buffers are written to the channel in order, so the output for
+ * double elements is exactly the output that the equivalent sequence of
+ * {@link JOWriter} calls would produce. At most a bounded number of slices
+ * are in flight at any one time, so memory use does not grow with the size
+ * of the input.</p>
+ *
+ * <p>Float elements are written in the shortest form that parses back to
+ * exactly the same float, rather than the shortest form of the equivalent
+ * double.</p>
+ *
+ * <p>The channel is owned by the caller. Any output written to the channel
+ * by other writers, such as headers written with a {@link JOWriter}, must be
+ * flushed before each call to this writer.</p>
+ *
+ * @see JOWriter
+ */
+
+public final class JOWriterParallel
+{
+  /**
+   * The default number of elements in each slice.
+   */
+
+  public static final int SLICE_SIZE_DEFAULT = 16384;
+
+  private static final byte[] PREFIX_V = {'v'};
+  private static final byte[] PREFIX_VT = {'v', 't'};
+  private static final byte[] PREFIX_VN = {'v', 'n'};
+  private static final int INTEGER_LENGTH = 11;
+  private static final int FACE_LENGTH = 3 * (3 * INTEGER_LENGTH + 3) + 2;
+
+  private final WritableByteChannel channel;
+  private final ForkJoinPool pool;
+  private final int sliceSize;
+
+  private JOWriterParallel(
+    final WritableByteChannel in_channel,
+    final ForkJoinPool in_pool,
+    final int in_slice_size)
+  {
+    this.channel = Objects.requireNonNull(in_channel, "Channel");
+    this.pool = Objects.requireNonNull(in_pool, "Pool");
+    if (in_slice_size <= 0) {
+      throw new IllegalArgumentException("Slice size must be positive");
+    }
+    this.sliceSize = in_slice_size;
+  }
+
+  /**
+   * Create a writer that formats slices of {@link #SLICE_SIZE_DEFAULT}
+   * elements in parallel.
+   *
+   * @param channel The output channel
+   * @param pool    The pool on which slices are formatted
+   *
+   * @return A new writer
+   */
+
+  public static JOWriterParallel newWriter(
+    final WritableByteChannel channel,
+    final ForkJoinPool pool)
+  {
+    return new JOWriterParallel(channel, pool, SLICE_SIZE_DEFAULT);
+  }
+
+  /**
+   * Create a writer that formats slices of the given number of elements in
+   * parallel.
+   *
+   * @param channel    The output channel
+   * @param pool       The pool on which slices are formatted
+   * @param slice_size The number of elements (vertices, or triangles) in
+   *                   each slice
+   *
+   * @return A new writer
+   */
+
+  public static JOWriterParallel newWriter(
+    final WritableByteChannel channel,
+    final ForkJoinPool pool,
+    final int slice_size)
+  {
+    return new JOWriterParallel(channel, pool, slice_size);
+  }
+
+  private static int elements(
+    final int length,
+    final int stride,
+    final String name)
+  {
+    if (length % stride != 0) {
+      throw new IllegalArgumentException(
+        String.format(
+          "The length of the %s array (%d) must be a multiple of %d",
+          name,
+          Integer.valueOf(length),
+          Integer.valueOf(stride)));
+    }
+    return length / stride;
+  }
+
+  /**
+   * Write a {@code v} command for each consecutive {@code (x, y, z)} triple
+   * of the given array.
+   *
+   * @param positions The positions
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeV(
+    final double[] positions)
+    throws IOException
+  {
+    Objects.requireNonNull(positions, "Positions");
+    this.writeAttributes(
+      PREFIX_V,
+      elements(positions.length, 3, "position"),
+      3,
+      index -> positions[index],
+      false);
+  }
+
+  /**
+   * Write a {@code v} command for each consecutive {@code (x, y, z)} triple
+   * of the given array.
+   *
+   * @param positions The positions
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeV(
+    final float[] positions)
+    throws IOException
+  {
+    Objects.requireNonNull(positions, "Positions");
+    this.writeAttributes(
+      PREFIX_V,
+      elements(positions.length, 3, "position"),
+      3,
+      index -> (double) positions[index],
+      true);
+  }
+
+  /**
+   * Write a {@code vt} command for each consecutive {@code (u, v)} pair of
+   * the given array.
+   *
+   * @param uvs The texture coordinates
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeVT(
+    final double[] uvs)
+    throws IOException
+  {
+    Objects.requireNonNull(uvs, "UVs");
+    this.writeAttributes(
+      PREFIX_VT,
+      elements(uvs.length, 2, "texture coordinate"),
+      2,
+      index -> uvs[index],
+      false);
+  }
+
+  /**
+   * Write a {@code vt} command for each consecutive {@code (u, v)} pair of
+   * the given array.
+   *
+   * @param uvs The texture coordinates
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeVT(
+    final float[] uvs)
+    throws IOException
+  {
+    Objects.requireNonNull(uvs, "UVs");
+    this.writeAttributes(
+      PREFIX_VT,
+      elements(uvs.length, 2, "texture coordinate"),
+      2,
+      index -> (double) uvs[index],
+      true);
+  }
+
+  /**
+   * Write a {@code vn} command for each consecutive {@code (x, y, z)} triple
+   * of the given array.
+   *
+   * @param normals The normals
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeVN(
+    final double[] normals)
+    throws IOException
+  {
+    Objects.requireNonNull(normals, "Normals");
+    this.writeAttributes(
+      PREFIX_VN,
+      elements(normals.length, 3, "normal"),
+      3,
+      index -> normals[index],
+      false);
+  }
+
+  /**
+   * Write a {@code vn} command for each consecutive {@code (x, y, z)} triple
+   * of the given array.
+   *
+   * @param normals The normals
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeVN(
+    final float[] normals)
+    throws IOException
+  {
+    Objects.requireNonNull(normals, "Normals");
+    this.writeAttributes(
+      PREFIX_VN,
+      elements(normals.length, 3, "normal"),
+      3,
+      index -> (double) normals[index],
+      true);
+  }
+
+  /**
+   * Write an {@code f} command for each consecutive triple of the given
+   * array. Indices are zero-based, and the same index is used for the
+   * position and for any texture coordinates and normals, as in
+   * {@link JOMesh}: the index {@code i} is written as {@code i + 1},
+   * {@code i + 1/i + 1}, {@code i + 1//i + 1}, or
+   * {@code i + 1/i + 1/i + 1}.
+   *
+   * @param indices             The triangle indices
+   * @param texture_coordinates {@code true} iff faces refer to texture
+   *                            coordinates
+   * @param normals             {@code true} iff faces refer to normals
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeTriangles(
+    final int[] indices,
+    final boolean texture_coordinates,
+    final boolean normals)
+    throws IOException
+  {
+    Objects.requireNonNull(indices, "Indices");
+    this.writeFaces(
+      0,
+      elements(indices.length, 3, "index"),
+      index -> indices[index],
+      texture_coordinates,
+      normals);
+  }
+
+  /**
+   * Write the given mesh: all positions, texture coordinates and normals,
+   * followed by the triangles of each group in order. Each group's triangles
+   * are preceded by an {@code o} command and a {@code usemtl} command if the
+   * group has an object name or a material name that differs from that of
+   * the preceding group. If any group has an origin, positions are written
+   * in absolute coordinates by adding the origin of the group that uses
+   * them.
+   *
+   * @param mesh The mesh
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeMesh(
+    final JOMesh mesh)
+    throws IOException
+  {
+    Objects.requireNonNull(mesh, "Mesh");
+
+    final int count = mesh.vertexCount();
+    final FloatBuffer positions = mesh.positions();
+    final List<JOMeshGroup> groups = mesh.groups();
+    if (groups.stream().anyMatch(JOMeshGroup::hasOrigin)) {
+      final double[] origins = vertexOrigins(mesh);
+      this.writeAttributes(
+        PREFIX_V,
+        count,
+        3,
+        index -> (double) positions.get(index) + origins[index],
+        false);
+    } else {
+      this.writeAttributes(
+        PREFIX_V, count, 3, index -> (double) positions.get(index), true);
+    }
+
+    final boolean uvs = mesh.hasTextureCoordinates();
+    if (uvs) {
+      final FloatBuffer data = mesh.textureCoordinates();
+      this.writeAttributes(
+        PREFIX_VT, count, 2, index -> (double) data.get(index), true);
+    }
+
+    final boolean normals = mesh.hasNormals();
+    if (normals) {
+      final FloatBuffer data = mesh.normals();
+      this.writeAttributes(
+        PREFIX_VN, count, 3, index -> (double) data.get(index), true);
+    }
+
+    final IntBuffer indices = mesh.indices();
+    final IntUnaryOperator get = indices::get;
+    if (groups.isEmpty()) {
+      this.writeFaces(0, mesh.triangleCount(), get, uvs, normals);
+      return;
+    }
+
+    Optional<String> object = Optional.empty();
+    Optional<String> material = Optional.empty();
+    for (final JOMeshGroup group : groups) {
+      if (group.object().isPresent() && !group.object().equals(object)) {
+        this.writeNamed("o ", group.object().get());
+      }
+      if (group.material().isPresent() && !group.material().equals(material)) {
+        this.writeNamed("usemtl ", group.material().get());
+      }
+      object = group.object();
+      material = group.material();
+      this.writeFaces(
+        group.firstIndex() / 3, group.indexCount() / 3, get, uvs, normals);
+    }
+  }
+
+  /**
+   * Determine the origin of each vertex from the groups that refer to it.
+   * The mesh builder never shares a vertex between groups with different
+   * origins.
+   */
+
+  private static double[] vertexOrigins(
+    final JOMesh mesh)
+  {
+    final double[] origins = new double[mesh.vertexCount() * 3];
+    final IntBuffer indices = mesh.indices();
+    for (final JOMeshGroup group : mesh.groups()) {
+      final int end = group.firstIndex() + group.indexCount();
+      for (int index = group.firstIndex(); index < end; ++index) {
+        final int base = indices.get(index) * 3;
+        origins[base] = group.originX();
+        origins[base + 1] = group.originY();
+        origins[base + 2] = group.originZ();
+      }
+    }
+    return origins;
+  }
+
+  private void writeNamed(
+    final String command,
+    final String name)
+    throws IOException
+  {
+    final byte[] prefix = command.getBytes(StandardCharsets.US_ASCII);
+    final byte[] text = name.getBytes(StandardCharsets.UTF_8);
+    final byte[] line = Arrays.copyOf(prefix, prefix.length + text.length + 1);
+    System.arraycopy(text, 0, line, prefix.length, text.length);
+    line[line.length - 1] = '\n';
+    this.write(new Slice(line, line.length));
+  }
+
+  private void writeAttributes(
+    final byte[] prefix,
+    final int count,
+    final int stride,
+    final IntToDoubleFunction get,
+    final boolean single)
+    throws IOException
+  {
+    this.run(count, (start, end) -> {
+      final JODoubleFormatter formatter = new JODoubleFormatter();
+      final int line =
+        prefix.length + stride * (JODoubleFormatter.MAXIMUM_LENGTH + 1) + 1;
+      final Slice slice = new Slice((end - start) * (line / 2));
+      for (int element = start; element < end; ++element) {
+        slice.ensure(line);
+        final byte[] out = slice.data;
+        int position = slice.size;
+        System.arraycopy(prefix, 0, out, position, prefix.length);
+        position += prefix.length;
+        for (int c = 0; c < stride; ++c) {
+          out[position] = ' ';
+          final double x = get.applyAsDouble(element * stride + c);
+          if (single) {
+            position = formatter.format((float) x, out, position + 1);
+          } else {
+            position = formatter.format(x, out, position + 1);
+          }
+        }
+        out[position] = '\n';
+        slice.size = position + 1;
+      }
+      return slice;
+    });
+  }
+
+  private void writeFaces(
+    final int first,
+    final int count,
+    final IntUnaryOperator get,
+    final boolean uvs,
+    final boolean normals)
+    throws IOException
+  {
+    this.run(count, (start, end) -> {
+      final Slice slice = new Slice((end - start) * FACE_LENGTH / 2);
+      for (int triangle = first + start; triangle < first + end; ++triangle) {
+        slice.ensure(FACE_LENGTH);
+        final byte[] out = slice.data;
+        int position = slice.size;
+        out[position] = 'f';
+        ++position;
+        for (int k = 0; k < 3; ++k) {
+          final int v = get.applyAsInt(triangle * 3 + k) + 1;
+          out[position] = ' ';
+          position = JOWriter.formatInteger(out, position + 1, v);
+          if (uvs) {
+            out[position] = '/';
+            position = JOWriter.formatInteger(out, position + 1, v);
+          }
+          if (normals) {
+            if (!uvs) {
+              out[position] = '/';
+              ++position;
+            }
+            out[position] = '/';
+            position = JOWriter.formatInteger(out, position + 1, v);
+          }
+        }
+        out[position] = '\n';
+        slice.size = position + 1;
+      }
+      return slice;
+    });
+  }
+
+  /**
+   * Format the elements {@code [0, count)} in slices on the pool, and write
+   * the slices to the channel in order.
+   */
+
+  private void run(
+    final int count,
+    final SliceFormatterType formatter)
+    throws IOException
+  {
+    final int size = this.sliceSize;
+    final int slices = (int) (((long) count + (long) size - 1L) / (long) size);
+    final int window = Math.max(2, this.pool.getParallelism() * 2);
+    final ArrayDeque<ForkJoinTask<Slice>> pending = new ArrayDeque<>(window);
+
+    try {
+      int submitted = 0;
+      for (int index = 0; index < slices; ++index) {
+        while (submitted < slices && pending.size() < window) {
+          final int start = submitted * size;
+          final int end = Math.min(count, start + size);
+          pending.add(this.pool.submit(() -> formatter.format(start, end)));
+          ++submitted;
+        }
+        this.write(pending.remove().join());
+      }
+    } finally {
+      for (final ForkJoinTask<Slice> task : pending) {
+        task.cancel(true);
+      }
+    }
+  }
+
+  private void write(
+    final Slice slice)
+    throws IOException
+  {
+    final ByteBuffer buffer = ByteBuffer.wrap(slice.data, 0, slice.size);
+    while (buffer.hasRemaining()) {
+      this.channel.write(buffer);
+    }
+  }
+
+  private interface SliceFormatterType
+  {
+    Slice format(
+      int start,
+      int end);
+  }
+
+  private static final class Slice
+  {
+    private byte[] data;
+    private int size;
+
+    Slice(
+      final int capacity)
+    {
+      this.data = new byte[Math.max(capacity, 64)];
+    }
+
+    Slice(
+      final byte[] in_data,
+      final int in_size)
+    {
+      this.data = in_data;
+      this.size = in_size;
+    }
+
+    void ensure(
+      final int extra)
+    {
+      if (this.size + extra > this.data.length) {
+        this.data = Arrays.copyOf(
+          this.data, Math.max(this.data.length * 2, this.size + extra));
+      }
+    }
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The type of OBJ writers. Commands are written in the order that the
+ * methods are called. Output is buffered; {@link #flush()} writes any
+ * buffered output, and {@link #close()} flushes the writer.
+ *
+ * <p>A face is written by calling {@link #writeFStart()}, then one of the
+ * {@code writeFVertex} methods for each vertex, and then
+ * {@link #writeFFinish()}. All vertices of a face must have the same
+ * format, and a face must have at least three vertices.</p>
+ */
+
+public interface JOWriterType extends Closeable
+{
+  /**
+   * Write a comment.
+   *
+   * @param text The comment text, which must not contain line terminators
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeComment(String text)
+    throws IOException;
+
+  /**
+   * Write an {@code mtllib} command.
+   *
+   * @param name The name of the material library
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeMtllib(String name)
+    throws IOException;
+
+  /**
+   * Write a {@code usemtl} command.
+   *
+   * @param name The name of the material
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeUsemtl(String name)
+    throws IOException;
+
+  /**
+   * Write an {@code o} command.
+   *
+   * @param name The name of the object
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeO(String name)
+    throws IOException;
+
+  /**
+   * Write an {@code s} command.
+   *
+   * @param group_number The smoothing group, or {@code 0} for {@code off}
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeS(int group_number)
+    throws IOException;
+
+  /**
+   * Write a {@code v} command.
+   *
+   * @param x The x value
+   * @param y The y value
+   * @param z The z value
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeV(
+    double x,
+    double y,
+    double z)
+    throws IOException;
+
+  /**
+   * Write a {@code v} command with a {@code w} component.
+   *
+   * @param x The x value
+   * @param y The y value
+   * @param z The z value
+   * @param w The w value
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeV(
+    double x,
+    double y,
+    double z,
+    double w)
+    throws IOException;
+
+  /**
+   * Write a {@code vt} command with one component.
+   *
+   * @param u The u value
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeVT(double u)
+    throws IOException;
+
+  /**
+   * Write a {@code vt} command with two components.
+   *
+   * @param u The u value
+   * @param v The v value
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeVT(
+    double u,
+    double v)
+    throws IOException;
+
+  /**
+   * Write a {@code vt} command with three components.
+   *
+   * @param u The u value
+   * @param v The v value
+   * @param w The w value
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeVT(
+    double u,
+    double v,
+    double w)
+    throws IOException;
+
+  /**
+   * Write a {@code vn} command.
+   *
+   * @param x The x value
+   * @param y The y value
+   * @param z The z value
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeVN(
+    double x,
+    double y,
+    double z)
+    throws IOException;
+
+  /**
+   * Start writing an {@code f} command.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeFStart()
+    throws IOException;
+
+  /**
+   * Write a face vertex of the form {@code v}.
+   *
+   * @param v The vertex index
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeFVertexV(int v)
+    throws IOException;
+
+  /**
+   * Write a face vertex of the form {@code v/vt}.
+   *
+   * @param v  The vertex index
+   * @param vt The texture coordinate index
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeFVertexV_VT(
+    int v,
+    int vt)
+    throws IOException;
+
+  /**
+   * Write a face vertex of the form {@code v//vn}.
+   *
+   * @param v  The vertex index
+   * @param vn The normal index
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeFVertexV_VN(
+    int v,
+    int vn)
+    throws IOException;
+
+  /**
+   * Write a face vertex of the form {@code v/vt/vn}.
+   *
+   * @param v  The vertex index
+   * @param vt The texture coordinate index
+   * @param vn The normal index
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeFVertexV_VT_VN(
+    int v,
+    int vt,
+    int vn)
+    throws IOException;
+
+  /**
+   * Finish writing an {@code f} command.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeFFinish()
+    throws IOException;
+
+  /**
+   * Write any buffered output.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void flush()
+    throws IOException;
+}
@@ -25,6 +25,7 @@ module com.io7m.jobj.core
 
   requires org.slf4j;
   requires com.io7m.jlexing.core;
+  requires jdk.jfr;
 
   exports com.io7m.jobj.core;
 }
\ No newline at end of file
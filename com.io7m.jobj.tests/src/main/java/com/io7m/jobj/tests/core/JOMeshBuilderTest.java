@@ -0,0 +1,467 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jobj.core.JOMesh;
+import com.io7m.jobj.core.JOMeshAllocatorType;
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOMeshGroup;
+import com.io7m.jobj.core.JOMeshOriginKind;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public final class JOMeshBuilderTest
+{
+  private static JOMeshBuilder parse(final String name)
+    throws Exception
+  {
+    return parse(name, new JOMeshBuilder());
+  }
+
+  private static JOMeshBuilder parse(
+    final String name,
+    final JOMeshBuilder b)
+    throws Exception
+  {
+    try (InputStream is = JOMeshBuilderTest.class.getResourceAsStream(name)) {
+      final JOParserType p =
+        JOParser.newParserFromStream(Optional.of(Paths.get(name)), is, b);
+      p.run();
+    }
+    return b;
+  }
+
+  private static final double[] UTM = {
+    500000.1, 5000000.3, 100.2,
+    500010.4, 5000000.3, 100.2,
+    500010.4, 5000010.6, 101.7,
+    600000.5, 6000000.7, 0.1,
+    600004.5, 6000000.7, 0.1,
+    600004.5, 6000008.9, 2.3,
+    500000.1, 5000000.3, 100.2,
+  };
+
+  /**
+   * Check that each position, plus the origin of its group, is close to
+   * the original coordinate. The last vertex refers to a position of
+   * object "a" from object "b", and so its offset is large and less
+   * precise.
+   */
+
+  private static void checkAbsolute(
+    final JOMesh m)
+  {
+    final FloatBuffer positions = m.positions();
+    final IntBuffer indices = m.indices();
+    for (final JOMeshGroup group : m.groups()) {
+      final double[] origin = {
+        group.originX(), group.originY(), group.originZ(),
+      };
+      final int end = group.firstIndex() + group.indexCount();
+      for (int index = group.firstIndex(); index < end; ++index) {
+        final int vertex = indices.get(index);
+        final double delta = vertex == 6 ? 0.05 : 1.0e-5;
+        for (int axis = 0; axis < 3; ++axis) {
+          Assert.assertEquals(
+            UTM[vertex * 3 + axis],
+            (double) positions.get(vertex * 3 + axis) + origin[axis],
+            delta);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testOriginFirstVertex()
+    throws Exception
+  {
+    final JOMeshBuilder b = parse(
+      "utm.obj",
+      new JOMeshBuilder(
+        ByteBuffer::allocate, JOMeshOriginKind.ORIGIN_FIRST_VERTEX));
+    Assert.assertEquals(0L, (long) b.errorCount());
+    Assert.assertFalse(b.singlePrecision());
+
+    final JOMesh m = b.build();
+    Assert.assertEquals(7L, (long) m.vertexCount());
+    Assert.assertEquals(
+      List.of(
+        JOMeshGroup.of(
+          Optional.of("a"), Optional.empty(), 0, 3,
+          500000.1, 5000000.3, 100.2),
+        JOMeshGroup.of(
+          Optional.of("b"), Optional.empty(), 3, 6,
+          600000.5, 6000000.7, 0.1)),
+      m.groups());
+
+    final FloatBuffer positions = m.positions();
+    Assert.assertEquals(0.0, positions.get(0), 0.0);
+    Assert.assertEquals(0.0, positions.get(3 * 3), 0.0);
+    Assert.assertEquals(10.3, positions.get(3 + 0), 1.0e-6);
+
+    /*
+     * The vertex that refers to a position of object "a" from object "b"
+     * is stored relative to the origin of "b".
+     */
+
+    Assert.assertEquals(-100000.4, positions.get(6 * 3), 0.01);
+    checkAbsolute(m);
+  }
+
+  @Test
+  public void testOriginBoundsCenter()
+    throws Exception
+  {
+    final JOMeshBuilder b = parse(
+      "utm.obj",
+      new JOMeshBuilder(
+        ByteBuffer::allocate, JOMeshOriginKind.ORIGIN_BOUNDS_CENTER));
+    final JOMesh m = b.build();
+
+    final JOMeshGroup a = m.groups().get(0);
+    Assert.assertEquals(500005.25, a.originX(), 1.0e-6);
+    Assert.assertEquals(5000005.45, a.originY(), 1.0e-6);
+    Assert.assertEquals(100.95, a.originZ(), 1.0e-6);
+
+    final JOMeshGroup g = m.groups().get(1);
+    Assert.assertEquals(600002.5, g.originX(), 1.0e-6);
+    Assert.assertEquals(6000004.8, g.originY(), 1.0e-6);
+    Assert.assertEquals(1.2, g.originZ(), 1.0e-6);
+
+    final FloatBuffer positions = m.positions();
+    for (int index = 0; index < 6 * 3; ++index) {
+      Assert.assertTrue(Math.abs(positions.get(index)) <= 5.2f);
+    }
+    checkAbsolute(m);
+  }
+
+  @Test
+  public void testOriginPrecision()
+    throws Exception
+  {
+    final JOMesh plain = parse("utm.obj").build();
+    final JOMesh rebased = parse(
+      "utm.obj",
+      new JOMeshBuilder(
+        ByteBuffer::allocate, JOMeshOriginKind.ORIGIN_FIRST_VERTEX)).build();
+
+    for (final JOMeshGroup group : plain.groups()) {
+      Assert.assertFalse(group.hasOrigin());
+    }
+
+    final double y = 5000010.6;
+    Assert.assertTrue(Math.abs(plain.positions().get(2 * 3 + 1) - y) > 0.05);
+
+    final JOMeshGroup a = rebased.groups().get(0);
+    Assert.assertEquals(
+      y,
+      (double) rebased.positions().get(2 * 3 + 1) + a.originY(),
+      1.0e-5);
+  }
+
+  @Test
+  public void testQuads()
+    throws Exception
+  {
+    final JOMeshBuilder b = parse("quads.obj");
+    Assert.assertEquals(1L, (long) b.errorCount());
+
+    final JOMesh m = b.build();
+    Assert.assertTrue(m.hasNormals());
+    Assert.assertTrue(m.hasTextureCoordinates());
+    Assert.assertEquals(5L, (long) m.triangleCount());
+    Assert.assertEquals(11L, (long) m.vertexCount());
+    Assert.assertEquals(8L, (long) m.interleavedStride());
+
+    final IntBuffer indices = m.indices();
+    Assert.assertEquals(15L, (long) indices.remaining());
+    final int[] expected = {
+      0, 1, 2,
+      0, 2, 3,
+      4, 5, 6,
+      4, 6, 7,
+      8, 9, 10,
+    };
+    for (int index = 0; index < expected.length; ++index) {
+      Assert.assertEquals((long) expected[index], (long) indices.get(index));
+    }
+
+    final FloatBuffer positions = m.positions();
+    Assert.assertEquals(33L, (long) positions.remaining());
+    Assert.assertEquals(2.0, positions.get(5 * 3), 0.0);
+    Assert.assertEquals(1.0, positions.get(6 * 3 + 1), 0.0);
+
+    final FloatBuffer normals = m.normals();
+    Assert.assertEquals(1.0, normals.get(2), 0.0);
+    Assert.assertEquals(-1.0, normals.get(8 * 3 + 2), 0.0);
+
+    final FloatBuffer inter = m.interleaved();
+    Assert.assertEquals(88L, (long) inter.remaining());
+    Assert.assertEquals(1.0, inter.get(8 + 3), 0.0);
+    Assert.assertEquals(1.0, inter.get(8 + 7), 0.0);
+  }
+
+  @Test
+  public void testShared()
+    throws Exception
+  {
+    final JOMeshBuilder b = parse("tri.obj");
+    Assert.assertEquals(0L, (long) b.errorCount());
+
+    final JOMesh m = b.build();
+    Assert.assertEquals(1L, (long) m.triangleCount());
+    Assert.assertEquals(3L, (long) m.vertexCount());
+  }
+
+  @Test
+  public void testDeduplicate()
+    throws Exception
+  {
+    final JOMeshBuilder b = parse("f_v.obj");
+    final JOMesh m = b.build();
+    Assert.assertFalse(m.hasNormals());
+    Assert.assertFalse(m.hasTextureCoordinates());
+    Assert.assertEquals(3L, (long) m.interleavedStride());
+    Assert.assertEquals(1L, (long) m.triangleCount());
+    Assert.assertEquals(1L, (long) m.vertexCount());
+  }
+
+  @Test
+  public void testGrid()
+  {
+    final int size = 100;
+    final StringBuilder sb = new StringBuilder(1 << 20);
+    for (int y = 0; y <= size; ++y) {
+      for (int x = 0; x <= size; ++x) {
+        sb.append(String.format("v %d.0 %d.0 0.0\n", x, y));
+      }
+    }
+    for (int y = 0; y < size; ++y) {
+      for (int x = 0; x < size; ++x) {
+        final int i = y * (size + 1) + x + 1;
+        sb.append(String.format(
+          "f %d %d %d %d\n", i, i + 1, i + size + 2, i + size + 1));
+      }
+    }
+
+    final JOMeshBuilder b = new JOMeshBuilder();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)),
+      b).run();
+
+    final JOMesh m = b.build();
+    Assert.assertEquals(0L, (long) b.errorCount());
+    Assert.assertEquals((long) ((size + 1) * (size + 1)), (long) m.vertexCount());
+    Assert.assertEquals((long) (size * size * 2), (long) m.triangleCount());
+
+    final FloatBuffer positions = m.positions();
+    final IntBuffer indices = m.indices();
+    for (int index = 0; index < indices.remaining(); ++index) {
+      final int vertex = indices.get(index);
+      final int cell = index / 6;
+      final int cx = cell % size;
+      final int cy = cell / size;
+      final float x = positions.get(vertex * 3);
+      final float y = positions.get(vertex * 3 + 1);
+      Assert.assertTrue(x == (float) cx || x == (float) (cx + 1));
+      Assert.assertTrue(y == (float) cy || y == (float) (cy + 1));
+    }
+  }
+
+  @Test
+  public void testDirect()
+    throws Exception
+  {
+    final JOMesh heap = parse("quads.obj").build();
+    final JOMesh direct =
+      parse("quads.obj", new JOMeshBuilder(ByteBuffer::allocateDirect)).build();
+
+    Assert.assertFalse(heap.positionsBytes().isDirect());
+    Assert.assertTrue(direct.positionsBytes().isDirect());
+    Assert.assertTrue(direct.textureCoordinatesBytes().isDirect());
+    Assert.assertTrue(direct.normalsBytes().isDirect());
+    Assert.assertTrue(direct.indicesBytes().isDirect());
+    Assert.assertTrue(direct.positions().isDirect());
+    Assert.assertTrue(direct.interleaved().isDirect());
+
+    Assert.assertEquals(heap.positions(), direct.positions());
+    Assert.assertEquals(heap.textureCoordinates(), direct.textureCoordinates());
+    Assert.assertEquals(heap.normals(), direct.normals());
+    Assert.assertEquals(heap.indices(), direct.indices());
+    Assert.assertEquals(heap.interleaved(), direct.interleaved());
+    Assert.assertEquals(
+      (long) direct.vertexCount() * 12L,
+      (long) direct.positionsBytes().remaining());
+  }
+
+  /**
+   * A face that refers to a position whose own line was malformed is
+   * omitted and counted as an error, even if the position lies beyond every
+   * position that was stored.
+   */
+
+  @Test
+  public void testMalformedPosition()
+  {
+    final StringBuilder sb = new StringBuilder(4096);
+    for (int index = 0; index < 300; ++index) {
+      sb.append("v 1.0 2.0 3.0\n");
+    }
+    sb.append("v 1.0 x 3.0\n");
+    sb.append("vt 0.0 y\n");
+    sb.append("f 1 2 3\n");
+    sb.append("f 1 2 301\n");
+    sb.append("f 1/1 2/1 3/1\n");
+
+    final JOMeshBuilder b = new JOMeshBuilder();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)),
+      b).run();
+    Assert.assertEquals(4L, (long) b.errorCount());
+
+    final JOMesh m = b.build();
+    Assert.assertEquals(1L, (long) m.triangleCount());
+    Assert.assertEquals(3L, (long) m.vertexCount());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAllocatorTooSmall()
+    throws Exception
+  {
+    final JOMeshAllocatorType small = size -> ByteBuffer.allocate(size / 2);
+    parse("quads.obj", new JOMeshBuilder(small)).build();
+  }
+
+  private static void parseText(
+    final JOMeshBuilder b,
+    final String text)
+  {
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      b).run();
+  }
+
+  /**
+   * Mesh data is written into the allocator's buffers while parsing, and so
+   * building the mesh does not allocate, and the buffers grow geometrically.
+   */
+
+  @Test
+  public void testStreamedIntoAllocator()
+  {
+    final int size = 100;
+    final StringBuilder sb = new StringBuilder(1 << 20);
+    for (int y = 0; y < size; ++y) {
+      for (int x = 0; x < size; ++x) {
+        sb.append("v ").append(x).append(' ').append(y).append(" 0.0\n");
+        sb.append("vt ").append(x).append(' ').append(y).append('\n');
+      }
+    }
+    for (int y = 0; y + 1 < size; ++y) {
+      for (int x = 0; x + 1 < size; ++x) {
+        final int a = y * size + x + 1;
+        final int b = a + 1;
+        final int c = a + size + 1;
+        final int d = a + size;
+        sb.append(String.format(
+          "f %d/%d %d/%d %d/%d %d/%d\n",
+          Integer.valueOf(a), Integer.valueOf(a),
+          Integer.valueOf(b), Integer.valueOf(b),
+          Integer.valueOf(c), Integer.valueOf(c),
+          Integer.valueOf(d), Integer.valueOf(d)));
+      }
+    }
+
+    final List<Integer> requests = new ArrayList<>();
+    final JOMeshBuilder builder = new JOMeshBuilder(request -> {
+      requests.add(Integer.valueOf(request));
+      return ByteBuffer.allocate(request);
+    });
+    parseText(builder, sb.toString());
+
+    final int before = requests.size();
+    Assert.assertTrue(before > 0);
+    Assert.assertTrue(before < 40);
+
+    final JOMesh m = builder.build();
+    Assert.assertEquals(before, requests.size());
+    Assert.assertEquals((long) (size * size), (long) m.vertexCount());
+    Assert.assertEquals(
+      (long) ((size - 1) * (size - 1) * 2), (long) m.triangleCount());
+
+    final FloatBuffer positions = m.positions();
+    final FloatBuffer uvs = m.textureCoordinates();
+    for (int vertex = 0; vertex < m.vertexCount(); ++vertex) {
+      Assert.assertEquals(
+        (double) positions.get(vertex * 3),
+        (double) uvs.get(vertex * 2),
+        0.0);
+      Assert.assertEquals(
+        (double) positions.get(vertex * 3 + 1),
+        (double) uvs.get(vertex * 2 + 1),
+        0.0);
+    }
+
+    final IntBuffer indices = m.indices();
+    while (indices.hasRemaining()) {
+      final int index = indices.get();
+      Assert.assertTrue(index >= 0 && index < m.vertexCount());
+    }
+  }
+
+  /**
+   * A builder can continue to receive faces after a mesh has been built,
+   * without affecting that mesh. The second input declares the same
+   * positions again, so that its face is valid.
+   */
+
+  @Test
+  public void testBuildTwice()
+  {
+    final String square = "v 0 0 0\nv 1 0 0\nv 1 1 0\nv 0 1 0\n";
+    final JOMeshBuilder b = new JOMeshBuilder();
+    parseText(b, square + "f 1 2 3\n");
+    final JOMesh first = b.build();
+    final FloatBuffer first_positions = first.positions();
+
+    parseText(b, square + "f 1 3 4\n");
+    final JOMesh second = b.build();
+
+    Assert.assertEquals(1L, (long) first.triangleCount());
+    Assert.assertEquals(3L, (long) first.vertexCount());
+    Assert.assertEquals(first_positions, first.positions());
+    Assert.assertEquals(2L, (long) second.triangleCount());
+    Assert.assertEquals(4L, (long) second.vertexCount());
+    Assert.assertEquals(12L, (long) second.positions().remaining());
+  }
+}
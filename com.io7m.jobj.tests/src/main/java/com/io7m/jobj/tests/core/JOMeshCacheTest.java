@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jobj.core.JOMesh;
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOMeshCache;
+import com.io7m.jobj.core.JOMeshCacheKey;
+import com.io7m.jobj.core.JOMeshGroup;
+import com.io7m.jobj.core.JOMeshOriginKind;
+import com.io7m.jobj.core.JOParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+
+public final class JOMeshCacheTest
+{
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private Path copy(final String name)
+    throws Exception
+  {
+    final Path file = this.folder.getRoot().toPath().resolve(name);
+    try (InputStream is = JOMeshCacheTest.class.getResourceAsStream(name)) {
+      Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    return file;
+  }
+
+  private static JOMesh parse(final Path file)
+  {
+    final JOMeshBuilder b = new JOMeshBuilder();
+    JOParser.newParserFromPath(file, b).run();
+    return b.build();
+  }
+
+  @Test
+  public void testGroups()
+    throws Exception
+  {
+    final JOMesh m = parse(this.copy("groups.obj"));
+    Assert.assertEquals(
+      List.of(
+        JOMeshGroup.of(Optional.empty(), Optional.empty(), 0, 3),
+        JOMeshGroup.of(Optional.of("first"), Optional.of("stone"), 3, 6),
+        JOMeshGroup.of(Optional.of("first"), Optional.of("wood"), 9, 3),
+        JOMeshGroup.of(Optional.of("second"), Optional.of("wood"), 12, 3)),
+      m.groups());
+  }
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    for (final String name : List.of("groups.obj", "quads.obj", "tri.obj")) {
+      final Path source = this.copy(name);
+      final Path cache = this.folder.getRoot().toPath().resolve(name + ".cache");
+      final JOMeshCacheKey key = JOMeshCacheKey.ofFile(source);
+      final JOMesh m = parse(source);
+
+      Assert.assertEquals(Optional.empty(), JOMeshCache.read(cache, key));
+      JOMeshCache.write(cache, key, m);
+
+      final JOMesh r = JOMeshCache.read(cache, key).orElseThrow();
+      Assert.assertTrue(r.positionsBytes().isDirect());
+      Assert.assertEquals((long) m.vertexCount(), (long) r.vertexCount());
+      Assert.assertEquals((long) m.triangleCount(), (long) r.triangleCount());
+      Assert.assertEquals(m.hasNormals(), r.hasNormals());
+      Assert.assertEquals(m.hasTextureCoordinates(), r.hasTextureCoordinates());
+      Assert.assertEquals(m.positions(), r.positions());
+      Assert.assertEquals(m.textureCoordinates(), r.textureCoordinates());
+      Assert.assertEquals(m.normals(), r.normals());
+      Assert.assertEquals(m.indices(), r.indices());
+      Assert.assertEquals(m.groups(), r.groups());
+      Assert.assertEquals(m.interleaved(), r.interleaved());
+    }
+  }
+
+  @Test
+  public void testRoundTripOrigins()
+    throws Exception
+  {
+    final Path source = this.copy("utm.obj");
+    final Path cache = this.folder.getRoot().toPath().resolve("utm.cache");
+    final JOMeshCacheKey key = JOMeshCacheKey.ofFile(source);
+    final JOMeshBuilder b = new JOMeshBuilder(
+      ByteBuffer::allocate, JOMeshOriginKind.ORIGIN_BOUNDS_CENTER);
+    JOParser.newParserFromPath(source, b).run();
+    final JOMesh m = b.build();
+
+    JOMeshCache.write(cache, key, m);
+    final JOMesh r = JOMeshCache.read(cache, key).orElseThrow();
+    Assert.assertEquals(m.groups(), r.groups());
+    Assert.assertEquals(m.positions(), r.positions());
+    Assert.assertTrue(r.groups().get(0).hasOrigin());
+  }
+
+  @Test
+  public void testStale()
+    throws Exception
+  {
+    final Path source = this.copy("groups.obj");
+    final Path cache = this.folder.getRoot().toPath().resolve("groups.cache");
+    final JOMeshCacheKey key = JOMeshCacheKey.ofFile(source);
+    JOMeshCache.write(cache, key, parse(source));
+
+    Assert.assertEquals(key, JOMeshCacheKey.ofFile(source));
+    Assert.assertEquals(
+      Optional.empty(),
+      JOMeshCache.read(cache, JOMeshCacheKey.of(
+        "/nonexistent", key.size(), key.modified(), key.hash())));
+    Assert.assertEquals(
+      Optional.empty(),
+      JOMeshCache.read(cache, JOMeshCacheKey.of(
+        key.path(), key.size(), key.modified() + 1L, key.hash())));
+
+    Files.write(
+      source,
+      "# changed\n".getBytes(StandardCharsets.UTF_8),
+      StandardOpenOption.APPEND);
+    final JOMeshCacheKey changed = JOMeshCacheKey.ofFile(source);
+    Assert.assertNotEquals(key.hash(), changed.hash());
+    Assert.assertEquals(Optional.empty(), JOMeshCache.read(cache, changed));
+  }
+
+  @Test
+  public void testMetadata()
+    throws Exception
+  {
+    final Path source = this.copy("groups.obj");
+    final Path cache = this.folder.getRoot().toPath().resolve("groups.cache");
+    final JOMeshCacheKey key = JOMeshCacheKey.ofFileMetadata(source);
+    Assert.assertFalse(key.hashed());
+    JOMeshCache.write(cache, key, parse(source));
+
+    final JOMeshCacheKey full = JOMeshCacheKey.ofFile(source);
+    Assert.assertTrue(full.hashed());
+    Assert.assertEquals(key.size(), full.size());
+    Assert.assertEquals(key.modified(), full.modified());
+    Assert.assertTrue(JOMeshCache.read(cache, full).isPresent());
+    Assert.assertTrue(JOMeshCache.read(cache, key).isPresent());
+    Assert.assertTrue(JOMeshCache.read(cache, key, true).isPresent());
+
+    final FileTime time = Files.getLastModifiedTime(source);
+    final FileTime later = FileTime.fromMillis(time.toMillis() + 10_000L);
+    Files.setLastModifiedTime(source, later);
+    final JOMeshCacheKey touched = JOMeshCacheKey.ofFileMetadata(source);
+    Assert.assertTrue(JOMeshCache.read(cache, touched).isPresent());
+
+    final byte[] data = Files.readAllBytes(source);
+    data[0] = (byte) '#';
+    Files.write(source, data);
+    Files.setLastModifiedTime(source, time);
+    final JOMeshCacheKey same = JOMeshCacheKey.ofFileMetadata(source);
+    Assert.assertEquals(key, same);
+    Assert.assertTrue(JOMeshCache.read(cache, same).isPresent());
+    Assert.assertEquals(Optional.empty(), JOMeshCache.read(cache, same, true));
+
+    Files.setLastModifiedTime(source, later);
+    Assert.assertEquals(
+      Optional.empty(),
+      JOMeshCache.read(cache, JOMeshCacheKey.ofFileMetadata(source)));
+  }
+
+  @Test
+  public void testCorrupt()
+    throws Exception
+  {
+    final Path source = this.copy("groups.obj");
+    final Path cache = this.folder.getRoot().toPath().resolve("groups.cache");
+    final JOMeshCacheKey key = JOMeshCacheKey.ofFile(source);
+    JOMeshCache.write(cache, key, parse(source));
+
+    final byte[] data = Files.readAllBytes(cache);
+    for (int size = 0; size < data.length; size += 7) {
+      final byte[] truncated = new byte[size];
+      System.arraycopy(data, 0, truncated, 0, size);
+      Files.write(cache, truncated);
+      Assert.assertEquals(Optional.empty(), JOMeshCache.read(cache, key));
+    }
+
+    final byte[] bad = data.clone();
+    bad[0] = (byte) 'X';
+    Files.write(cache, bad);
+    Assert.assertEquals(Optional.empty(), JOMeshCache.read(cache, key));
+  }
+}
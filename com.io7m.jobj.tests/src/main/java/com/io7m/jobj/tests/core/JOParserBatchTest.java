@@ -0,0 +1,571 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserBatchFloatListenerType;
+import com.io7m.jobj.core.JOParserBatchListenerType;
+import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+public final class JOParserBatchTest
+{
+  private static String generate()
+  {
+    final Random r = new Random(0x10L);
+    final StringBuilder sb = new StringBuilder(65536);
+    for (int index = 0; index < 100; ++index) {
+      sb.append(String.format(
+        "v %f %f %f\n",
+        Double.valueOf(r.nextDouble()),
+        Double.valueOf(r.nextDouble()),
+        Double.valueOf(r.nextDouble())));
+      sb.append(String.format(
+        "vn %f %f %f\n",
+        Double.valueOf(r.nextDouble()),
+        Double.valueOf(r.nextDouble()),
+        Double.valueOf(r.nextDouble())));
+      sb.append(String.format(
+        "vt %f %f\n",
+        Double.valueOf(r.nextDouble()),
+        Double.valueOf(r.nextDouble())));
+    }
+
+    sb.append("v 1.0 2.0 x\n");
+    sb.append("v 1.0 2.0 3.0 0.5\n");
+
+    for (int index = 0; index < 50; ++index) {
+      final int arity = 3 + r.nextInt(4);
+      sb.append("f");
+      for (int c = 0; c < arity; ++c) {
+        final int i = 1 + r.nextInt(100);
+        sb.append(String.format(" %d/%d/%d", i, i, i));
+      }
+      sb.append('\n');
+    }
+
+    sb.append("f 1// 2// 1000//\n");
+    sb.append("f 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16 17 18 19 20\n");
+    sb.append("f 1//2 3//4 5//6\n");
+    return sb.toString();
+  }
+
+  private static JOParserType parser(
+    final String text,
+    final JOParserBatchListenerType ls)
+  {
+    return JOParser.newBatchParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      ls);
+  }
+
+  @Test
+  public void testBatches()
+  {
+    final String text = generate();
+
+    final List<String> expected = new ArrayList<>();
+    final List<int[]> expected_faces = new ArrayList<>();
+    final UnreachableListener events = new UnreachableListener()
+    {
+      private List<Integer> face = new ArrayList<>();
+
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+
+      }
+
+      @Override
+      public void onError(
+        final LexicalPositionType<Path> lex,
+        final JOParserErrorCode e,
+        final String message)
+      {
+
+      }
+
+      @Override
+      public void onCommandV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z,
+        final double w)
+      {
+        expected.add(String.format("v %d %s %s %s %s", index, x, y, z, w));
+      }
+
+      @Override
+      public void onCommandVN(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z)
+      {
+        expected.add(String.format("vn %d %s %s %s", index, x, y, z));
+      }
+
+      @Override
+      public void onCommandVT(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z)
+      {
+        expected.add(String.format("vt %d %s %s %s", index, x, y, z));
+      }
+
+      @Override
+      public void onCommandFStarted(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        this.face = new ArrayList<>();
+      }
+
+      @Override
+      public void onCommandFVertexV_VT_VN(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v,
+        final int vt,
+        final int vn)
+      {
+        this.face.add(Integer.valueOf(v));
+        this.face.add(Integer.valueOf(vt));
+        this.face.add(Integer.valueOf(vn));
+      }
+
+      @Override
+      public void onCommandFVertexV_VN(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v,
+        final int vn)
+      {
+        this.face.add(Integer.valueOf(v));
+        this.face.add(Integer.valueOf(0));
+        this.face.add(Integer.valueOf(vn));
+      }
+
+      @Override
+      public void onCommandFVertexV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v)
+      {
+        this.face.add(Integer.valueOf(v));
+        this.face.add(Integer.valueOf(0));
+        this.face.add(Integer.valueOf(0));
+      }
+
+      @Override
+      public void onCommandFFinished(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        expected_faces.add(
+          this.face.stream().mapToInt(Integer::intValue).toArray());
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+
+      }
+    };
+
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      events).run();
+
+    for (final int size : new int[]{1, 2, 7, 16, 1024}) {
+      final List<String> received = new ArrayList<>();
+      final List<int[]> received_faces = new ArrayList<>();
+      final int[] counts = new int[4];
+      final int[] errors = new int[1];
+      final boolean[] eof = new boolean[1];
+
+      final JOParserBatchListenerType ls = new JOParserBatchListenerType()
+      {
+        @Override
+        public int blockSize()
+        {
+          return size;
+        }
+
+        @Override
+        public void onFatalError(
+          final LexicalPositionType<Path> p,
+          final Optional<Throwable> e,
+          final String message)
+        {
+          Assert.fail();
+        }
+
+        @Override
+        public void onError(
+          final LexicalPositionType<Path> p,
+          final JOParserErrorCode e,
+          final String message)
+        {
+          ++errors[0];
+        }
+
+        @Override
+        public void onPositions(
+          final int first,
+          final double[] data,
+          final int count)
+        {
+          Assert.assertTrue(count <= size);
+          counts[0] = counts[0] + count;
+          for (int index = 0; index < count; ++index) {
+            received.add(String.format(
+              "v %d %s %s %s %s",
+              Integer.valueOf(first + index),
+              Double.valueOf(data[index * 4]),
+              Double.valueOf(data[index * 4 + 1]),
+              Double.valueOf(data[index * 4 + 2]),
+              Double.valueOf(data[index * 4 + 3])));
+          }
+        }
+
+        @Override
+        public void onNormals(
+          final int first,
+          final double[] data,
+          final int count)
+        {
+          Assert.assertTrue(count <= size);
+          counts[1] = counts[1] + count;
+          for (int index = 0; index < count; ++index) {
+            received.add(String.format(
+              "vn %d %s %s %s",
+              Integer.valueOf(first + index),
+              Double.valueOf(data[index * 3]),
+              Double.valueOf(data[index * 3 + 1]),
+              Double.valueOf(data[index * 3 + 2])));
+          }
+        }
+
+        @Override
+        public void onTextureCoordinates(
+          final int first,
+          final double[] data,
+          final int count)
+        {
+          Assert.assertTrue(count <= size);
+          counts[2] = counts[2] + count;
+          for (int index = 0; index < count; ++index) {
+            received.add(String.format(
+              "vt %d %s %s %s",
+              Integer.valueOf(first + index),
+              Double.valueOf(data[index * 3]),
+              Double.valueOf(data[index * 3 + 1]),
+              Double.valueOf(data[index * 3 + 2])));
+          }
+        }
+
+        @Override
+        public void onFaces(
+          final int[] arities,
+          final int face_count,
+          final int[] corners,
+          final int corner_count)
+        {
+          Assert.assertTrue(face_count <= size);
+          int offset = 0;
+          for (int index = 0; index < face_count; ++index) {
+            final int[] face = new int[arities[index] * 3];
+            System.arraycopy(corners, offset * 3, face, 0, face.length);
+            for (int c = 0; c < face.length; c += 3) {
+              Assert.assertTrue(face[c] < counts[0] + 2);
+            }
+            received_faces.add(face);
+            offset += arities[index];
+          }
+          Assert.assertEquals((long) corner_count, (long) offset);
+        }
+
+        @Override
+        public void onEOF(final LexicalPositionType<Path> p)
+        {
+          eof[0] = true;
+        }
+      };
+
+      parser(text, ls).run();
+
+      Assert.assertTrue(eof[0]);
+      Assert.assertEquals(2L, (long) errors[0]);
+      Assert.assertEquals(101L, (long) counts[0]);
+
+      received.sort(String::compareTo);
+      final List<String> sorted = new ArrayList<>(expected);
+      sorted.sort(String::compareTo);
+      Assert.assertEquals(sorted, received);
+
+      Assert.assertEquals(
+        (long) expected_faces.size(), (long) received_faces.size());
+      for (int index = 0; index < expected_faces.size(); ++index) {
+        Assert.assertArrayEquals(
+          expected_faces.get(index), received_faces.get(index));
+      }
+    }
+  }
+
+  /**
+   * Float batches must receive the float nearest to each number, which is
+   * not always the narrowed double nearest to the number.
+   */
+
+  /**
+   * A face with more corners than the block size is delivered alone, in a
+   * block that exceeds the block size, and all other blocks respect it.
+   */
+
+  @Test
+  public void testLargeFace()
+  {
+    final StringBuilder sb = new StringBuilder(1024);
+    for (int index = 0; index < 12; ++index) {
+      sb.append("v 0.0 0.0 0.0\n");
+    }
+    sb.append("f 1 2 3\n");
+    sb.append("f 1 2 3 4 5 6 7 8 9 10\n");
+    sb.append("f 4 5 6\n");
+    sb.append("f 7 8 9\n");
+
+    final List<int[]> blocks = new ArrayList<>();
+    final List<Integer> large = new ArrayList<>();
+    final JOParserBatchListenerType ls = new JOParserBatchListenerType()
+    {
+      @Override
+      public int blockSize()
+      {
+        return 4;
+      }
+
+      @Override
+      public void onFatalError(
+        final LexicalPositionType<Path> p,
+        final Optional<Throwable> e,
+        final String message)
+      {
+        Assert.fail();
+      }
+
+      @Override
+      public void onError(
+        final LexicalPositionType<Path> p,
+        final JOParserErrorCode e,
+        final String message)
+      {
+        Assert.fail();
+      }
+
+      @Override
+      public void onPositions(
+        final int first,
+        final double[] data,
+        final int count)
+      {
+        Assert.assertTrue(count <= 4);
+      }
+
+      @Override
+      public void onNormals(
+        final int first,
+        final double[] data,
+        final int count)
+      {
+        Assert.fail();
+      }
+
+      @Override
+      public void onTextureCoordinates(
+        final int first,
+        final double[] data,
+        final int count)
+      {
+        Assert.fail();
+      }
+
+      @Override
+      public void onFaces(
+        final int[] arities,
+        final int face_count,
+        final int[] corners,
+        final int corner_count)
+      {
+        blocks.add(new int[]{face_count, corner_count});
+        if (corner_count > 4) {
+          for (int corner = 0; corner < corner_count; ++corner) {
+            large.add(Integer.valueOf(corners[corner * 3]));
+          }
+        }
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> p)
+      {
+        // Nothing to do
+      }
+    };
+
+    parser(sb.toString(), ls).run();
+
+    int faces = 0;
+    for (final int[] block : blocks) {
+      faces += block[0];
+      if (block[1] > 4) {
+        Assert.assertEquals(1L, (long) block[0]);
+        Assert.assertEquals(10L, (long) block[1]);
+      }
+    }
+    Assert.assertEquals(4L, (long) faces);
+    Assert.assertEquals(10L, (long) large.size());
+    for (int index = 0; index < 10; ++index) {
+      Assert.assertEquals(
+        (long) index + 1L, (long) large.get(index).intValue());
+    }
+  }
+
+  @Test
+  public void testBatchesFloat()
+  {
+    final String text =
+      "v 1.000000178813934326171874999 0.1 -2.5\n"
+        + "vn 0 0 1\n"
+        + "vt 0.25 0.5\n"
+        + "f 1/1/1 1/1/1 1/1/1\n";
+
+    final float[] received = new float[10];
+    final int[] faces = new int[1];
+    final boolean[] eof = new boolean[1];
+    final JOParserBatchFloatListenerType ls =
+      new JOParserBatchFloatListenerType()
+      {
+        @Override
+        public void onFatalError(
+          final LexicalPositionType<Path> p,
+          final Optional<Throwable> e,
+          final String message)
+        {
+          Assert.fail();
+        }
+
+        @Override
+        public void onError(
+          final LexicalPositionType<Path> p,
+          final JOParserErrorCode e,
+          final String message)
+        {
+          Assert.fail();
+        }
+
+        @Override
+        public void onPositions(
+          final int first,
+          final float[] data,
+          final int count)
+        {
+          Assert.assertEquals(1L, (long) first);
+          Assert.assertEquals(1L, (long) count);
+          System.arraycopy(data, 0, received, 0, 4);
+        }
+
+        @Override
+        public void onNormals(
+          final int first,
+          final float[] data,
+          final int count)
+        {
+          Assert.assertEquals(1L, (long) count);
+          System.arraycopy(data, 0, received, 4, 3);
+        }
+
+        @Override
+        public void onTextureCoordinates(
+          final int first,
+          final float[] data,
+          final int count)
+        {
+          Assert.assertEquals(1L, (long) count);
+          System.arraycopy(data, 0, received, 7, 3);
+        }
+
+        @Override
+        public void onFaces(
+          final int[] arities,
+          final int face_count,
+          final int[] corners,
+          final int corner_count)
+        {
+          faces[0] += face_count;
+        }
+
+        @Override
+        public void onEOF(final LexicalPositionType<Path> p)
+        {
+          eof[0] = true;
+        }
+      };
+
+    JOParser.newBatchParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      ls).run();
+
+    Assert.assertTrue(eof[0]);
+    Assert.assertEquals(1L, (long) faces[0]);
+    Assert.assertEquals(
+      (long) Float.floatToIntBits(Math.nextUp(1.0f)),
+      (long) Float.floatToIntBits(received[0]));
+    Assert.assertNotEquals(
+      (long) Float.floatToIntBits(
+        (float) Double.parseDouble("1.000000178813934326171874999")),
+      (long) Float.floatToIntBits(received[0]));
+    Assert.assertEquals(0.1f, received[1], 0.0f);
+    Assert.assertEquals(-2.5f, received[2], 0.0f);
+    Assert.assertEquals(1.0f, received[3], 0.0f);
+    Assert.assertEquals(1.0f, received[6], 0.0f);
+    Assert.assertEquals(0.25f, received[7], 0.0f);
+    Assert.assertEquals(0.5f, received[8], 0.0f);
+    Assert.assertEquals(0.0f, received[9], 0.0f);
+  }
+}
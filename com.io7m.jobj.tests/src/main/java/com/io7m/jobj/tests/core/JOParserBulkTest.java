@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParserBulk;
+import com.io7m.jobj.core.JOParserBulkResult;
+import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserEventKind;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class JOParserBulkTest
+{
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file(
+    final String name,
+    final String text)
+    throws IOException
+  {
+    final Path path = this.folder.getRoot().toPath().resolve(name);
+    Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+
+  @Test
+  public void testBulk()
+    throws Exception
+  {
+    final List<Path> paths = new ArrayList<>();
+    for (int index = 0; index < 50; ++index) {
+      final StringBuilder sb = new StringBuilder(64);
+      for (int v = 0; v <= index; ++v) {
+        sb.append("v 0.0 0.0 0.0\n");
+      }
+      paths.add(this.file("good" + index + ".obj", sb.toString()));
+    }
+
+    final Path bad = this.file("bad.obj", "v x y z\nf 1 2 3\n");
+    final Path missing = this.folder.getRoot().toPath().resolve("missing");
+    final Path throwing = this.file("throwing.obj", "v 0.0 0.0 0.0\n");
+    paths.add(bad);
+    paths.add(missing);
+    paths.add(throwing);
+
+    final ConcurrentHashMap<Path, AtomicInteger> vertices =
+      new ConcurrentHashMap<>();
+
+    final List<JOParserBulkResult> results =
+      JOParserBulk.parse(paths, path -> {
+        final AtomicInteger count = new AtomicInteger();
+        vertices.put(path, count);
+        return new Listener(path.equals(throwing), count);
+      }, 4).get(30L, TimeUnit.SECONDS);
+
+    Assert.assertEquals((long) paths.size(), (long) results.size());
+    for (int index = 0; index < 50; ++index) {
+      final JOParserBulkResult r = results.get(index);
+      Assert.assertEquals(paths.get(index), r.path());
+      Assert.assertTrue(r.succeeded());
+      Assert.assertEquals(0L, (long) r.errorCount());
+      Assert.assertEquals(
+        (long) index + 1L, (long) vertices.get(r.path()).get());
+    }
+
+    final JOParserBulkResult r_bad = results.get(50);
+    Assert.assertTrue(r_bad.succeeded());
+    Assert.assertEquals(3L, (long) r_bad.errorCount());
+
+    final JOParserBulkResult r_missing = results.get(51);
+    Assert.assertFalse(r_missing.succeeded());
+    Assert.assertTrue(r_missing.exception().get() instanceof IOException);
+
+    final JOParserBulkResult r_throwing = results.get(52);
+    Assert.assertFalse(r_throwing.succeeded());
+    Assert.assertTrue(
+      r_throwing.exception().get() instanceof UnsupportedOperationException);
+  }
+
+  /**
+   * Each file has its own future, in the order that the files were given.
+   */
+
+  @Test
+  public void testBulkEach()
+    throws Exception
+  {
+    final List<Path> paths = new ArrayList<>();
+    for (int index = 0; index < 20; ++index) {
+      paths.add(this.file("each" + index + ".obj", "v 0.0 0.0 0.0\n"));
+    }
+    final Path missing = this.folder.getRoot().toPath().resolve("missing");
+    paths.add(missing);
+
+    final List<CompletableFuture<JOParserBulkResult>> futures =
+      JOParserBulk.parseEach(
+        paths, path -> new Listener(false, new AtomicInteger()), 3);
+
+    Assert.assertEquals((long) paths.size(), (long) futures.size());
+    for (int index = 0; index < 20; ++index) {
+      final JOParserBulkResult r =
+        futures.get(index).get(30L, TimeUnit.SECONDS);
+      Assert.assertEquals(paths.get(index), r.path());
+      Assert.assertTrue(r.succeeded());
+    }
+
+    final JOParserBulkResult r_missing =
+      futures.get(20).get(30L, TimeUnit.SECONDS);
+    Assert.assertEquals(missing, r_missing.path());
+    Assert.assertFalse(r_missing.succeeded());
+  }
+
+  private static final class Listener extends UnreachableListener
+  {
+    private final boolean fail;
+    private final AtomicInteger count;
+
+    Listener(
+      final boolean in_fail,
+      final AtomicInteger in_count)
+    {
+      this.fail = in_fail;
+      this.count = in_count;
+    }
+
+    @Override
+    public Set<JOParserEventKind> interests()
+    {
+      return EnumSet.of(
+        JOParserEventKind.EVENT_ERROR,
+        JOParserEventKind.EVENT_COMMAND_V);
+    }
+
+    @Override
+    public void onEOF(final LexicalPositionType<Path> p)
+    {
+      // Ignored
+    }
+
+    @Override
+    public void onError(
+      final LexicalPositionType<Path> p,
+      final JOParserErrorCode e,
+      final String message)
+    {
+      // Ignored
+    }
+
+    @Override
+    public void onCommandV(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      if (this.fail) {
+        throw new UnsupportedOperationException();
+      }
+      this.count.incrementAndGet();
+    }
+  }
+}
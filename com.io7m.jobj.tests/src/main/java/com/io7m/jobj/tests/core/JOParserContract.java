@@ -18,6 +18,7 @@ package com.io7m.jobj.tests.core;
 
 import com.io7m.jlexing.core.LexicalPositionType;
 import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserEventKind;
 import com.io7m.jobj.core.JOParserEventListenerType;
 import com.io7m.jobj.core.JOParserType;
 import org.junit.Assert;
@@ -25,7 +26,11 @@ import org.junit.Test;
 
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -2778,6 +2783,247 @@ public abstract class JOParserContract
     Assert.assertTrue(f_finished.get());
   }
 
+  @Test
+  public final void testF_V_Bare()
+    throws Exception
+  {
+    final AtomicBoolean eof = new AtomicBoolean(false);
+    final AtomicInteger f_count = new AtomicInteger(0);
+    final AtomicInteger fv_count = new AtomicInteger(0);
+    final AtomicBoolean f_finished = new AtomicBoolean(false);
+
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+
+      }
+
+      @Override
+      public void onCommandFFinished(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        Assert.assertEquals(1L, (long) index);
+        f_finished.set(true);
+      }
+
+      @Override
+      public void onCommandV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z,
+        final double w)
+      {
+
+      }
+
+      @Override
+      public void onCommandFStarted(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        Assert.assertEquals(1L, (long) index);
+        f_count.incrementAndGet();
+      }
+
+      @Override
+      public void onCommandFVertexV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v)
+      {
+        Assert.assertEquals(1L, (long) index);
+        Assert.assertEquals(1L, (long) v);
+        fv_count.incrementAndGet();
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+        eof.set(true);
+      }
+    };
+
+    final JOParserType p = this.getParser("f_v_bare.obj", ls);
+    p.run();
+
+    Assert.assertTrue(eof.get());
+    Assert.assertEquals(1L, (long) f_count.get());
+    Assert.assertEquals(3L, (long) fv_count.get());
+    Assert.assertTrue(f_finished.get());
+  }
+
+  @Test
+  public final void testF_V_VT_Bare()
+    throws Exception
+  {
+    final AtomicBoolean eof = new AtomicBoolean(false);
+    final AtomicInteger f_count = new AtomicInteger(0);
+    final AtomicInteger fv_count = new AtomicInteger(0);
+    final AtomicBoolean f_finished = new AtomicBoolean(false);
+
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+
+      }
+
+      @Override
+      public void onCommandFFinished(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        Assert.assertEquals(1L, (long) index);
+        f_finished.set(true);
+      }
+
+      @Override
+      public void onCommandV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z,
+        final double w)
+      {
+
+      }
+
+      @Override
+      public void onCommandVT(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z)
+      {
+
+      }
+
+      @Override
+      public void onCommandFStarted(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        Assert.assertEquals(1L, (long) index);
+        f_count.incrementAndGet();
+      }
+
+      @Override
+      public void onCommandFVertexV_VT(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v,
+        final int vt)
+      {
+        Assert.assertEquals(1L, (long) index);
+        Assert.assertEquals(1L, (long) v);
+        Assert.assertEquals(1L, (long) vt);
+        fv_count.incrementAndGet();
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+        eof.set(true);
+      }
+    };
+
+    final JOParserType p = this.getParser("f_v_vt_bare.obj", ls);
+    p.run();
+
+    Assert.assertTrue(eof.get());
+    Assert.assertEquals(1L, (long) f_count.get());
+    Assert.assertEquals(3L, (long) fv_count.get());
+    Assert.assertTrue(f_finished.get());
+  }
+
+  @Test
+  public final void testF_Mixed()
+    throws Exception
+  {
+    final AtomicBoolean eof = new AtomicBoolean(false);
+    final AtomicInteger fv_count = new AtomicInteger(0);
+    final AtomicInteger error_count = new AtomicInteger(0);
+
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+
+      }
+
+      @Override
+      public void onError(
+        final LexicalPositionType<Path> lex,
+        final JOParserErrorCode e,
+        final String message)
+      {
+        Assert.assertEquals(
+          JOParserErrorCode.JOP_ERROR_BAD_VERTEX_SYNTAX,
+          e);
+        Assert.assertEquals(3L, (long) lex.line());
+        error_count.incrementAndGet();
+      }
+
+      @Override
+      public void onCommandV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z,
+        final double w)
+      {
+
+      }
+
+      @Override
+      public void onCommandFStarted(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        Assert.assertEquals(1L, (long) index);
+      }
+
+      @Override
+      public void onCommandFVertexV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v)
+      {
+        Assert.assertEquals(1L, (long) v);
+        fv_count.incrementAndGet();
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+        eof.set(true);
+      }
+    };
+
+    final JOParserType p = this.getParser("f_mixed.obj", ls);
+    p.run();
+
+    Assert.assertTrue(eof.get());
+    Assert.assertEquals(3L, (long) fv_count.get());
+    Assert.assertEquals(4L, (long) error_count.get());
+  }
+
   @Test
   public final void testF_Unknown()
     throws Exception
@@ -2902,4 +3148,309 @@ public abstract class JOParserContract
     Assert.assertEquals(0L, (long) fv_count.get());
     Assert.assertTrue(error_called.get());
   }
+
+  @Test
+  public final void testWhitespace()
+    throws Exception
+  {
+    final AtomicBoolean eof = new AtomicBoolean(false);
+    final AtomicInteger v_count = new AtomicInteger(0);
+    final AtomicInteger fv_count = new AtomicInteger(0);
+    final AtomicBoolean f_finished = new AtomicBoolean(false);
+    final int[] columns = {4, 10, 14};
+
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+
+      }
+
+      @Override
+      public void onCommandV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z,
+        final double w)
+      {
+        Assert.assertEquals((long) index, (long) p.line());
+        if (index == 1) {
+          Assert.assertEquals(0.0, x, 0.0);
+          Assert.assertEquals(1.0, y, 0.0);
+          Assert.assertEquals(2.0, z, 0.0);
+        }
+        v_count.incrementAndGet();
+      }
+
+      @Override
+      public void onCommandFStarted(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        Assert.assertEquals(5L, (long) p.line());
+      }
+
+      @Override
+      public void onCommandFVertexV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v)
+      {
+        final int n = fv_count.getAndIncrement();
+        Assert.assertEquals((long) n + 1L, (long) v);
+        Assert.assertEquals((long) columns[n], (long) p.column());
+      }
+
+      @Override
+      public void onCommandFFinished(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        f_finished.set(true);
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+        eof.set(true);
+      }
+    };
+
+    final JOParserType p = this.getParser("whitespace.obj", ls);
+    p.run();
+
+    Assert.assertTrue(eof.get());
+    Assert.assertEquals(3L, (long) v_count.get());
+    Assert.assertEquals(3L, (long) fv_count.get());
+    Assert.assertTrue(f_finished.get());
+  }
+
+  @Test
+  public final void testInterestsNone()
+    throws Exception
+  {
+    final AtomicBoolean eof = new AtomicBoolean(false);
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public Set<JOParserEventKind> interests()
+      {
+        return EnumSet.noneOf(JOParserEventKind.class);
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+        eof.set(true);
+      }
+    };
+
+    final JOParserType p = this.getParser("interests.obj", ls);
+    p.run();
+    Assert.assertTrue(eof.get());
+  }
+
+  @Test
+  public final void testInterestsErrors()
+    throws Exception
+  {
+    final List<JOParserErrorCode> errors = new ArrayList<>();
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public Set<JOParserEventKind> interests()
+      {
+        return EnumSet.of(JOParserEventKind.EVENT_ERROR);
+      }
+
+      @Override
+      public void onError(
+        final LexicalPositionType<Path> lex,
+        final JOParserErrorCode e,
+        final String message)
+      {
+        errors.add(e);
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+
+      }
+    };
+
+    final JOParserType p = this.getParser("interests.obj", ls);
+    p.run();
+    Assert.assertEquals(
+      List.of(
+        JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX,
+        JOParserErrorCode.JOP_ERROR_UNRECOGNIZED_COMMAND,
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_V),
+      errors);
+  }
+
+  @Test
+  public final void testInterestsGeometry()
+    throws Exception
+  {
+    final List<String> events = new ArrayList<>();
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public Set<JOParserEventKind> interests()
+      {
+        return EnumSet.of(
+          JOParserEventKind.EVENT_COMMAND_V,
+          JOParserEventKind.EVENT_COMMAND_F);
+      }
+
+      @Override
+      public void onCommandV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z,
+        final double w)
+      {
+        events.add("v " + index + " " + x + " " + y);
+      }
+
+      @Override
+      public void onCommandFStarted(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        events.add("f " + index);
+      }
+
+      @Override
+      public void onCommandFVertexV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v)
+      {
+        events.add("fv " + v);
+      }
+
+      @Override
+      public void onCommandFFinished(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        events.add("ff " + index);
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+
+      }
+    };
+
+    final JOParserType p = this.getParser("interests.obj", ls);
+    p.run();
+    Assert.assertEquals(
+      List.of(
+        "v 1 0.0 0.0",
+        "v 3 1.0 0.0",
+        "v 4 1.0 1.0",
+        "f 1",
+        "fv 1",
+        "fv 3",
+        "fv 4",
+        "ff 1",
+        "f 2",
+        "fv 1",
+        "fv 2",
+        "f 3",
+        "fv 4",
+        "fv 3",
+        "fv 1",
+        "ff 3"),
+      events);
+  }
+
+  @Test
+  public final void testInterestsText()
+    throws Exception
+  {
+    final List<String> events = new ArrayList<>();
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public Set<JOParserEventKind> interests()
+      {
+        return EnumSet.of(
+          JOParserEventKind.EVENT_COMMENT,
+          JOParserEventKind.EVENT_COMMAND_O,
+          JOParserEventKind.EVENT_COMMAND_USEMTL,
+          JOParserEventKind.EVENT_COMMAND_MTLLIB,
+          JOParserEventKind.EVENT_COMMAND_S);
+      }
+
+      @Override
+      public void onComment(
+        final LexicalPositionType<Path> lex,
+        final String text)
+      {
+        events.add(text);
+      }
+
+      @Override
+      public void onCommandO(
+        final LexicalPositionType<Path> p,
+        final String name)
+      {
+        events.add("o " + name);
+      }
+
+      @Override
+      public void onCommandUsemtl(
+        final LexicalPositionType<Path> p,
+        final String name)
+      {
+        events.add("usemtl " + name);
+      }
+
+      @Override
+      public void onCommandMtllib(
+        final LexicalPositionType<Path> p,
+        final String name)
+      {
+        events.add("mtllib " + name);
+      }
+
+      @Override
+      public void onCommandS(
+        final LexicalPositionType<Path> p,
+        final int group_number)
+      {
+        events.add("s " + group_number);
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+
+      }
+    };
+
+    final JOParserType p = this.getParser("interests.obj", ls);
+    p.run();
+    Assert.assertEquals(
+      List.of(
+        "# Comment",
+        "o object",
+        "usemtl material",
+        "mtllib library",
+        "s 1",
+        "# Trailing"),
+      events);
+  }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserEventKind;
+import com.io7m.jobj.core.JOParserParallel;
+import com.io7m.jobj.core.JOParserPush;
+import com.io7m.jobj.core.JOParserPushType;
+import com.io7m.jobj.core.JOPullParser;
+import com.io7m.jobj.core.JOPullParserEventKind;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.SettingDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public final class JOParserJFRTest
+{
+  private static final String PARSE = "com.io7m.jobj.Parse";
+  private static final String FATAL = "com.io7m.jobj.FatalError";
+
+  private static final String TEXT =
+    "v 0 0 0\n"
+      + "v 1 0 0\n"
+      + "v 0 1 0\n"
+      + "vt 0 0\n"
+      + "vn 0 0 1\n"
+      + "f 1 2 3\n"
+      + "f 1 2 9\n";
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private List<RecordedEvent> record(
+    final Runnable action)
+    throws Exception
+  {
+    final Path dump = this.folder.newFile("recording.jfr").toPath();
+    try (Recording recording = new Recording()) {
+      recording.enable(PARSE).withThreshold(Duration.ZERO);
+      recording.enable(FATAL);
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(dump);
+    }
+    return RecordingFile.readAllEvents(dump)
+      .stream()
+      .filter(e -> e.getEventType().getName().startsWith("com.io7m.jobj."))
+      .collect(Collectors.toList());
+  }
+
+  private static void checkParse(
+    final RecordedEvent e,
+    final Path path,
+    final boolean parallel)
+  {
+    Assert.assertEquals(PARSE, e.getEventType().getName());
+    Assert.assertEquals(path.toString(), e.getString("file"));
+    Assert.assertEquals(parallel, e.getBoolean("parallel"));
+    Assert.assertEquals((long) TEXT.length(), e.getLong("bytes"));
+    Assert.assertEquals(7L, e.getLong("lines"));
+    Assert.assertEquals(3L, e.getLong("vertices"));
+    Assert.assertEquals(1L, e.getLong("textures"));
+    Assert.assertEquals(1L, e.getLong("normals"));
+    Assert.assertEquals(2L, e.getLong("faces"));
+    Assert.assertEquals(1L, e.getLong("errors"));
+    Assert.assertFalse(e.getBoolean("fatal"));
+    Assert.assertTrue(e.getLong("listenerTime") >= 0L);
+  }
+
+  private Path file()
+    throws Exception
+  {
+    final Path path = this.folder.getRoot().toPath().resolve("file.obj");
+    Files.write(path, TEXT.getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+
+  @Test
+  public void testSequential()
+    throws Exception
+  {
+    final Path path = this.file();
+    final List<RecordedEvent> events = this.record(
+      () -> JOParser.newParserFromPath(path, new JOMeshBuilder()).run());
+    Assert.assertEquals(1L, (long) events.size());
+    checkParse(events.get(0), path, false);
+  }
+
+  @Test
+  public void testParallel()
+    throws Exception
+  {
+    final Path path = this.file();
+    final List<RecordedEvent> events = this.record(
+      () -> JOParserParallel.newParserFromPath(
+        path, new JOMeshBuilder(), ForkJoinPool.commonPool(), 8).run());
+    Assert.assertEquals(1L, (long) events.size());
+    checkParse(events.get(0), path, true);
+  }
+
+  @Test
+  public void testPush()
+    throws Exception
+  {
+    final Path path = this.file();
+    final List<RecordedEvent> events = this.record(() -> {
+      final JOParserPushType p =
+        JOParserPush.newParser(Optional.of(path), new JOMeshBuilder());
+      final byte[] data = TEXT.getBytes(StandardCharsets.UTF_8);
+      for (final byte b : data) {
+        p.feed(ByteBuffer.wrap(new byte[]{b}));
+      }
+      p.finish();
+    });
+    Assert.assertEquals(1L, (long) events.size());
+    checkParse(events.get(0), path, false);
+  }
+
+  @Test
+  public void testPull()
+    throws Exception
+  {
+    final Path path = this.file();
+    final List<RecordedEvent> events = this.record(() -> {
+      try (JOPullParser p = JOPullParser.newPullParserFromPath(
+        path, EnumSet.of(JOParserEventKind.EVENT_ERROR))) {
+        while (p.next() != JOPullParserEventKind.EVENT_EOF) {
+          // Nothing
+        }
+      } catch (final Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Assert.assertEquals(1L, (long) events.size());
+    checkParse(events.get(0), path, false);
+  }
+
+  @Test
+  public void testFatal()
+    throws Exception
+  {
+    final Path path = this.folder.getRoot().toPath().resolve("missing.obj");
+    final List<RecordedEvent> events = this.record(
+      () -> JOParser.newParserFromPath(path, new JOMeshBuilder()).run());
+    Assert.assertEquals(2L, (long) events.size());
+
+    final RecordedEvent fatal = events.stream()
+      .filter(e -> FATAL.equals(e.getEventType().getName()))
+      .findFirst()
+      .get();
+    Assert.assertEquals(path.toString(), fatal.getString("file"));
+    Assert.assertTrue(fatal.getString("message").contains("missing.obj"));
+
+    final RecordedEvent parse = events.stream()
+      .filter(e -> PARSE.equals(e.getEventType().getName()))
+      .findFirst()
+      .get();
+    Assert.assertTrue(parse.getBoolean("fatal"));
+  }
+
+  /**
+   * Parse events are only kept for slow parses unless the threshold is
+   * lowered.
+   */
+
+  @Test
+  public void testDefaultThreshold()
+    throws Exception
+  {
+    final Path path = this.file();
+    JOParser.newParserFromPath(path, new JOMeshBuilder()).run();
+
+    final EventType type = FlightRecorder.getFlightRecorder()
+      .getEventTypes()
+      .stream()
+      .filter(t -> PARSE.equals(t.getName()))
+      .findFirst()
+      .get();
+    final SettingDescriptor threshold = type.getSettingDescriptors()
+      .stream()
+      .filter(d -> "threshold".equals(d.getName()))
+      .findFirst()
+      .get();
+    Assert.assertEquals("20 ms", threshold.getDefaultValue());
+  }
+}
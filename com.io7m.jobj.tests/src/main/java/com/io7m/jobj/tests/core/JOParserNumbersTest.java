@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Check that coordinates are parsed bit-identically to
+ * {@link Double#parseDouble(String)}, or to {@link Float#parseFloat(String)}
+ * in single precision mode.
+ */
+
+public final class JOParserNumbersTest
+{
+  private static List<String> parseAll(
+    final List<String> texts)
+  {
+    return parseAll(texts, false);
+  }
+
+  private static List<String> parseAll(
+    final List<String> texts,
+    final boolean single)
+  {
+    final StringBuilder sb = new StringBuilder(texts.size() * 32);
+    for (final String text : texts) {
+      sb.append("vt ");
+      sb.append(text);
+      sb.append('\n');
+    }
+
+    final List<String> errors = new ArrayList<>();
+    final double[] values = new double[texts.size()];
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public boolean singlePrecision()
+      {
+        return single;
+      }
+
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+
+      }
+
+      @Override
+      public void onCommandVT(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z)
+      {
+        values[index - 1] = x;
+      }
+
+      @Override
+      public void onError(
+        final LexicalPositionType<Path> lex,
+        final JOParserErrorCode e,
+        final String message)
+      {
+        Assert.assertEquals(JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX, e);
+        errors.add(texts.get(lex.line() - 1));
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+
+      }
+    };
+
+    final JOParserType p = JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)),
+      ls);
+    p.run();
+
+    for (int index = 0; index < texts.size(); ++index) {
+      final String text = texts.get(index);
+      Double expected;
+      try {
+        expected = single
+          ? Double.valueOf((double) Float.parseFloat(text))
+          : Double.valueOf(Double.parseDouble(text));
+      } catch (final NumberFormatException e) {
+        expected = null;
+      }
+
+      if (expected == null) {
+        Assert.assertTrue(text, errors.contains(text));
+      } else {
+        Assert.assertFalse(text, errors.contains(text));
+        Assert.assertEquals(
+          text,
+          Double.doubleToRawLongBits(expected.doubleValue()),
+          Double.doubleToRawLongBits(values[index]));
+      }
+    }
+    return errors;
+  }
+
+  @Test
+  public void testEdgeCases()
+  {
+    parseAll(List.of(
+      "0", "-0", "+0", "0.0", "-0.0", "1", "1.", "1.e5", ".5", "-.5", "+.5",
+      "1e-5", "1E5", "1e400", "-1e400", "1e-400", "NaN", "-NaN", "Infinity",
+      "-Infinity", "1.0f", "1.0d", "2F", "0x1p3", "-0x1.8p-1",
+      "4.9e-324", "2.4703282292062328e-324", "2.4703282292062327e-324",
+      "1.7976931348623157e308", "1.7976931348623158e308",
+      "1.7976931348623159e308", "9007199254740993", "9007199254740992.5",
+      "123456789012345678901234567890",
+      "0.000000000000000000000000000001234",
+      "2.2250738585072011e-308", "2.2250738585072012e-308",
+      "1e23", "8.41e21", "00000000001", "0.1", "0.2", "0.3",
+      "9999999999999999999", "18446744073709551615", "18446744073709551616",
+      "1e99999999999999", "1e-99999999999"
+    ));
+  }
+
+  /**
+   * The first of these is just below the midpoint between two floats, but
+   * the nearest double is exactly the midpoint; narrowing the double would
+   * round to the wrong float.
+   */
+
+  @Test
+  public void testEdgeCasesFloat()
+  {
+    final List<String> texts = new ArrayList<>(List.of(
+      "1.000000178813934326171874999", "1.000000178813934326171875",
+      "1.000000178813934326171875001", "16777217", "16777216.5",
+      "33554431", "0.1", "1e10", "1e11", "1e-10", "1e-11",
+      "3.4028235e38", "3.4028236e38", "3.40282356779733661637539395e38",
+      "3.40282356779733661637539396e38", "1e39", "-1e39",
+      "1.4e-45", "7e-46", "7.1e-46", "1e-46", "1.17549435e-38",
+      "1.1754942e-38", "0x1.fffffep127", "0x1p-149"));
+    texts.addAll(List.of(
+      "0", "-0", "1.0f", "NaN", "-Infinity", "1e400", "1e-400",
+      "123456789012345678901234567890", "9999999999999999999",
+      "18446744073709551616", "1e99999999999999", "1e-99999999999"));
+    Assert.assertEquals(List.of(), parseAll(texts, true));
+  }
+
+  @Test
+  public void testMalformed()
+  {
+    final List<String> bad = List.of(
+      ".", "-", "e5", "1e", "1e+", "inf", "1.0ff", "0x", "0xg", "x", "1..2",
+      "1.2.3", "--1", "1-", "1_0", "+-1", "1e5.0", "NaNd");
+    Assert.assertEquals(bad, parseAll(bad));
+    Assert.assertEquals(bad, parseAll(bad, true));
+  }
+
+  @Test
+  public void testRandom()
+  {
+    final Random r = new Random(0x5eedL);
+    final List<String> texts = new ArrayList<>();
+    for (int index = 0; index < 20000; ++index) {
+      final double d = Double.longBitsToDouble(r.nextLong());
+      if (!Double.isFinite(d)) {
+        continue;
+      }
+      texts.add(Double.toString(d));
+      texts.add(String.format(Locale.ROOT, "%.6f", Double.valueOf(r.nextGaussian())));
+      texts.add(String.format(Locale.ROOT, "%.17e", Double.valueOf(d)));
+      texts.add(new BigDecimal(d).toString());
+    }
+    Assert.assertEquals(List.of(), parseAll(texts));
+  }
+
+  @Test
+  public void testRandomFloat()
+  {
+    final Random r = new Random(0x5eedL);
+    final List<String> texts = new ArrayList<>();
+    for (int index = 0; index < 20000; ++index) {
+      final float f = Float.intBitsToFloat(r.nextInt());
+      if (!Float.isFinite(f)) {
+        continue;
+      }
+      final double d = Double.longBitsToDouble(r.nextLong());
+      texts.add(Float.toString(f));
+      texts.add(String.format(Locale.ROOT, "%.9e", Double.valueOf(f)));
+      texts.add(new BigDecimal(f).toString());
+      texts.add(String.format(Locale.ROOT, "%.6f", Double.valueOf(r.nextGaussian())));
+      if (Double.isFinite(d)) {
+        texts.add(Double.toString(d));
+      }
+
+      // Decimals within a tiny distance of a midpoint between two floats
+      final float g = Math.nextUp(f);
+      if (Float.isFinite(g)) {
+        final BigDecimal a = new BigDecimal(f);
+        final BigDecimal b = new BigDecimal(g);
+        final BigDecimal mid = a.add(b).divide(BigDecimal.valueOf(2L));
+        final BigDecimal eps = mid.abs().movePointLeft(30);
+        texts.add(mid.toString());
+        texts.add(mid.subtract(eps).toString());
+        texts.add(mid.add(eps).toString());
+      }
+    }
+    Assert.assertEquals(List.of(), parseAll(texts, true));
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserEventListenerType;
+import com.io7m.jobj.core.JOParserParallel;
+import com.io7m.jobj.core.JOParserType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The parser contract, run against the parallel parser using the smallest
+ * possible chunks so that every line boundary is also a chunk boundary.
+ */
+
+public final class JOParserParallelTest extends JOParserContract
+{
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @AfterClass
+  public static void shutdown()
+  {
+    POOL.shutdown();
+  }
+
+  @Override protected JOParserType getParser(
+    final String name,
+    final JOParserEventListenerType listener)
+    throws FileNotFoundException
+  {
+    try (InputStream stream =
+           JOParserParallelTest.class.getResourceAsStream(name)) {
+      if (stream == null) {
+        throw new FileNotFoundException(name);
+      }
+
+      final Path file = this.folder.getRoot().toPath().resolve(name);
+      Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+      return JOParserParallel.newParserFromPath(file, listener, POOL, 1L);
+    } catch (final FileNotFoundException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String generate(final Random r)
+  {
+    final StringBuilder sb = new StringBuilder(1 << 16);
+    int v = 0;
+    for (int line = 0; line < 2000; ++line) {
+      final String end = r.nextInt(8) == 0 ? "\r\n" : "\n";
+      switch (r.nextInt(12)) {
+        case 0:
+          sb.append("# comment ").append(line);
+          break;
+        case 1:
+          sb.append("vn 0.0 1.0 0.0");
+          break;
+        case 2:
+          sb.append("vt 0.5 0.25");
+          break;
+        case 3:
+          sb.append("v 1.0 \\").append(end).append("2.0 3.0");
+          break;
+        case 4:
+          sb.append("v 1.0 x 3.0");
+          ++v;
+          break;
+        case 5:
+          sb.append("o obj").append(line);
+          break;
+        case 6:
+          sb.append("f 1/1/1 2/1/1 ").append(v + r.nextInt(3)).append("/1/1");
+          break;
+        case 7:
+          sb.append("f 1 2 ").append(v + r.nextInt(3) - 1);
+          break;
+        case 8:
+          sb.append("f 1//9999 2//1 3//1 # trailing");
+          break;
+        case 9:
+          sb.append("bogus");
+          break;
+        default:
+          sb.append("v ").append(r.nextDouble()).append(' ')
+            .append(r.nextDouble()).append(' ').append(r.nextDouble());
+          ++v;
+          break;
+      }
+      sb.append(end);
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testEquivalentToSequential()
+    throws Exception
+  {
+    final Random r = new Random(0x4a4f424aL);
+    for (int file = 0; file < 4; ++file) {
+      final Path path = this.folder.getRoot().toPath().resolve(file + ".obj");
+      Files.write(path, generate(r).getBytes(StandardCharsets.UTF_8));
+
+      final Recorder expected = new Recorder();
+      JOParser.newParserFromPath(path, expected).run();
+      Assert.assertTrue(expected.events.size() > 2000);
+
+      for (final long size : new long[]{1L, 7L, 100L, 4096L, 1L << 20}) {
+        final Recorder received = new Recorder();
+        JOParserParallel.newParserFromPath(path, received, POOL, size).run();
+        Assert.assertEquals(expected.events, received.events);
+      }
+    }
+  }
+
+  @Test
+  public void testNonexistent()
+    throws Exception
+  {
+    final AtomicBoolean error_called = new AtomicBoolean(false);
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public void onFatalError(
+        final LexicalPositionType<Path> lex,
+        final Optional<Throwable> e,
+        final String message)
+      {
+        Assert.assertTrue(e.isPresent());
+        Assert.assertTrue(e.get() instanceof IOException);
+        error_called.set(true);
+      }
+    };
+
+    final Path file = this.folder.getRoot().toPath().resolve("nonexistent");
+    final JOParserType p = JOParserParallel.newParserFromPath(file, ls, POOL);
+    p.run();
+
+    Assert.assertTrue(error_called.get());
+  }
+
+  private static final class Recorder implements JOParserEventListenerType
+  {
+    private final List<String> events = new ArrayList<>();
+
+    Recorder()
+    {
+
+    }
+
+    private void add(
+      final LexicalPositionType<Path> p,
+      final String text)
+    {
+      this.events.add(p.line() + ":" + p.column() + ": " + text);
+    }
+
+    @Override
+    public void onFatalError(
+      final LexicalPositionType<Path> p,
+      final Optional<Throwable> e,
+      final String message)
+    {
+      this.add(p, "fatal " + message);
+    }
+
+    @Override
+    public void onError(
+      final LexicalPositionType<Path> p,
+      final JOParserErrorCode e,
+      final String message)
+    {
+      this.add(p, "error " + e + " " + message);
+    }
+
+    @Override
+    public void onLine(
+      final LexicalPositionType<Path> p,
+      final String line)
+    {
+      this.add(p, "line " + line);
+    }
+
+    @Override
+    public void onEOF(final LexicalPositionType<Path> p)
+    {
+      this.add(p, "eof");
+    }
+
+    @Override
+    public void onComment(
+      final LexicalPositionType<Path> p,
+      final String text)
+    {
+      this.add(p, "comment " + text);
+    }
+
+    @Override
+    public void onCommandUsemtl(
+      final LexicalPositionType<Path> p,
+      final String name)
+    {
+      this.add(p, "usemtl " + name);
+    }
+
+    @Override
+    public void onCommandMtllib(
+      final LexicalPositionType<Path> p,
+      final String name)
+    {
+      this.add(p, "mtllib " + name);
+    }
+
+    @Override
+    public void onCommandO(
+      final LexicalPositionType<Path> p,
+      final String name)
+    {
+      this.add(p, "o " + name);
+    }
+
+    @Override
+    public void onCommandS(
+      final LexicalPositionType<Path> p,
+      final int group_number)
+    {
+      this.add(p, "s " + group_number);
+    }
+
+    @Override
+    public void onCommandV(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      this.add(p, "v " + index + " " + x + " " + y + " " + z + " " + w);
+    }
+
+    @Override
+    public void onCommandVN(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final double x,
+      final double y,
+      final double z)
+    {
+      this.add(p, "vn " + index + " " + x + " " + y + " " + z);
+    }
+
+    @Override
+    public void onCommandVT(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final double x,
+      final double y,
+      final double z)
+    {
+      this.add(p, "vt " + index + " " + x + " " + y + " " + z);
+    }
+
+    @Override
+    public void onCommandFVertexV_VT_VN(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final int v,
+      final int vt,
+      final int vn)
+    {
+      this.add(p, "f " + index + " " + v + "/" + vt + "/" + vn);
+    }
+
+    @Override
+    public void onCommandFVertexV_VT(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final int v,
+      final int vt)
+    {
+      this.add(p, "f " + index + " " + v + "/" + vt);
+    }
+
+    @Override
+    public void onCommandFVertexV_VN(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final int v,
+      final int vn)
+    {
+      this.add(p, "f " + index + " " + v + "//" + vn);
+    }
+
+    @Override
+    public void onCommandFVertexV(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final int v)
+    {
+      this.add(p, "f " + index + " " + v);
+    }
+
+    @Override
+    public void onCommandFStarted(
+      final LexicalPositionType<Path> p,
+      final int index)
+    {
+      this.add(p, "f started " + index);
+    }
+
+    @Override
+    public void onCommandFFinished(
+      final LexicalPositionType<Path> p,
+      final int index)
+    {
+      this.add(p, "f finished " + index);
+    }
+  }
+}
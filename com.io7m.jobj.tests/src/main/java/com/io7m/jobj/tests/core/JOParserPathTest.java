@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserEventKind;
+import com.io7m.jobj.core.JOParserEventListenerType;
+import com.io7m.jobj.core.JOParserType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class JOParserPathTest extends JOParserContract
+{
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Override protected JOParserType getParser(
+    final String name,
+    final JOParserEventListenerType listener)
+    throws FileNotFoundException
+  {
+    try (InputStream stream =
+           JOParserPathTest.class.getResourceAsStream(name)) {
+      if (stream == null) {
+        throw new FileNotFoundException(name);
+      }
+
+      final Path file = this.folder.getRoot().toPath().resolve(name);
+      Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+      return JOParser.newParserFromPath(file, listener);
+    } catch (final FileNotFoundException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Test
+  public void testNonexistent()
+    throws Exception
+  {
+    final AtomicBoolean error_called = new AtomicBoolean(false);
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public void onFatalError(
+        final LexicalPositionType<Path> lex,
+        final Optional<Throwable> e,
+        final String message)
+      {
+        Assert.assertTrue(e.isPresent());
+        Assert.assertTrue(e.get() instanceof IOException);
+        error_called.set(true);
+      }
+    };
+
+    final Path file = this.folder.getRoot().toPath().resolve("nonexistent");
+    final JOParserType p = JOParser.newParserFromPath(file, ls);
+    p.run();
+
+    Assert.assertTrue(error_called.get());
+  }
+
+  /**
+   * Lines that cross the boundaries of the reader's internal blocks, lines
+   * that are longer than a block, and every kind of line terminator are all
+   * delivered intact.
+   */
+
+  @Test
+  public void testLinesAcrossBlocks()
+    throws Exception
+  {
+    final Random r = new Random(0x4a4f424aL);
+    final String[] terminators = {"\n", "\r\n", "\r"};
+    final List<String> expected = new ArrayList<>();
+    final StringBuilder sb = new StringBuilder(4 << 20);
+    for (int index = 0; index < 20000; ++index) {
+      final String line;
+      if (index == 10000) {
+        line = "# " + "x".repeat(200000);
+      } else if (r.nextInt(4) == 0) {
+        line = "# " + "c".repeat(1 + r.nextInt(1000));
+      } else {
+        line = "v " + r.nextDouble() + " " + r.nextDouble();
+      }
+      expected.add(line);
+      sb.append(line);
+      if (index < 19999) {
+        sb.append(terminators[r.nextInt(terminators.length)]);
+      }
+    }
+
+    final Path file = this.folder.getRoot().toPath().resolve("blocks.obj");
+    Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+    final List<String> received = new ArrayList<>();
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public Set<JOParserEventKind> interests()
+      {
+        return EnumSet.of(JOParserEventKind.EVENT_LINE);
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+        // Nothing
+      }
+
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+        received.add(line);
+      }
+    };
+
+    JOParser.newParserFromPath(file, ls).run();
+    Assert.assertEquals(expected, received);
+  }
+}
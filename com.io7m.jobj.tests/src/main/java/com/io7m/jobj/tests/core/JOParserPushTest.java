@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParserEventListenerType;
+import com.io7m.jobj.core.JOParserPush;
+import com.io7m.jobj.core.JOParserPushType;
+import com.io7m.jobj.core.JOParserType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * The parser contract, run against the push parser with input delivered in
+ * small fragments of random sizes.
+ */
+
+public final class JOParserPushTest extends JOParserContract
+{
+  @Override protected JOParserType getParser(
+    final String name,
+    final JOParserEventListenerType listener)
+    throws FileNotFoundException
+  {
+    final byte[] data;
+    try (InputStream stream =
+           JOParserPushTest.class.getResourceAsStream(name)) {
+      if (stream == null) {
+        throw new FileNotFoundException(name);
+      }
+      data = stream.readAllBytes();
+    } catch (final FileNotFoundException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return () -> {
+      final JOParserPushType p =
+        JOParserPush.newParser(Optional.of(Paths.get(name)), listener);
+      final Random r = new Random((long) name.hashCode());
+      int offset = 0;
+      while (offset < data.length) {
+        final int size = Math.min(data.length - offset, r.nextInt(8));
+        p.feed(ByteBuffer.wrap(data, offset, size));
+        offset += size;
+      }
+      p.finish();
+    };
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFeedAfterFinish()
+  {
+    final JOParserPushType p =
+      JOParserPush.newParser(Optional.empty(), new UnreachableListener()
+      {
+        @Override
+        public void onEOF(final LexicalPositionType<Path> lex)
+        {
+          // Expected
+        }
+      });
+    p.finish();
+    p.feed(ByteBuffer.allocate(1));
+  }
+
+  @Test
+  public void testFeedConsumes()
+  {
+    final JOParserPushType p =
+      JOParserPush.newParser(Optional.empty(), new UnreachableListener());
+    final ByteBuffer b = ByteBuffer.wrap(new byte[]{'v', ' '});
+    p.feed(b);
+    Assert.assertEquals(0L, (long) b.remaining());
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserEventKind;
+import com.io7m.jobj.core.JOParserStatistics;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public final class JOParserStatisticsTest
+{
+  private static final String TEXT =
+    "# comment\r\n"
+      + "v 0 0 0\n"
+      + "v 1 0 0\r\n"
+      + "v 0 1 \\\n"
+      + "0\n"
+      + "vt 0 0\n"
+      + "vn 0 0 1\n"
+      + "f 1 2 3\n"
+      + "f 1 2 9\n"
+      + "o x\n"
+      + "bogus\n";
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static void checkCounts(
+    final JOParserStatistics s,
+    final long multiple)
+  {
+    final long size = (long) TEXT.length();
+    Assert.assertEquals(size * multiple, s.bytes());
+    Assert.assertEquals(11L * multiple, s.lines());
+    Assert.assertEquals(
+      3L * multiple, s.commandCount(JOParserEventKind.EVENT_COMMAND_V));
+    Assert.assertEquals(
+      multiple, s.commandCount(JOParserEventKind.EVENT_COMMAND_VT));
+    Assert.assertEquals(
+      multiple, s.commandCount(JOParserEventKind.EVENT_COMMAND_VN));
+    Assert.assertEquals(
+      2L * multiple, s.commandCount(JOParserEventKind.EVENT_COMMAND_F));
+    Assert.assertEquals(
+      multiple, s.commandCount(JOParserEventKind.EVENT_COMMAND_O));
+    Assert.assertEquals(
+      0L, s.commandCount(JOParserEventKind.EVENT_COMMAND_S));
+    Assert.assertEquals(
+      multiple, s.errorCount(JOParserErrorCode.JOP_ERROR_NONEXISTENT_V));
+    Assert.assertEquals(
+      multiple,
+      s.errorCount(JOParserErrorCode.JOP_ERROR_UNRECOGNIZED_COMMAND));
+    Assert.assertEquals(
+      0L, s.errorCount(JOParserErrorCode.JOP_ERROR_BAD_COMMAND_SYNTAX));
+    Assert.assertEquals(0L, s.fatalErrorCount());
+  }
+
+  @Test
+  public void testStream()
+  {
+    final JOParserStatistics s = JOParserStatistics.create(1);
+    final JOMeshBuilder builder = new JOMeshBuilder();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)),
+      builder,
+      s).run();
+
+    Assert.assertEquals(2L, (long) builder.errorCount());
+    checkCounts(s, 1L);
+    Assert.assertTrue(s.readNanos() > 0L);
+    Assert.assertTrue(s.tokenizeNanos() > 0L);
+    Assert.assertTrue(s.parseNanos() >= 0L);
+    Assert.assertTrue(s.listenerNanos() > 0L);
+  }
+
+  @Test
+  public void testPathAccumulates()
+    throws Exception
+  {
+    final Path path = this.folder.getRoot().toPath().resolve("file.obj");
+    Files.write(path, TEXT.getBytes(StandardCharsets.UTF_8));
+
+    final JOParserStatistics s = JOParserStatistics.create();
+    for (int index = 0; index < 3; ++index) {
+      JOParser.newParserFromPath(path, new JOMeshBuilder(), s).run();
+    }
+    checkCounts(s, 3L);
+
+    s.reset();
+    checkCounts(s, 0L);
+    Assert.assertEquals(0L, s.readNanos());
+  }
+
+  @Test
+  public void testFatal()
+  {
+    final Path path = this.folder.getRoot().toPath().resolve("missing.obj");
+    final JOParserStatistics s = JOParserStatistics.create();
+    JOParser.newParserFromPath(path, new JOMeshBuilder(), s).run();
+    Assert.assertEquals(1L, s.fatalErrorCount());
+    Assert.assertEquals(0L, s.bytes());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadInterval()
+  {
+    JOParserStatistics.create(0);
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserEventKind;
+import com.io7m.jobj.core.JOPullParser;
+import com.io7m.jobj.core.JOPullParserEventKind;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+public final class JOPullParserTest
+{
+  private static final String TEXT = String.join(
+    "\n",
+    "# A comment",
+    "o first",
+    "v 1.0 2.0 3.0",
+    "v 4.0 5.0 6.0 7.0",
+    "v 1.0 1.0 1.0",
+    "vt 0.5 0.25",
+    "vn 0.0 0.0 1.0",
+    "s 2",
+    "f 1/1/1 2/1/1 3/1/1",
+    "f 1 2 4",
+    "usemtl material",
+    "o second",
+    "v 1.0 2.0 3.0",
+    "");
+
+  private static JOPullParser parser(
+    final Set<JOParserEventKind> interests)
+  {
+    return JOPullParser.newPullParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)),
+      interests);
+  }
+
+  @Test
+  public void testEvents()
+    throws Exception
+  {
+    try (JOPullParser p = parser(EnumSet.allOf(JOParserEventKind.class))) {
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMENT, p.next());
+      Assert.assertEquals("# A comment", p.text());
+      Assert.assertEquals(1L, (long) p.line());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_O, p.next());
+      Assert.assertEquals("first", p.text());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_V, p.next());
+      Assert.assertEquals(1L, (long) p.index());
+      Assert.assertEquals(1.0, p.x(), 0.0);
+      Assert.assertEquals(2.0, p.y(), 0.0);
+      Assert.assertEquals(3.0, p.z(), 0.0);
+      Assert.assertEquals(1.0, p.w(), 0.0);
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_V, p.next());
+      Assert.assertEquals(2L, (long) p.index());
+      Assert.assertEquals(7.0, p.w(), 0.0);
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_V, p.next());
+      Assert.assertEquals(3L, (long) p.index());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_VT, p.next());
+      Assert.assertEquals(1L, (long) p.index());
+      Assert.assertEquals(0.5, p.x(), 0.0);
+      Assert.assertEquals(0.25, p.y(), 0.0);
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_VN, p.next());
+      Assert.assertEquals(1.0, p.z(), 0.0);
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_S, p.next());
+      Assert.assertEquals(2L, (long) p.smoothingGroup());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_F, p.next());
+      Assert.assertEquals(1L, (long) p.index());
+      Assert.assertEquals(9L, (long) p.line());
+      Assert.assertEquals(3L, (long) p.faceVertexCount());
+      for (int index = 0; index < 3; ++index) {
+        Assert.assertEquals((long) index + 1L, (long) p.vertexIndex(index));
+        Assert.assertEquals(1L, (long) p.textureIndex(index));
+        Assert.assertEquals(1L, (long) p.normalIndex(index));
+      }
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_ERROR, p.next());
+      Assert.assertEquals(
+        JOParserErrorCode.JOP_ERROR_NONEXISTENT_V, p.errorCode());
+      Assert.assertEquals("4", p.text());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_USEMTL, p.next());
+      Assert.assertEquals("material", p.text());
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_O, p.next());
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_V, p.next());
+      Assert.assertEquals(4L, (long) p.index());
+      Assert.assertEquals(JOPullParserEventKind.EVENT_EOF, p.next());
+    }
+  }
+
+  @Test
+  public void testLineEvents()
+    throws Exception
+  {
+    final String text = String.join(
+      "\n",
+      "v 1.0 2.0 3.0",
+      "f 1 8 9 # bad",
+      "f 1 1 1 \\",
+      "  1",
+      "");
+
+    try (JOPullParser p = JOPullParser.newPullParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      EnumSet.allOf(JOParserEventKind.class))) {
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_V, p.next());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_ERROR, p.next());
+      Assert.assertEquals("8", p.text());
+      Assert.assertEquals(2L, (long) p.line());
+      Assert.assertEquals(5L, (long) p.column());
+      Assert.assertEquals(JOPullParserEventKind.EVENT_ERROR, p.next());
+      Assert.assertEquals("9", p.text());
+      Assert.assertEquals(7L, (long) p.column());
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMENT, p.next());
+      Assert.assertEquals("# bad", p.text());
+      Assert.assertEquals(2L, (long) p.line());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_F, p.next());
+      Assert.assertEquals(2L, (long) p.index());
+      Assert.assertEquals(4L, (long) p.faceVertexCount());
+
+      Assert.assertEquals(JOPullParserEventKind.EVENT_EOF, p.next());
+    }
+  }
+
+  @Test
+  public void testUnexpectedEOF()
+    throws Exception
+  {
+    final String text = "v 1.0 2.0 3.0 \\";
+    try (JOPullParser p = JOPullParser.newPullParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      EnumSet.allOf(JOParserEventKind.class))) {
+      Assert.assertEquals(JOPullParserEventKind.EVENT_FATAL_ERROR, p.next());
+      Assert.assertEquals("Unexpected EOF", p.text());
+      Assert.assertEquals(Optional.empty(), p.exception());
+      Assert.assertEquals(JOPullParserEventKind.EVENT_EOF, p.next());
+    }
+  }
+
+  @Test
+  public void testInterests()
+    throws Exception
+  {
+    try (JOPullParser p =
+           parser(EnumSet.of(JOParserEventKind.EVENT_COMMAND_V))) {
+      for (int index = 1; index <= 4; ++index) {
+        Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_V, p.next());
+        Assert.assertEquals((long) index, (long) p.index());
+      }
+      Assert.assertEquals(JOPullParserEventKind.EVENT_EOF, p.next());
+    }
+  }
+
+  @Test
+  public void testEarlyExit()
+    throws Exception
+  {
+    final JOPullParser p =
+      parser(EnumSet.of(JOParserEventKind.EVENT_COMMAND_O));
+    Assert.assertEquals(JOPullParserEventKind.EVENT_COMMAND_O, p.next());
+    Assert.assertEquals("first", p.text());
+    p.close();
+
+    try {
+      p.next();
+      Assert.fail();
+    } catch (final NoSuchElementException e) {
+      // Expected
+    }
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testAfterEOF()
+    throws Exception
+  {
+    try (JOPullParser p = parser(EnumSet.noneOf(JOParserEventKind.class))) {
+      Assert.assertEquals(JOPullParserEventKind.EVENT_EOF, p.next());
+      p.next();
+    }
+  }
+}
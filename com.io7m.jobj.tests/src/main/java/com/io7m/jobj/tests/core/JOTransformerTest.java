@@ -0,0 +1,268 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jobj.core.JOMesh;
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserEventListenerType;
+import com.io7m.jobj.core.JOTransform;
+import com.io7m.jobj.core.JOTransformer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+public final class JOTransformerTest
+{
+  private static JOMesh mesh(
+    final JOTransform transform,
+    final String text)
+  {
+    final JOMeshBuilder b = new JOMeshBuilder();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      new JOTransformer(transform, b)).run();
+    Assert.assertEquals(0L, (long) b.errorCount());
+    return b.build();
+  }
+
+  private static void checkVector(
+    final FloatBuffer data,
+    final int index,
+    final double x,
+    final double y,
+    final double z)
+  {
+    Assert.assertEquals(x, data.get(index * 3), 1.0e-6);
+    Assert.assertEquals(y, data.get(index * 3 + 1), 1.0e-6);
+    Assert.assertEquals(z, data.get(index * 3 + 2), 1.0e-6);
+  }
+
+  @Test
+  public void testZUpToYUp()
+  {
+    final JOMesh m = mesh(
+      JOTransform.zUpToYUp(),
+      "v 1 2 3\n"
+        + "v 2 2 3\n"
+        + "v 2 3 3\n"
+        + "vn 0 0 1\n"
+        + "f 1//1 2//1 3//1\n");
+
+    checkVector(m.positions(), 0, 1.0, 3.0, -2.0);
+    checkVector(m.positions(), 2, 2.0, 3.0, -3.0);
+    checkVector(m.normals(), 0, 0.0, 1.0, 0.0);
+  }
+
+  /**
+   * Normals are transformed by the inverse transpose, and so stay
+   * perpendicular to surfaces under non-uniform scaling.
+   */
+
+  @Test
+  public void testNonUniformScale()
+  {
+    final JOMesh m = mesh(
+      JOTransform.scale(2.0, 1.0, 1.0),
+      "v 0 0 0\n"
+        + "v 1 1 0\n"
+        + "v 0 0 1\n"
+        + "vn 1 -1 0\n"
+        + "f 1//1 2//1 3//1\n");
+
+    final double k = 1.0 / Math.sqrt(5.0);
+    checkVector(m.positions(), 1, 2.0, 1.0, 0.0);
+    checkVector(m.normals(), 0, k, -2.0 * k, 0.0);
+  }
+
+  /**
+   * A mirroring transform reverses the winding of faces, so that faces
+   * still agree with their normals.
+   */
+
+  @Test
+  public void testMirror()
+  {
+    final JOMesh m = mesh(
+      JOTransform.scale(-1.0, 1.0, 1.0),
+      "v 0 0 0\n"
+        + "v 1 0 0\n"
+        + "v 1 1 0\n"
+        + "v 0 1 0\n"
+        + "vn 0 0 1\n"
+        + "f 1//1 2//1 3//1 4//1\n");
+
+    Assert.assertEquals(2L, (long) m.triangleCount());
+    checkVector(m.normals(), 0, 0.0, 0.0, 1.0);
+
+    final FloatBuffer p = m.positions();
+    final IntBuffer i = m.indices();
+    for (int t = 0; t < 2; ++t) {
+      final int a = i.get(t * 3);
+      final int b = i.get(t * 3 + 1);
+      final int c = i.get(t * 3 + 2);
+      final double ux = p.get(b * 3) - p.get(a * 3);
+      final double uy = p.get(b * 3 + 1) - p.get(a * 3 + 1);
+      final double vx = p.get(c * 3) - p.get(a * 3);
+      final double vy = p.get(c * 3 + 1) - p.get(a * 3 + 1);
+      Assert.assertTrue(ux * vy - uy * vx > 0.0);
+    }
+  }
+
+  @Test
+  public void testCompose()
+  {
+    final JOTransform t =
+      JOTransform.zUpToYUp()
+        .andThen(JOTransform.scale(0.001))
+        .andThen(JOTransform.translation(10.0, 0.0, 0.0));
+
+    Assert.assertEquals(
+      JOTransform.ofMatrix(
+        0.001, 0.0, 0.0, 10.0,
+        0.0, 0.0, 0.001, 0.0,
+        0.0, -0.001, 0.0, 0.0,
+        0.0, 0.0, 0.0, 1.0),
+      t);
+    Assert.assertEquals(1.0e-9, t.determinant(), 1.0e-18);
+    Assert.assertEquals(
+      JOTransform.scale(3.0),
+      JOTransform.identity().andThen(JOTransform.scale(3.0)));
+
+    final JOMesh m = mesh(
+      t, "v 1000 2000 3000\nv 0 0 0\nv 0 0 1000\nf 1 2 3\n");
+    checkVector(m.positions(), 0, 11.0, 3.0, -2.0);
+    checkVector(m.positions(), 1, 10.0, 0.0, 0.0);
+  }
+
+  @Test
+  public void testProjective()
+  {
+    final JOMesh m = mesh(
+      JOTransform.ofMatrix(
+        1.0, 0.0, 0.0, 0.0,
+        0.0, 1.0, 0.0, 0.0,
+        0.0, 0.0, 1.0, 0.0,
+        0.0, 0.0, 0.0, 2.0),
+      "v 2 4 6\nv 0 0 0\nv 0 2 0\nf 1 2 3\n");
+    checkVector(m.positions(), 0, 1.0, 2.0, 3.0);
+  }
+
+  /**
+   * Transforming during parsing gives the same result as transforming the
+   * finished mesh.
+   */
+
+  @Test
+  public void testFused()
+    throws Exception
+  {
+    final JOTransform t =
+      JOTransform.zUpToYUp().andThen(JOTransform.scale(0.5, 2.0, 3.0));
+
+    final JOMeshBuilder plain = new JOMeshBuilder();
+    final JOMeshBuilder fused = new JOMeshBuilder();
+    parse("quads.obj", plain);
+    parse("quads.obj", new JOTransformer(t, fused));
+
+    final JOMesh a = plain.build();
+    final JOMesh b = fused.build();
+    Assert.assertEquals(a.indices(), b.indices());
+
+    final FloatBuffer ap = a.positions();
+    final FloatBuffer bp = b.positions();
+    for (int index = 0; index < a.vertexCount(); ++index) {
+      final double x = ap.get(index * 3);
+      final double y = ap.get(index * 3 + 1);
+      final double z = ap.get(index * 3 + 2);
+      checkVector(bp, index, x * 0.5, z * 2.0, -y * 3.0);
+    }
+  }
+
+  /**
+   * Values are transformed at full precision before the builder rounds
+   * them, so translating large coordinates towards zero keeps precision
+   * that a float could not hold at the original magnitude.
+   */
+
+  @Test
+  public void testTranslateLarge()
+  {
+    final JOTransformer t = new JOTransformer(
+      JOTransform.translation(-500000.0, -5000000.0, 0.0),
+      new JOMeshBuilder());
+    Assert.assertFalse(t.singlePrecision());
+
+    final JOMesh m = mesh(
+      JOTransform.translation(-500000.0, -5000000.0, 0.0),
+      "v 500000.123 5000000.321 1.5\n"
+        + "v 500001.007 5000000.321 1.5\n"
+        + "v 500000.123 5000001.993 1.5\n"
+        + "f 1 2 3\n");
+
+    final FloatBuffer p = m.positions();
+    Assert.assertEquals(
+      (float) (500000.123 - 500000.0), p.get(0), 0.0f);
+    Assert.assertEquals(
+      (float) (5000000.321 - 5000000.0), p.get(1), 0.0f);
+    Assert.assertEquals(
+      (float) (500001.007 - 500000.0), p.get(3), 0.0f);
+    Assert.assertEquals(
+      (float) (5000001.993 - 5000000.0), p.get(7), 0.0f);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSingular()
+  {
+    new JOTransformer(JOTransform.scale(1.0, 0.0, 1.0), new JOMeshBuilder());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadLength()
+  {
+    JOTransform.ofMatrix(new double[15]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotFinite()
+  {
+    JOTransform.ofMatrix(
+      Double.NaN, 0.0, 0.0, 0.0,
+      0.0, 1.0, 0.0, 0.0,
+      0.0, 0.0, 1.0, 0.0,
+      0.0, 0.0, 0.0, 1.0);
+  }
+
+  private static void parse(
+    final String name,
+    final JOParserEventListenerType listener)
+    throws Exception
+  {
+    try (InputStream is = JOTransformerTest.class.getResourceAsStream(name)) {
+      JOParser.newParserFromStream(Optional.of(Paths.get(name)), is, listener)
+        .run();
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOMesh;
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserType;
+import com.io7m.jobj.core.JOTriangulator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+public final class JOTriangulatorTest
+{
+  private static void parse(
+    final String name,
+    final JOTriangulator t)
+    throws Exception
+  {
+    try (InputStream is = JOTriangulatorTest.class.getResourceAsStream(name)) {
+      final JOParserType p =
+        JOParser.newParserFromStream(Optional.of(Paths.get(name)), is, t);
+      p.run();
+    }
+  }
+
+  private static double[] vertex(
+    final FloatBuffer positions,
+    final int index)
+  {
+    return new double[]{
+      (double) positions.get(index * 3),
+      (double) positions.get(index * 3 + 1),
+      (double) positions.get(index * 3 + 2),
+    };
+  }
+
+  private static double[] normal(
+    final double[] a,
+    final double[] b,
+    final double[] c)
+  {
+    final double ux = b[0] - a[0];
+    final double uy = b[1] - a[1];
+    final double uz = b[2] - a[2];
+    final double vx = c[0] - a[0];
+    final double vy = c[1] - a[1];
+    final double vz = c[2] - a[2];
+    return new double[]{
+      uy * vz - uz * vy,
+      uz * vx - ux * vz,
+      ux * vy - uy * vx,
+    };
+  }
+
+  private static double length(final double[] n)
+  {
+    return Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+  }
+
+  /**
+   * Check that the given range of triangles has the expected total area and
+   * that every triangle faces in the same direction as the polygon.
+   */
+
+  private static void checkTriangles(
+    final JOMesh m,
+    final int first,
+    final int count,
+    final double area,
+    final double[] facing)
+  {
+    final FloatBuffer positions = m.positions();
+    final IntBuffer indices = m.indices();
+
+    double total = 0.0;
+    for (int index = first; index < first + count; ++index) {
+      final double[] a = vertex(positions, indices.get(index * 3));
+      final double[] b = vertex(positions, indices.get(index * 3 + 1));
+      final double[] c = vertex(positions, indices.get(index * 3 + 2));
+      final double[] n = normal(a, b, c);
+      final double dot = n[0] * facing[0] + n[1] * facing[1] + n[2] * facing[2];
+      Assert.assertTrue(dot > 0.0);
+      total += length(n) / 2.0;
+    }
+    Assert.assertEquals(area, total, 0.000001);
+  }
+
+  @Test
+  public void testConcave()
+    throws Exception
+  {
+    final JOMeshBuilder b = new JOMeshBuilder();
+    parse("concave.obj", new JOTriangulator(b));
+    Assert.assertEquals(0L, (long) b.errorCount());
+
+    final JOMesh m = b.build();
+    Assert.assertEquals(4L + 3L + 2L, (long) m.triangleCount());
+    checkTriangles(m, 0, 4, 3.0, new double[]{0.0, 1.0, 0.0});
+    checkTriangles(m, 4, 3, 5.0, new double[]{0.0, 0.0, 1.0});
+
+    final double[] n = normal(
+      new double[]{0.0, 0.0, 0.0},
+      new double[]{4.0, 4.0, 0.0},
+      new double[]{0.0, 4.0, 4.0});
+    final double area = length(n) / 2.0;
+    final double[] inner = normal(
+      new double[]{4.0, 4.0, 0.0},
+      new double[]{1.0, 2.0, 1.0},
+      new double[]{0.0, 4.0, 4.0});
+    checkTriangles(m, 7, 2, area - length(inner) / 2.0, n);
+  }
+
+  @Test
+  public void testEvents()
+    throws Exception
+  {
+    final List<String> events = new ArrayList<>();
+    final UnreachableListener ls = new UnreachableListener()
+    {
+      @Override
+      public void onLine(
+        final LexicalPositionType<Path> lex,
+        final String line)
+      {
+
+      }
+
+      @Override
+      public void onComment(
+        final LexicalPositionType<Path> p,
+        final String text)
+      {
+
+      }
+
+      @Override
+      public void onCommandV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final double x,
+        final double y,
+        final double z,
+        final double w)
+      {
+
+      }
+
+      @Override
+      public void onCommandFStarted(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        events.add("start " + index);
+      }
+
+      @Override
+      public void onCommandFVertexV(
+        final LexicalPositionType<Path> p,
+        final int index,
+        final int v)
+      {
+        events.add("v " + index + " " + v);
+      }
+
+      @Override
+      public void onCommandFFinished(
+        final LexicalPositionType<Path> p,
+        final int index)
+      {
+        events.add("finish " + index);
+      }
+
+      @Override
+      public void onEOF(final LexicalPositionType<Path> lex)
+      {
+        events.add("eof");
+      }
+    };
+
+    parse("concave.obj", new JOTriangulator(ls));
+
+    Assert.assertEquals(5L * 9L + 1L, (long) events.size());
+    Assert.assertEquals("start 2", events.get(20));
+    Assert.assertEquals("v 2 7", events.get(21));
+    Assert.assertEquals("v 2 8", events.get(22));
+    Assert.assertEquals("v 2 9", events.get(23));
+    Assert.assertEquals("finish 2", events.get(24));
+    Assert.assertEquals("eof", events.get(events.size() - 1));
+  }
+
+  /**
+   * A face that refers to a position whose own line was malformed cannot be
+   * triangulated, and is reported as an error instead.
+   */
+
+  @Test
+  public void testMalformedPosition()
+  {
+    final String text =
+      "v 0 0 0\n"
+        + "v 1 0 0\n"
+        + "v 1 1 0\n"
+        + "v 0 1 0\n"
+        + "v 0 x 0\n"
+        + "f 1 2 3 4\n"
+        + "f 1 2 3 5\n"
+        + "f 5 4 3 2 1\n";
+
+    final JOMeshBuilder b = new JOMeshBuilder();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      new JOTriangulator(b)).run();
+    Assert.assertEquals(3L, (long) b.errorCount());
+
+    final JOMesh m = b.build();
+    Assert.assertEquals(2L, (long) m.triangleCount());
+  }
+
+  @Test
+  public void testStars()
+  {
+    final Random r = new Random(0x7L);
+    for (int test = 0; test < 200; ++test) {
+      final int count = 4 + r.nextInt(20);
+      final StringBuilder sb = new StringBuilder(1024);
+      final double[] xs = new double[count];
+      final double[] ys = new double[count];
+      for (int index = 0; index < count; ++index) {
+        final double angle = (Math.PI * 2.0 * (double) index) / (double) count;
+        final double radius = 0.2 + r.nextDouble();
+        xs[index] = Math.cos(angle) * radius;
+        ys[index] = Math.sin(angle) * radius;
+        sb.append(String.format(
+          "v %s 3.0 %s\n",
+          Double.valueOf(ys[index]),
+          Double.valueOf(xs[index])));
+      }
+      sb.append("f");
+      for (int index = 0; index < count; ++index) {
+        sb.append(' ');
+        sb.append(index + 1);
+      }
+      sb.append('\n');
+
+      double area = 0.0;
+      for (int index = 0; index < count; ++index) {
+        final int next = (index + 1) % count;
+        area += xs[index] * ys[next] - xs[next] * ys[index];
+      }
+
+      final JOMeshBuilder b = new JOMeshBuilder();
+      JOParser.newParserFromStream(
+        Optional.empty(),
+        new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)),
+        new JOTriangulator(b)).run();
+
+      final JOMesh m = b.build();
+      Assert.assertEquals((long) (count - 2), (long) m.triangleCount());
+      checkTriangles(m, 0, count - 2, area / 2.0, new double[]{0.0, 1.0, 0.0});
+    }
+  }
+}
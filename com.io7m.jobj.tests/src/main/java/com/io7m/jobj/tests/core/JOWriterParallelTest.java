@@ -0,0 +1,298 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jobj.core.JOMesh;
+import com.io7m.jobj.core.JOMeshBuilder;
+import com.io7m.jobj.core.JOMeshOriginKind;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOWriter;
+import com.io7m.jobj.core.JOWriterParallel;
+import com.io7m.jobj.core.JOWriterType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public final class JOWriterParallelTest
+{
+  private static ForkJoinPool pool;
+
+  @BeforeClass
+  public static void setUp()
+  {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterClass
+  public static void tearDown()
+  {
+    pool.shutdownNow();
+  }
+
+  private static String write(
+    final int slice_size,
+    final ParallelAction action)
+    throws IOException
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    action.write(JOWriterParallel.newWriter(
+      Channels.newChannel(out), pool, slice_size));
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static JOMesh mesh(
+    final String text)
+  {
+    final JOMeshBuilder b = new JOMeshBuilder();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      b).run();
+    Assert.assertEquals(0L, (long) b.errorCount());
+    return b.build();
+  }
+
+  /**
+   * Double arrays written in parallel must be byte-identical to the same
+   * elements written sequentially, for any slice size.
+   */
+
+  @Test
+  public void testArraysSequential()
+    throws Exception
+  {
+    final Random r = new Random(0x4a4f424aL);
+    final double[] positions = new double[3 * 1000];
+    final double[] uvs = new double[2 * 1000];
+    final double[] normals = new double[3 * 1000];
+    final int[] indices = new int[3 * 700];
+    for (int index = 0; index < positions.length; ++index) {
+      positions[index] = (r.nextDouble() - 0.5) * 1.0e6;
+      normals[index] = r.nextGaussian();
+    }
+    for (int index = 0; index < uvs.length; ++index) {
+      uvs[index] = r.nextDouble();
+    }
+    for (int index = 0; index < indices.length; ++index) {
+      indices[index] = r.nextInt(1000);
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JOWriterType w = JOWriter.newWriter(Channels.newChannel(out))) {
+      for (int index = 0; index < 1000; ++index) {
+        w.writeV(
+          positions[index * 3],
+          positions[index * 3 + 1],
+          positions[index * 3 + 2]);
+      }
+      for (int index = 0; index < 1000; ++index) {
+        w.writeVT(uvs[index * 2], uvs[index * 2 + 1]);
+      }
+      for (int index = 0; index < 1000; ++index) {
+        w.writeVN(
+          normals[index * 3],
+          normals[index * 3 + 1],
+          normals[index * 3 + 2]);
+      }
+      for (int index = 0; index < indices.length; index += 3) {
+        w.writeFStart();
+        for (int k = 0; k < 3; ++k) {
+          final int v = indices[index + k] + 1;
+          w.writeFVertexV_VT_VN(v, v, v);
+        }
+        w.writeFFinish();
+      }
+    }
+    final String expected = out.toString(StandardCharsets.UTF_8);
+
+    for (final int size : new int[]{1, 7, 256, 100_000}) {
+      final String text = write(size, w -> {
+        w.writeV(positions);
+        w.writeVT(uvs);
+        w.writeVN(normals);
+        w.writeTriangles(indices, true, true);
+      });
+      Assert.assertEquals(expected, text);
+    }
+  }
+
+  /**
+   * Floats must be written as the shortest decimal that parses back to the
+   * same float.
+   */
+
+  @Test
+  public void testFloats()
+    throws Exception
+  {
+    final Random r = new Random(0x4a4f424aL);
+    final float[] values = new float[3 * 30_000];
+    for (int index = 0; index < values.length; ++index) {
+      switch (index % 3) {
+        case 0:
+          values[index] = Float.intBitsToFloat(r.nextInt());
+          break;
+        case 1:
+          values[index] = (r.nextFloat() - 0.5f) * 1000.0f;
+          break;
+        default:
+          values[index] = (float) r.nextGaussian();
+          break;
+      }
+    }
+    values[0] = 0.1f;
+    values[1] = Float.MIN_VALUE;
+    values[2] = Float.MAX_VALUE;
+    values[3] = Float.MIN_NORMAL;
+    values[4] = -0.0f;
+    values[5] = 1.0e-7f;
+
+    final String text = write(100, w -> w.writeV(values));
+    final String[] lines = text.split("\n");
+    Assert.assertEquals((long) values.length / 3L, (long) lines.length);
+    Assert.assertEquals("v 0.1 1.4e-45 3.4028235e38", lines[0]);
+    Assert.assertEquals("v 1.1754944e-38 -0 1e-7", lines[1]);
+
+    for (int index = 0; index < values.length; ++index) {
+      final float expected = values[index];
+      final String token = lines[index / 3].split(" ")[1 + index % 3];
+      Assert.assertEquals(
+        token,
+        (long) Float.floatToIntBits(expected),
+        (long) Float.floatToIntBits(Float.parseFloat(token)));
+
+      if (Float.isFinite(expected) && expected != 0.0f) {
+        Assert.assertEquals(
+          token,
+          0L,
+          (long) new BigDecimal(token).compareTo(
+            new BigDecimal(Float.toString(expected))));
+      }
+    }
+
+    Assert.assertEquals(text, write(7, w -> w.writeV(values)));
+  }
+
+  @Test
+  public void testMesh()
+    throws Exception
+  {
+    final JOMesh m = mesh(
+      "v 0 0 0\n"
+        + "v 1 0 0\n"
+        + "v 1 1 0\n"
+        + "v 0 1 0\n"
+        + "vt 0.5 0.25\n"
+        + "o a\n"
+        + "usemtl red\n"
+        + "f 1/1 2/1 3/1 4/1\n"
+        + "o b\n"
+        + "f 4/1 3/1 2/1\n");
+
+    final String text = write(1, w -> w.writeMesh(m));
+    Assert.assertEquals(
+      "v 0 0 0\n"
+        + "v 1 0 0\n"
+        + "v 1 1 0\n"
+        + "v 0 1 0\n"
+        + "vt 0.5 0.25\n"
+        + "vt 0.5 0.25\n"
+        + "vt 0.5 0.25\n"
+        + "vt 0.5 0.25\n"
+        + "o a\n"
+        + "usemtl red\n"
+        + "f 1/1 2/2 3/3\n"
+        + "f 1/1 3/3 4/4\n"
+        + "o b\n"
+        + "f 4/4 3/3 2/2\n",
+      text);
+
+    final JOMesh r = mesh(text);
+    Assert.assertEquals(m.groups(), r.groups());
+    Assert.assertEquals((long) m.vertexCount(), (long) r.vertexCount());
+    final FloatBuffer mp = m.positions();
+    final FloatBuffer rp = r.positions();
+    Assert.assertEquals(mp, rp);
+    final IntBuffer mi = m.indices();
+    final IntBuffer ri = r.indices();
+    Assert.assertEquals(mi, ri);
+  }
+
+  /**
+   * Meshes with origins are written in absolute coordinates.
+   */
+
+  @Test
+  public void testMeshOrigins()
+    throws Exception
+  {
+    final JOMeshBuilder b = new JOMeshBuilder(
+      ByteBuffer::allocate, JOMeshOriginKind.ORIGIN_FIRST_VERTEX);
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(
+        ("o a\n"
+           + "v 500000.1 5000000.3 100.2\n"
+           + "v 500010.1 5000000.3 100.2\n"
+           + "v 500000.1 5000010.3 100.2\n"
+           + "f 1 2 3\n").getBytes(StandardCharsets.UTF_8)),
+      b).run();
+
+    final String[] lines = write(1, w -> w.writeMesh(b.build())).split("\n");
+    Assert.assertEquals("v 500000.1 5000000.3 100.2", lines[0]);
+    Assert.assertEquals("o a", lines[3]);
+    Assert.assertEquals("f 1 2 3", lines[4]);
+    Assert.assertEquals(
+      500010.1, Double.parseDouble(lines[1].split(" ")[1]), 1.0e-5);
+    Assert.assertEquals(
+      5000010.3, Double.parseDouble(lines[2].split(" ")[2]), 1.0e-5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadLength()
+    throws Exception
+  {
+    write(1, w -> w.writeV(new double[4]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadSliceSize()
+  {
+    JOWriterParallel.newWriter(
+      Channels.newChannel(new ByteArrayOutputStream()), pool, 0);
+  }
+
+  private interface ParallelAction
+  {
+    void write(JOWriterParallel w)
+      throws IOException;
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tests.core;
+
+import com.io7m.jlexing.core.LexicalPositionType;
+import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserEventKind;
+import com.io7m.jobj.core.JOWriter;
+import com.io7m.jobj.core.JOWriterType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+public final class JOWriterTest
+{
+  private static String write(
+    final int size,
+    final WriterAction action)
+    throws IOException
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JOWriterType w = JOWriter.newWriter(Channels.newChannel(out), size)) {
+      action.write(w);
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testCommands()
+    throws Exception
+  {
+    final String text = write(JOWriter.BUFFER_SIZE_DEFAULT, w -> {
+      w.writeComment("exported");
+      w.writeMtllib("file.mtl");
+      w.writeO("cube");
+      w.writeUsemtl("red");
+      w.writeS(0);
+      w.writeS(-3);
+      w.writeV(1.0, -0.5, 0.1);
+      w.writeV(100.0, 1.0e-7, 1.0e22, 1.0);
+      w.writeVT(0.25);
+      w.writeVT(0.25, 0.75);
+      w.writeVT(0.0, -0.0, 3.0);
+      w.writeVN(0.0, 0.0, 1.0);
+      w.writeFStart();
+      w.writeFVertexV(1);
+      w.writeFVertexV(-1);
+      w.writeFVertexV(2147483647);
+      w.writeFFinish();
+      w.writeFStart();
+      w.writeFVertexV_VT(1, 2);
+      w.writeFVertexV_VT(3, 4);
+      w.writeFVertexV_VT(5, 6);
+      w.writeFFinish();
+      w.writeFStart();
+      w.writeFVertexV_VN(1, 2);
+      w.writeFVertexV_VN(3, 4);
+      w.writeFVertexV_VN(-2147483648, 6);
+      w.writeFFinish();
+      w.writeFStart();
+      w.writeFVertexV_VT_VN(1, 2, 3);
+      w.writeFVertexV_VT_VN(4, 5, 6);
+      w.writeFVertexV_VT_VN(7, 8, 9);
+      w.writeFVertexV_VT_VN(10, 11, 12);
+      w.writeFFinish();
+    });
+
+    Assert.assertEquals(
+      "# exported\n"
+        + "mtllib file.mtl\n"
+        + "o cube\n"
+        + "usemtl red\n"
+        + "s off\n"
+        + "s -3\n"
+        + "v 1 -0.5 0.1\n"
+        + "v 100 1e-7 1e22 1\n"
+        + "vt 0.25\n"
+        + "vt 0.25 0.75\n"
+        + "vt 0 -0 3\n"
+        + "vn 0 0 1\n"
+        + "f 1 -1 2147483647\n"
+        + "f 1/2 3/4 5/6\n"
+        + "f 1//2 3//4 -2147483648//6\n"
+        + "f 1/2/3 4/5/6 7/8/9 10/11/12\n",
+      text);
+  }
+
+  @Test
+  public void testNumbers()
+    throws Exception
+  {
+    final double[] values = {
+      0.1,
+      0.3,
+      1.0 / 3.0,
+      2.0 / 3.0,
+      123456.789,
+      1.0e20,
+      1.0e21,
+      1.0e23,
+      1.5e-6,
+      1.5e-5,
+      Double.MAX_VALUE,
+      Double.MIN_NORMAL,
+      -Double.MIN_VALUE,
+      Math.PI,
+      Double.NaN,
+      Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY,
+    };
+
+    final String text = write(JOWriter.BUFFER_SIZE_DEFAULT, w -> {
+      for (final double x : values) {
+        w.writeVT(x);
+      }
+    });
+
+    Assert.assertEquals(
+      "vt 0.1\n"
+        + "vt 0.3\n"
+        + "vt 0.3333333333333333\n"
+        + "vt 0.6666666666666666\n"
+        + "vt 123456.789\n"
+        + "vt 100000000000000000000\n"
+        + "vt 1e21\n"
+        + "vt 1e23\n"
+        + "vt 0.0000015\n"
+        + "vt 0.000015\n"
+        + "vt 1.7976931348623157e308\n"
+        + "vt 2.2250738585072014e-308\n"
+        + "vt -4.9e-324\n"
+        + "vt 3.141592653589793\n"
+        + "vt NaN\n"
+        + "vt Infinity\n"
+        + "vt -Infinity\n",
+      text);
+  }
+
+  /**
+   * Random doubles written and parsed back must be bit-identical, and must
+   * never use more significant digits than {@link Double#toString(double)}.
+   */
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    final Random r = new Random(0x4a4f424aL);
+    final double[] values = new double[300_000];
+    for (int index = 0; index < values.length; ++index) {
+      switch (index % 3) {
+        case 0:
+          values[index] = Double.longBitsToDouble(r.nextLong());
+          break;
+        case 1:
+          values[index] = (r.nextDouble() - 0.5) * 1000.0;
+          break;
+        default:
+          values[index] = (float) r.nextGaussian();
+          break;
+      }
+    }
+
+    final String text = write(200, w -> {
+      for (int index = 0; index < values.length; index += 3) {
+        w.writeV(values[index], values[index + 1], values[index + 2]);
+      }
+    });
+
+    final Recorder recorder = new Recorder();
+    JOParser.newParserFromStream(
+      Optional.empty(),
+      new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+      recorder).run();
+
+    Assert.assertEquals((long) values.length, (long) recorder.values.size());
+    for (int index = 0; index < values.length; ++index) {
+      final double expected = values[index];
+      final double received = recorder.values.get(index).doubleValue();
+      Assert.assertEquals(
+        Double.doubleToLongBits(expected),
+        Double.doubleToLongBits(received));
+
+      if (Double.isFinite(expected) && expected != 0.0) {
+        final String line = recorder.lines.get(index / 3);
+        final String token = line.split(" ")[1 + index % 3];
+        Assert.assertTrue(
+          token + " vs " + expected,
+          precision(token) <= precision(Double.toString(expected)));
+      }
+    }
+  }
+
+  private static int precision(
+    final String text)
+  {
+    return new BigDecimal(text).stripTrailingZeros().precision();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadName()
+    throws Exception
+  {
+    write(JOWriter.BUFFER_SIZE_DEFAULT, w -> w.writeO("two words"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadComment()
+    throws Exception
+  {
+    write(JOWriter.BUFFER_SIZE_DEFAULT, w -> w.writeComment("a\nv 0 0 0"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFaceTooSmall()
+    throws Exception
+  {
+    write(JOWriter.BUFFER_SIZE_DEFAULT, w -> {
+      w.writeFStart();
+      w.writeFVertexV(1);
+      w.writeFVertexV(2);
+      w.writeFFinish();
+    });
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFaceMixed()
+    throws Exception
+  {
+    write(JOWriter.BUFFER_SIZE_DEFAULT, w -> {
+      w.writeFStart();
+      w.writeFVertexV(1);
+      w.writeFVertexV_VN(2, 1);
+    });
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testVertexOutsideFace()
+    throws Exception
+  {
+    write(JOWriter.BUFFER_SIZE_DEFAULT, w -> w.writeFVertexV(1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCommandInsideFace()
+    throws Exception
+  {
+    write(JOWriter.BUFFER_SIZE_DEFAULT, w -> {
+      w.writeFStart();
+      w.writeV(0.0, 0.0, 0.0);
+    });
+  }
+
+  private interface WriterAction
+  {
+    void write(JOWriterType w)
+      throws IOException;
+  }
+
+  private static final class Recorder extends UnreachableListener
+  {
+    private final List<Double> values = new ArrayList<>();
+    private final List<String> lines = new ArrayList<>();
+
+    Recorder()
+    {
+
+    }
+
+    @Override
+    public Set<JOParserEventKind> interests()
+    {
+      return EnumSet.of(
+        JOParserEventKind.EVENT_LINE,
+        JOParserEventKind.EVENT_COMMAND_V);
+    }
+
+    @Override
+    public void onEOF(final LexicalPositionType<Path> lex)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onLine(
+      final LexicalPositionType<Path> lex,
+      final String line)
+    {
+      this.lines.add(line);
+    }
+
+    @Override
+    public void onCommandV(
+      final LexicalPositionType<Path> p,
+      final int index,
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      this.values.add(Double.valueOf(x));
+      this.values.add(Double.valueOf(y));
+      this.values.add(Double.valueOf(z));
+    }
+  }
+}
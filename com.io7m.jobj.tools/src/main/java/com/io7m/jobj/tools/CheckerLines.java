@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2015 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jobj.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Functions to retrieve individual lines of a file by line number without
+ * retaining the rest of the file. Lines are terminated by {@code LF},
+ * {@code CR}, or {@code CR LF}, exactly as they are by the parser.
+ */
+
+final class CheckerLines
+{
+  private static final int BUFFER_SIZE = 65536;
+  private static final int LINE_MAX = 4096;
+
+  private CheckerLines()
+  {
+    throw new AssertionError("Unreachable code");
+  }
+
+  /**
+   * Find the offsets of the starts of the given lines. The scan starts
+   * where the previous scan with the same cursor stopped, and so a file can
+   * be searched in several batches of ascending line numbers with a single
+   * pass over the file in total.
+   *
+   * @param lines   The one-based line numbers, in ascending order without
+   *                duplicates, and not less than those of any earlier scan
+   *                with the same cursor
+   * @param channel The file
+   * @param cursor  The position at which the previous scan stopped
+   *
+   * @return The offset of the start of each line, or {@code -1} for lines
+   * that do not exist
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static long[] offsets(
+    final int[] lines,
+    final FileChannel channel,
+    final Cursor cursor)
+    throws IOException
+  {
+    final long[] offsets = new long[lines.length];
+    Arrays.fill(offsets, -1L);
+
+    int want = 0;
+    while (want < lines.length && lines[want] < cursor.line) {
+      ++want;
+    }
+    if (want < lines.length
+      && lines[want] == cursor.line
+      && !cursor.atStart) {
+      offsets[want] = cursor.lineStart();
+      ++want;
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    while (want < lines.length) {
+      buffer.clear();
+      final int count = channel.read(buffer, cursor.position());
+      if (count <= 0) {
+        break;
+      }
+
+      for (int index = 0; index < count; ++index) {
+        final int started =
+          cursor.advance(buffer.get(index), cursor.position() + (long) index);
+        if (started == lines[want]) {
+          offsets[want] = cursor.lineStart();
+          ++want;
+          if (want == lines.length) {
+            cursor.skip((long) index + 1L);
+            return offsets;
+          }
+        }
+      }
+      cursor.skip((long) count);
+    }
+    return offsets;
+  }
+
+  /**
+   * The state of a scan over a file.
+   */
+
+  static final class Cursor
+  {
+    private int line;
+    private long lineStart;
+    private long position;
+    private boolean atStart;
+    private boolean skipLF;
+
+    Cursor()
+    {
+      this.line = 1;
+      this.atStart = true;
+    }
+
+    /**
+     * @return The offset of the next byte to be examined
+     */
+
+    long position()
+    {
+      return this.position;
+    }
+
+    /**
+     * Move past bytes that have been examined.
+     *
+     * @param count The number of bytes
+     */
+
+    void skip(final long count)
+    {
+      this.position += count;
+    }
+
+    /**
+     * @return The offset of the start of the most recently started line
+     */
+
+    long lineStart()
+    {
+      return this.lineStart;
+    }
+
+    /**
+     * Examine the byte at the given offset.
+     *
+     * @return The number of the line that starts with this byte, or
+     * {@code 0} if no line starts with it
+     */
+
+    int advance(
+      final byte b,
+      final long offset)
+    {
+      if (this.skipLF) {
+        this.skipLF = false;
+        if (b == '\n') {
+          return 0;
+        }
+      }
+
+      int started = 0;
+      if (this.atStart) {
+        this.atStart = false;
+        this.lineStart = offset;
+        started = this.line;
+      }
+      if (b == '\n' || b == '\r') {
+        ++this.line;
+        this.atStart = true;
+        this.skipLF = b == '\r';
+      }
+      return started;
+    }
+  }
+
+  /**
+   * Read the line starting at the given offset, with leading and trailing
+   * whitespace removed. At most {@link #LINE_MAX} bytes are read.
+   *
+   * @param channel The file
+   * @param offset  The offset of the start of the line
+   *
+   * @return The line
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static String read(
+    final FileChannel channel,
+    final long offset)
+    throws IOException
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate(LINE_MAX);
+    while (buffer.hasRemaining()) {
+      final int count =
+        channel.read(buffer, offset + (long) buffer.position());
+      if (count <= 0) {
+        break;
+      }
+    }
+
+    buffer.flip();
+    for (int index = 0; index < buffer.limit(); ++index) {
+      final byte b = buffer.get(index);
+      if (b == '\n' || b == '\r') {
+        buffer.limit(index);
+        break;
+      }
+    }
+    return StandardCharsets.UTF_8.decode(buffer).toString().trim();
+  }
+}
@@ -17,33 +17,65 @@
 package com.io7m.jobj.tools;
 
 import com.io7m.jlexing.core.LexicalPositionType;
-import com.io7m.jobj.core.JOParser;
+import com.io7m.jobj.core.JOParserBulk;
+import com.io7m.jobj.core.JOParserBulkResult;
 import com.io7m.jobj.core.JOParserErrorCode;
+import com.io7m.jobj.core.JOParserEventKind;
 import com.io7m.jobj.core.JOParserEventListenerType;
-import com.io7m.jobj.core.JOParserType;
+import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
- * Command line {@code obj} file checker.
+ * Command line {@code obj} file checker. Any number of files, directories
+ * (which are searched recursively for {@code .obj} files) and glob patterns
+ * may be given, and the files are checked concurrently. The diagnostics for
+ * each file are printed together, in the order that the files were given,
+ * and each file's diagnostics are printed as soon as that file and every
+ * file before it have been checked. The diagnostics of the earliest
+ * unfinished file are printed as they are produced; only the diagnostics
+ * of files that are waiting for an earlier file are held in memory.
+ * The exit code is {@code 127} if any file could not be read, {@code 1} if
+ * any file contained errors, and {@code 0} otherwise.
  */
 
 public final class CheckerMain
 {
   @Option(
     name = "--file",
-    usage = "The file that will be checked",
-    required = true)
-  private Path file;
+    usage = "A file that will be checked (may be repeated)")
+  private List<String> files = new ArrayList<>();
+
+  @Option(
+    name = "--jobs",
+    usage = "The maximum number of files checked at once")
+  private int jobs = Runtime.getRuntime().availableProcessors();
 
   @Option(
     name = "--help",
@@ -51,6 +83,11 @@ public final class CheckerMain
     help = true)
   private boolean help;
 
+  @Argument(
+    metaVar = "PATH",
+    usage = "Files, directories, or glob patterns that will be checked")
+  private List<String> arguments = new ArrayList<>();
+
   private CheckerMain()
   {
 
@@ -87,6 +124,107 @@ public final class CheckerMain
     return v;
   }
 
+  private static boolean isGlob(final String text)
+  {
+    for (int index = 0; index < text.length(); ++index) {
+      switch (text.charAt(index)) {
+        case '*':
+        case '?':
+        case '[':
+        case '{':
+          return true;
+        default:
+          break;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isObj(final Path path)
+  {
+    final Path name = path.getFileName();
+    return name != null
+      && name.toString().toLowerCase(Locale.ROOT).endsWith(".obj")
+      && Files.isRegularFile(path);
+  }
+
+  private static void expandDirectory(
+    final Path directory,
+    final List<Path> out)
+    throws IOException
+  {
+    try (Stream<Path> stream = Files.walk(directory)) {
+      stream.filter(CheckerMain::isObj).sorted().forEach(out::add);
+    }
+  }
+
+  /**
+   * Expand a glob pattern. The directory tree is walked from the longest
+   * prefix of the pattern that contains no glob characters.
+   */
+
+  private static void expandGlob(
+    final String pattern,
+    final List<Path> out)
+    throws IOException
+  {
+    final String separator = FileSystems.getDefault().getSeparator();
+    final String[] segments = pattern.split(Pattern.quote(separator), -1);
+    final StringBuilder base = new StringBuilder(pattern.length());
+    for (final String segment : segments) {
+      if (isGlob(segment)) {
+        break;
+      }
+      base.append(segment);
+      base.append(separator);
+    }
+
+    final PathMatcher matcher =
+      FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    final Path root = Paths.get(base.toString());
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    try (Stream<Path> stream = Files.walk(root)) {
+      stream.filter(p -> matcher.matches(p) && Files.isRegularFile(p))
+        .sorted()
+        .forEach(out::add);
+    }
+  }
+
+  private List<Path> expand()
+    throws IOException
+  {
+    final List<String> names = new ArrayList<>(this.files);
+    names.addAll(this.arguments);
+
+    final List<Path> out = new ArrayList<>(names.size());
+    for (final String name : names) {
+      if (isGlob(name)) {
+        expandGlob(name, out);
+        continue;
+      }
+      final Path path = Paths.get(name);
+      if (Files.isDirectory(path)) {
+        expandDirectory(path, out);
+      } else {
+        out.add(path);
+      }
+    }
+
+    /*
+     * A file may be named more than once (for example, by a directory and a
+     * glob). Each file is checked once, so that its diagnostics are
+     * reported exactly once.
+     */
+
+    final Set<Path> unique = new LinkedHashSet<>(out.size());
+    for (final Path path : out) {
+      unique.add(path.normalize());
+    }
+    return List.copyOf(unique);
+  }
+
   private void go(final String[] args)
   {
     final CmdLineParser parser = new CmdLineParser(this);
@@ -100,65 +238,307 @@ public final class CheckerMain
         System.exit(0);
       }
 
-      final Listener ls = new Listener();
-
-      try (InputStream s = Files.newInputStream(this.file)) {
-        final JOParserType p =
-          JOParser.newParserFromStream(Optional.of(this.file), s, ls);
-        p.run();
+      if (this.jobs <= 0) {
+        throw new CmdLineException(parser, "--jobs must be positive", null);
       }
 
-      if (ls.error_count > 0) {
-        System.err.printf(
-          "error: Encountered %d errors.\n",
-          Integer.valueOf(ls.error_count));
+      final List<Path> paths = this.expand();
+      if (paths.isEmpty()) {
+        System.err.println("error: No files to check.");
         System.err.flush();
-        System.exit(1);
+        System.exit(127);
       }
 
+      System.exit(check(paths, this.jobs));
+    } catch (final CmdLineException e) {
+      System.err.println("error: " + e.getMessage());
+      showHelp(parser);
+      System.err.flush();
+      System.exit(127);
     } catch (final IOException e) {
       System.err.printf(
         "error: i/o error: %s: %s\n", e.getClass().getName(), e.getMessage());
       System.err.flush();
       System.exit(127);
-    } catch (final CmdLineException e) {
-      showHelp(parser);
-      System.err.flush();
-      System.exit(127);
+    }
+  }
+
+  private static int check(
+    final List<Path> paths,
+    final int jobs)
+  {
+    final Printer printer = new Printer(paths.size());
+    final Map<Path, Integer> indices = new HashMap<>(paths.size());
+    for (int index = 0; index < paths.size(); ++index) {
+      indices.put(paths.get(index), Integer.valueOf(index));
+    }
+
+    final Map<Path, Listener> listeners = new ConcurrentHashMap<>(paths.size());
+    final List<CompletableFuture<JOParserBulkResult>> futures =
+      JOParserBulk.parseEach(paths, path -> {
+        final Listener ls =
+          new Listener(printer, indices.get(path).intValue());
+        listeners.put(path, ls);
+        return ls;
+      }, jobs);
+
+    int failed = 0;
+    int errors = 0;
+    for (int index = 0; index < futures.size(); ++index) {
+      printer.advance(index);
+      final JOParserBulkResult result = futures.get(index).join();
+      final Listener ls = listeners.remove(result.path());
+      if (ls != null) {
+        ls.finish();
+      }
+
+      final Optional<Throwable> exception = result.exception();
+      if (exception.isPresent()) {
+        ++failed;
+        if (ls == null || !ls.fatal) {
+          final Throwable x = exception.get();
+          printer.write(index, String.format(
+            "error: %s: i/o error: %s: %s\n",
+            result.path(),
+            x.getClass().getName(),
+            x.getMessage()));
+        }
+      } else if (ls != null && ls.error_count > 0) {
+        ++errors;
+        printer.write(index, String.format(
+          "error: %s: Encountered %d errors.\n",
+          result.path(),
+          Integer.valueOf(ls.error_count)));
+      }
+    }
+
+    System.err.flush();
+    if (failed > 0) {
+      return 127;
+    }
+    if (errors > 0) {
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * The output of all files. The output of the earliest file that has not
+   * yet been reported (the head) is printed immediately, and the output of
+   * later files is held until they become the head.
+   */
+
+  private static final class Printer
+  {
+    private final StringBuilder[] pending;
+    private int head;
+
+    Printer(final int count)
+    {
+      this.pending = new StringBuilder[count];
+    }
+
+    synchronized void write(
+      final int index,
+      final CharSequence text)
+    {
+      if (index == this.head) {
+        System.err.append(text);
+        return;
+      }
+      if (this.pending[index] == null) {
+        this.pending[index] = new StringBuilder(256);
+      }
+      this.pending[index].append(text);
+    }
+
+    synchronized void advance(final int index)
+    {
+      this.head = index;
+      if (this.pending[index] != null) {
+        System.err.append(this.pending[index]);
+        this.pending[index] = null;
+      }
     }
   }
 
   private static final class Listener implements JOParserEventListenerType
   {
-    private final Map<Integer, String> lines;
+    private static final int BATCH_SIZE = 1024;
+
+    private final Printer printer;
+    private final int fileIndex;
+    private final StringWriter output;
+    private final PrintWriter out;
+    private final int[] errorLines;
+    private final int[] errorColumns;
+    private final String[] errorMessages;
+    private final CheckerLines.Cursor cursor;
     private int error_count;
-
-    Listener()
+    private int batch;
+    private boolean fatal;
+    private Optional<Path> file;
+    private FileChannel channel;
+    private boolean opened;
+
+    Listener(
+      final Printer in_printer,
+      final int in_index)
     {
-      this.error_count = 0;
-      this.lines = new HashMap<>(8192);
+      this.printer = in_printer;
+      this.fileIndex = in_index;
+      this.output = new StringWriter(256);
+      this.out = new PrintWriter(this.output);
+      this.file = Optional.empty();
+      this.errorLines = new int[BATCH_SIZE];
+      this.errorColumns = new int[BATCH_SIZE];
+      this.errorMessages = new String[BATCH_SIZE];
+      this.cursor = new CheckerLines.Cursor();
     }
 
+    /**
+     * Record an error. Errors are shown in batches of {@link #BATCH_SIZE},
+     * so that the lines that contain errors can be read back from the file
+     * in a single forward pass, without every line of the file (or every
+     * error) being retained in memory.
+     */
+
     private void errorShow(
       final LexicalPositionType<Path> p,
       final String message)
     {
-      final String name = p.file().map(q -> q.toString() + ":").orElse("");
-      System.err.printf(
-        "error: %s%d:%d: %s\n",
-        name,
-        Integer.valueOf(p.line()),
-        Integer.valueOf(p.column()),
-        message);
-
-      final String line = this.lines.get(Integer.valueOf(p.line()));
-      if (line != null) {
-        System.err.println(line);
-        for (int index = 1; index < p.column(); ++index) {
-          System.err.print(" ");
+      this.file = p.file();
+      this.errorLines[this.batch] = p.line();
+      this.errorColumns[this.batch] = p.column();
+      this.errorMessages[this.batch] = message;
+      ++this.batch;
+      ++this.error_count;
+
+      if (this.batch == BATCH_SIZE) {
+        this.errorsShow();
+        this.flush();
+      }
+    }
+
+    /**
+     * Find the offsets of the lines that contain errors in the current
+     * batch. Lines that cannot be found are left at {@code -1}.
+     */
+
+    private void findOffsets(
+      final FileChannel in_channel,
+      final long[] offsets)
+      throws IOException
+    {
+      final int[] lines = Arrays.stream(this.errorLines, 0, this.batch)
+        .distinct()
+        .sorted()
+        .toArray();
+      final long[] found = CheckerLines.offsets(lines, in_channel, this.cursor);
+      for (int index = 0; index < this.batch; ++index) {
+        offsets[index] =
+          found[Arrays.binarySearch(lines, this.errorLines[index])];
+      }
+    }
+
+    private void errorsShow()
+    {
+      final String name =
+        this.file.map(q -> q.toString() + ":").orElse("");
+      final long[] offsets = new long[this.batch];
+      Arrays.fill(offsets, -1L);
+
+      final FileChannel source = this.openFile();
+      try {
+        if (source != null) {
+          this.findOffsets(source, offsets);
         }
-        System.err.println("^");
+
+        for (int index = 0; index < this.batch; ++index) {
+          final int column = this.errorColumns[index];
+          this.out.printf(
+            "error: %s%d:%d: %s\n",
+            name,
+            Integer.valueOf(this.errorLines[index]),
+            Integer.valueOf(column),
+            this.errorMessages[index]);
+
+          if (source != null && offsets[index] >= 0L) {
+            this.out.println(CheckerLines.read(source, offsets[index]));
+            for (int c = 1; c < column; ++c) {
+              this.out.print(" ");
+            }
+            this.out.println("^");
+          }
+        }
+      } catch (final IOException e) {
+        this.out.printf(
+          "error: %s i/o error: %s: %s\n",
+          name,
+          e.getClass().getName(),
+          e.getMessage());
+        this.closeFile();
+      }
+
+      Arrays.fill(this.errorMessages, 0, this.batch, null);
+      this.batch = 0;
+    }
+
+    /**
+     * Open the file for reading back lines, the first time that a batch of
+     * errors is shown. Snippets are not shown if the file cannot be read.
+     */
+
+    private FileChannel openFile()
+    {
+      if (this.batch == 0 || this.file.isEmpty()) {
+        return this.channel;
       }
+      if (!this.opened) {
+        this.opened = true;
+        try {
+          this.channel =
+            FileChannel.open(this.file.get(), StandardOpenOption.READ);
+        } catch (final IOException e) {
+          this.channel = null;
+        }
+      }
+      return this.channel;
+    }
+
+    private void closeFile()
+    {
+      if (this.channel != null) {
+        try {
+          this.channel.close();
+        } catch (final IOException e) {
+          // Nothing can usefully be done
+        }
+        this.channel = null;
+      }
+    }
+
+    /**
+     * Hand the output produced so far to the printer.
+     */
+
+    private void flush()
+    {
+      this.out.flush();
+      this.printer.write(this.fileIndex, this.output.getBuffer());
+      this.output.getBuffer().setLength(0);
+    }
+
+    void finish()
+    {
+      this.flush();
+      this.closeFile();
+    }
+
+    @Override
+    public Set<JOParserEventKind> interests()
+    {
+      return EnumSet.of(JOParserEventKind.EVENT_ERROR);
     }
 
     @Override
@@ -167,7 +547,19 @@ public final class CheckerMain
       final Optional<Throwable> e,
       final String message)
     {
-
+      if (e.isPresent() && e.get() instanceof IOException) {
+        final Throwable x = e.get();
+        this.fatal = true;
+        this.errorsShow();
+        this.out.printf(
+          "error: %s: i/o error: %s: %s\n",
+          p.file().map(Path::toString).orElse(""),
+          x.getClass().getName(),
+          x.getMessage());
+        this.flush();
+      } else {
+        this.errorShow(p, message);
+      }
     }
 
     @Override
@@ -176,7 +568,6 @@ public final class CheckerMain
       final JOParserErrorCode e,
       final String message)
     {
-      ++this.error_count;
 
       switch (e) {
         case JOP_ERROR_BAD_COMMAND_SYNTAX: {
@@ -211,13 +602,15 @@ public final class CheckerMain
       final LexicalPositionType<Path> p,
       final String line)
     {
-      this.lines.put(Integer.valueOf(p.line()), line);
+
     }
 
     @Override
     public void onEOF(final LexicalPositionType<Path> p)
     {
-
+      this.errorsShow();
+      this.flush();
+      this.closeFile();
     }
 
     @Override